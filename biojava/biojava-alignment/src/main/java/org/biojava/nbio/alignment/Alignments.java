@@ -28,7 +28,13 @@ import org.biojava.nbio.core.alignment.template.SequencePair;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.core.alignment.template.Profile;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.alignment.routines.GuanUberbacher;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.Encoding;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.QueryProfile;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.Workspace;
 import org.biojava.nbio.alignment.template.*;
+import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
@@ -36,18 +42,25 @@ import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.CompoundSet;
 import org.biojava.nbio.core.sequence.template.Sequence;
 import org.biojava.nbio.core.util.ConcurrencyTools;
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
 
 /**
  * Static utility to easily run alignment routines.  To exit cleanly after running any parallel method that mentions
  * use of the {@link ConcurrencyTools} utility, {@link ConcurrencyTools#shutdown()} or
- * {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.
+ * {@link ConcurrencyTools#shutdownAndAwaitTermination()} must be called.  Each of these methods can instead be given
+ * an {@link ExecutionContext}, which bounds, counts and can cancel the tasks of that call only.
  *
  * @author Mark Chapman
  */
@@ -55,6 +68,9 @@ public class Alignments {
 
 	private final static Logger logger = LoggerFactory.getLogger(Alignments.class);
 
+	// residues of the query profiles scored together by getAllPairsScoreMatrix, so that they stay in cache
+	private static final int BLOCK_RESIDUES = 1 << 14;
+
 	/**
 	 * List of implemented sequence pair in a profile scoring routines.
 	 */
@@ -84,7 +100,9 @@ public class Alignments {
 		LOCAL_IDENTITIES,
 		LOCAL_SIMILARITIES,
 		KMERS,               // similar to CLUSTAL and MUSCLE
-		WU_MANBER            // similar to KALIGN
+		WU_MANBER,           // similar to KALIGN
+		GLOBAL_STRIPED,      // GLOBAL score only, see StripedScorer
+		LOCAL_STRIPED        // LOCAL score only, see StripedScorer
 	}
 
 	/**
@@ -132,11 +150,32 @@ public class Alignments {
 	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
 			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
 			SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsAlignments(sequences, type, gapPenalty, subMatrix, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method which computes a sequence alignment for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the alignments in parallel by submitting all of the alignments to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the alignments
+	 * @return list of sequence alignment pairs
+	 */
+	public static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>> getAllPairsAlignments(
+			List<S> sequences, PairwiseSequenceAlignerType type, GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix, ExecutionContext context) {
+		return runPairwiseAligners(getAllPairsAligners(sequences, type, gapPenalty, subMatrix), context);
 	}
 
 	/**
 	 * Factory method which computes a multiple sequence alignment for the given {@link List} of {@link Sequence}s.
+	 * The settings may include an {@link ExecutionContext} to run the tasks of the alignment, otherwise these are
+	 * submitted to the shared thread pool of the {@link ConcurrencyTools} utility.
 	 *
 	 * @param <S> each {@link Sequence} of the {@link List} is of type S
 	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
@@ -166,6 +205,7 @@ public class Alignments {
 
 		}
 		ProfileProfileAlignerType pa = ProfileProfileAlignerType.GLOBAL;
+		ExecutionContext context = null;
 		for (Object o : settings) {
 			if (o instanceof PairwiseSequenceScorerType) {
 				ps = (PairwiseSequenceScorerType) o;
@@ -181,19 +221,29 @@ public class Alignments {
 				subMatrix = temp;
 			} else if (o instanceof ProfileProfileAlignerType) {
 				pa = (ProfileProfileAlignerType) o;
+			} else if (o instanceof ExecutionContext) {
+				context = (ExecutionContext) o;
 			}
 		}
+		if (context == null) {
+			context = ExecutionContext.getDefault();
+		}
 
 		// stage 1: pairwise similarity calculation
-		List<PairwiseSequenceScorer<S, C>> scorers = getAllPairsScorers(sequences, ps, gapPenalty, subMatrix);
-		runPairwiseScorers(scorers);
-
 		// stage 2: hierarchical clustering into a guide tree
-		GuideTree<S, C> tree = new GuideTree<S, C>(sequences, scorers);
-		scorers = null;
+		GuideTree<S, C> tree;
+		if (isStriped(ps)) {
+			tree = new GuideTree<S, C>(sequences, getAllPairsScoreMatrix(sequences, ps, gapPenalty, subMatrix,
+					context));
+		} else {
+			List<PairwiseSequenceScorer<S, C>> scorers = getAllPairsScorers(sequences, ps, gapPenalty, subMatrix);
+			runPairwiseScorers(scorers, context);
+			tree = new GuideTree<S, C>(sequences, scorers);
+			scorers = null;
+		}
 
 		// stage 3: progressive alignment
-		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix);
+		Profile<S, C> msa = getProgressiveAlignment(tree, pa, gapPenalty, subMatrix, context);
 
 		// TODO stage 4: refinement
 		return msa;
@@ -244,6 +294,8 @@ public class Alignments {
 
 	/**
 	 * Factory method which sets up a sequence pair scorer for all {@link Sequence} pairs in the given {@link List}.
+	 * The {@link PairwiseSequenceScorerType#GLOBAL_STRIPED} and {@link PairwiseSequenceScorerType#LOCAL_STRIPED}
+	 * scorers are {@link StripedScorer}s, which share the encoding and query profile of each sequence.
 	 *
 	 * @param <S> each {@link Sequence} of a pair is of type S
 	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
@@ -257,6 +309,23 @@ public class Alignments {
 			List<S> sequences, PairwiseSequenceScorerType type, GapPenalty gapPenalty,
 			SubstitutionMatrix<C> subMatrix) {
 		List<PairwiseSequenceScorer<S, C>> allPairs = new ArrayList<PairwiseSequenceScorer<S, C>>();
+		if (isStriped(type)) {
+			// encode each sequence and build its query profile only once
+			Encoding<C> encoding = new Encoding<C>(subMatrix, sequences);
+			List<byte[]> encoded = new ArrayList<byte[]>();
+			for (S s : sequences) {
+				encoded.add(encoding.encode(s));
+			}
+			boolean local = type == PairwiseSequenceScorerType.LOCAL_STRIPED;
+			for (int i = 0; i < sequences.size(); i++) {
+				QueryProfile profile = new QueryProfile(encoded.get(i), encoding);
+				for (int j = i+1; j < sequences.size(); j++) {
+					allPairs.add(new StripedScorer<S, C>(sequences.get(i), sequences.get(j), gapPenalty, subMatrix,
+							local, encoding, profile, encoded.get(j)));
+				}
+			}
+			return allPairs;
+		}
 		for (int i = 0; i < sequences.size(); i++) {
 			for (int j = i+1; j < sequences.size(); j++) {
 				allPairs.add(getPairwiseScorer(sequences.get(i), sequences.get(j), type, gapPenalty, subMatrix));
@@ -280,7 +349,196 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores( List<S> sequences,
 			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
-		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix));
+		return getAllPairsScores(sequences, type, gapPenalty, subMatrix, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method which computes a sequence pair score for all {@link Sequence} pairs in the given {@link List}.
+	 * This method runs the scorings in parallel by submitting all of the scorings to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type chosen type from list of pairwise sequence scoring routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the scorings
+	 * @return list of sequence pair scores
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] getAllPairsScores( List<S> sequences,
+			PairwiseSequenceScorerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			ExecutionContext context) {
+		if (isStriped(type)) {
+			// no scorer objects are needed for these
+			return getAllPairsScoreMatrix(sequences, type, gapPenalty, subMatrix, context).getScores();
+		}
+		return runPairwiseScorers(getAllPairsScorers(sequences, type, gapPenalty, subMatrix), context);
+	}
+
+	/**
+	 * Factory method which computes the global or local alignment score of all {@link Sequence} pairs in the given
+	 * {@link List}, on the common {@link ForkJoinPool}.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type {@link PairwiseSequenceScorerType#GLOBAL} or {@link PairwiseSequenceScorerType#LOCAL}, or their
+	 * striped variants, which give the same scores
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @return the scores of all pairs
+	 * @see #getAllPairsScoreMatrix(List, PairwiseSequenceScorerType, GapPenalty, SubstitutionMatrix,
+	 * ExecutionContext, File)
+	 */
+	public static <S extends Sequence<C>, C extends Compound> PairwiseScoreMatrix getAllPairsScoreMatrix(
+			List<S> sequences, PairwiseSequenceScorerType type, GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix) {
+		return getAllPairsScoreMatrix(sequences, type, gapPenalty, subMatrix,
+				ExecutionContext.forkJoin(4 * ForkJoinPool.commonPool().getParallelism()));
+	}
+
+	/**
+	 * Factory method which computes the global or local alignment score of all {@link Sequence} pairs in the given
+	 * {@link List}, with the given context.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type {@link PairwiseSequenceScorerType#GLOBAL} or {@link PairwiseSequenceScorerType#LOCAL}, or their
+	 * striped variants, which give the same scores
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the scorings
+	 * @return the scores of all pairs
+	 * @see #getAllPairsScoreMatrix(List, PairwiseSequenceScorerType, GapPenalty, SubstitutionMatrix,
+	 * ExecutionContext, File)
+	 */
+	public static <S extends Sequence<C>, C extends Compound> PairwiseScoreMatrix getAllPairsScoreMatrix(
+			List<S> sequences, PairwiseSequenceScorerType type, GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix, ExecutionContext context) {
+		try {
+			return getAllPairsScoreMatrix(sequences, type, gapPenalty, subMatrix, context, null);
+		} catch (IOException e) {
+			// not thrown without a file
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Factory method which computes the global or local alignment score of all {@link Sequence} pairs in the given
+	 * {@link List}.  The scores are the same as those of {@link #getAllPairsScorers}, but no object is created per
+	 * pair: the sequences are split into blocks of a few sequences, each block of rows is a task of the given context,
+	 * and each task builds the query profile of each of its rows once, then scores them against the later blocks of
+	 * columns one tile at a time with {@link StripedAlignerHelper}, reusing the dynamic programming buffers of its
+	 * thread.  The scores are written to a packed
+	 * {@link PairwiseScoreMatrix}, from which a {@link GuideTree} can be built directly.
+	 *
+	 * @param <S> each {@link Sequence} of a pair is of type S
+	 * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param type {@link PairwiseSequenceScorerType#GLOBAL} or {@link PairwiseSequenceScorerType#LOCAL}, or their
+	 * striped variants, which give the same scores
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the scorings
+	 * @param file the file in which to keep the scores, memory-mapped, or null to keep them in memory
+	 * @return the scores of all pairs
+	 * @throws IOException if the file cannot be mapped
+	 * @throws IllegalArgumentException if the type is neither global nor local
+	 * @throws CancellationException if the context was cancelled or the thread interrupted
+	 */
+	public static <S extends Sequence<C>, C extends Compound> PairwiseScoreMatrix getAllPairsScoreMatrix(
+			List<S> sequences, PairwiseSequenceScorerType type, final GapPenalty gapPenalty,
+			SubstitutionMatrix<C> subMatrix, ExecutionContext context, File file) throws IOException {
+		if (type != PairwiseSequenceScorerType.GLOBAL && type != PairwiseSequenceScorerType.LOCAL
+				&& !isStriped(type)) {
+			throw new IllegalArgumentException(type + " scores are not computed by " +
+					StripedAlignerHelper.class.getSimpleName());
+		}
+		final boolean local = type == PairwiseSequenceScorerType.LOCAL
+				|| type == PairwiseSequenceScorerType.LOCAL_STRIPED;
+		final Encoding<C> encoding = new Encoding<C>(subMatrix, sequences);
+		int n = sequences.size();
+		final byte[][] encoded = new byte[n][];
+		String[] identifiers = new String[n];
+		int[] selfScores = new int[n], lengths = new int[n];
+		for (int i = 0; i < n; i++) {
+			encoded[i] = encoding.encode(sequences.get(i));
+			AccessionID id = sequences.get(i).getAccession();
+			identifiers[i] = (id == null) ? Integer.toString(i + 1) : id.getID();
+			selfScores[i] = encoding.getSelfScore(encoded[i]);
+			lengths[i] = encoded[i].length;
+		}
+		final PairwiseScoreMatrix matrix = new PairwiseScoreMatrix(identifiers, selfScores, lengths, gapPenalty, local,
+				file);
+
+		// consecutive sequences are grouped in blocks of about BLOCK_RESIDUES residues
+		final List<Integer> starts = new ArrayList<Integer>();
+		for (int i = 0, residues = 0; i < n; i++) {
+			if (i == 0 || residues + lengths[i] > BLOCK_RESIDUES) {
+				starts.add(i);
+				residues = 0;
+			}
+			residues += lengths[i];
+		}
+		starts.add(n);
+
+		final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+			@Override
+			protected Workspace initialValue() {
+				return new Workspace();
+			}
+		};
+		final boolean linear = gapPenalty.getType() == GapPenalty.Type.LINEAR;
+		final int gop = gapPenalty.getOpenPenalty(), gep = gapPenalty.getExtensionPenalty();
+		final int blocks = starts.size() - 1;
+		List<Future<Void>> futures = new ArrayList<Future<Void>>();
+		for (int a = 0; a < blocks; a++) {
+			final int block = a;
+			final int rowStart = starts.get(a), rowEnd = starts.get(a + 1);
+			// the first blocks have the most pairs, so they are submitted first
+			futures.add(context.submit(new Callable<Void>() {
+				@Override
+				public Void call() {
+					Workspace workspace = workspaces.get();
+					QueryProfile[] profiles = new QueryProfile[rowEnd - rowStart];
+					for (int i = rowStart; i < rowEnd; i++) {
+						profiles[i - rowStart] = new QueryProfile(encoded[i], encoding);
+					}
+					for (int b = block; b < blocks; b++) {
+						int columnStart = starts.get(b), columnEnd = starts.get(b + 1);
+						for (int i = rowStart; i < rowEnd; i++) {
+							QueryProfile profile = profiles[i - rowStart];
+							for (int j = Math.max(i + 1, columnStart); j < columnEnd; j++) {
+								matrix.setScore(i, j, local ?
+										StripedAlignerHelper.getLocalScore(profile, encoded[j], gop, gep, linear,
+												workspace) :
+										StripedAlignerHelper.getGlobalScore(profile, encoded[j], gop, gep, linear,
+												workspace));
+							}
+						}
+					}
+					return null;
+				}
+			}, String.format("Scoring block %d of %d", a + 1, blocks)));
+		}
+		for (Future<Void> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<Void> g : futures) {
+					g.cancel(true);
+				}
+				throw new CancellationException("Interrupted while scoring all pairs");
+			} catch (ExecutionException e) {
+				for (Future<Void> g : futures) {
+					g.cancel(true);
+				}
+				throw new IllegalStateException("Scoring of all pairs failed", e.getCause());
+			}
+		}
+		return matrix;
 	}
 
 	/**
@@ -330,6 +588,7 @@ public class Alignments {
 		case LOCAL:
 			return new SmithWaterman<S, C>(query, target, gapPenalty, subMatrix);
 		case GLOBAL_LINEAR_SPACE:
+			return new GuanUberbacher<S, C>(query, target, gapPenalty, subMatrix);
 		case LOCAL_LINEAR_SPACE:
 			// TODO other alignment options (Myers-Miller, Thompson)
 			throw new UnsupportedOperationException(Alignments.class.getSimpleName() + " does not yet support " +
@@ -387,6 +646,10 @@ public class Alignments {
 		case LOCAL_SIMILARITIES:
 			return new FractionalSimilarityScorer<S, C>(getPairwiseAligner(query, target,
 					PairwiseSequenceAlignerType.LOCAL, gapPenalty, subMatrix));
+		case GLOBAL_STRIPED:
+			return new StripedScorer<S, C>(query, target, gapPenalty, subMatrix, false);
+		case LOCAL_STRIPED:
+			return new StripedScorer<S, C>(query, target, gapPenalty, subMatrix, true);
 		case KMERS:
 		case WU_MANBER:
 			// TODO other scoring options
@@ -395,6 +658,13 @@ public class Alignments {
 		}
 	}
 
+	/**
+	 * Returns true for the scores computed by the striped kernels of {@link StripedAlignerHelper}.
+	 */
+	private static boolean isStriped(PairwiseSequenceScorerType type) {
+		return type == PairwiseSequenceScorerType.GLOBAL_STRIPED || type == PairwiseSequenceScorerType.LOCAL_STRIPED;
+	}
+
 	/**
 	 * Factory method which constructs a profile-profile aligner.
 	 *
@@ -548,6 +818,25 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
 			ProfileProfileAlignerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
+		return getProgressiveAlignment(tree, type, gapPenalty, subMatrix, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method to run the profile-profile alignments of a progressive multiple sequence alignment concurrently.
+	 * This method runs the alignments in parallel by submitting all of the alignment tasks to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param tree guide tree to follow aligning profiles from leaves to root
+	 * @param type chosen type from list of profile-profile alignment routines
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param context runs the alignments
+	 * @return multiple sequence alignment
+	 */
+	public static <S extends Sequence<C>, C extends Compound> Profile<S, C> getProgressiveAlignment(GuideTree<S, C> tree,
+			ProfileProfileAlignerType type, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix,
+			ExecutionContext context) {
 
 		// find inner nodes in post-order traversal of tree (each leaf node has a single sequence profile)
 		List<GuideTreeNode<S, C>> innerNodes = new ArrayList<GuideTreeNode<S, C>>();
@@ -557,7 +846,7 @@ public class Alignments {
 			}
 		}
 
-		// submit alignment tasks to the shared thread pool
+		// submit alignment tasks, children before their parents
 		int i = 1, all = innerNodes.size();
 		for (GuideTreeNode<S, C> n : innerNodes) {
 			Profile<S, C> p1 = n.getChild1().getProfile(), p2 = n.getChild2().getProfile();
@@ -567,7 +856,7 @@ public class Alignments {
 							getProfileProfileAligner(p1, pf2, type, gapPenalty, subMatrix)) :
 					((p2 != null) ? getProfileProfileAligner(pf1, p2, type, gapPenalty, subMatrix) :
 							getProfileProfileAligner(pf1, pf2, type, gapPenalty, subMatrix));
-			n.setProfileFuture(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner), String.format(
+			n.setProfileFuture(context.submit(new CallableProfileProfileAligner<S, C>(aligner), String.format(
 					"Aligning pair %d of %d", i++, all)));
 		}
 
@@ -598,10 +887,25 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
 			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners) {
+		return runPairwiseAligners(aligners, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently.  This method runs the alignments in parallel by
+	 * submitting all of the alignment tasks to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param context runs the alignments
+	 * @return list of {@link SequencePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<SequencePair<S, C>>
+			runPairwiseAligners(List<PairwiseSequenceAligner<S, C>> aligners, ExecutionContext context) {
 		int n = 1, all = aligners.size();
 		List<Future<SequencePair<S, C>>> futures = new ArrayList<Future<SequencePair<S, C>>>();
 		for (PairwiseSequenceAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
+			futures.add(context.submit(new CallablePairwiseSequenceAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
 		return getListFromFutures(futures);
@@ -618,10 +922,25 @@ public class Alignments {
 	 */
 	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
 			List<PairwiseSequenceScorer<S, C>> scorers) {
+		return runPairwiseScorers(scorers, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of scorers concurrently.  This method runs the scorers in parallel by submitting
+	 * all of the scoring tasks to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of an alignment pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param scorers list of scorers to run
+	 * @param context runs the scorers
+	 * @return list of score results from running scorers
+	 */
+	public static <S extends Sequence<C>, C extends Compound> double[] runPairwiseScorers(
+			List<PairwiseSequenceScorer<S, C>> scorers, ExecutionContext context) {
 		int n = 1, all = scorers.size();
 		List<Future<Double>> futures = new ArrayList<Future<Double>>();
 		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
-			futures.add(ConcurrencyTools.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
+			futures.add(context.submit(new CallablePairwiseSequenceScorer<S, C>(scorer),
 					String.format("Scoring pair %d of %d", n++, all)));
 		}
 		List<Double> results = getListFromFutures(futures);
@@ -643,10 +962,25 @@ public class Alignments {
 	 */
 	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
 			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners) {
+		return runProfileAligners(aligners, ExecutionContext.getDefault());
+	}
+
+	/**
+	 * Factory method to run a list of alignments concurrently.  This method runs the alignments in parallel by
+	 * submitting all of the alignment tasks to the given context.
+	 *
+	 * @param <S> each {@link Sequence} of the {@link Profile} pair is of type S
+	 * @param <C> each element of an {@link AlignedSequence} is a {@link Compound} of type C
+	 * @param aligners list of alignments to run
+	 * @param context runs the alignments
+	 * @return list of {@link ProfilePair} results from running alignments
+	 */
+	static <S extends Sequence<C>, C extends Compound> List<ProfilePair<S, C>>
+			runProfileAligners(List<ProfileProfileAligner<S, C>> aligners, ExecutionContext context) {
 		int n = 1, all = aligners.size();
 		List<Future<ProfilePair<S, C>>> futures = new ArrayList<Future<ProfilePair<S, C>>>();
 		for (ProfileProfileAligner<S, C> aligner : aligners) {
-			futures.add(ConcurrencyTools.submit(new CallableProfileProfileAligner<S, C>(aligner),
+			futures.add(context.submit(new CallableProfileProfileAligner<S, C>(aligner),
 					String.format("Aligning pair %d of %d", n++, all)));
 		}
 		return getListFromFutures(futures);
@@ -31,6 +31,7 @@ import org.biojava.nbio.core.alignment.template.ProfilePair;
 import org.biojava.nbio.core.sequence.AccessionID;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
+import org.biojava.nbio.phylo.DistanceMatrixCalculator;
 import org.biojava.nbio.phylo.ForesterWrapper;
 import org.biojava.nbio.phylo.TreeConstructor;
 import org.biojava.nbio.phylo.TreeConstructorType;
@@ -56,7 +57,9 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 
 	private List<S> sequences;
 	private List<PairwiseSequenceScorer<S, C>> scorers;
+	private PairwiseScoreMatrix scoreMatrix;
 	private BasicSymmetricalDistanceMatrix distances;
+	private Map<String, Integer> indices;
 	private String newick;
 	private Node root;
 
@@ -79,18 +82,50 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 				distances.setValue(i, j, dist);
 			}
 		}
-		BasicSymmetricalDistanceMatrix distclone = ForesterWrapper.cloneDM(distances);
-		Phylogeny phylogeny = TreeConstructor.distanceTree(distclone, TreeConstructorType.NJ);
+		build(ForesterWrapper.cloneDM(distances));
+	}
+
+	/**
+	 * Creates a guide tree for use during progressive multiple sequence alignment from the packed scores of all
+	 * pairs, as computed by {@link Alignments#getAllPairsScoreMatrix}.  The distances are not kept: the only square
+	 * matrix is the one consumed by the neighbor joining, and {@link #getDistanceMatrix()} reads the packed scores.
+	 *
+	 * @param sequences the {@link List} of {@link Sequence}s to align
+	 * @param scoreMatrix the scores of all pairs of sequences given
+	 */
+	public GuideTree(List<S> sequences, PairwiseScoreMatrix scoreMatrix) {
+		if (scoreMatrix.getSize() != sequences.size()) {
+			throw new IllegalArgumentException("The score matrix must have one row per sequence");
+		}
+		this.sequences = Collections.unmodifiableList(sequences);
+		this.scoreMatrix = scoreMatrix;
+		indices = new HashMap<String, Integer>();
+		for (int i = 0; i < scoreMatrix.getSize(); i++) {
+			indices.putIfAbsent(scoreMatrix.getIdentifier(i), i);
+		}
+		build((BasicSymmetricalDistanceMatrix) DistanceMatrixCalculator.pairwiseScoreDistance(scoreMatrix));
+	}
+
+	// the neighbor joining overwrites the given matrix
+	private void build(BasicSymmetricalDistanceMatrix matrix) {
+		Phylogeny phylogeny = TreeConstructor.distanceTree(matrix, TreeConstructorType.NJ);
 		newick = phylogeny.toString();
 		root = new Node(phylogeny.getRoot(), null);
 	}
 
+	private int getSequenceIndex(String name) {
+		return distances != null ? distances.getIndex(name) : indices.get(name);
+	}
+
 	/**
 	 * Returns a sequence pair score for all {@link Sequence} pairs in the given {@link List}.
 	 *
 	 * @return list of sequence pair scores
 	 */
 	public double[] getAllPairsScores() {
+		if (scoreMatrix != null) {
+			return scoreMatrix.getScores();
+		}
 		double[] scores = new double[scorers.size()];
 		int n = 0;
 		for (PairwiseSequenceScorer<S, C> scorer : scorers) {
@@ -105,10 +140,11 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	 * @return the distance matrix used to construct this guide tree
 	 */
 	public double[][] getDistanceMatrix() {
-		double[][] matrix = new double[distances.getSize()][distances.getSize()];
+		double[][] matrix = new double[sequences.size()][sequences.size()];
 		for (int i = 0; i < matrix.length; i++) {
 			for (int j = i+1; j < matrix.length; j++) {
-				matrix[i][j] = matrix[j][i] = distances.getValue(i, j);
+				matrix[i][j] = matrix[j][i] = (distances != null) ? distances.getValue(i, j) :
+						scoreMatrix.getDistance(i, j);
 			}
 		}
 		return matrix;
@@ -130,6 +166,14 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 	 */
 	public double[][] getScoreMatrix() {
 		double[][] matrix = new double[sequences.size()][sequences.size()];
+		if (scoreMatrix != null) {
+			for (int i = 0; i < matrix.length; i++) {
+				for (int j = i; j < matrix.length; j++) {
+					matrix[i][j] = matrix[j][i] = scoreMatrix.getScore(i, j);
+				}
+			}
+			return matrix;
+		}
 		for (int i = 0, n = 0; i < matrix.length; i++) {
 			matrix[i][i] = scorers.get(i).getMaxScore();
 			for (int j = i+1; j < matrix.length; j++) {
@@ -182,7 +226,7 @@ public class GuideTree<S extends Sequence<C>, C extends Compound> implements Ite
 			distance = node.getDistanceToParent();
 			name = node.getName();
 			if(isLeaf = node.isExternal()) {
-				profile = new SimpleProfile<S, C>(sequences.get(distances.getIndex(name)));
+				profile = new SimpleProfile<S, C>(sequences.get(getSequenceIndex(name)));
 			} else {
 				child1 = new Node(node.getChildNode1(), this);
 				child2 = new Node(node.getChildNode2(), this);
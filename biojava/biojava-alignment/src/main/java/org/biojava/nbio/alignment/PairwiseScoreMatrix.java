@@ -0,0 +1,278 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.template.GapPenalty;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The global or local alignment scores of all pairs of a list of sequences, as computed by
+ * {@link Alignments#getAllPairsScoreMatrix}.  Only the upper triangle is stored, packed row by row in a double array,
+ * so that n sequences take 4n(n-1) bytes instead of the objects of n(n-1)/2 {@link StripedScorer}s.  For very large
+ * lists, the values can instead be kept in a memory-mapped file.
+ * <p>
+ * Scores are normalized to distances in the same way as {@link StripedScorer#getDistance()}, from the self score
+ * and length of each sequence.  Values can be set concurrently for different pairs.
+ *
+ * @since 6.0.6
+ */
+public class PairwiseScoreMatrix {
+
+	// doubles per mapped buffer, which must stay under 2GB
+	private static final int CHUNK_SIZE = 1 << 27;
+
+	private final int size;
+	private final long pairs;
+	private final boolean local;
+	private final int gop, gep;
+	private final String[] identifiers;
+	private final int[] selfScores, lengths;
+
+	private final double[] values;
+	private final DoubleBuffer[] chunks;
+
+	/**
+	 * Creates a matrix held in memory.
+	 *
+	 * @param identifiers the identifier of each sequence
+	 * @param selfScores the score of each sequence aligned with itself
+	 * @param lengths the length of each sequence
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param local true for local alignment scores, false for global ones
+	 * @throws IllegalArgumentException if there are too many pairs to hold in an array
+	 */
+	public PairwiseScoreMatrix(String[] identifiers, int[] selfScores, int[] lengths, GapPenalty gapPenalty,
+			boolean local) {
+		this(identifiers, selfScores, lengths, gapPenalty, local, (Object) null);
+	}
+
+	/**
+	 * Creates a matrix held in a memory-mapped file.  The file is overwritten, and can be deleted once the matrix is
+	 * no longer used.
+	 *
+	 * @param identifiers the identifier of each sequence
+	 * @param selfScores the score of each sequence aligned with itself
+	 * @param lengths the length of each sequence
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param local true for local alignment scores, false for global ones
+	 * @param file the file which holds the values, or null to hold them in memory
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public PairwiseScoreMatrix(String[] identifiers, int[] selfScores, int[] lengths, GapPenalty gapPenalty,
+			boolean local, File file) throws IOException {
+		this(identifiers, selfScores, lengths, gapPenalty, local, (Object) file);
+		if (file != null) {
+			map(file);
+		}
+	}
+
+	private PairwiseScoreMatrix(String[] identifiers, int[] selfScores, int[] lengths, GapPenalty gapPenalty,
+			boolean local, Object file) {
+		if (selfScores.length != identifiers.length || lengths.length != identifiers.length) {
+			throw new IllegalArgumentException("There must be one identifier, self score and length per sequence");
+		}
+		this.size = identifiers.length;
+		this.pairs = (long) size * (size - 1) / 2;
+		this.local = local;
+		this.gop = gapPenalty.getOpenPenalty();
+		this.gep = gapPenalty.getExtensionPenalty();
+		this.identifiers = identifiers.clone();
+		this.selfScores = selfScores.clone();
+		this.lengths = lengths.clone();
+		if (file == null) {
+			if (pairs > Integer.MAX_VALUE - 8) {
+				throw new IllegalArgumentException("Too many pairs to hold in memory, use a file instead");
+			}
+			values = new double[(int) pairs];
+			chunks = null;
+		} else {
+			values = null;
+			chunks = new DoubleBuffer[(int) ((pairs + CHUNK_SIZE - 1) / CHUNK_SIZE)];
+		}
+	}
+
+	private void map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			raf.setLength(pairs * 8);
+			for (int c = 0; c < chunks.length; c++) {
+				long start = (long) c * CHUNK_SIZE, length = Math.min(CHUNK_SIZE, pairs - start);
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, start * 8, length * 8);
+				chunks[c] = buffer.order(ByteOrder.nativeOrder()).asDoubleBuffer();
+			}
+		} finally {
+			// mappings stay valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	/**
+	 * @return the number of sequences
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of pairs of different sequences, which is the number of stored values
+	 */
+	public long getPairCount() {
+		return pairs;
+	}
+
+	/**
+	 * @return true for local alignment scores, false for global ones
+	 */
+	public boolean isLocal() {
+		return local;
+	}
+
+	/**
+	 * Returns true if the values are kept in a memory-mapped file.
+	 */
+	public boolean isMapped() {
+		return chunks != null;
+	}
+
+	/**
+	 * @param i the index of a sequence
+	 * @return its identifier
+	 */
+	public String getIdentifier(int i) {
+		return identifiers[i];
+	}
+
+	/**
+	 * Returns the position of a pair in the packed upper triangle, in the same order as the lists of
+	 * {@link Alignments#getAllPairsScorers}.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence, different from i
+	 * @return the index of the pair
+	 */
+	public long getIndex(int i, int j) {
+		if (i == j || i < 0 || j < 0 || i >= size || j >= size) {
+			throw new IndexOutOfBoundsException("No pair (" + i + ", " + j + ") in a matrix of size " + size);
+		}
+		if (i > j) {
+			int t = i; i = j; j = t;
+		}
+		return (long) i * (2L * size - i - 1) / 2 + (j - i - 1);
+	}
+
+	/**
+	 * Returns the alignment score of a pair.  The score of a sequence with itself is its self score.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence
+	 * @return the score
+	 */
+	public double getScore(int i, int j) {
+		return i == j ? selfScores[i] : get(getIndex(i, j));
+	}
+
+	/**
+	 * Sets the alignment score of a pair.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence, different from i
+	 * @param score the score
+	 */
+	public void setScore(int i, int j, double score) {
+		set(getIndex(i, j), score);
+	}
+
+	/**
+	 * Returns the maximum score of a pair, as {@link StripedScorer#getMaxScore()}.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence
+	 * @return the maximum score
+	 */
+	public double getMaxScore(int i, int j) {
+		return Math.max(selfScores[i], selfScores[j]);
+	}
+
+	/**
+	 * Returns the minimum score of a pair, as {@link StripedScorer#getMinScore()}.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence
+	 * @return the minimum score
+	 */
+	public double getMinScore(int i, int j) {
+		return local ? 0 : 2 * gop + (lengths[i] + lengths[j]) * gep;
+	}
+
+	/**
+	 * Returns the normalized distance of a pair, as {@link StripedScorer#getDistance()}.
+	 *
+	 * @param i the index of the first sequence
+	 * @param j the index of the second sequence
+	 * @return the distance, 0 for a sequence with itself
+	 */
+	public double getDistance(int i, int j) {
+		if (i == j) {
+			return 0;
+		}
+		double max = getMaxScore(i, j);
+		return (max - getScore(i, j)) / (max - getMinScore(i, j));
+	}
+
+	/**
+	 * Returns the scores of all pairs, in the same order as {@link Alignments#getAllPairsScores}.
+	 *
+	 * @return the scores
+	 */
+	public double[] getScores() {
+		if (pairs > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too many pairs to copy to an array");
+		}
+		double[] scores = new double[(int) pairs];
+		for (int k = 0; k < scores.length; k++) {
+			scores[k] = get(k);
+		}
+		return scores;
+	}
+
+	private double get(long index) {
+		return values != null ? values[(int) index] :
+				chunks[(int) (index / CHUNK_SIZE)].get((int) (index % CHUNK_SIZE));
+	}
+
+	private void set(long index, double value) {
+		if (values != null) {
+			values[(int) index] = value;
+		} else {
+			chunks[(int) (index / CHUNK_SIZE)].put((int) (index % CHUNK_SIZE), value);
+		}
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.Encoding;
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.QueryProfile;
+import org.biojava.nbio.alignment.template.AbstractScorer;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
+import org.biojava.nbio.core.alignment.template.SequencePair;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.Arrays;
+
+/**
+ * Computes the score of a global or local alignment of a pair of sequences without computing the alignment itself,
+ * using the striped kernels of {@link StripedAlignerHelper}. Scores, maximum and minimum scores are the same as those
+ * of {@link NeedlemanWunsch} and {@link SmithWaterman}, but no traceback matrix is allocated and substitution scores
+ * are looked up by compound index, which saves memory and time when screening many pairs. The alignment can be
+ * computed afterwards for the pairs of interest with {@link #getPair(double)}.
+ * <p>
+ * {@link Alignments} uses this scorer only for {@link Alignments.PairwiseSequenceScorerType#GLOBAL_STRIPED} and
+ * {@link Alignments.PairwiseSequenceScorerType#LOCAL_STRIPED}.
+ *
+ * @param <S> each {@link Sequence} of the pair is of type S
+ * @param <C> each element of a {@link Sequence} is a {@link Compound} of type C
+ * @since 6.0.6
+ */
+public class StripedScorer<S extends Sequence<C>, C extends Compound> extends AbstractScorer
+		implements PairwiseSequenceScorer<S, C> {
+
+	private final S query, target;
+	private final GapPenalty gapPenalty;
+	private final SubstitutionMatrix<C> subMatrix;
+	private final boolean local;
+
+	private final QueryProfile profile;
+	private final byte[] encodedTarget;
+	private final int max, min;
+	private volatile Integer score;
+
+	/**
+	 * Prepares the scoring of a pairwise alignment.
+	 *
+	 * @param query the first {@link Sequence} of the pair to score
+	 * @param target the second {@link Sequence} of the pair to score
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param local true for a local alignment score, false for a global one
+	 */
+	public StripedScorer(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix, boolean local) {
+		this(query, target, gapPenalty, subMatrix, local, new Encoding<C>(subMatrix, Arrays.asList(query, target)));
+	}
+
+	private StripedScorer(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix, boolean local,
+			Encoding<C> encoding) {
+		this(query, target, gapPenalty, subMatrix, local, encoding,
+				new QueryProfile(encoding.encode(query), encoding), encoding.encode(target));
+	}
+
+	/**
+	 * Prepares the scoring of a pairwise alignment with a query profile and encoded target which can be shared by
+	 * other scorers, see {@link Alignments#getAllPairsScorers}.
+	 *
+	 * @param query the first {@link Sequence} of the pair to score
+	 * @param target the second {@link Sequence} of the pair to score
+	 * @param gapPenalty the gap penalties used during alignment
+	 * @param subMatrix the set of substitution scores used during alignment
+	 * @param local true for a local alignment score, false for a global one
+	 * @param encoding the encoding of the sequences
+	 * @param profile the profile of the query, created with the same encoding
+	 * @param encodedTarget the target encoded with the same encoding
+	 */
+	public StripedScorer(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix, boolean local,
+			Encoding<C> encoding, QueryProfile profile, byte[] encodedTarget) {
+		if (!query.getCompoundSet().equals(target.getCompoundSet())) {
+			throw new IllegalArgumentException("Sequence compound sets must be the same");
+		}
+		this.query = query;
+		this.target = target;
+		this.gapPenalty = gapPenalty;
+		this.subMatrix = subMatrix;
+		this.local = local;
+		this.profile = profile;
+		this.encodedTarget = encodedTarget;
+		// as in AbstractPairwiseSequenceAligner
+		int maxq = profile.getSelfScore(), maxt = encoding.getSelfScore(encodedTarget);
+		max = Math.max(maxq, maxt);
+		min = local ? 0 : (int) (2 * gapPenalty.getOpenPenalty() + (query.getLength() + target.getLength()) *
+				gapPenalty.getExtensionPenalty());
+	}
+
+	/**
+	 * Returns whether this computes the score of a local or global alignment.
+	 *
+	 * @return true for a local alignment score
+	 */
+	public boolean isLocal() {
+		return local;
+	}
+
+	/**
+	 * Computes the alignment of the pair if its score is at least the given threshold.
+	 *
+	 * @param threshold the minimum score
+	 * @return the alignment computed by {@link SmithWaterman} or {@link NeedlemanWunsch}, or null if the score is
+	 * below the threshold
+	 */
+	public SequencePair<S, C> getPair(double threshold) {
+		if (getScore() < threshold) {
+			return null;
+		}
+		PairwiseSequenceAligner<S, C> aligner = local ?
+				new SmithWaterman<S, C>(query, target, gapPenalty, subMatrix) :
+				new NeedlemanWunsch<S, C>(query, target, gapPenalty, subMatrix);
+		return aligner.getPair();
+	}
+
+	// methods for PairwiseSequenceScorer
+
+	@Override
+	public S getQuery() {
+		return query;
+	}
+
+	@Override
+	public S getTarget() {
+		return target;
+	}
+
+	// methods for Scorer
+
+	@Override
+	public double getMaxScore() {
+		return max;
+	}
+
+	@Override
+	public double getMinScore() {
+		return min;
+	}
+
+	@Override
+	public double getScore() {
+		if (score == null) {
+			boolean linear = gapPenalty.getType() == GapPenalty.Type.LINEAR;
+			score = local ?
+					StripedAlignerHelper.getLocalScore(profile, encodedTarget, gapPenalty.getOpenPenalty(),
+							gapPenalty.getExtensionPenalty(), linear) :
+					StripedAlignerHelper.getGlobalScore(profile, encodedTarget, gapPenalty.getOpenPenalty(),
+							gapPenalty.getExtensionPenalty(), linear);
+		}
+		return score;
+	}
+
+}
@@ -23,18 +23,34 @@
 
 package org.biojava.nbio.alignment.routines;
 
+import org.biojava.nbio.alignment.routines.StripedAlignerHelper.Encoding;
 import org.biojava.nbio.core.alignment.template.AlignedSequence;
+import org.biojava.nbio.core.alignment.template.AlignedSequence.Step;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.template.Compound;
 import org.biojava.nbio.core.sequence.template.Sequence;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Guan and Uberbacher defined an algorithm for pairwise global sequence alignments (from the first until the last
  * {@link Compound} of each {@link Sequence}).  This class performs such global sequence comparisons efficiently by
  * dynamic programming with a space requirement reduced from quadratic (a multiple of query sequence length times
- * target sequence length) to only linear (a multiple of query sequence length).  The counterpoint to this reduction in
- * space complexity is a modest (a multiple < 2) increase in time.
+ * target sequence length) to only linear (a multiple of the sum of both sequence lengths).  The counterpoint to this
+ * reduction in space complexity is a modest (a multiple < 2) increase in time.
+ * <p>
+ * Each section of the score matrix is scored once while the point at which the traceback crosses each of a few
+ * <em>cut</em> rows is carried forward.  The sections between consecutive crossings are then independent and are
+ * aligned in parallel, in the {@link ForkJoinPool} of the calling task or else the common pool, down to sections
+ * small enough for a full traceback.  Ties are broken as in
+ * {@link org.biojava.nbio.alignment.NeedlemanWunsch}, so the alignment is the same one.  When anchors are set or the
+ * score matrix is stored, the quadratic space routine is used instead.
  *
  * @author Mark Chapman
  * @param <S> each {@link Sequence} of the alignment pair is of type S
@@ -42,6 +58,12 @@ import org.biojava.nbio.core.sequence.template.Sequence;
  */
 public class GuanUberbacher<S extends Sequence<C>, C extends Compound> extends AnchoredPairwiseSequenceAligner<S, C> {
 
+	// sections with at most this many cells are aligned with a full traceback
+	private static final int MAX_TRACEBACK_CELLS = 1 << 16;
+
+	// sections with at least this many cells are split between threads
+	private static final long MIN_PARALLEL_CELLS = 1L << 20;
+
 	private static int defaultCutsPerSection = 10;
 
 	/**
@@ -49,7 +71,7 @@ public class GuanUberbacher<S extends Sequence<C>, C extends Compound> extends A
 	 * @param defaultCutsPerSection the default number of cuts added to each section during each pass
 	 */
 	public static void setDefaultCutsPerSection(int defaultCutsPerSection) {
-		defaultCutsPerSection = Math.max(1, defaultCutsPerSection);
+		GuanUberbacher.defaultCutsPerSection = Math.max(1, defaultCutsPerSection);
 	}
 
 	/**
@@ -58,7 +80,7 @@ public class GuanUberbacher<S extends Sequence<C>, C extends Compound> extends A
 	 * {@link #setSubstitutionMatrix(SubstitutionMatrix)}.
 	 */
 	public GuanUberbacher() {
-		setDefaultCutsPerSection(defaultCutsPerSection);
+		setCutsPerSection(defaultCutsPerSection);
 	}
 
 	/**
@@ -71,7 +93,7 @@ public class GuanUberbacher<S extends Sequence<C>, C extends Compound> extends A
 	 */
 	public GuanUberbacher(S query, S target, GapPenalty gapPenalty, SubstitutionMatrix<C> subMatrix) {
 		super(query, target, gapPenalty, subMatrix);
-		setDefaultCutsPerSection(defaultCutsPerSection);
+		setCutsPerSection(defaultCutsPerSection);
 	}
 
 	/**
@@ -106,4 +128,422 @@ public class GuanUberbacher<S extends Sequence<C>, C extends Compound> extends A
 	public void setCutsPerSection(int cutsPerSection) {
 		this.cutsPerSection = Math.max(1, cutsPerSection);
 	}
+
+	// methods for AbstractMatrixAligner
+
+	@Override
+	protected void align() {
+		if (!isReady()) {
+			return;
+		}
+		if (isStoringScoreMatrix() || !anchors.isEmpty()) {
+			super.align();
+			return;
+		}
+
+		long timeStart = System.nanoTime();
+
+		S query = getQuery(), target = getTarget();
+		Encoding<C> encoding = new Encoding<C>(getSubstitutionMatrix(), Arrays.asList(query, target));
+		Matrix matrix = new Matrix(encoding, encoding.encode(query), encoding.encode(target), gapPenalty,
+				cutsPerSection);
+		Section root = matrix.getRoot();
+		// in the pool of the calling task, if any, so that callers can bound the parallelism
+		if (ForkJoinTask.inForkJoinPool()) {
+			root.invoke();
+		} else {
+			ForkJoinPool.commonPool().invoke(root);
+		}
+
+		List<Step> sx = new ArrayList<Step>(), sy = new ArrayList<Step>();
+		root.getSteps(sx, sy);
+		xyMax = new int[] { query.getLength(), target.getLength() };
+		xyStart = new int[] { 0, 0 };
+		score = matrix.score;
+		setProfile(sx, sy);
+
+		time = System.nanoTime() - timeStart;
+	}
+
+	/**
+	 * The encoded sequences and scoring of a global alignment, with the recurrences of {@link AlignerHelper}.
+	 * States are numbered by the ordinal of {@link AlignerHelper.Last}: substitution, deletion and insertion.
+	 */
+	private static class Matrix {
+
+		private final Encoding<?> encoding;
+		private final byte[] query, target;
+		private final boolean linear;
+		private final int states, gop, gep, min, cuts;
+		private volatile int score;
+
+		private Matrix(Encoding<?> encoding, byte[] query, byte[] target, GapPenalty gapPenalty, int cuts) {
+			this.encoding = encoding;
+			this.query = query;
+			this.target = target;
+			this.cuts = Math.max(1, cuts);
+			linear = gapPenalty.getType() == GapPenalty.Type.LINEAR;
+			states = linear ? 1 : 3;
+			gop = gapPenalty.getOpenPenalty();
+			gep = gapPenalty.getExtensionPenalty();
+			min = Integer.MIN_VALUE - gop - gep;
+		}
+
+		// the whole matrix, with the first row and column scored as in AlignerHelper.setScoreVector
+		private Section getRoot() {
+			int n = query.length, m = target.length;
+			int[][] top = new int[states][m + 1], left = new int[states][n + 1];
+			if (linear) {
+				for (int y = 1; y <= m; y++) {
+					top[0][y] = top[0][y - 1] + gep;
+				}
+				for (int x = 1; x <= n; x++) {
+					left[0][x] = left[0][x - 1] + gep;
+				}
+			} else {
+				top[1][0] = top[2][0] = left[1][0] = left[2][0] = gop;
+				for (int y = 1; y <= m; y++) {
+					top[0][y] = top[1][y] = min;
+					top[2][y] = top[2][y - 1] + gep;
+				}
+				for (int x = 1; x <= n; x++) {
+					left[0][x] = left[2][x] = min;
+					left[1][x] = left[1][x - 1] + gep;
+				}
+			}
+			return new Section(this, 0, 0, n, m, -1, top, 0, left, 0);
+		}
+
+		/**
+		 * Scores row x for columns y0 + 1 to y1 from row x - 1.  Column y0 of row x must already be set.  The
+		 * pointers of each state are packed in a byte, 2 bits per state.
+		 */
+		private void setRow(int x, int y0, int y1, int[][] prev, int[][] cur, byte[] pointers, int offset) {
+			int w = y1 - y0, q = query[x - 1];
+			if (linear) {
+				int[] ps = prev[0], cs = cur[0];
+				pointers[offset] = 1;
+				for (int j = 1; j <= w; j++) {
+					int sub = encoding.getScore(q, target[y0 + j - 1]);
+					int d = ps[j] + gep, i = cs[j - 1] + gep, s = ps[j - 1] + sub;
+					if (d >= s && d >= i) {
+						cs[j] = d;
+						pointers[offset + j] = 1;
+					} else if (s >= i) {
+						cs[j] = s;
+						pointers[offset + j] = 0;
+					} else {
+						cs[j] = i;
+						pointers[offset + j] = 2;
+					}
+				}
+				return;
+			}
+			int[] pm = prev[0], pd = prev[1], pi = prev[2], cm = cur[0], cd = cur[1], ci = cur[2];
+			int d0 = (pd[0] >= pm[0] + gop) ? 1 : 0;
+			pointers[offset] = (byte) (d0 | d0 << 2 | d0 << 4);
+			for (int j = 1; j <= w; j++) {
+				int sub = encoding.getScore(q, target[y0 + j - 1]), p;
+				// substitution
+				if (pd[j - 1] >= pm[j - 1] && pd[j - 1] >= pi[j - 1]) {
+					cm[j] = pd[j - 1] + sub;
+					p = 1;
+				} else if (pm[j - 1] >= pi[j - 1]) {
+					cm[j] = pm[j - 1] + sub;
+					p = 0;
+				} else {
+					cm[j] = pi[j - 1] + sub;
+					p = 2;
+				}
+				// deletion
+				if (pd[j] >= pm[j] + gop) {
+					cd[j] = pd[j] + gep;
+					p |= 1 << 2;
+				} else {
+					cd[j] = pm[j] + gop + gep;
+				}
+				// insertion
+				if (cm[j - 1] + gop >= ci[j - 1]) {
+					ci[j] = cm[j - 1] + gop + gep;
+				} else {
+					ci[j] = ci[j - 1] + gep;
+					p |= 2 << 4;
+				}
+				pointers[offset + j] = (byte) p;
+			}
+		}
+
+		/**
+		 * Carries forward, for each column and state of a row, the point at which the traceback from there reaches
+		 * the last cut row, encoded as column * 3 + state.  The first flag is set for the row after the cut row.
+		 */
+		private void setCrossings(boolean first, byte[] pointers, int[][] prev, int[][] cur, int w) {
+			if (linear) {
+				int[] pc = prev[0], cc = cur[0];
+				cc[0] = first ? 0 : pc[0];
+				for (int j = 1; j <= w; j++) {
+					switch (pointers[j]) {
+					case 0:
+						cc[j] = first ? (j - 1) * 3 : pc[j - 1];
+						break;
+					case 1:
+						cc[j] = first ? j * 3 : pc[j];
+						break;
+					default:
+						cc[j] = cc[j - 1];
+					}
+				}
+				return;
+			}
+			int d0 = (pointers[0] >> 2) & 3;
+			cur[0][0] = cur[1][0] = cur[2][0] = first ? d0 : prev[d0][0];
+			for (int j = 1; j <= w; j++) {
+				int p = pointers[j], pm = p & 3, pd = (p >> 2) & 3, pi = (p >> 4) & 3;
+				cur[0][j] = first ? (j - 1) * 3 + pm : prev[pm][j - 1];
+				cur[1][j] = first ? j * 3 + pd : prev[pd][j];
+				cur[2][j] = cur[pi][j - 1];
+			}
+		}
+
+		// the state in which the traceback starts, as in AlignerHelper.setSteps
+		private int getLastState(int[][] row, int j) {
+			if (linear) {
+				return 0;
+			}
+			return (row[1][j] > row[0][j] && row[1][j] > row[2][j]) ? 1 : (row[0][j] > row[2][j]) ? 0 : 2;
+		}
+
+		private int getScore(int[][] row, int j) {
+			int max = Integer.MIN_VALUE;
+			for (int z = 0; z < states; z++) {
+				max = Math.max(max, row[z][j]);
+			}
+			return max;
+		}
+
+		private int[][] getRow(int[][] scores, int offset, int w) {
+			int[][] row = new int[states][w + 1];
+			for (int z = 0; z < states; z++) {
+				System.arraycopy(scores[z], offset, row[z], 0, w + 1);
+			}
+			return row;
+		}
+
+	}
+
+	/**
+	 * A rectangle of the score matrix from (x0, y0) to (x1, y1) through which the traceback passes from corner to
+	 * corner, with the scores of its first row and column.
+	 */
+	private static class Section extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Matrix matrix;
+		private final int x0, y0, x1, y1;
+		private int last;
+		private int[][] top, left;
+		private final int topOffset, leftOffset;
+
+		private Section[] parts;
+		private List<Step> sx, sy;
+
+		/**
+		 * @param last the state at (x1, y1), or -1 to start from the best state
+		 * @param top the scores of row x0, column y at index y - topOffset
+		 * @param left the scores of column y0, row x at index x - leftOffset
+		 */
+		private Section(Matrix matrix, int x0, int y0, int x1, int y1, int last, int[][] top, int topOffset,
+				int[][] left, int leftOffset) {
+			this.matrix = matrix;
+			this.x0 = x0;
+			this.y0 = y0;
+			this.x1 = x1;
+			this.y1 = y1;
+			this.last = last;
+			this.top = top;
+			this.topOffset = topOffset;
+			this.left = left;
+			this.leftOffset = leftOffset;
+		}
+
+		@Override
+		protected void compute() {
+			long cells = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+			if (x1 - x0 < 2 || cells <= MAX_TRACEBACK_CELLS) {
+				setSteps();
+			} else {
+				split();
+				if (cells >= MIN_PARALLEL_CELLS) {
+					invokeAll(parts);
+				} else {
+					for (Section part : parts) {
+						part.compute();
+					}
+				}
+			}
+			top = left = null;
+		}
+
+		private void setFirstColumn(int x, int[][] row) {
+			for (int z = 0; z < matrix.states; z++) {
+				row[z][0] = left[z][x - leftOffset];
+			}
+		}
+
+		// scores the section once, finds the crossings of the cut rows and creates the sections between them
+		private void split() {
+			int h = x1 - x0, w = y1 - y0, k = Math.min(matrix.cuts, h - 1);
+			int[] rows = new int[k + 2];
+			rows[0] = x0;
+			rows[k + 1] = x1;
+			for (int i = 1; i <= k; i++) {
+				rows[i] = x0 + (int) ((long) i * h / (k + 1));
+			}
+
+			// scores and crossings of the previous cut at each cut row
+			int[][][] cutScores = new int[k + 1][][], cutCrossings = new int[k + 1][][];
+			int[][] prev = matrix.getRow(top, y0 - topOffset, w), cur = new int[matrix.states][w + 1];
+			int[][] prevCrossings = new int[matrix.states][w + 1], curCrossings = new int[matrix.states][w + 1];
+			byte[] pointers = new byte[w + 1];
+			for (int x = x0 + 1, c = 0; x <= x1; x++) {
+				setFirstColumn(x, cur);
+				matrix.setRow(x, y0, y1, prev, cur, pointers, 0);
+				if (c > 0) {
+					matrix.setCrossings(x - 1 == rows[c], pointers, prevCrossings, curCrossings, w);
+				}
+				if (c < k && x == rows[c + 1]) {
+					c++;
+					cutScores[c] = matrix.getRow(cur, 0, w);
+					if (c > 1) {
+						cutCrossings[c] = matrix.getRow(curCrossings, 0, w);
+					}
+				}
+				int[][] swap = prev;
+				prev = cur;
+				cur = swap;
+				swap = prevCrossings;
+				prevCrossings = curCrossings;
+				curCrossings = swap;
+			}
+			if (last < 0) {
+				last = matrix.getLastState(prev, w);
+				matrix.score = matrix.getScore(prev, w);
+			}
+
+			// follows the crossings back from the last row
+			int[] ys = new int[k + 2], states = new int[k + 2];
+			ys[0] = y0;
+			ys[k + 1] = y1;
+			states[k + 1] = last;
+			int crossing = prevCrossings[last][w];
+			for (int i = k; i >= 1; i--) {
+				ys[i] = y0 + crossing / 3;
+				states[i] = crossing % 3;
+				if (i > 1) {
+					crossing = cutCrossings[i][states[i]][ys[i] - y0];
+				}
+			}
+
+			parts = new Section[k + 1];
+			parts[0] = new Section(matrix, x0, y0, rows[1], ys[1], states[1], top, topOffset, left, leftOffset);
+			for (int i = 1; i <= k; i++) {
+				parts[i] = new Section(matrix, rows[i], ys[i], rows[i + 1], ys[i + 1], states[i + 1], cutScores[i],
+						y0, getColumn(rows[i], rows[i + 1], ys[i], cutScores[i]), rows[i]);
+			}
+		}
+
+		// scores column y of rows xb to xe from the scores of row xb
+		private int[][] getColumn(int xb, int xe, int y, int[][] first) {
+			int w = y - y0;
+			int[][] column = new int[matrix.states][xe - xb + 1];
+			int[][] prev = matrix.getRow(first, 0, w), cur = new int[matrix.states][w + 1];
+			byte[] pointers = new byte[w + 1];
+			for (int z = 0; z < matrix.states; z++) {
+				column[z][0] = prev[z][w];
+			}
+			for (int x = xb + 1; x <= xe; x++) {
+				setFirstColumn(x, cur);
+				matrix.setRow(x, y0, y, prev, cur, pointers, 0);
+				for (int z = 0; z < matrix.states; z++) {
+					column[z][x - xb] = cur[z][w];
+				}
+				int[][] swap = prev;
+				prev = cur;
+				cur = swap;
+			}
+			return column;
+		}
+
+		// aligns the section with a full traceback, storing the steps in reverse order
+		private void setSteps() {
+			int h = x1 - x0, w = y1 - y0;
+			byte[] pointers = new byte[(h + 1) * (w + 1)];
+			int[][] prev = matrix.getRow(top, y0 - topOffset, w), cur = new int[matrix.states][w + 1];
+			for (int x = x0 + 1; x <= x1; x++) {
+				setFirstColumn(x, cur);
+				matrix.setRow(x, y0, y1, prev, cur, pointers, (x - x0) * (w + 1));
+				int[][] swap = prev;
+				prev = cur;
+				cur = swap;
+			}
+			if (last < 0) {
+				last = matrix.getLastState(prev, w);
+				matrix.score = matrix.getScore(prev, w);
+			}
+
+			sx = new ArrayList<Step>(h + w);
+			sy = new ArrayList<Step>(h + w);
+			int x = x1, y = y1, state = last;
+			while (x > x0 || y > y0) {
+				int move;
+				if (x == x0) {
+					move = 2;
+				} else if (y == y0) {
+					move = 1;
+				} else {
+					int p = pointers[(x - x0) * (w + 1) + y - y0];
+					if (matrix.linear) {
+						move = p;
+					} else {
+						move = state;
+						state = (p >> (2 * state)) & 3;
+					}
+				}
+				switch (move) {
+				case 0:
+					sx.add(Step.COMPOUND);
+					sy.add(Step.COMPOUND);
+					x--;
+					y--;
+					break;
+				case 1:
+					sx.add(Step.COMPOUND);
+					sy.add(Step.GAP);
+					x--;
+					break;
+				default:
+					sx.add(Step.GAP);
+					sy.add(Step.COMPOUND);
+					y--;
+				}
+			}
+		}
+
+		// appends the steps of the alignment of this section
+		private void getSteps(List<Step> sx, List<Step> sy) {
+			if (parts != null) {
+				for (Section part : parts) {
+					part.getSteps(sx, sy);
+				}
+			} else {
+				for (int i = this.sx.size() - 1; i >= 0; i--) {
+					sx.add(this.sx.get(i));
+					sy.add(this.sy.get(i));
+				}
+			}
+		}
+
+	}
+
 }
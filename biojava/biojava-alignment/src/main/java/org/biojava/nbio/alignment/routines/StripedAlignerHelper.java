@@ -0,0 +1,473 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment.routines;
+
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Static utility for score-only pairwise alignment using Farrar's striped query profile.
+ * <p>
+ * Sequences are encoded once to byte indices with an {@link Encoding}, and the substitution scores of a query against
+ * every compound are precomputed in a {@link QueryProfile}. The query is split in {@link #LANES} interleaved stripes,
+ * and dependencies along the query are resolved with Farrar's lazy-F loop. The lanes are plain Java ints, not SIMD
+ * registers: the build targets Java 8, without a vector API, so the striped layout only gives the inner loops short
+ * contiguous arrays that the JIT compiler may or may not vectorize. The gain over the aligners comes mostly from
+ * keeping no traceback, so memory use is linear in the query length, and from reusing the profile of a query.
+ * <p>
+ * The recurrences are the same as those of {@link AlignerHelper}, so the scores are identical to the ones of
+ * {@link org.biojava.nbio.alignment.NeedlemanWunsch} and {@link org.biojava.nbio.alignment.SmithWaterman}.
+ *
+ * @since 6.0.6
+ */
+public class StripedAlignerHelper {
+
+	/**
+	 * The number of interleaved stripes of a query profile, the int lanes of each inner loop
+	 */
+	public static final int LANES = 8;
+
+	// low enough to never win a comparison, high enough to never overflow
+	private static final int NEG_INF = Integer.MIN_VALUE / 4;
+
+	// prevents instantiation
+	private StripedAlignerHelper() { }
+
+	/**
+	 * Maps compounds to byte indices and holds the substitution matrix as an int table of these indices.
+	 *
+	 * @param <C> the compound type
+	 */
+	public static class Encoding<C extends Compound> {
+
+		private final Map<C, Integer> codes = new HashMap<C, Integer>();
+		private final List<C> compounds = new ArrayList<C>();
+		private final int[][] matrix;
+
+		/**
+		 * Creates an encoding of all compounds of the substitution matrix and of the given sequences.
+		 *
+		 * @param subMatrix the set of substitution scores
+		 * @param sequences the sequences which will be encoded
+		 * @throws IllegalArgumentException if there are more than 127 different compounds
+		 */
+		public Encoding(SubstitutionMatrix<C> subMatrix, Collection<? extends Sequence<C>> sequences) {
+			for (C c : subMatrix.getCompoundSet().getAllCompounds()) {
+				add(c);
+			}
+			for (Sequence<C> s : sequences) {
+				for (C c : s) {
+					add(c);
+				}
+			}
+			int n = compounds.size();
+			matrix = new int[n][n];
+			for (int i = 0; i < n; i++) {
+				for (int j = 0; j < n; j++) {
+					matrix[i][j] = subMatrix.getValue(compounds.get(i), compounds.get(j));
+				}
+			}
+		}
+
+		private void add(C c) {
+			if (!codes.containsKey(c)) {
+				if (compounds.size() > Byte.MAX_VALUE) {
+					throw new IllegalArgumentException("Too many different compounds to encode in a byte");
+				}
+				codes.put(c, compounds.size());
+				compounds.add(c);
+			}
+		}
+
+		/**
+		 * Encodes a sequence to the byte indices of its compounds.
+		 *
+		 * @param sequence the sequence to encode
+		 * @return the compound indices
+		 * @throws IllegalArgumentException if the sequence contains compounds unknown to this encoding
+		 */
+		public byte[] encode(Sequence<C> sequence) {
+			byte[] encoded = new byte[sequence.getLength()];
+			int i = 0;
+			for (C c : sequence) {
+				Integer code = codes.get(c);
+				if (code == null) {
+					throw new IllegalArgumentException("Compound " + c + " is not part of the encoding");
+				}
+				encoded[i++] = (byte) code.intValue();
+			}
+			return encoded;
+		}
+
+		/**
+		 * @return the number of encoded compounds
+		 */
+		public int size() {
+			return compounds.size();
+		}
+
+		/**
+		 * Returns the substitution score of two encoded compounds.
+		 */
+		public int getScore(int query, int target) {
+			return matrix[query][target];
+		}
+
+		/**
+		 * Returns the score of the alignment of an encoded sequence with itself.
+		 */
+		public int getSelfScore(byte[] sequence) {
+			int score = 0;
+			for (byte c : sequence) {
+				score += matrix[c][c];
+			}
+			return score;
+		}
+	}
+
+	/**
+	 * The substitution scores of a query against every compound of an {@link Encoding}, in striped order: element
+	 * <code>i * LANES + j</code> holds the score of query position <code>j * segmentLength + i</code>.
+	 * The profiles for local and global alignment differ only in padding and are created when first needed.
+	 * Instances are thread safe and can be shared by all alignments of the same query.
+	 */
+	public static class QueryProfile {
+
+		private final byte[] query;
+		private final Encoding<?> encoding;
+		private final int segmentLength;
+		private volatile int[][] local, global;
+
+		/**
+		 * @param query the encoded query
+		 * @param encoding the encoding of the query
+		 */
+		public QueryProfile(byte[] query, Encoding<?> encoding) {
+			this.query = query;
+			this.encoding = encoding;
+			this.segmentLength = Math.max(1, (query.length + LANES - 1) / LANES);
+		}
+
+		public int getLength() {
+			return query.length;
+		}
+
+		/**
+		 * Returns the score of the alignment of the query with itself.
+		 */
+		public int getSelfScore() {
+			return encoding.getSelfScore(query);
+		}
+
+		int getSegmentLength() {
+			return segmentLength;
+		}
+
+		int[][] getScores(boolean isLocal) {
+			int[][] scores = isLocal ? local : global;
+			if (scores == null) {
+				// padding must not start a local alignment, and its value is irrelevant for a global one
+				scores = createScores(isLocal ? NEG_INF : 0);
+				if (isLocal) {
+					local = scores;
+				} else {
+					global = scores;
+				}
+			}
+			return scores;
+		}
+
+		private int[][] createScores(int padding) {
+			int size = segmentLength * LANES;
+			int[][] scores = new int[encoding.size()][size];
+			for (int c = 0; c < scores.length; c++) {
+				for (int k = 0; k < size; k++) {
+					int position = (k % LANES) * segmentLength + k / LANES;
+					scores[c][k] = position < query.length ? encoding.getScore(query[position], c) : padding;
+				}
+			}
+			return scores;
+		}
+	}
+
+	/**
+	 * The dynamic programming buffers of the score kernels, which can be reused between alignments to avoid
+	 * allocating them for each pair.  Buffers grow to the longest query seen.  Instances are not thread safe: use
+	 * one per thread.
+	 */
+	public static class Workspace {
+
+		private int[] hPrev = new int[0], hCur = hPrev, mPrev = hPrev, mCur = hPrev, ins = hPrev, del = hPrev;
+
+		private void ensureSize(int size) {
+			if (hPrev.length < size) {
+				hPrev = new int[size];
+				hCur = new int[size];
+				mPrev = new int[size];
+				mCur = new int[size];
+				ins = new int[size];
+				del = new int[size];
+			}
+		}
+	}
+
+	/**
+	 * Computes the score of the optimal local alignment, as {@link org.biojava.nbio.alignment.SmithWaterman}.
+	 *
+	 * @param profile the profile of the query
+	 * @param target the encoded target
+	 * @param gop gap opening penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param gep gap extension penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param linear true for a linear gap penalty, in which case gop is ignored
+	 * @return the alignment score
+	 */
+	public static int getLocalScore(QueryProfile profile, byte[] target, int gop, int gep, boolean linear) {
+		return getLocalScore(profile, target, gop, gep, linear, new Workspace());
+	}
+
+	/**
+	 * Computes the score of the optimal local alignment, as {@link org.biojava.nbio.alignment.SmithWaterman}, in the
+	 * buffers of the given workspace.
+	 *
+	 * @param profile the profile of the query
+	 * @param target the encoded target
+	 * @param gop gap opening penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param gep gap extension penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param linear true for a linear gap penalty, in which case gop is ignored
+	 * @param workspace the buffers to use
+	 * @return the alignment score
+	 */
+	public static int getLocalScore(QueryProfile profile, byte[] target, int gop, int gep, boolean linear,
+			Workspace workspace) {
+		if (profile.getLength() == 0 || target.length == 0) {
+			return 0;
+		}
+		int seg = profile.getSegmentLength(), size = seg * LANES, last = (seg - 1) * LANES;
+		int[][] scores = profile.getScores(true);
+		int open = gop + gep;
+
+		// column 0 of the score matrix is all 0
+		workspace.ensureSize(size);
+		int[] hPrev = workspace.hPrev, hCur = workspace.hCur;
+		int[] mPrev = workspace.mPrev, mCur = workspace.mCur;
+		int[] ins = workspace.ins, del = workspace.del;
+		Arrays.fill(hPrev, 0, size, 0);
+		Arrays.fill(mPrev, 0, size, 0);
+		Arrays.fill(ins, 0, size, 0);
+		int best = 0;
+
+		for (int y = 0; y < target.length; y++) {
+			int[] sub = scores[target[y]];
+
+			// substitution and insertion only depend on the previous column
+			for (int i = 0; i < seg; i++) {
+				int base = i * LANES;
+				for (int j = 0; j < LANES; j++) {
+					int k = base + j;
+					int diag = i > 0 ? hPrev[k - LANES] : (j > 0 ? hPrev[last + j - 1] : 0);
+					if (linear) {
+						mCur[k] = Math.max(0, Math.max(diag + sub[k], hPrev[k] + gep));
+					} else {
+						mCur[k] = Math.max(0, diag + sub[k]);
+						ins[k] = Math.max(0, Math.max(mPrev[k] + open, ins[k] + gep));
+					}
+				}
+			}
+
+			// deletion runs along the query
+			setVerticalScores(mCur, del, seg, linear ? gep : open, gep, 0, 0, 0);
+
+			for (int k = 0; k < size; k++) {
+				int h = Math.max(mCur[k], del[k]);
+				if (linear) {
+					best = Math.max(best, h);
+				} else {
+					h = Math.max(h, ins[k]);
+					best = Math.max(best, mCur[k]);
+				}
+				hCur[k] = h;
+			}
+
+			int[] t = hPrev; hPrev = hCur; hCur = t;
+			t = mPrev; mPrev = mCur; mCur = t;
+		}
+		return best;
+	}
+
+	/**
+	 * Computes the score of the optimal global alignment, as {@link org.biojava.nbio.alignment.NeedlemanWunsch}.
+	 *
+	 * @param profile the profile of the query
+	 * @param target the encoded target
+	 * @param gop gap opening penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param gep gap extension penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param linear true for a linear gap penalty, in which case gop is ignored
+	 * @return the alignment score
+	 */
+	public static int getGlobalScore(QueryProfile profile, byte[] target, int gop, int gep, boolean linear) {
+		return getGlobalScore(profile, target, gop, gep, linear, new Workspace());
+	}
+
+	/**
+	 * Computes the score of the optimal global alignment, as {@link org.biojava.nbio.alignment.NeedlemanWunsch}, in
+	 * the buffers of the given workspace.
+	 *
+	 * @param profile the profile of the query
+	 * @param target the encoded target
+	 * @param gop gap opening penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param gep gap extension penalty, as returned by {@link org.biojava.nbio.alignment.template.GapPenalty}
+	 * @param linear true for a linear gap penalty, in which case gop is ignored
+	 * @param workspace the buffers to use
+	 * @return the alignment score
+	 */
+	public static int getGlobalScore(QueryProfile profile, byte[] target, int gop, int gep, boolean linear,
+			Workspace workspace) {
+		int n = profile.getLength();
+		if (n == 0 || target.length == 0) {
+			if (n == 0 && target.length == 0) {
+				return 0;
+			}
+			return (linear ? 0 : gop) + (n + target.length) * gep;
+		}
+		int seg = profile.getSegmentLength(), size = seg * LANES, last = (seg - 1) * LANES;
+		int[][] scores = profile.getScores(false);
+		int open = gop + gep;
+
+		// column 0 of the score matrix is a deletion of the query prefix
+		workspace.ensureSize(size);
+		int[] hPrev = workspace.hPrev, hCur = workspace.hCur;
+		int[] mPrev = workspace.mPrev, mCur = workspace.mCur;
+		int[] ins = workspace.ins, del = workspace.del;
+		for (int k = 0; k < size; k++) {
+			int x = (k % LANES) * seg + k / LANES + 1;
+			hPrev[k] = (linear ? 0 : gop) + x * gep;
+			mPrev[k] = ins[k] = NEG_INF;
+		}
+
+		for (int y = 1; y <= target.length; y++) {
+			int[] sub = scores[target[y - 1]];
+			// score of row 0, which is an insertion of the target prefix
+			int top = y == 1 ? 0 : (linear ? 0 : gop) + (y - 1) * gep;
+
+			for (int i = 0; i < seg; i++) {
+				int base = i * LANES;
+				for (int j = 0; j < LANES; j++) {
+					int k = base + j;
+					int diag = i > 0 ? hPrev[k - LANES] : (j > 0 ? hPrev[last + j - 1] : top);
+					if (linear) {
+						mCur[k] = Math.max(diag + sub[k], hPrev[k] + gep);
+					} else {
+						mCur[k] = diag + sub[k];
+						ins[k] = Math.max(NEG_INF, Math.max(mPrev[k] + open, ins[k] + gep));
+					}
+				}
+			}
+
+			if (linear) {
+				setVerticalScores(mCur, del, seg, gep, gep, NEG_INF, NEG_INF, y * gep);
+			} else {
+				setVerticalScores(mCur, del, seg, open, gep, NEG_INF, NEG_INF, NEG_INF);
+			}
+
+			for (int k = 0; k < size; k++) {
+				int h = Math.max(mCur[k], del[k]);
+				hCur[k] = linear ? h : Math.max(h, ins[k]);
+			}
+
+			int[] t = hPrev; hPrev = hCur; hCur = t;
+			t = mPrev; mPrev = mCur; mCur = t;
+		}
+		return hPrev[((n - 1) % seg) * LANES + (n - 1) / seg];
+	}
+
+	/**
+	 * Sets the scores which depend on the previous query position of the same column, using Farrar's lazy-F loop:
+	 * <code>v[x] = max(floor, v[x - 1] + gep, src[x - 1] + open)</code>.
+	 *
+	 * @param src the scores from which a gap can be opened
+	 * @param v the scores to set
+	 * @param seg the segment length
+	 * @param open the score of opening a gap
+	 * @param gep the score of extending a gap
+	 * @param floor the lowest allowed score
+	 * @param v0 the value of v before the first query position
+	 * @param src0 the value of src before the first query position
+	 */
+	private static void setVerticalScores(int[] src, int[] v, int seg, int open, int gep, int floor, int v0,
+			int src0) {
+		int last = (seg - 1) * LANES;
+		for (int j = 0; j < LANES; j++) {
+			v[last + j] = floor;
+		}
+		// first pass, with the values carried across stripes still unknown
+		for (int i = 0; i < seg; i++) {
+			int base = i * LANES;
+			for (int j = 0; j < LANES; j++) {
+				int k = base + j;
+				int pv, ps;
+				if (i > 0) {
+					pv = v[k - LANES];
+					ps = src[k - LANES];
+				} else if (j > 0) {
+					pv = v[last + j - 1];
+					ps = src[last + j - 1];
+				} else {
+					pv = v0;
+					ps = src0;
+				}
+				v[k] = Math.max(floor, Math.max(pv + gep, ps + open));
+			}
+		}
+		// each further pass carries the values one stripe further, until nothing changes
+		for (int pass = 1; pass < LANES; pass++) {
+			boolean changed = false;
+			for (int i = 0; i < seg; i++) {
+				int base = i * LANES;
+				boolean segmentChanged = false;
+				for (int j = 0; j < LANES; j++) {
+					int k = base + j;
+					int pv = i > 0 ? v[k - LANES] : (j > 0 ? v[last + j - 1] : v0);
+					int value = pv + gep;
+					if (value > v[k]) {
+						v[k] = value;
+						segmentChanged = true;
+					}
+				}
+				if (!segmentChanged) {
+					break;
+				}
+				changed = true;
+			}
+			if (!changed) {
+				break;
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ package org.biojava.nbio.phylo;
 
 import java.io.IOException;
 import java.util.List;
+import org.biojava.nbio.alignment.PairwiseScoreMatrix;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.sequence.MultipleSequenceAlignment;
 import org.biojava.nbio.core.sequence.template.Compound;
@@ -186,6 +187,35 @@ public class DistanceMatrixCalculator {
 		return distance;
 	}
 
+	/**
+	 * The normalized alignment distance of each pair of sequences, computed from their packed alignment scores as
+	 * {@link org.biojava.nbio.alignment.template.Scorer#getDistance()}:
+	 *
+	 * <pre>
+	 * d = (max - S) / (max - min)
+	 * </pre>
+	 *
+	 * Where S is the score of the pair, max the highest self score of the two sequences and min the lowest score of
+	 * an alignment of the pair. The sequences do not need to be aligned beforehand: the scores of all pairs are
+	 * computed by {@link org.biojava.nbio.alignment.Alignments#getAllPairsScoreMatrix}.
+	 *
+	 * @param scores
+	 *            the alignment scores of all pairs of sequences
+	 * @return DistanceMatrix
+	 */
+	public static DistanceMatrix pairwiseScoreDistance(PairwiseScoreMatrix scores) {
+
+		int n = scores.getSize();
+		BasicSymmetricalDistanceMatrix DM = new BasicSymmetricalDistanceMatrix(n);
+		for (int i = 0; i < n; i++) {
+			DM.setIdentifier(i, scores.getIdentifier(i));
+			for (int j = i + 1; j < n; j++) {
+				DM.setValue(i, j, scores.getDistance(i, j));
+			}
+		}
+		return DM;
+	}
+
 	/**
 	 * The fractional dissimilarity score (Ds) is a relative measure of the
 	 * dissimilarity between two aligned sequences. It is calculated as:
@@ -28,6 +28,7 @@ import org.biojava.nbio.alignment.Alignments.PairwiseSequenceScorerType;
 import org.biojava.nbio.alignment.Alignments.ProfileProfileAlignerType;
 import org.biojava.nbio.alignment.template.GapPenalty;
 import org.biojava.nbio.alignment.template.GuideTreeNode;
+import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
 import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.ProteinSequence;
@@ -76,6 +77,20 @@ public class GuideTreeTest {
 				{0.4, 0.4, 1.0, 0.0}});
 	}
 
+	@Test
+	public void testScoreMatrix() {
+		List<PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound>> scorers = Alignments.getAllPairsScorers(
+				proteins, PairwiseSequenceScorerType.GLOBAL, gaps, blosum62);
+		GuideTree<ProteinSequence, AminoAcidCompound> fromScorers =
+				new GuideTree<ProteinSequence, AminoAcidCompound>(proteins, scorers);
+		GuideTree<ProteinSequence, AminoAcidCompound> fromMatrix = new GuideTree<ProteinSequence, AminoAcidCompound>(
+				proteins, Alignments.getAllPairsScoreMatrix(proteins, PairwiseSequenceScorerType.GLOBAL, gaps,
+						blosum62));
+		assertArrayEquals(fromScorers.getAllPairsScores(), fromMatrix.getAllPairsScores(), 0);
+		assertArrayEquals(fromScorers.getDistanceMatrix(), fromMatrix.getDistanceMatrix());
+		assertEquals(fromScorers.toString(), fromMatrix.toString());
+	}
+
 	@Test
 	public void testGetRoot() {
 		assertEquals(Alignments.getProgressiveAlignment(tree, ProfileProfileAlignerType.GLOBAL, gaps,
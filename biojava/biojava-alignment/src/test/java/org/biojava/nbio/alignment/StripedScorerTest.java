@@ -0,0 +1,226 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.alignment;
+
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceScorerType;
+import org.biojava.nbio.alignment.template.GapPenalty;
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.alignment.template.PairwiseSequenceScorer;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
+import org.biojava.nbio.core.alignment.template.SubstitutionMatrix;
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StripedScorerTest {
+
+	private static final String AMINO_ACIDS = "ACDEFGHIKLMNPQRSTVWY";
+
+	private final SubstitutionMatrix<AminoAcidCompound> blosum62 = SubstitutionMatrixHelper.getBlosum62();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static ProteinSequence randomProtein(Random random, int length) throws CompoundNotFoundException {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(AMINO_ACIDS.charAt(random.nextInt(AMINO_ACIDS.length())));
+		}
+		return new ProteinSequence(sb.toString());
+	}
+
+	private void assertSameScores(ProteinSequence query, ProteinSequence target, GapPenalty gaps) {
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> nw =
+				new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+		StripedScorer<ProteinSequence, AminoAcidCompound> global =
+				new StripedScorer<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62, false);
+		StripedScorer<ProteinSequence, AminoAcidCompound> local =
+				new StripedScorer<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62, true);
+
+		String msg = query + " / " + target + " / " + gaps.getType();
+		assertEquals(msg, nw.getScore(), global.getScore(), 0);
+		assertEquals(msg, nw.getMaxScore(), global.getMaxScore(), 0);
+		assertEquals(msg, nw.getMinScore(), global.getMinScore(), 0);
+		if (gaps.getType() == GapPenalty.Type.LINEAR) {
+			// SmithWaterman does not support linear gap penalties, compare to a plain implementation
+			assertEquals(msg, getLinearLocalScore(query, target, gaps.getExtensionPenalty()), local.getScore(), 0);
+			return;
+		}
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> sw =
+				new SmithWaterman<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62);
+		assertEquals(msg, sw.getScore(), local.getScore(), 0);
+		assertEquals(msg, sw.getMaxScore(), local.getMaxScore(), 0);
+		assertEquals(msg, sw.getMinScore(), local.getMinScore(), 0);
+	}
+
+	private int getLinearLocalScore(ProteinSequence query, ProteinSequence target, int gep) {
+		int[][] h = new int[query.getLength() + 1][target.getLength() + 1];
+		int best = 0;
+		for (int x = 1; x <= query.getLength(); x++) {
+			for (int y = 1; y <= target.getLength(); y++) {
+				int sub = blosum62.getValue(query.getCompoundAt(x), target.getCompoundAt(y));
+				h[x][y] = Math.max(Math.max(0, h[x - 1][y - 1] + sub), Math.max(h[x - 1][y], h[x][y - 1]) + gep);
+				best = Math.max(best, h[x][y]);
+			}
+		}
+		return best;
+	}
+
+	@Test
+	public void testSameScoresAsAligners() throws CompoundNotFoundException {
+		Random random = new Random(42);
+		GapPenalty affine = new SimpleGapPenalty(10, 1);
+		GapPenalty linear = new SimpleGapPenalty(0, 4);
+		for (int i = 0; i < 200; i++) {
+			// lengths around the lane count, and some longer ones
+			int n = i < 150 ? 1 + random.nextInt(20) : 50 + random.nextInt(200);
+			int m = i < 150 ? 1 + random.nextInt(20) : 50 + random.nextInt(200);
+			ProteinSequence query = randomProtein(random, n);
+			ProteinSequence target = randomProtein(random, m);
+			assertSameScores(query, target, affine);
+			assertSameScores(query, target, linear);
+		}
+	}
+
+	@Test
+	public void testSimilarSequences() throws CompoundNotFoundException {
+		ProteinSequence query = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQLEERLGLIEVQAPILSRVGDGTQDNLSGAEKAVQVKVKALPDAQ");
+		ProteinSequence target = new ProteinSequence("MKTAYIAKQRQISFVKSHFSRQDILDLWIYHTQGYFPDWQNYTPGPGVRYPLTFGWCYKL");
+		assertSameScores(query, target, new SimpleGapPenalty());
+		assertSameScores(query, target, new SimpleGapPenalty(2, 1));
+		assertSameScores(new ProteinSequence("AERNDKK"), new ProteinSequence("ERDNKGFPS"), new SimpleGapPenalty(2, 1));
+	}
+
+	@Test
+	public void testGetPair() throws CompoundNotFoundException {
+		ProteinSequence query = new ProteinSequence("AERNDKK");
+		ProteinSequence target = new ProteinSequence("ERDNKGFPS");
+		StripedScorer<ProteinSequence, AminoAcidCompound> scorer = new StripedScorer<ProteinSequence, AminoAcidCompound>(
+				query, target, new SimpleGapPenalty(2, 1), blosum62, true);
+		assertNull(scorer.getPair(scorer.getScore() + 1));
+		assertEquals(String.format("ERNDKK%nER-DNK%n"), scorer.getPair(scorer.getScore()).toString());
+	}
+
+	@Test
+	public void testAllPairsScores() throws CompoundNotFoundException {
+		Random random = new Random(7);
+		List<ProteinSequence> sequences = new ArrayList<ProteinSequence>();
+		for (int i = 0; i < 6; i++) {
+			sequences.add(randomProtein(random, 30 + random.nextInt(30)));
+		}
+		GapPenalty gaps = new SimpleGapPenalty();
+		for (PairwiseSequenceScorerType type : new PairwiseSequenceScorerType[] {
+				PairwiseSequenceScorerType.GLOBAL_STRIPED, PairwiseSequenceScorerType.LOCAL_STRIPED }) {
+			List<PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound>> scorers =
+					Alignments.getAllPairsScorers(sequences, type, gaps, blosum62);
+			assertEquals(15, scorers.size());
+			for (PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound> scorer : scorers) {
+				assertTrue(scorer instanceof StripedScorer);
+				PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner =
+						type == PairwiseSequenceScorerType.GLOBAL_STRIPED ?
+						new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(scorer.getQuery(), scorer.getTarget(),
+								gaps, blosum62) :
+						new SmithWaterman<ProteinSequence, AminoAcidCompound>(scorer.getQuery(), scorer.getTarget(),
+								gaps, blosum62);
+				assertEquals(aligner.getScore(), scorer.getScore(), 0);
+				assertEquals(aligner.getDistance(), scorer.getDistance(), 1e-10);
+			}
+		}
+
+		// the striped scorers are only used when asked for
+		assertTrue(Alignments.getAllPairsScorers(sequences, PairwiseSequenceScorerType.GLOBAL, gaps, blosum62).get(0)
+				instanceof NeedlemanWunsch);
+		assertTrue(Alignments.getAllPairsScorers(sequences, PairwiseSequenceScorerType.LOCAL, gaps, blosum62).get(0)
+				instanceof SmithWaterman);
+	}
+
+	@Test
+	public void testAllPairsScoreMatrix() throws CompoundNotFoundException, IOException {
+		Random random = new Random(11);
+		List<ProteinSequence> sequences = new ArrayList<ProteinSequence>();
+		for (int i = 0; i < 40; i++) {
+			// long enough for several blocks
+			sequences.add(randomProtein(random, 1 + random.nextInt(i < 35 ? 60 : 1000)));
+		}
+		for (GapPenalty gaps : new GapPenalty[] { new SimpleGapPenalty(), new SimpleGapPenalty(0, 4) }) {
+			for (PairwiseSequenceScorerType type : new PairwiseSequenceScorerType[] {
+					PairwiseSequenceScorerType.GLOBAL, PairwiseSequenceScorerType.LOCAL }) {
+				List<PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound>> scorers =
+						Alignments.getAllPairsScorers(sequences, type, gaps, blosum62);
+				PairwiseScoreMatrix matrix = Alignments.getAllPairsScoreMatrix(sequences, type, gaps, blosum62);
+				PairwiseScoreMatrix mapped = Alignments.getAllPairsScoreMatrix(sequences, type, gaps, blosum62,
+						ExecutionContext.forkJoin(2), folder.newFile());
+				assertTrue(mapped.isMapped());
+				assertEquals(scorers.size(), matrix.getPairCount());
+				for (int i = 0, n = 0; i < sequences.size(); i++) {
+					for (int j = i + 1; j < sequences.size(); j++) {
+						PairwiseSequenceScorer<ProteinSequence, AminoAcidCompound> scorer = scorers.get(n);
+						assertEquals(n++, matrix.getIndex(j, i));
+						assertEquals(scorer.getScore(), matrix.getScore(i, j), 0);
+						assertEquals(scorer.getScore(), mapped.getScore(j, i), 0);
+						assertEquals(scorer.getMaxScore(), matrix.getMaxScore(i, j), 0);
+						assertEquals(scorer.getMinScore(), matrix.getMinScore(i, j), 0);
+						assertEquals(scorer.getDistance(), matrix.getDistance(i, j), 1e-10);
+					}
+				}
+				assertArrayEquals(Alignments.runPairwiseScorers(scorers), matrix.getScores(), 0);
+
+				GuideTree<ProteinSequence, AminoAcidCompound> expected =
+						new GuideTree<ProteinSequence, AminoAcidCompound>(sequences, scorers);
+				GuideTree<ProteinSequence, AminoAcidCompound> tree =
+						new GuideTree<ProteinSequence, AminoAcidCompound>(sequences, matrix);
+				assertEquals(expected.toString(), tree.toString());
+				double[][] distances = expected.getDistanceMatrix();
+				for (int i = 0; i < distances.length; i++) {
+					assertArrayEquals(distances[i], tree.getDistanceMatrix()[i], 1e-10);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testScoreMatrixPrecision() throws IOException {
+		GapPenalty gaps = new SimpleGapPenalty();
+		String[] identifiers = { "a", "b", "c" };
+		int[] selfScores = { 1 << 25, 1 << 25, 1 << 25 }, lengths = { 1 << 22, 1 << 22, 1 << 22 };
+		PairwiseScoreMatrix matrix = new PairwiseScoreMatrix(identifiers, selfScores, lengths, gaps, false);
+		PairwiseScoreMatrix mapped = new PairwiseScoreMatrix(identifiers, selfScores, lengths, gaps, false,
+				folder.newFile());
+		// not representable as a float
+		int score = (1 << 24) + 1;
+		matrix.setScore(0, 2, score);
+		mapped.setScore(2, 0, score);
+		assertEquals(score, matrix.getScore(2, 0), 0);
+		assertEquals(score, mapped.getScore(0, 2), 0);
+	}
+}
@@ -23,6 +23,9 @@
 
 package org.biojava.nbio.alignment.routines;
 
+import org.biojava.nbio.alignment.Alignments;
+import org.biojava.nbio.alignment.Alignments.PairwiseSequenceAlignerType;
+import org.biojava.nbio.alignment.NeedlemanWunsch;
 import org.biojava.nbio.alignment.SimpleGapPenalty;
 import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.alignment.template.GapPenalty;
@@ -36,6 +39,10 @@ import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
@@ -135,4 +142,95 @@ public class GuanUberbacherTest {
 		aligner.setCutsPerSection(2); // 3 bases with 2 cuts
 		assertEquals(String.format("AAT-%nAATG%n"), aligner.getPair().toString());
 	}
+	private static String randomSequence(Random random, String alphabet, int length) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+		}
+		return sb.toString();
+	}
+
+	// mutates a sequence so that the alignment has long gapped and ungapped regions
+	private static String mutate(Random random, String alphabet, String s) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < s.length(); i++) {
+			int r = random.nextInt(100);
+			if (r < 10) {
+				sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			} else if (r < 12) {
+				i += random.nextInt(20);
+			} else if (r < 14) {
+				sb.append(randomSequence(random, alphabet, random.nextInt(20)));
+			} else {
+				sb.append(s.charAt(i));
+			}
+		}
+		return sb.length() > 0 ? sb.toString() : s;
+	}
+
+	private static void assertSameAlignment(ProteinSequence query, ProteinSequence target, GapPenalty gaps,
+			int cuts) {
+		SubstitutionMatrix<AminoAcidCompound> matrix = SubstitutionMatrixHelper.getBlosum62();
+		NeedlemanWunsch<ProteinSequence, AminoAcidCompound> nw =
+				new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, matrix);
+		GuanUberbacher<ProteinSequence, AminoAcidCompound> gu =
+				new GuanUberbacher<ProteinSequence, AminoAcidCompound>(query, target, gaps, matrix, cuts);
+		assertEquals(nw.getScore(), gu.getScore(), PRECISION);
+		assertEquals(nw.getPair().toString(), gu.getPair().toString());
+	}
+
+	@Test
+	public void testSameAlignmentAsNeedlemanWunsch() throws CompoundNotFoundException {
+		String aminoAcids = "ACDEFGHIKLMNPQRSTVWY";
+		Random random = new Random(1);
+		GapPenalty affine = new SimpleGapPenalty(10, 1), linear = new SimpleGapPenalty(0, 4);
+		for (int i = 0; i < 30; i++) {
+			// short pairs use a single traceback, long ones are split into several sections
+			int length = i < 20 ? 1 + random.nextInt(30) : 300 + random.nextInt(500);
+			String s = randomSequence(random, aminoAcids, length);
+			ProteinSequence query = new ProteinSequence(s);
+			ProteinSequence target = new ProteinSequence(i % 3 == 0 ?
+					randomSequence(random, aminoAcids, 1 + random.nextInt(length)) : mutate(random, aminoAcids, s));
+			for (int cuts : new int[] { 1, 3, 10 }) {
+				assertSameAlignment(query, target, affine, cuts);
+				assertSameAlignment(query, target, linear, cuts);
+			}
+		}
+	}
+
+	@Test
+	public void testParallelSections() throws Exception {
+		String aminoAcids = "ACDEFGHIKLMNPQRSTVWY";
+		Random random = new Random(2);
+		// more cells than the threshold above which sections are split between threads
+		String s = randomSequence(random, aminoAcids, 1200);
+		final ProteinSequence query = new ProteinSequence(s);
+		final ProteinSequence target = new ProteinSequence(mutate(random, aminoAcids, s));
+		assertTrue((long) (query.getLength() + 1) * (target.getLength() + 1) >= 1L << 20);
+
+		Callable<String> align = new Callable<String>() {
+			@Override
+			public String call() {
+				return new GuanUberbacher<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62)
+						.getPair().toString();
+			}
+		};
+		ForkJoinPool sequential = new ForkJoinPool(1), parallel = new ForkJoinPool(4);
+		try {
+			String expected = sequential.submit(align).get();
+			assertEquals(expected, parallel.submit(align).get());
+			assertEquals(expected, align.call());
+			assertEquals(new NeedlemanWunsch<ProteinSequence, AminoAcidCompound>(query, target, gaps, blosum62)
+					.getPair().toString(), expected);
+		} finally {
+			sequential.shutdown();
+			parallel.shutdown();
+		}
+	}
+
+	@Test
+	public void testLinearSpaceAligner() {
+		assertTrue(Alignments.getPairwiseAligner(query, target, PairwiseSequenceAlignerType.GLOBAL_LINEAR_SPACE,
+				gaps, blosum62) instanceof GuanUberbacher);
+	}
 }
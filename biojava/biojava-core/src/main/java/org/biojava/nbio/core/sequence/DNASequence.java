@@ -26,6 +26,7 @@ import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
 import org.biojava.nbio.core.sequence.loader.StringProxySequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
 import org.biojava.nbio.core.sequence.template.*;
 import org.biojava.nbio.core.sequence.transcription.Frame;
 import org.biojava.nbio.core.sequence.transcription.TranscriptionEngine;
@@ -36,6 +37,10 @@ import org.slf4j.LoggerFactory;
 
 /**
  * This is class should model the attributes associated with a DNA sequence
+ * <p>
+ * When created from a String, the sequence is stored using 2 bits per base with a
+ * {@link PackedNucleotideSequenceReader}, unless the compound set does not allow it
+ * (see {@link PackedNucleotideSequenceReader#canPack(CompoundSet)}).
  *
  * @author Scooter Willis
  */
@@ -93,6 +98,49 @@ public class DNASequence extends AbstractSequence<NucleotideCompound> {
 		super(proxyLoader, compoundSet);
 	}
 
+	/**
+	 * Stores the sequence in a {@link PackedNucleotideSequenceReader} if the compound set allows it,
+	 * otherwise falls back to the default storage.
+	 */
+	@Override
+	protected void initSequenceStorage(String seqString) throws CompoundNotFoundException {
+		if (PackedNucleotideSequenceReader.canPack(getCompoundSet())) {
+			PackedNucleotideSequenceReader<NucleotideCompound> reader = new PackedNucleotideSequenceReader<>();
+			reader.setCompoundSet(getCompoundSet());
+			reader.setContents(seqString);
+			setProxySequenceReader(reader);
+		} else {
+			super.initSequenceStorage(seqString);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private PackedNucleotideSequenceReader<NucleotideCompound> getPackedStorage() {
+		SequenceReader<NucleotideCompound> storage = getProxySequenceReader();
+		if (storage instanceof PackedNucleotideSequenceReader) {
+			return (PackedNucleotideSequenceReader<NucleotideCompound>) storage;
+		}
+		return null;
+	}
+
+	@Override
+	public String getSequenceAsString() {
+		PackedNucleotideSequenceReader<NucleotideCompound> packed = getPackedStorage();
+		if (packed != null) {
+			return packed.getSequenceAsString();
+		}
+		return super.getSequenceAsString();
+	}
+
+	@Override
+	public int countCompounds(NucleotideCompound... compounds) {
+		PackedNucleotideSequenceReader<NucleotideCompound> packed = getPackedStorage();
+		if (packed != null) {
+			return packed.countCompounds(compounds);
+		}
+		return super.countCompounds(compounds);
+	}
+
 	/**
 	 * Return the RNASequence equivalent of the DNASequence using default Transcription Engine. Not all
 	 * species follow the same rules. If you don't know better use this method
@@ -129,7 +177,9 @@ public class DNASequence extends AbstractSequence<NucleotideCompound> {
 	 * @return GC count
 	 */
 	public int getGCCount() {
-		return SequenceMixin.countGC(this);
+		CompoundSet<NucleotideCompound> cs = getCompoundSet();
+		return countCompounds(cs.getCompoundForString("G"), cs.getCompoundForString("C"),
+				cs.getCompoundForString("g"), cs.getCompoundForString("c"));
 	}
 
 	/**
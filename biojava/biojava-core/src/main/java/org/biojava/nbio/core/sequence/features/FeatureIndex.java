@@ -0,0 +1,143 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.features;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An immutable index of features by the span of their location, from the
+ * start to the end position, to find the features overlapping a position or
+ * a range in O(log n + k) time.
+ * <p>
+ * The features are stored in arrays sorted by start position, which are the
+ * in-order traversal of an implicit balanced binary search tree: the node of
+ * a range of the arrays is its middle element, and each node is augmented with
+ * the largest end position of its subtree, so that the subtrees that end
+ * before the query are skipped. The overlapping features are visited in the
+ * order of the collection the index was built from, for features with the
+ * same start position.
+ * <p>
+ * The index is a snapshot: it must be rebuilt when features are added,
+ * removed or moved, see {@link org.biojava.nbio.core.sequence.template.AbstractSequence}
+ * which does so on demand.
+ *
+ * @param <F> the type of the features
+ * @since 6.0.6
+ */
+public class FeatureIndex<F extends FeatureInterface<?, ?>> {
+
+	private static final Comparator<FeatureInterface<?, ?>> START =
+			Comparator.comparingInt(f -> f.getLocations().getStart().getPosition());
+
+	private final Object[] features;
+	private final int[] starts;
+	private final int[] ends;
+	/** The largest end position of the subtree whose root is at the same index */
+	private final int[] maxEnds;
+
+	/**
+	 * Indexes features.
+	 * @param features the features to index, which are not modified
+	 */
+	public FeatureIndex(Collection<? extends F> features) {
+		this.features = features.toArray();
+		// a stable sort, which keeps the order of features with the same start
+		Arrays.sort(this.features, (a, b) -> START.compare((FeatureInterface<?, ?>) a, (FeatureInterface<?, ?>) b));
+		int n = this.features.length;
+		starts = new int[n];
+		ends = new int[n];
+		maxEnds = new int[n];
+		for (int i = 0; i < n; i++) {
+			FeatureInterface<?, ?> feature = (FeatureInterface<?, ?>) this.features[i];
+			starts[i] = feature.getLocations().getStart().getPosition();
+			ends[i] = feature.getLocations().getEnd().getPosition();
+		}
+		if (n > 0) {
+			augment(0, n - 1);
+		}
+	}
+
+	private int augment(int lo, int hi) {
+		int mid = (lo + hi) >>> 1;
+		int max = ends[mid];
+		if (lo < mid) {
+			max = Math.max(max, augment(lo, mid - 1));
+		}
+		if (mid < hi) {
+			max = Math.max(max, augment(mid + 1, hi));
+		}
+		maxEnds[mid] = max;
+		return max;
+	}
+
+	/**
+	 * @return the number of indexed features
+	 */
+	public int size() {
+		return features.length;
+	}
+
+	/**
+	 * Visits the features overlapping a range, without allocating.
+	 * @param start the first position of the range
+	 * @param end the last position of the range, inclusive
+	 * @param visitor called with each feature whose start is at most end and whose end is at least start
+	 */
+	public void visit(int start, int end, Consumer<? super F> visitor) {
+		visit(0, features.length - 1, start, end, visitor);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void visit(int lo, int hi, int start, int end, Consumer<? super F> visitor) {
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (maxEnds[mid] < start) {
+				return;
+			}
+			visit(lo, mid - 1, start, end, visitor);
+			if (starts[mid] > end) {
+				// and so do the features of the right subtree
+				return;
+			}
+			if (ends[mid] >= start) {
+				visitor.accept((F) features[mid]);
+			}
+			lo = mid + 1;
+		}
+	}
+
+	/**
+	 * Gets the features overlapping a range.
+	 * @param start the first position of the range
+	 * @param end the last position of the range, inclusive
+	 * @return a new list of the features whose start is at most end and whose end is at least start
+	 */
+	public List<F> getOverlapping(int start, int end) {
+		List<F> hits = new ArrayList<>();
+		visit(start, end, hits::add);
+		return hits;
+	}
+}
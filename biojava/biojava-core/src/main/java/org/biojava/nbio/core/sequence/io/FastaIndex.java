@@ -0,0 +1,347 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The index of a FASTA file, in the format of the <code>.fai</code> files written by
+ * <code>samtools faidx</code>. For every record it stores the name (the header up to the
+ * first white space), the number of bases, the file offset of the first base, the number
+ * of bases per line and the number of bytes per line including the line terminator.
+ * <p>
+ * This allows finding the file offset of any base without reading the record, see
+ * {@link IndexedFastaReader}. As for samtools, all lines of a record except the last one
+ * must have the same length.
+ *
+ * @since 6.0.6
+ */
+public class FastaIndex {
+
+	/**
+	 * The file extension of FASTA index files
+	 */
+	public static final String EXTENSION = ".fai";
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	/**
+	 * The index of one FASTA record
+	 */
+	public static class Entry {
+		private final String name;
+		private final long length;
+		private final long offset;
+		private final int lineBases;
+		private final int lineWidth;
+
+		public Entry(String name, long length, long offset, int lineBases, int lineWidth) {
+			this.name = name;
+			this.length = length;
+			this.offset = offset;
+			this.lineBases = lineBases;
+			this.lineWidth = lineWidth;
+		}
+
+		/**
+		 * @return the name of the record, i.e. the header up to the first white space
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of bases of the record
+		 */
+		public long getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the file offset of the first base
+		 */
+		public long getOffset() {
+			return offset;
+		}
+
+		/**
+		 * @return the number of bases per line
+		 */
+		public int getLineBases() {
+			return lineBases;
+		}
+
+		/**
+		 * @return the number of bytes per line, including the line terminator
+		 */
+		public int getLineWidth() {
+			return lineWidth;
+		}
+
+		/**
+		 * Returns the file offset of a base
+		 * @param position 0-based position in the record
+		 * @return
+		 */
+		public long getOffset(long position) {
+			if (lineBases == 0) {
+				// an empty record
+				return offset;
+			}
+			return offset + (position / lineBases) * lineWidth + position % lineBases;
+		}
+
+		@Override
+		public String toString() {
+			return name + "\t" + length + "\t" + offset + "\t" + lineBases + "\t" + lineWidth;
+		}
+	}
+
+	/**
+	 * Adds an entry to this index
+	 * @param entry
+	 * @throws IllegalArgumentException if there is already an entry with the same name
+	 */
+	public void add(Entry entry) {
+		if (entries.containsKey(entry.getName())) {
+			throw new IllegalArgumentException("Duplicate sequence name in FASTA index: " + entry.getName());
+		}
+		entries.put(entry.getName(), entry);
+	}
+
+	/**
+	 * @param name
+	 * @return the entry of the record with the given name, or null if there is none
+	 */
+	public Entry getEntry(String name) {
+		return entries.get(name);
+	}
+
+	/**
+	 * @return the entries, in file order
+	 */
+	public Collection<Entry> getEntries() {
+		return Collections.unmodifiableCollection(entries.values());
+	}
+
+	/**
+	 * @return the names of all records, in file order
+	 */
+	public List<String> getNames() {
+		return new ArrayList<>(entries.keySet());
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Returns the default index file of a FASTA file, i.e. the FASTA file name with <code>.fai</code> appended
+	 * @param fastaFile
+	 * @return
+	 */
+	public static File getIndexFile(File fastaFile) {
+		return new File(fastaFile.getPath() + EXTENSION);
+	}
+
+	/**
+	 * Reads an index from a <code>.fai</code> file
+	 * @param indexFile
+	 * @return
+	 * @throws IOException if the file can't be read or is not a valid index
+	 */
+	public static FastaIndex read(File indexFile) throws IOException {
+		FastaIndex index = new FastaIndex();
+		try (BufferedReader br = new BufferedReader(new FileReader(indexFile))) {
+			String line;
+			int lineNr = 0;
+			while ((line = br.readLine()) != null) {
+				lineNr++;
+				if (line.isEmpty()) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				if (fields.length < 5) {
+					throw new IOException("Invalid FASTA index line " + lineNr + " in " + indexFile + ": " + line);
+				}
+				try {
+					index.add(new Entry(fields[0], Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+							Integer.parseInt(fields[3]), Integer.parseInt(fields[4])));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid FASTA index line " + lineNr + " in " + indexFile + ": " + line, e);
+				}
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Writes this index in the <code>.fai</code> format
+	 * @param indexFile
+	 * @throws IOException
+	 */
+	public void write(File indexFile) throws IOException {
+		try (BufferedWriter bw = new BufferedWriter(new FileWriter(indexFile))) {
+			for (Entry entry : entries.values()) {
+				bw.write(entry.toString());
+				bw.write('\n');
+			}
+		}
+	}
+
+	/**
+	 * Builds the index of a FASTA file by scanning its bytes once
+	 * @param fastaFile
+	 * @return
+	 * @throws IOException if the file can't be read, or a record has lines of different lengths
+	 */
+	public static FastaIndex build(File fastaFile) throws IOException {
+		try (InputStream is = new FileInputStream(fastaFile)) {
+			return build(is, fastaFile.getName());
+		}
+	}
+
+	private static FastaIndex build(InputStream is, String fileName) throws IOException {
+		FastaIndex index = new FastaIndex();
+
+		StringBuilder header = null;
+		String name = null;
+		long length = 0;
+		long offset = 0;
+		int lineBases = -1;
+		int lineWidth = -1;
+		// the previous sequence line was shorter than lineBases, so it must be the last one
+		boolean ended = false;
+
+		long pos = 0;
+		int lineStartBases = 0;
+		long lineStart = 0;
+		boolean inHeader = false;
+		boolean atLineStart = true;
+		byte[] buffer = new byte[1 << 16];
+		int n;
+		while ((n = is.read(buffer)) != -1) {
+			for (int k = 0; k < n; k++) {
+				int b = buffer[k] & 0xff;
+				if (atLineStart) {
+					lineStart = pos;
+					lineStartBases = 0;
+					atLineStart = false;
+					if (b == '>') {
+						if (name != null) {
+							index.add(new Entry(name, length, offset, Math.max(lineBases, 0), Math.max(lineWidth, 0)));
+						}
+						inHeader = true;
+						header = new StringBuilder();
+						pos++;
+						continue;
+					}
+				}
+				pos++;
+				if (b == '\n') {
+					atLineStart = true;
+					if (inHeader) {
+						name = parseName(header);
+						inHeader = false;
+						length = 0;
+						offset = pos;
+						lineBases = -1;
+						lineWidth = -1;
+						ended = false;
+					} else if (name != null && lineStartBases > 0) {
+						int width = (int) (pos - lineStart);
+						if (ended) {
+							throw new IOException("Different line length in FASTA record " + name + " of " + fileName);
+						}
+						if (lineBases < 0) {
+							lineBases = lineStartBases;
+							lineWidth = width;
+						} else if (lineStartBases > lineBases || width - lineStartBases != lineWidth - lineBases) {
+							throw new IOException("Different line length in FASTA record " + name + " of " + fileName);
+						} else if (lineStartBases < lineBases) {
+							ended = true;
+						}
+					} else if (name != null && length > 0) {
+						// an empty line, only allowed at the end of the record
+						ended = true;
+					} else if (name != null) {
+						// an empty line before the first bases, which start after it
+						offset = pos;
+					}
+				} else if (inHeader) {
+					header.append((char) b);
+				} else if (b != '\r' && name != null) {
+					if (ended) {
+						throw new IOException("Different line length in FASTA record " + name + " of " + fileName);
+					}
+					// the rest of the bases of the line in this buffer
+					int end = k + 1;
+					while (end < n && buffer[end] != '\n' && buffer[end] != '\r') {
+						end++;
+					}
+					lineStartBases += end - k;
+					length += end - k;
+					pos += end - k - 1;
+					k = end - 1;
+				}
+			}
+		}
+		if (inHeader) {
+			name = parseName(header);
+			length = 0;
+			offset = pos;
+		} else if (!atLineStart && name != null && lineStartBases > 0) {
+			// last line without line terminator
+			if (lineBases < 0) {
+				lineBases = lineStartBases;
+				lineWidth = lineStartBases + 1;
+			} else if (ended || lineStartBases > lineBases) {
+				throw new IOException("Different line length in FASTA record " + name + " of " + fileName);
+			}
+		}
+		if (name != null) {
+			index.add(new Entry(name, length, offset, Math.max(lineBases, 0), Math.max(lineWidth, 0)));
+		}
+		return index;
+	}
+
+	private static String parseName(StringBuilder header) {
+		String h = header.toString().trim();
+		int ws = 0;
+		while (ws < h.length() && !Character.isWhitespace(h.charAt(ws))) {
+			ws++;
+		}
+		return h.substring(0, ws);
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.io.template.SequenceCreatorInterface;
+import org.biojava.nbio.core.sequence.template.AbstractSequence;
+import org.biojava.nbio.core.sequence.template.Compound;
+import org.biojava.nbio.core.sequence.template.Sequence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Random access to the records of a FASTA file using a {@link FastaIndex}, compatible with
+ * the <code>.fai</code> files of <code>samtools faidx</code>. The file is memory mapped, so
+ * a subsequence is read by copying only its bytes, without parsing the rest of the record.
+ * This is intended for extracting many short windows from large reference genomes:
+ * <pre>
+ * IndexedFastaReader&lt;DNASequence, NucleotideCompound&gt; reader = new IndexedFastaReader&lt;&gt;(
+ *         new File("hg38.fa"), new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()));
+ * DNASequence window = reader.getSubSequence("chr1", 1000001, 1000100);
+ * </pre>
+ * If the index file <code>hg38.fa.fai</code> exists it is used, otherwise the index is built by
+ * scanning the file once and is written next to it if possible.
+ * <p>
+ * Instances are thread safe once created. Files larger than 2GB are mapped in several segments.
+ *
+ * @param <S> the type of sequence returned
+ * @param <C> the compound type of the sequence
+ * @since 6.0.6
+ */
+public class IndexedFastaReader<S extends Sequence<?>, C extends Compound> implements Closeable {
+
+	private final static Logger logger = LoggerFactory.getLogger(IndexedFastaReader.class);
+
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+
+	private final File file;
+	private final FastaIndex index;
+	private final SequenceCreatorInterface<C> sequenceCreator;
+	private RandomAccessFile raf;
+	private volatile MappedByteBuffer[] segments;
+
+	/**
+	 * Opens a FASTA file, reading its index from the default <code>.fai</code> file or building it
+	 * (and trying to write it) if that file does not exist.
+	 * @param file the FASTA file
+	 * @param sequenceCreator creates the sequences returned by {@link #getSubSequence(String, long, long)}
+	 * @throws IOException if the file can't be read or the index is invalid
+	 */
+	public IndexedFastaReader(File file, SequenceCreatorInterface<C> sequenceCreator) throws IOException {
+		this(file, loadOrBuildIndex(file), sequenceCreator);
+	}
+
+	/**
+	 * Opens a FASTA file with the given index
+	 * @param file the FASTA file
+	 * @param index the index of the file
+	 * @param sequenceCreator creates the sequences returned by {@link #getSubSequence(String, long, long)}
+	 * @throws IOException if the file can't be read
+	 */
+	public IndexedFastaReader(File file, FastaIndex index, SequenceCreatorInterface<C> sequenceCreator) throws IOException {
+		this.file = file;
+		this.index = index;
+		this.sequenceCreator = sequenceCreator;
+		this.raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			int n = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+			segments = new MappedByteBuffer[n];
+			for (int i = 0; i < n; i++) {
+				long start = i * SEGMENT_SIZE;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE, size - start));
+			}
+		} catch (IOException e) {
+			raf.close();
+			throw e;
+		}
+	}
+
+	private static FastaIndex loadOrBuildIndex(File file) throws IOException {
+		File indexFile = FastaIndex.getIndexFile(file);
+		if (indexFile.exists() && indexFile.lastModified() >= file.lastModified()) {
+			return FastaIndex.read(indexFile);
+		}
+		FastaIndex index = FastaIndex.build(file);
+		try {
+			index.write(indexFile);
+		} catch (IOException e) {
+			logger.warn("Could not write FASTA index {}: {}", indexFile, e.getMessage());
+		}
+		return index;
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public FastaIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return the names of all records, in file order
+	 */
+	public List<String> getSequenceNames() {
+		return index.getNames();
+	}
+
+	/**
+	 * @param name
+	 * @return the length of the record with the given name
+	 * @throws IllegalArgumentException if there is no record with this name
+	 */
+	public long getLength(String name) {
+		return getEntry(name).getLength();
+	}
+
+	private FastaIndex.Entry getEntry(String name) {
+		FastaIndex.Entry entry = index.getEntry(name);
+		if (entry == null) {
+			throw new IllegalArgumentException("No sequence " + name + " in " + file);
+		}
+		return entry;
+	}
+
+	/**
+	 * Returns a region of a record as a String, exactly as found in the file (i.e. case is preserved).
+	 * @param name the name of the record
+	 * @param start 1-based start
+	 * @param end 1-based end, inclusive
+	 * @return
+	 * @throws IllegalArgumentException if there is no record with this name
+	 * @throws IndexOutOfBoundsException if the region is not within the record
+	 */
+	public String getSequenceAsString(String name, long start, long end) {
+		FastaIndex.Entry entry = getEntry(name);
+		if (start < 1 || end > entry.getLength() || end < start - 1 || end - start + 1 > Integer.MAX_VALUE) {
+			throw new IndexOutOfBoundsException("Region " + start + "-" + end + " is outside of " + name + ":1-" + entry.getLength());
+		}
+		int n = (int) (end - start + 1);
+		byte[] bytes = new byte[n];
+		long position = start - 1;
+		int copied = 0;
+		while (copied < n) {
+			int count = (int) Math.min(entry.getLineBases() - position % entry.getLineBases(), n - copied);
+			copy(entry.getOffset(position), bytes, copied, count);
+			copied += count;
+			position += count;
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Returns a whole record as a String
+	 * @param name the name of the record
+	 * @return
+	 */
+	public String getSequenceAsString(String name) {
+		return getSequenceAsString(name, 1, getLength(name));
+	}
+
+	private void copy(long offset, byte[] dst, int dstOffset, int length) {
+		MappedByteBuffer[] segs = segments;
+		if (segs == null) {
+			throw new IllegalStateException(file + " is closed");
+		}
+		while (length > 0) {
+			ByteBuffer segment = segs[(int) (offset >>> SEGMENT_BITS)].duplicate();
+			int segmentOffset = (int) (offset & (SEGMENT_SIZE - 1));
+			int count = Math.min(length, segment.limit() - segmentOffset);
+			// cast for compatibility with Java 8, where ByteBuffer does not override position(int)
+			((Buffer) segment).position(segmentOffset);
+			segment.get(dst, dstOffset, count);
+			offset += count;
+			dstOffset += count;
+			length -= count;
+		}
+	}
+
+	/**
+	 * Returns a region of a record as a sequence, created with the {@link SequenceCreatorInterface}
+	 * of this reader. The accession of the sequence is the record name and the description is
+	 * <code>name:start-end</code>.
+	 * @param name the name of the record
+	 * @param start 1-based start
+	 * @param end 1-based end, inclusive
+	 * @return
+	 * @throws CompoundNotFoundException if the region contains characters not in the compound set
+	 * @throws IOException if the sequence creator fails
+	 */
+	@SuppressWarnings("unchecked")
+	public S getSubSequence(String name, long start, long end) throws CompoundNotFoundException, IOException {
+		String sequence = getSequenceAsString(name, start, end);
+		AbstractSequence<C> s = sequenceCreator.getSequence(sequence, getEntry(name).getOffset(start - 1));
+		s.setAccession(new AccessionID(name));
+		s.setDescription(name + ":" + start + "-" + end);
+		return (S) s;
+	}
+
+	/**
+	 * Returns a whole record as a sequence
+	 * @param name the name of the record
+	 * @return
+	 * @throws CompoundNotFoundException if the record contains characters not in the compound set
+	 * @throws IOException if the sequence creator fails
+	 * @see #getSubSequence(String, long, long)
+	 */
+	public S getSequence(String name) throws CompoundNotFoundException, IOException {
+		return getSubSequence(name, 1, getLength(name));
+	}
+
+	/**
+	 * Closes the file. The mapped memory is released when it is garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		segments = null;
+		if (raf != null) {
+			raf.close();
+			raf = null;
+		}
+	}
+}
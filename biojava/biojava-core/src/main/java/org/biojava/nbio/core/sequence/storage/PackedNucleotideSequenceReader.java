@@ -0,0 +1,597 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.storage;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.AccessionID;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.template.*;
+import org.biojava.nbio.core.util.Equals;
+import org.biojava.nbio.core.util.Hashcoder;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Stores a nucleotide sequence using 2 bits per base for A, C, G and T (or U).
+ * Unlike {@link TwoBitSequenceReader}, any other compound of the {@link CompoundSet}
+ * (N, IUPAC ambiguity codes, gaps) is supported: these are kept in a sparse list of runs
+ * of identical compounds. Lower case bases are kept as a list of masked runs, so that
+ * the case of the original sequence is preserved. For typical genomic sequence this uses
+ * about 16 times less memory than {@link ArrayListSequenceReader}.
+ * <p>
+ * {@link #getSequenceAsString()}, {@link #countCompounds(NucleotideCompound...)} and
+ * {@link #getReverseComplement()} work directly on the packed data, without creating
+ * a List of compounds.
+ * <p>
+ * Only compound sets where each compound is a single character and that contain A, C, G
+ * and T or U can be packed, see {@link #canPack(CompoundSet)}. Instances are immutable
+ * once {@link #setContents(String)} has been called.
+ *
+ * @param <C> the type of compound; must extend {@link NucleotideCompound}
+ * @since 6.0.6
+ */
+public class PackedNucleotideSequenceReader<C extends NucleotideCompound> implements ProxySequenceReader<C> {
+
+	private static final int BASES_PER_WORD = 32;
+	private static final long LOW_BITS = 0x5555555555555555L;
+
+	private static final Map<CompoundSet<?>, Encoding<?>> encodings =
+			Collections.synchronizedMap(new WeakHashMap<>());
+
+	private CompoundSet<C> compoundSet;
+	private Encoding<C> encoding;
+	private AccessionID accession;
+
+	private int length;
+	private long[] bits;
+
+	// runs of non ACGT compounds, 0-based starts in increasing order
+	private int exceptionCount;
+	private int[] exceptionStart;
+	private int[] exceptionLength;
+	private Object[] exceptionCompound;
+
+	// runs of lower case bases, 0-based starts in increasing order
+	private int maskCount;
+	private int[] maskStart;
+	private int[] maskLength;
+
+	private volatile int[] baseCounts = null;
+	private volatile Integer hashcode = null;
+
+	/**
+	 * Creates an empty reader, {@link #setCompoundSet(CompoundSet)} and {@link #setContents(String)}
+	 * must be called before use.
+	 */
+	public PackedNucleotideSequenceReader() {
+		this.accession = new AccessionID("Unknown");
+	}
+
+	public PackedNucleotideSequenceReader(String sequence, CompoundSet<C> compoundSet) throws CompoundNotFoundException {
+		this(sequence, compoundSet, new AccessionID("Unknown"));
+	}
+
+	public PackedNucleotideSequenceReader(String sequence, CompoundSet<C> compoundSet, AccessionID accession) throws CompoundNotFoundException {
+		this.accession = accession;
+		setCompoundSet(compoundSet);
+		setContents(sequence);
+	}
+
+	/**
+	 * Returns true if sequences of the given compound set can be stored by this class: all compounds
+	 * must be represented by a single character and the nucleotides A, C, G and T or U must be present.
+	 * @param compoundSet
+	 * @return
+	 */
+	public static boolean canPack(CompoundSet<?> compoundSet) {
+		return compoundSet != null && getEncoding(compoundSet) != null;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <C extends Compound> Encoding<C> getEncoding(CompoundSet<C> compoundSet) {
+		synchronized (encodings) {
+			if (encodings.containsKey(compoundSet)) {
+				return (Encoding<C>) encodings.get(compoundSet);
+			}
+			Encoding<C> encoding = Encoding.create(compoundSet);
+			encodings.put(compoundSet, encoding);
+			return encoding;
+		}
+	}
+
+	/**
+	 * Sets the compound set, which can only be done once.
+	 * @throws IllegalArgumentException if the compound set can't be packed, see {@link #canPack(CompoundSet)}
+	 * @throws UnsupportedOperationException if a compound set was already set
+	 */
+	@Override
+	public void setCompoundSet(CompoundSet<C> compoundSet) {
+		if (this.compoundSet != null) {
+			throw new UnsupportedOperationException("Cannot reset the CompoundSet; object is immutable");
+		}
+		Encoding<C> enc = getEncoding(compoundSet);
+		if (enc == null) {
+			throw new IllegalArgumentException("Compound set " + compoundSet.getClass().getSimpleName() + " can't be stored in 2 bits per base");
+		}
+		this.compoundSet = compoundSet;
+		this.encoding = enc;
+	}
+
+	/**
+	 * Parses the sequence, which can only be done once.
+	 * @throws UnsupportedOperationException if contents were already set
+	 */
+	@Override
+	public void setContents(String sequence) throws CompoundNotFoundException {
+		if (bits != null) {
+			throw new UnsupportedOperationException(getClass().getSimpleName() + " is an immutable data structure; cannot reset contents");
+		}
+		int n = sequence.length();
+		long[] packed = new long[(n + BASES_PER_WORD - 1) / BASES_PER_WORD];
+		RunList exceptions = new RunList();
+		RunList masks = new RunList();
+		Object[] compounds = new Object[8];
+
+		for (int i = 0; i < n; i++) {
+			char ch = sequence.charAt(i);
+			int code = encoding.code(ch);
+			if (code >= 0) {
+				packed[i / BASES_PER_WORD] |= ((long) code) << ((i % BASES_PER_WORD) * 2);
+				if (encoding.isLowerCase(ch)) {
+					masks.add(i, null);
+				}
+			} else {
+				C compound = encoding.compound(ch, compoundSet);
+				if (compound == null) {
+					throw new CompoundNotFoundException("Cannot find compound for: " + ch);
+				}
+				exceptions.add(i, compound);
+			}
+		}
+
+		this.length = n;
+		this.bits = packed;
+		this.exceptionCount = exceptions.count;
+		this.exceptionStart = Arrays.copyOf(exceptions.start, exceptions.count);
+		this.exceptionLength = Arrays.copyOf(exceptions.length, exceptions.count);
+		this.exceptionCompound = Arrays.copyOf(exceptions.value, exceptions.count);
+		this.maskCount = masks.count;
+		this.maskStart = Arrays.copyOf(masks.start, masks.count);
+		this.maskLength = Arrays.copyOf(masks.length, masks.count);
+	}
+
+	/**
+	 * Returns the index of the run containing 0-based position pos, or -1
+	 */
+	private static int findRun(int[] start, int[] length, int count, int pos) {
+		int lo = 0;
+		int hi = count - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if (start[mid] <= pos) {
+				lo = mid + 1;
+			} else {
+				hi = mid - 1;
+			}
+		}
+		// hi is now the last run starting at or before pos
+		if (hi >= 0 && pos < start[hi] + length[hi]) {
+			return hi;
+		}
+		return -1;
+	}
+
+	private int codeAt(int pos) {
+		return (int) (bits[pos / BASES_PER_WORD] >>> ((pos % BASES_PER_WORD) * 2)) & 3;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public C getCompoundAt(int position) {
+		if (position < 1 || position > length) {
+			throw new IndexOutOfBoundsException("Position " + position + " is outside of 1.." + length);
+		}
+		int pos = position - 1;
+		int e = findRun(exceptionStart, exceptionLength, exceptionCount, pos);
+		if (e >= 0) {
+			return (C) exceptionCompound[e];
+		}
+		int code = codeAt(pos);
+		if (maskCount > 0 && findRun(maskStart, maskLength, maskCount, pos) >= 0) {
+			return encoding.lower(code);
+		}
+		return encoding.upper(code);
+	}
+
+	@Override
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	public String getSequenceAsString() {
+		return getSequenceAsString(1, length);
+	}
+
+	/**
+	 * Returns the sub-sequence between the given biological positions (inclusive) as a String,
+	 * decoding the packed data directly.
+	 * @param start 1-based start
+	 * @param end 1-based end, inclusive
+	 * @return
+	 */
+	public String getSequenceAsString(int start, int end) {
+		if (start < 1 || end > length || end < start - 1) {
+			throw new IndexOutOfBoundsException("Range " + start + ".." + end + " is outside of 1.." + length);
+		}
+		int from = start - 1;
+		char[] chars = new char[end - from];
+		for (int i = from; i < end; i++) {
+			chars[i - from] = encoding.upperChar[codeAt(i)];
+		}
+		for (int m = firstRunEndingAfter(maskStart, maskLength, maskCount, from); m < maskCount && maskStart[m] < end; m++) {
+			int to = Math.min(end, maskStart[m] + maskLength[m]);
+			for (int i = Math.max(from, maskStart[m]); i < to; i++) {
+				chars[i - from] = encoding.lowerChar[codeAt(i)];
+			}
+		}
+		for (int e = firstRunEndingAfter(exceptionStart, exceptionLength, exceptionCount, from); e < exceptionCount && exceptionStart[e] < end; e++) {
+			@SuppressWarnings("unchecked")
+			char ch = compoundSet.getStringForCompound((C) exceptionCompound[e]).charAt(0);
+			int to = Math.min(end, exceptionStart[e] + exceptionLength[e]);
+			Arrays.fill(chars, Math.max(from, exceptionStart[e]) - from, to - from, ch);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the index of the first run that ends after 0-based position pos
+	 */
+	private static int firstRunEndingAfter(int[] start, int[] length, int count, int pos) {
+		int r = findRun(start, length, count, pos);
+		if (r >= 0) {
+			return r;
+		}
+		int idx = Arrays.binarySearch(start, 0, count, pos);
+		return idx >= 0 ? idx : -idx - 1;
+	}
+
+	@Override
+	public List<C> getAsList() {
+		return SequenceMixin.toList(this);
+	}
+
+	/**
+	 * Counts the given compounds using the packed data: bases are counted per 64 bit word
+	 * and only N runs and masked runs are visited individually.
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public int countCompounds(C... compounds) {
+		int[] counts = getBaseCounts();
+		int count = 0;
+		for (C compound : compounds) {
+			for (int code = 0; code < 4; code++) {
+				if (encoding.upper[code].equals(compound)) {
+					count += counts[code];
+				}
+				if (encoding.lower[code] != null && encoding.lower[code].equals(compound)) {
+					count += counts[code + 4];
+				}
+			}
+			for (int e = 0; e < exceptionCount; e++) {
+				if (exceptionCompound[e].equals(compound)) {
+					count += exceptionLength[e];
+				}
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of upper case (indices 0-3) and lower case (indices 4-7) bases per code
+	 */
+	private int[] getBaseCounts() {
+		int[] counts = baseCounts;
+		if (counts != null) {
+			return counts;
+		}
+		counts = new int[8];
+		for (int w = 0; w < bits.length; w++) {
+			long word = bits[w];
+			long lo = word & LOW_BITS;
+			long hi = (word >>> 1) & LOW_BITS;
+			counts[1] += Long.bitCount(lo & ~hi);
+			counts[2] += Long.bitCount(hi & ~lo);
+			counts[3] += Long.bitCount(lo & hi);
+		}
+		counts[0] = length - counts[1] - counts[2] - counts[3];
+		// positions of exceptions are stored as code 0
+		for (int e = 0; e < exceptionCount; e++) {
+			counts[0] -= exceptionLength[e];
+		}
+		for (int m = 0; m < maskCount; m++) {
+			for (int i = maskStart[m]; i < maskStart[m] + maskLength[m]; i++) {
+				int code = codeAt(i);
+				counts[code]--;
+				counts[code + 4]++;
+			}
+		}
+		baseCounts = counts;
+		return counts;
+	}
+
+	/**
+	 * Returns the reverse complement of this sequence as a new packed sequence, computed
+	 * directly on the packed data. Case is preserved.
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	public PackedNucleotideSequenceReader<C> getReverseComplement() {
+		PackedNucleotideSequenceReader<C> rc = new PackedNucleotideSequenceReader<>();
+		rc.compoundSet = compoundSet;
+		rc.encoding = encoding;
+		rc.accession = accession;
+		rc.length = length;
+		rc.bits = new long[bits.length];
+		for (int i = 0; i < length; i++) {
+			// with codes A=0, C=1, G=2, T=3 the complement is code ^ 3
+			int code = codeAt(length - 1 - i) ^ 3;
+			rc.bits[i / BASES_PER_WORD] |= ((long) code) << ((i % BASES_PER_WORD) * 2);
+		}
+		rc.exceptionCount = exceptionCount;
+		rc.exceptionStart = new int[exceptionCount];
+		rc.exceptionLength = new int[exceptionCount];
+		rc.exceptionCompound = new Object[exceptionCount];
+		for (int e = 0; e < exceptionCount; e++) {
+			int r = exceptionCount - 1 - e;
+			rc.exceptionStart[r] = length - exceptionStart[e] - exceptionLength[e];
+			rc.exceptionLength[r] = exceptionLength[e];
+			rc.exceptionCompound[r] = encoding.complement((C) exceptionCompound[e], compoundSet);
+		}
+		// exception positions must be stored as code 0, like when parsing
+		for (int e = 0; e < rc.exceptionCount; e++) {
+			for (int i = rc.exceptionStart[e]; i < rc.exceptionStart[e] + rc.exceptionLength[e]; i++) {
+				rc.bits[i / BASES_PER_WORD] &= ~(3L << ((i % BASES_PER_WORD) * 2));
+			}
+		}
+		rc.maskCount = maskCount;
+		rc.maskStart = new int[maskCount];
+		rc.maskLength = new int[maskCount];
+		for (int m = 0; m < maskCount; m++) {
+			int r = maskCount - 1 - m;
+			rc.maskStart[r] = length - maskStart[m] - maskLength[m];
+			rc.maskLength[r] = maskLength[m];
+		}
+		return rc;
+	}
+
+	@Override
+	public CompoundSet<C> getCompoundSet() {
+		return compoundSet;
+	}
+
+	@Override
+	public AccessionID getAccession() {
+		return accession;
+	}
+
+	@Override
+	public int getIndexOf(C compound) {
+		return SequenceMixin.indexOf(this, compound);
+	}
+
+	@Override
+	public int getLastIndexOf(C compound) {
+		return SequenceMixin.lastIndexOf(this, compound);
+	}
+
+	@Override
+	public SequenceView<C> getSubSequence(Integer start, Integer end) {
+		return SequenceMixin.createSubSequence(this, start, end);
+	}
+
+	@Override
+	public Iterator<C> iterator() {
+		return SequenceMixin.createIterator(this);
+	}
+
+	@Override
+	public SequenceView<C> getInverse() {
+		return SequenceMixin.inverse(this);
+	}
+
+	@Override
+	public int hashCode() {
+		if (hashcode == null) {
+			int s = Hashcoder.SEED;
+			s = Hashcoder.hash(s, compoundSet);
+			s = Hashcoder.hash(s, getSequenceAsString());
+			hashcode = s;
+		}
+		return hashcode;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object o) {
+		if (Equals.classEqual(this, o)) {
+			PackedNucleotideSequenceReader<C> that = (PackedNucleotideSequenceReader<C>) o;
+			return Equals.equal(compoundSet, that.compoundSet) &&
+					length == that.length &&
+					Arrays.equals(bits, that.bits) &&
+					getSequenceAsString().equals(that.getSequenceAsString());
+		}
+		return false;
+	}
+
+	/**
+	 * Growable list of runs of equal values, used while parsing
+	 */
+	private static class RunList {
+		int count = 0;
+		int[] start = new int[4];
+		int[] length = new int[4];
+		Object[] value = new Object[4];
+
+		void add(int pos, Object v) {
+			if (count > 0 && start[count - 1] + length[count - 1] == pos && value[count - 1] == v) {
+				length[count - 1]++;
+				return;
+			}
+			if (count == start.length) {
+				start = Arrays.copyOf(start, count * 2);
+				length = Arrays.copyOf(length, count * 2);
+				value = Arrays.copyOf(value, count * 2);
+			}
+			start[count] = pos;
+			length[count] = 1;
+			value[count] = v;
+			count++;
+		}
+	}
+
+	/**
+	 * Lookup tables between characters, 2 bit codes and compounds for one compound set.
+	 * Codes are A=0, C=1, G=2, T or U=3.
+	 */
+	private static class Encoding<C extends Compound> {
+
+		private static final int ASCII = 128;
+
+		// Object[] since a C[] can't be created
+		private final Object[] upper = new Object[4];
+		private final Object[] lower = new Object[4];
+		private final char[] upperChar;
+		private final char[] lowerChar;
+		// code of each ASCII char, -1 if it is not stored in 2 bits
+		private final byte[] codes = new byte[ASCII];
+		private final boolean[] lowerCase = new boolean[ASCII];
+		private final Map<Character, C> others = new HashMap<>();
+		private final Map<C, C> complements = new HashMap<>();
+
+		private Encoding(CompoundSet<C> cs, String bases) {
+			upperChar = new char[4];
+			lowerChar = new char[4];
+			Arrays.fill(codes, (byte) -1);
+			for (int code = 0; code < 4; code++) {
+				char u = bases.charAt(code);
+				char l = Character.toLowerCase(u);
+				C uc = cs.getCompoundForString(String.valueOf(u));
+				upper[code] = uc;
+				upperChar[code] = cs.getStringForCompound(uc).charAt(0);
+				codes[u] = (byte) code;
+				C lc = cs.getCompoundForString(String.valueOf(l));
+				if (lc != null) {
+					codes[l] = (byte) code;
+					// compound sets that are not case sensitive don't need a mask
+					if (!lc.equals(upper[code])) {
+						lower[code] = lc;
+						lowerChar[code] = cs.getStringForCompound(lc).charAt(0);
+						lowerCase[l] = true;
+					}
+				}
+			}
+		}
+
+		static <C extends Compound> Encoding<C> create(CompoundSet<C> cs) {
+			if (cs.getMaxSingleCompoundStringLength() != 1) {
+				return null;
+			}
+			// amino acid sets also have A, C, G and T
+			if (!(cs.getCompoundForString("A") instanceof NucleotideCompound) || !has(cs, "C") || !has(cs, "G")) {
+				return null;
+			}
+			if (has(cs, "T")) {
+				return new Encoding<>(cs, "ACGT");
+			}
+			if (has(cs, "U")) {
+				return new Encoding<>(cs, "ACGU");
+			}
+			return null;
+		}
+
+		private static boolean has(CompoundSet<?> cs, String s) {
+			return cs.getCompoundForString(s) != null;
+		}
+
+		@SuppressWarnings("unchecked")
+		C upper(int code) {
+			return (C) upper[code];
+		}
+
+		@SuppressWarnings("unchecked")
+		C lower(int code) {
+			return (C) lower[code];
+		}
+
+		int code(char ch) {
+			return ch < ASCII ? codes[ch] : -1;
+		}
+
+		boolean isLowerCase(char ch) {
+			return lowerCase[ch];
+		}
+
+		C compound(char ch, CompoundSet<C> cs) {
+			synchronized (others) {
+				C c = others.get(ch);
+				if (c == null) {
+					c = cs.getCompoundForString(String.valueOf(ch));
+					if (c != null) {
+						others.put(ch, c);
+					}
+				}
+				return c;
+			}
+		}
+
+		/**
+		 * Returns the complement of a non ACGT compound, or the compound itself if it has none
+		 */
+		@SuppressWarnings("unchecked")
+		C complement(C compound, CompoundSet<C> cs) {
+			synchronized (complements) {
+				C c = complements.get(compound);
+				if (c == null) {
+					c = compound;
+					if (compound instanceof NucleotideCompound) {
+						Compound complement = ((NucleotideCompound) compound).getComplement();
+						if (complement != null) {
+							C inSet = cs.getCompoundForString(complement.toString());
+							if (inSet != null) {
+								c = inSet;
+							}
+						}
+					}
+					complements.put(compound, c);
+				}
+				return c;
+			}
+		}
+	}
+}
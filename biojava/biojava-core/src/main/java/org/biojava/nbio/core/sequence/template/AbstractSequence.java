@@ -43,6 +43,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  *
@@ -71,15 +72,50 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	private DatabaseReferenceInterface databaseReferences = null;
 	private FeatureRetriever featureRetriever = null;
 	private ArrayList<FeatureInterface<AbstractSequence<C>, C>> features =
-			new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
+			new FeatureArrayList<FeatureInterface<AbstractSequence<C>, C>>();
 	private LinkedHashMap<String, ArrayList<FeatureInterface<AbstractSequence<C>, C>>> groupedFeatures =
 			new LinkedHashMap<String, ArrayList<FeatureInterface<AbstractSequence<C>, C>>>();
+	/**
+	 * The interval indexes of the features, by type, built on demand. The null key is for all the features.
+	 * Guarded by itself, so that concurrent queries can build them
+	 */
+	private final Map<String, IndexedFeatures<FeatureInterface<AbstractSequence<C>, C>>> featureIndexes = new HashMap<>();
 	private List<String> comments = new ArrayList<>();
 	private List<AbstractReference> references;
 
 	public AbstractSequence() {
 	}
 
+	/**
+	 * A list of features whose modifications are counted, to know when its index is stale.
+	 */
+	private static class FeatureArrayList<F> extends ArrayList<F> {
+		private static final long serialVersionUID = 1L;
+
+		int getModCount() {
+			return modCount;
+		}
+	}
+
+	/**
+	 * The index of a list of features, as it was when the index was built.
+	 */
+	private static class IndexedFeatures<F extends FeatureInterface<?, ?>> {
+		private final List<F> features;
+		private final int modCount;
+		private final FeatureIndex<F> index;
+
+		IndexedFeatures(List<F> features) {
+			this.features = features;
+			this.modCount = ((FeatureArrayList<F>) features).getModCount();
+			this.index = new FeatureIndex<>(features);
+		}
+
+		boolean isIndexOf(List<F> features) {
+			return this.features == features && modCount == ((FeatureArrayList<F>) features).getModCount();
+		}
+	}
+
 	/**
 	 * Create a Sequence from a simple string where the values should be found in compoundSet
 	 * @param seqString
@@ -353,17 +389,7 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @return
 	 */
 	public List<FeatureInterface<AbstractSequence<C>, C>> getFeatures(String featureType, int bioSequencePosition) {
-		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureHits =
-				new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
-		List<FeatureInterface<AbstractSequence<C>, C>> features = getFeaturesByType(featureType);
-		if (features != null) {
-			for (FeatureInterface<AbstractSequence<C>, C> feature : features) {
-				if (bioSequencePosition >= feature.getLocations().getStart().getPosition() && bioSequencePosition <= feature.getLocations().getEnd().getPosition()) {
-					featureHits.add(feature);
-				}
-			}
-		}
-		return featureHits;
+		return getFeatureIndex(featureType).getOverlapping(bioSequencePosition, bioSequencePosition);
 	}
 
 	/**
@@ -372,16 +398,58 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @return
 	 */
 	public List<FeatureInterface<AbstractSequence<C>, C>> getFeatures(int bioSequencePosition) {
-		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureHits =
-				new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
-		if (features != null) {
-			for (FeatureInterface<AbstractSequence<C>, C> feature : features) {
-				if (bioSequencePosition >= feature.getLocations().getStart().getPosition() && bioSequencePosition <= feature.getLocations().getEnd().getPosition()) {
-					featureHits.add(feature);
-				}
+		return getFeatureIndex(null).getOverlapping(bioSequencePosition, bioSequencePosition);
+	}
+
+	/**
+	 * Return the features of a type that overlap a range of the sequence, in the order of
+	 * {@link #getFeaturesByType(String)}
+	 * @param featureType the type of the features, null for all features
+	 * @param bioStart the first position of the range
+	 * @param bioEnd the last position of the range, inclusive
+	 * @return a new list of the features that start at or before bioEnd and end at or after bioStart
+	 * @since 6.0.6
+	 */
+	public List<FeatureInterface<AbstractSequence<C>, C>> getFeaturesOverlapping(String featureType, int bioStart, int bioEnd) {
+		return getFeatureIndex(featureType).getOverlapping(bioStart, bioEnd);
+	}
+
+	/**
+	 * Visit the features of a type that overlap a range of the sequence, without creating a list
+	 * @param featureType the type of the features, null for all features
+	 * @param bioStart the first position of the range
+	 * @param bioEnd the last position of the range, inclusive
+	 * @param visitor called with each feature that starts at or before bioEnd and ends at or after bioStart
+	 * @since 6.0.6
+	 */
+	public void visitFeatures(String featureType, int bioStart, int bioEnd,
+			Consumer<? super FeatureInterface<AbstractSequence<C>, C>> visitor) {
+		getFeatureIndex(featureType).visit(bioStart, bioEnd, visitor);
+	}
+
+	/**
+	 * Get the interval index of the features of a type, which is built on the first query after
+	 * features are added or removed, including through the lists of {@link #getFeatures()} and
+	 * {@link #getFeaturesByType(String)}. Features whose location is changed, or which are replaced
+	 * with {@link List#set(int, Object)}, must be removed and added again to be found at their new
+	 * location. Queries can run concurrently, as long as the features are not modified meanwhile.
+	 * @param featureType the type of the features, null for all features
+	 * @return the index of the features
+	 * @since 6.0.6
+	 */
+	public FeatureIndex<FeatureInterface<AbstractSequence<C>, C>> getFeatureIndex(String featureType) {
+		List<FeatureInterface<AbstractSequence<C>, C>> indexed = featureType == null ? features : getFeaturesByType(featureType);
+		if (indexed.isEmpty()) {
+			return new FeatureIndex<>(indexed);
+		}
+		synchronized (featureIndexes) {
+			IndexedFeatures<FeatureInterface<AbstractSequence<C>, C>> index = featureIndexes.get(featureType);
+			if (index == null || !index.isIndexOf(indexed)) {
+				index = new IndexedFeatures<>(indexed);
+				featureIndexes.put(featureType, index);
 			}
+			return index.index;
 		}
-		return featureHits;
 	}
 
 	/**
@@ -413,15 +481,36 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 	 * @param feature
 	 */
 	public void addFeature(FeatureInterface<AbstractSequence<C>, C> feature) {
-		features.add(feature);
 		ArrayList<FeatureInterface<AbstractSequence<C>, C>> featureList = groupedFeatures.get(feature.getType());
 		if (featureList == null) {
-			featureList = new ArrayList<FeatureInterface<AbstractSequence<C>, C>>();
+			featureList = new FeatureArrayList<FeatureInterface<AbstractSequence<C>, C>>();
 			groupedFeatures.put(feature.getType(), featureList);
 		}
-		featureList.add(feature);
-		Collections.sort(features, AbstractFeature.LOCATION_LENGTH);
-		Collections.sort(featureList, AbstractFeature.LOCATION_LENGTH);
+		insertSorted(features, feature);
+		insertSorted(featureList, feature);
+		synchronized (featureIndexes) {
+			// not needed to detect the change, but frees the stale indexes
+			featureIndexes.remove(null);
+			featureIndexes.remove(feature.getType());
+		}
+	}
+
+	/**
+	 * Inserts a feature after the features that are not sorted after it, as adding it
+	 * at the end and sorting the list would.
+	 */
+	private static <F extends FeatureInterface<?, ?>> void insertSorted(List<F> list, F feature) {
+		int lo = 0;
+		int hi = list.size();
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (AbstractFeature.LOCATION_LENGTH.compare(list.get(mid), feature) <= 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		list.add(lo, feature);
 	}
 
 	/**
@@ -437,6 +526,10 @@ public abstract class AbstractSequence<C extends Compound> implements Sequence<C
 				groupedFeatures.remove(feature.getType());
 			}
 		}
+		synchronized (featureIndexes) {
+			featureIndexes.remove(null);
+			featureIndexes.remove(feature.getType());
+		}
 	}
 
 	/**
@@ -31,6 +31,7 @@ import java.util.concurrent.*;
 /**
  * Static utility to easily share a thread pool for concurrent/parallel/lazy execution.  To exit cleanly,
  * {@link #shutdown()} or {@link #shutdownAndAwaitTermination()} must be called after all tasks have been submitted.
+ * To bound, monitor or cancel the tasks of a single computation, pass an {@link ExecutionContext} instead.
  *
  * @author Mark Chapman
  */
@@ -0,0 +1,393 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+
+package org.biojava.nbio.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The tasks of one computation, run on an {@link ExecutorService} which may be shared with other computations.
+ * Unlike the static pool of {@link ConcurrencyTools}, a context is passed to the methods that run tasks, so that
+ * each call can be given its own limits:
+ * <ul>
+ * <li>the number of pending (queued or running) tasks is bounded, and {@link #submit(Callable)} blocks when the
+ * bound is reached, so that a large computation does not fill the queue of a shared executor;</li>
+ * <li>{@link #cancel()} cancels all pending tasks of this context only;</li>
+ * <li>the numbers of submitted, completed, failed and cancelled tasks are available while the computation runs.</li>
+ * </ul>
+ * <pre>
+ * ExecutorService executor = Executors.newFixedThreadPool(8); // shared by all requests
+ * ExecutionContext context = new ExecutionContext(executor, 64);
+ * Profile&lt;ProteinSequence, AminoAcidCompound&gt; msa = Alignments.getMultipleSequenceAlignment(sequences, context);
+ * </pre>
+ * A context does not own its executor: shutting the executor down is left to the caller, except for the executor
+ * of {@link #virtualThreads(int)}, which is shut down by {@link #close()}.
+ * <p>
+ * When a thread of a {@link ForkJoinPool} waits in {@link #submit(Callable)} or in {@link Future#get()} for a task
+ * of a context, the pool is told that the thread is blocked, so that it can start another thread to run the queued
+ * tasks. Tasks of a context on a fork-join pool can therefore wait for the tasks of a nested context on the same
+ * pool without starving it.
+ *
+ * @since 6.0.6
+ */
+public class ExecutionContext implements AutoCloseable {
+
+	private final static Logger logger = LoggerFactory.getLogger(ExecutionContext.class);
+
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final int maxPendingTasks;
+	private final Semaphore permits;
+	private final Set<Task<?>> pending = ConcurrentHashMap.newKeySet();
+	private volatile boolean cancelled;
+
+	private final AtomicLong submitted = new AtomicLong(), completed = new AtomicLong(), failed = new AtomicLong(),
+			cancelledTasks = new AtomicLong(), taskTime = new AtomicLong();
+
+	/**
+	 * Creates a context without a bound on the number of pending tasks.
+	 *
+	 * @param executor runs the tasks
+	 */
+	public ExecutionContext(ExecutorService executor) {
+		this(executor, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a context.
+	 *
+	 * @param executor runs the tasks
+	 * @param maxPendingTasks the maximum number of tasks queued or running at the same time
+	 */
+	public ExecutionContext(ExecutorService executor, int maxPendingTasks) {
+		this(executor, maxPendingTasks, false);
+	}
+
+	private ExecutionContext(ExecutorService executor, int maxPendingTasks, boolean ownsExecutor) {
+		if (maxPendingTasks < 1) {
+			throw new IllegalArgumentException("The maximum number of pending tasks must be positive");
+		}
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.maxPendingTasks = maxPendingTasks;
+		permits = new Semaphore(maxPendingTasks);
+	}
+
+	/**
+	 * Returns a context on the shared thread pool of {@link ConcurrencyTools}, without a bound on the number of
+	 * pending tasks.  This is what the methods which do not take a context use.
+	 *
+	 * @return a new context
+	 */
+	public static ExecutionContext getDefault() {
+		return new ExecutionContext(ConcurrencyTools.getThreadPool());
+	}
+
+	/**
+	 * Returns a context on the common {@link ForkJoinPool}.  Its tasks may use nested contexts on the same pool.
+	 *
+	 * @param maxPendingTasks the maximum number of tasks queued or running at the same time
+	 * @return a new context
+	 */
+	public static ExecutionContext forkJoin(int maxPendingTasks) {
+		return new ExecutionContext(ForkJoinPool.commonPool(), maxPendingTasks);
+	}
+
+	/**
+	 * Returns a context which runs each task in a new virtual thread.  Virtual threads need Java 21 or later.
+	 * The executor of the context is shut down by {@link #close()}.
+	 *
+	 * @param maxPendingTasks the maximum number of tasks queued or running at the same time
+	 * @return a new context
+	 * @throws UnsupportedOperationException if virtual threads are not available
+	 */
+	public static ExecutionContext virtualThreads(int maxPendingTasks) {
+		ExecutorService executor;
+		try {
+			executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			throw new UnsupportedOperationException("Virtual threads are not available in this Java version", e);
+		}
+		return new ExecutionContext(executor, maxPendingTasks, true);
+	}
+
+	/**
+	 * Shuts down the executor of this context if the context created it, as {@link #virtualThreads(int)} does.
+	 * The pending tasks still run, but no more tasks are accepted.  Otherwise this does nothing.
+	 */
+	@Override
+	public void close() {
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * @return the executor which runs the tasks
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * @return the maximum number of tasks queued or running at the same time
+	 */
+	public int getMaxPendingTasks() {
+		return maxPendingTasks;
+	}
+
+	/**
+	 * Queues up a task, waiting first if the maximum number of pending tasks is reached.
+	 *
+	 * @param <T> type returned from the submitted task
+	 * @param task submitted task
+	 * @return future on which the desired value is retrieved by calling get()
+	 * @throws CancellationException if this context was cancelled, or the thread was interrupted while waiting
+	 */
+	public <T> Future<T> submit(Callable<T> task) {
+		return submit(task, "");
+	}
+
+	/**
+	 * Queues up a task and adds a log entry, waiting first if the maximum number of pending tasks is reached.
+	 *
+	 * @param <T> type returned from the submitted task
+	 * @param task submitted task
+	 * @param message logged message
+	 * @return future on which the desired value is retrieved by calling get()
+	 * @throws CancellationException if this context was cancelled, or the thread was interrupted while waiting
+	 */
+	public <T> Future<T> submit(Callable<T> task, String message) {
+		if (cancelled) {
+			throw new CancellationException("Execution context was cancelled");
+		}
+		try {
+			if (Thread.currentThread() instanceof ForkJoinWorkerThread) {
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+					@Override
+					public boolean block() throws InterruptedException {
+						permits.acquire();
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return permits.tryAcquire();
+					}
+				});
+			} else {
+				permits.acquire();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while waiting to submit a task");
+		}
+		Task<T> future = new Task<T>(task);
+		pending.add(future);
+		if (cancelled) {
+			// cancel() may have run before the task was added
+			pending.remove(future);
+			permits.release();
+			throw new CancellationException("Execution context was cancelled");
+		}
+		logger.debug("Task {} submitted. {}", submitted.incrementAndGet(), message);
+		try {
+			executor.execute(future);
+		} catch (RejectedExecutionException e) {
+			submitted.decrementAndGet();
+			pending.remove(future);
+			permits.release();
+			throw e;
+		}
+		return future;
+	}
+
+	/**
+	 * Cancels all pending tasks of this context, interrupting those which are running.  Tasks submitted afterwards
+	 * are rejected with a {@link CancellationException}.
+	 */
+	public void cancel() {
+		cancelled = true;
+		for (Task<?> task : pending) {
+			task.cancel(true);
+		}
+	}
+
+	/**
+	 * @return true if {@link #cancel()} was called
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * @return the number of tasks submitted so far
+	 */
+	public long getSubmittedTaskCount() {
+		return submitted.get();
+	}
+
+	/**
+	 * @return the number of tasks which returned a value
+	 */
+	public long getCompletedTaskCount() {
+		return completed.get();
+	}
+
+	/**
+	 * @return the number of tasks which threw an exception
+	 */
+	public long getFailedTaskCount() {
+		return failed.get();
+	}
+
+	/**
+	 * @return the number of tasks cancelled before they finished
+	 */
+	public long getCancelledTaskCount() {
+		return cancelledTasks.get();
+	}
+
+	/**
+	 * @return the number of tasks queued or running
+	 */
+	public int getPendingTaskCount() {
+		return pending.size();
+	}
+
+	/**
+	 * @return the time spent running tasks so far, summed over all threads, in nanoseconds
+	 */
+	public long getTaskTime() {
+		return taskTime.get();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s [submitted=%d, completed=%d, failed=%d, cancelled=%d, pending=%d]",
+				getClass().getSimpleName(), getSubmittedTaskCount(), getCompletedTaskCount(), getFailedTaskCount(),
+				getCancelledTaskCount(), getPendingTaskCount());
+	}
+
+	// keeps the counts and releases the permit of a task when it is done
+	private class Task<T> extends FutureTask<T> {
+
+		// the count of the task, if it finished before it was cancelled
+		private volatile AtomicLong counted;
+
+		private Task(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		public void run() {
+			long start = System.nanoTime();
+			try {
+				super.run();
+			} finally {
+				taskTime.addAndGet(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public T get() throws InterruptedException, ExecutionException {
+			if (!isDone() && Thread.currentThread() instanceof ForkJoinWorkerThread) {
+				// lets the pool run the queued tasks, including this one, in another thread while this one waits
+				ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+					@Override
+					public boolean block() throws InterruptedException {
+						awaitDone();
+						return true;
+					}
+
+					@Override
+					public boolean isReleasable() {
+						return isDone();
+					}
+				});
+			}
+			return super.get();
+		}
+
+		private void awaitDone() throws InterruptedException {
+			try {
+				super.get();
+			} catch (ExecutionException | CancellationException e) {
+				// thrown again by get()
+			}
+		}
+
+		@Override
+		protected void set(T value) {
+			finish(completed);
+			super.set(value);
+		}
+
+		@Override
+		protected void setException(Throwable t) {
+			finish(failed);
+			super.setException(t);
+		}
+
+		// done() runs after the waiters of the task are woken up, so the counts are kept here to be up to date when
+		// get() returns
+		private void finish(AtomicLong count) {
+			if (!isDone()) {
+				counted = count;
+				count.incrementAndGet();
+			}
+			if (pending.remove(this)) {
+				permits.release();
+			}
+		}
+
+		@Override
+		protected void done() {
+			if (pending.remove(this)) {
+				permits.release();
+			}
+			if (isCancelled()) {
+				if (counted != null) {
+					// cancel() won after the task finished
+					counted.decrementAndGet();
+				}
+				cancelledTasks.incrementAndGet();
+			}
+		}
+	}
+
+}
@@ -22,9 +22,12 @@ package org.biojava.nbio.core.sequence;
 
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
 import org.biojava.nbio.core.sequence.compound.AmbiguityDNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
 import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.storage.ArrayListSequenceReader;
 import org.biojava.nbio.core.sequence.storage.FourBitSequenceReader;
+import org.biojava.nbio.core.sequence.storage.PackedNucleotideSequenceReader;
 import org.biojava.nbio.core.sequence.storage.SingleCompoundSequenceReader;
 import org.biojava.nbio.core.sequence.storage.TwoBitSequenceReader;
 import org.biojava.nbio.core.sequence.template.*;
@@ -41,6 +44,7 @@ import java.util.Map;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -194,6 +198,40 @@ public class DNATest {
 		assertThat("FourBit from String not as expected", bitFromString.getSequenceAsString(), is(expected));
 	}
 
+	@Test
+	public void packed() throws CompoundNotFoundException {
+		// longer than one 64 bit word, with N runs, IUPAC codes, a gap and lower case
+		String expected = "NNNNACGTacgtRYACGTTTGCAnnnACGTACGTACGTACGTACGTAcgtaCG-TW";
+		DNASequence seq = new DNASequence(expected, ambiguity);
+		assertTrue(seq.getProxySequenceReader() instanceof PackedNucleotideSequenceReader);
+		assertThat(seq.getSequenceAsString(), is(expected));
+		assertEquals(expected.length(), seq.getLength());
+
+		DNASequence list = new DNASequence(new ArrayListSequenceReader<NucleotideCompound>(expected, ambiguity), ambiguity);
+		for (int i = 1; i <= expected.length(); i++) {
+			assertEquals("Compound at " + i, list.getCompoundAt(i), seq.getCompoundAt(i));
+		}
+		assertEquals(list.getAsList(), seq.getAsList());
+		for (String c : new String[] {"A", "C", "G", "T", "a", "c", "g", "t", "N", "n", "R", "-"}) {
+			NucleotideCompound compound = ambiguity.getCompoundForString(c);
+			assertEquals("Count of " + c, list.countCompounds(compound), seq.countCompounds(compound));
+		}
+		assertEquals(SequenceMixin.countGC(list), seq.getGCCount());
+		assertThat(seq.getSubSequence(3, 12).getSequenceAsString(), is(expected.substring(2, 12)));
+
+		PackedNucleotideSequenceReader<NucleotideCompound> packed =
+				(PackedNucleotideSequenceReader<NucleotideCompound>) seq.getProxySequenceReader();
+		assertThat(packed.getSequenceAsString(5, 14), is(expected.substring(4, 14)));
+		assertThat(packed.getReverseComplement().getSequenceAsString(), is(seq.getReverseComplement().getSequenceAsString()));
+	}
+
+	@Test
+	public void packedDefault() throws CompoundNotFoundException {
+		assertTrue(getSeq().getProxySequenceReader() instanceof PackedNucleotideSequenceReader);
+		assertTrue(PackedNucleotideSequenceReader.canPack(DNACompoundSet.getDNACompoundSet()));
+		assertFalse(PackedNucleotideSequenceReader.canPack(AminoAcidCompoundSet.getAminoAcidCompoundSet()));
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void badTwoBit() throws CompoundNotFoundException {
 		DNASequence seq = getSeq();
@@ -0,0 +1,170 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.biojava.nbio.core.sequence.template.AbstractSequence;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class FeatureIndexTest {
+
+	private static final String[] TYPES = { "gene", "CDS", "misc_feature" };
+
+	private DNASequence sequence;
+	private List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> added;
+
+	@BeforeEach
+	void before() throws CompoundNotFoundException {
+		sequence = new DNASequence("ACGT");
+		added = new ArrayList<>();
+		Random random = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			int start = 1 + random.nextInt(10000);
+			int length = random.nextInt(10) == 0 ? random.nextInt(5000) : random.nextInt(200);
+			TextFeature<AbstractSequence<NucleotideCompound>, NucleotideCompound> feature =
+					new TextFeature<>(TYPES[random.nextInt(TYPES.length)], "test", "f" + i, "feature " + i);
+			sequence.addFeature(start, start + length, feature);
+			added.add(feature);
+		}
+	}
+
+	/**
+	 * The features overlapping a range, by scanning the features in the order of the sequence
+	 */
+	private List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> scan(String type,
+			int start, int end) {
+		List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> hits = new ArrayList<>();
+		for (FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound> feature
+				: type == null ? sequence.getFeatures() : sequence.getFeaturesByType(type)) {
+			if (feature.getLocations().getStart().getPosition() <= end
+					&& feature.getLocations().getEnd().getPosition() >= start) {
+				hits.add(feature);
+			}
+		}
+		return hits;
+	}
+
+	@Test
+	void featuresAreSortedAsBefore() {
+		List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> sorted = new ArrayList<>(added);
+		Collections.sort(sorted, AbstractFeature.LOCATION_LENGTH);
+		assertEquals(sorted, sequence.getFeatures());
+	}
+
+	@Test
+	void queriesMatchScan() {
+		Random random = new Random(11);
+		for (int i = 0; i < 500; i++) {
+			int position = random.nextInt(16000) - 500;
+			int end = position + random.nextInt(300);
+			assertEquals(scan(null, position, position), sequence.getFeatures(position));
+			assertEquals(scan(null, position, end), sequence.getFeaturesOverlapping(null, position, end));
+			for (String type : TYPES) {
+				assertEquals(scan(type, position, position), sequence.getFeatures(type, position));
+				assertEquals(scan(type, position, end), sequence.getFeaturesOverlapping(type, position, end));
+			}
+		}
+		assertTrue(sequence.getFeatures("tRNA", 100).isEmpty());
+	}
+
+	@Test
+	void visitorMatchesScan() {
+		int[] count = new int[1];
+		sequence.visitFeatures("gene", 2000, 2500, f -> count[0]++);
+		assertEquals(scan("gene", 2000, 2500).size(), count[0]);
+	}
+
+	@Test
+	void indexFollowsChanges() {
+		int position = 5000;
+		List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> hits = sequence.getFeatures(position);
+		assertTrue(hits.size() > 1);
+
+		sequence.removeFeature(hits.get(0));
+		assertEquals(scan(null, position, position), sequence.getFeatures(position));
+		String type = hits.get(1).getType();
+		assertEquals(scan(type, position, position), sequence.getFeatures(type, position));
+
+		TextFeature<AbstractSequence<NucleotideCompound>, NucleotideCompound> feature =
+				new TextFeature<>("tRNA", "test", "t", "tRNA");
+		sequence.addFeature(position - 10, position + 10, feature);
+		assertEquals(Collections.singletonList(feature), sequence.getFeatures("tRNA", position));
+		assertTrue(sequence.getFeatures(position).contains(feature));
+		assertEquals(scan(null, position, position), sequence.getFeatures(position));
+	}
+
+	@Test
+	void indexFollowsChangesOfTheLists() {
+		int position = 5000;
+		assertEquals(scan(null, position, position), sequence.getFeatures(position));
+
+		// the same number of features, through the list of the sequence
+		List<FeatureInterface<AbstractSequence<NucleotideCompound>, NucleotideCompound>> features = sequence.getFeatures();
+		TextFeature<AbstractSequence<NucleotideCompound>, NucleotideCompound> feature =
+				new TextFeature<>("tRNA", "test", "t", "tRNA");
+		feature.setLocation(sequence.getFeatures(position).get(0).getLocations());
+		features.remove(sequence.getFeatures(position).get(0));
+		features.add(feature);
+		assertTrue(sequence.getFeatures(position).contains(feature));
+		assertEquals(scan(null, position, position).size(), sequence.getFeatures(position).size());
+	}
+
+	@Test
+	void concurrentQueries() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < 200; i++) {
+						int position = random.nextInt(10000);
+						String type = TYPES[random.nextInt(TYPES.length)];
+						if (sequence.getFeatures(type, position).size() != scan(type, position, position).size()) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.core.sequence.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.sequence.compound.DNACompoundSet;
+import org.biojava.nbio.core.sequence.compound.NucleotideCompound;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link FastaIndex} and {@link IndexedFastaReader}
+ */
+public class IndexedFastaReaderTest {
+
+	// 3 records: 2 full lines + a partial one, a single short line, and CRLF line ends
+	private static final String SEQ1 = "ACGTACGTAC" + "GTTTGGCCAA" + "NNNacg";
+	private static final String SEQ2 = "GATTACA";
+	private static final String SEQ3 = "ACGTTGCA" + "AAAA";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File writeFasta() throws IOException {
+		File f = folder.newFile("test.fa");
+		try (Writer w = new FileWriter(f)) {
+			w.write(">seq1 first sequence\n");
+			w.write("ACGTACGTAC\nGTTTGGCCAA\nNNNacg\n");
+			w.write(">seq2\n");
+			w.write("GATTACA\n");
+			w.write(">seq3\tthird\r\n");
+			w.write("ACGTTGCA\r\nAAAA");
+		}
+		return f;
+	}
+
+	@Test
+	public void testBuildIndex() throws IOException {
+		File f = writeFasta();
+		FastaIndex index = FastaIndex.build(f);
+
+		assertEquals(Arrays.asList("seq1", "seq2", "seq3"), index.getNames());
+		// same values as samtools faidx
+		assertEquals("seq1\t26\t21\t10\t11", index.getEntry("seq1").toString());
+		assertEquals("seq2\t7\t56\t7\t8", index.getEntry("seq2").toString());
+		assertEquals("seq3\t12\t77\t8\t10", index.getEntry("seq3").toString());
+
+		File fai = folder.newFile("test.fa.fai");
+		index.write(fai);
+		FastaIndex read = FastaIndex.read(fai);
+		assertEquals(index.getEntry("seq3").toString(), read.getEntry("seq3").toString());
+	}
+
+	@Test(expected = IOException.class)
+	public void testInconsistentLines() throws IOException {
+		File f = folder.newFile("bad.fa");
+		try (Writer w = new FileWriter(f)) {
+			w.write(">bad\nACGT\nAC\nACGT\n");
+		}
+		FastaIndex.build(f);
+	}
+
+	@Test
+	public void testLinesAcrossBuffers() throws IOException {
+		// records and lines which do not end at the 64KB boundaries of the reads
+		File f = folder.newFile("long.fa");
+		StringBuilder seq1 = new StringBuilder(), seq2 = new StringBuilder();
+		try (Writer w = new FileWriter(f)) {
+			w.write(">long1\n");
+			for (int i = 0; i < 100000; i++) {
+				char c = "ACGT".charAt(i * 7 % 4);
+				seq1.append(c);
+				w.write(c);
+				if (i % 60 == 59) {
+					w.write('\n');
+				}
+			}
+			w.write("\n>long2 second\r\n");
+			for (int i = 0; i < 70000; i++) {
+				char c = "ACGT".charAt(i * 3 % 4);
+				seq2.append(c);
+				w.write(c);
+				if (i % 70 == 69) {
+					w.write("\r\n");
+				}
+			}
+		}
+		FastaIndex index = FastaIndex.build(f);
+		long offset2 = 7 + 100000 + 100000 / 60 + 1 + ">long2 second\r\n".length();
+		assertEquals("long1\t100000\t7\t60\t61", index.getEntry("long1").toString());
+		assertEquals("long2\t70000\t" + offset2 + "\t70\t72", index.getEntry("long2").toString());
+		try (IndexedFastaReader<DNASequence, NucleotideCompound> reader = new IndexedFastaReader<>(
+				f, new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()))) {
+			assertEquals(seq1.toString(), reader.getSequenceAsString("long1"));
+			assertEquals(seq2.substring(65000, 66000), reader.getSequenceAsString("long2", 65001, 66000));
+		}
+	}
+
+	@Test
+	public void testEmptyRecordAndBlankLines() throws Exception {
+		File f = folder.newFile("blank.fa");
+		try (Writer w = new FileWriter(f)) {
+			w.write(">empty\n");
+			w.write(">blank\n\r\n\nACGTA\nCG\n\n");
+			w.write(">last\nTTGA\n");
+		}
+		FastaIndex index = FastaIndex.build(f);
+		assertEquals("empty\t0\t7\t0\t0", index.getEntry("empty").toString());
+		assertEquals("blank\t7\t17\t5\t6", index.getEntry("blank").toString());
+		assertEquals(7, index.getEntry("empty").getOffset(0));
+
+		try (IndexedFastaReader<DNASequence, NucleotideCompound> reader = new IndexedFastaReader<>(
+				f, new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()))) {
+			assertEquals("", reader.getSequenceAsString("empty"));
+			assertEquals(0, reader.getSequence("empty").getLength());
+			assertEquals("ACGTACG", reader.getSequenceAsString("blank"));
+			assertEquals("TACG", reader.getSequenceAsString("blank", 4, 7));
+			assertEquals("TTGA", reader.getSequenceAsString("last"));
+		}
+	}
+
+	@Test
+	public void testSubSequence() throws Exception {
+		File f = writeFasta();
+		try (IndexedFastaReader<DNASequence, NucleotideCompound> reader = new IndexedFastaReader<>(
+				f, new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()))) {
+			// the index was written next to the file
+			assertTrue(FastaIndex.getIndexFile(f).exists());
+
+			assertEquals(SEQ1, reader.getSequenceAsString("seq1"));
+			assertEquals(SEQ2, reader.getSequenceAsString("seq2"));
+			assertEquals(SEQ3, reader.getSequenceAsString("seq3"));
+
+			// all windows, including those spanning line ends
+			for (String name : new String[] {"seq1", "seq3"}) {
+				String seq = reader.getSequenceAsString(name);
+				for (int start = 1; start <= seq.length(); start++) {
+					for (int end = start - 1; end <= seq.length(); end++) {
+						assertEquals(seq.substring(start - 1, end), reader.getSequenceAsString(name, start, end));
+					}
+				}
+			}
+
+			DNASequence window = reader.getSubSequence("seq1", 9, 23);
+			assertEquals(SEQ1.substring(8, 23), window.getSequenceAsString());
+			assertEquals("seq1", window.getAccession().getID());
+			assertEquals("seq1:9-23", window.getDescription());
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testOutOfBounds() throws IOException {
+		try (IndexedFastaReader<DNASequence, NucleotideCompound> reader = new IndexedFastaReader<>(
+				writeFasta(), new DNASequenceCreator(DNACompoundSet.getDNACompoundSet()))) {
+			reader.getSequenceAsString("seq2", 5, 8);
+		}
+	}
+}
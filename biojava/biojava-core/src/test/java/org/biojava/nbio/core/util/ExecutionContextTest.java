@@ -0,0 +1,137 @@
+package org.biojava.nbio.core.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ExecutionContextTest {
+
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void countsTasks() throws Exception {
+        ExecutionContext context = new ExecutionContext(executor);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            futures.add(context.submit(() -> value * value));
+        }
+        Future<Integer> failing = context.submit(() -> {
+            throw new IllegalStateException();
+        });
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i * i, (int) futures.get(i).get());
+        }
+        assertThrows(ExecutionException.class, failing::get);
+
+        assertEquals(11, context.getSubmittedTaskCount());
+        assertEquals(10, context.getCompletedTaskCount());
+        assertEquals(1, context.getFailedTaskCount());
+        assertEquals(0, context.getPendingTaskCount());
+    }
+
+    @Test
+    void boundsPendingTasks() throws Exception {
+        ExecutionContext context = new ExecutionContext(executor, 2);
+        AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        List<Future<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(context.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return null;
+            }));
+            assertTrue(context.getPendingTaskCount() <= 2);
+        }
+        for (Future<Void> f : futures) {
+            f.get();
+        }
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(20, context.getCompletedTaskCount());
+    }
+
+    @Test
+    void cancelsOnlyItsOwnTasks() throws Exception {
+        ExecutionContext cancelled = new ExecutionContext(executor), other = new ExecutionContext(executor);
+        CountDownLatch started = new CountDownLatch(1);
+        Future<Void> blocked = cancelled.submit(() -> {
+            started.countDown();
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return null;
+        });
+        started.await();
+        cancelled.cancel();
+
+        assertTrue(blocked.isCancelled());
+        assertEquals(1, cancelled.getCancelledTaskCount());
+        assertEquals(0, cancelled.getPendingTaskCount());
+        assertThrows(CancellationException.class, () -> cancelled.submit(() -> 1));
+
+        assertEquals(1, (int) other.submit(() -> 1).get());
+    }
+
+    @Test
+    void runsNestedContextsOnOneForkJoinThread() throws Exception {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            ExecutionContext outer = new ExecutionContext(pool, 1), inner = new ExecutionContext(pool, 1);
+            Future<Integer> future = outer.submit(() -> {
+                // the only thread of the pool waits for tasks queued on the same pool
+                int sum = 0;
+                for (int i = 0; i < 4; i++) {
+                    int value = i;
+                    sum += inner.submit(() -> value).get();
+                }
+                return sum;
+            });
+            assertEquals(6, (int) future.get(1, TimeUnit.MINUTES));
+            assertEquals(4, inner.getCompletedTaskCount());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void closesOnlyItsOwnExecutor() throws Exception {
+        new ExecutionContext(executor).close();
+        assertFalse(executor.isShutdown());
+        ExecutionContext context;
+        try {
+            context = ExecutionContext.virtualThreads(4);
+        } catch (UnsupportedOperationException e) {
+            return;
+        }
+        try (ExecutionContext closed = context) {
+            assertEquals(1, (int) closed.submit(() -> 1).get());
+        }
+        assertTrue(context.getExecutor().isShutdown());
+    }
+}
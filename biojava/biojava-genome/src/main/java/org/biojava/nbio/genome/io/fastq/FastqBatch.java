@@ -0,0 +1,424 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A reusable batch of FASTQ formatted sequences, filled by a {@link FastqBatchReader}.
+ *
+ * <p>
+ * The description, sequence and quality of the records are stored one after the other
+ * in a single byte array, and are only turned into Strings or {@link Fastq} objects on
+ * request. The bytes of a record are valid until the batch is filled again.
+ *
+ * @since 6.0.6
+ */
+public final class FastqBatch
+{
+	/** Default number of records of a batch. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** Quality characters of each variant converted to each variant, by ordinal. */
+	private static final byte[][][] CONVERSIONS;
+
+	static
+	{
+		FastqVariant[] variants = FastqVariant.values();
+		CONVERSIONS = new byte[variants.length][variants.length][256];
+		for (FastqVariant from : variants)
+		{
+			for (FastqVariant to : variants)
+			{
+				byte[] conversion = CONVERSIONS[from.ordinal()][to.ordinal()];
+				for (int c = 0; c < 256; c++)
+				{
+					int qualityScore = from.qualityScore((char) c);
+					if (from != to && qualityScore >= from.minimumQualityScore() && qualityScore <= from.maximumQualityScore())
+					{
+						// as FastqTools.convertQualities
+						conversion[c] = (byte) to.quality(to.qualityScore(from.errorProbability(qualityScore)));
+					}
+					else
+					{
+						conversion[c] = (byte) c;
+					}
+				}
+			}
+		}
+	}
+
+	/** FASTQ sequence format variant of the records. */
+	private FastqVariant variant;
+
+	/** Maximum number of records. */
+	private final int capacity;
+
+	/** Number of records. */
+	private int size;
+
+	/** Bytes of the records. */
+	private byte[] data;
+
+	/** Number of bytes used in data. */
+	private int length;
+
+	/** Description, sequence and quality offsets of each record. */
+	private final int[] offsets;
+
+
+	/**
+	 * Create a new empty batch of {@link #DEFAULT_CAPACITY} records.
+	 */
+	public FastqBatch()
+	{
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Create a new empty batch.
+	 *
+	 * @param capacity maximum number of records, must be positive
+	 */
+	public FastqBatch(final int capacity)
+	{
+		if (capacity < 1)
+		{
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+		this.capacity = capacity;
+		this.offsets = new int[3 * capacity];
+		this.data = new byte[256 * capacity];
+		this.variant = FastqVariant.FASTQ_SANGER;
+	}
+
+
+	/**
+	 * Return the FASTQ sequence format variant of the records in this batch.
+	 *
+	 * @return the FASTQ sequence format variant of the records in this batch
+	 */
+	public FastqVariant getVariant()
+	{
+		return variant;
+	}
+
+	/**
+	 * Return the number of records in this batch.
+	 *
+	 * @return the number of records in this batch
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Return the maximum number of records in this batch.
+	 *
+	 * @return the maximum number of records in this batch
+	 */
+	public int capacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Return the bytes of the records in this batch, to be read at the offsets of the records.
+	 * The array is reused when the batch is filled again.
+	 *
+	 * @return the bytes of the records in this batch
+	 */
+	public byte[] getData()
+	{
+		return data;
+	}
+
+	/**
+	 * Return the offset in {@link #getData()} of the description of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the offset of the description of the record
+	 */
+	public int getDescriptionOffset(final int index)
+	{
+		checkIndex(index);
+		return offsets[3 * index];
+	}
+
+	/**
+	 * Return the length of the description of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the length of the description of the record
+	 */
+	public int getDescriptionLength(final int index)
+	{
+		checkIndex(index);
+		return offsets[3 * index + 1] - offsets[3 * index];
+	}
+
+	/**
+	 * Return the offset in {@link #getData()} of the sequence of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the offset of the sequence of the record
+	 */
+	public int getSequenceOffset(final int index)
+	{
+		checkIndex(index);
+		return offsets[3 * index + 1];
+	}
+
+	/**
+	 * Return the offset in {@link #getData()} of the quality of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the offset of the quality of the record
+	 */
+	public int getQualityOffset(final int index)
+	{
+		checkIndex(index);
+		return offsets[3 * index + 2];
+	}
+
+	/**
+	 * Return the length of the sequence, and of the quality, of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the length of the sequence of the record
+	 */
+	public int getSequenceLength(final int index)
+	{
+		checkIndex(index);
+		return offsets[3 * index + 2] - offsets[3 * index + 1];
+	}
+
+	/**
+	 * Return the description of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the description of the record
+	 */
+	public String getDescription(final int index)
+	{
+		return new String(data, getDescriptionOffset(index), getDescriptionLength(index), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Return the sequence of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the sequence of the record
+	 */
+	public String getSequence(final int index)
+	{
+		return new String(data, getSequenceOffset(index), getSequenceLength(index), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Return the quality of the specified record.
+	 *
+	 * @param index index of the record
+	 * @return the quality of the record
+	 */
+	public String getQuality(final int index)
+	{
+		return new String(data, getQualityOffset(index), getSequenceLength(index), StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Create and return a new FASTQ formatted sequence from the specified record.
+	 *
+	 * @param index index of the record
+	 * @return a new FASTQ formatted sequence from the record
+	 */
+	public Fastq toFastq(final int index)
+	{
+		return new Fastq(getDescription(index), getSequence(index), getQuality(index), variant);
+	}
+
+	/**
+	 * Decode the quality scores of the specified record into the specified byte array,
+	 * as {@link FastqTools#qualityScores(Fastq, int[])}.
+	 *
+	 * @param index index of the record
+	 * @param qualityScores byte array of quality scores, must not be null and must be at least
+	 *    as long as the sequence of the record
+	 * @return the specified byte array of quality scores
+	 */
+	public byte[] qualityScores(final int index, final byte[] qualityScores)
+	{
+		if (qualityScores == null)
+		{
+			throw new IllegalArgumentException("qualityScores must not be null");
+		}
+		int offset = getQualityOffset(index);
+		int size = getSequenceLength(index);
+		if (qualityScores.length < size)
+		{
+			throw new IllegalArgumentException("qualityScores must be at least as long as the FASTQ formatted sequence quality");
+		}
+		// the quality scores of all the variants are the characters minus a constant
+		int zero = -variant.qualityScore((char) 0);
+		for (int i = 0; i < size; i++)
+		{
+			qualityScores[i] = (byte) (data[offset + i] - zero);
+		}
+		return qualityScores;
+	}
+
+	/**
+	 * Convert the qualities of the records in this batch to the specified FASTQ sequence
+	 * format variant, in place, as {@link FastqTools#convert(Fastq, FastqVariant)}.
+	 *
+	 * @param variant FASTQ sequence format variant, must not be null
+	 */
+	public void convert(final FastqVariant variant)
+	{
+		if (variant == null)
+		{
+			throw new IllegalArgumentException("variant must not be null");
+		}
+		if (this.variant == variant)
+		{
+			return;
+		}
+		byte[] conversion = CONVERSIONS[this.variant.ordinal()][variant.ordinal()];
+		for (int r = 0; r < size; r++)
+		{
+			for (int i = offsets[3 * r + 2], end = i + offsets[3 * r + 2] - offsets[3 * r + 1]; i < end; i++)
+			{
+				data[i] = conversion[data[i] & 0xff];
+			}
+		}
+		this.variant = variant;
+	}
+
+	private void checkIndex(final int index)
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("index " + index + " must be between 0 and " + size);
+		}
+	}
+
+
+	/**
+	 * Remove all the records of this batch.
+	 *
+	 * @param variant FASTQ sequence format variant of the next records
+	 */
+	void clear(final FastqVariant variant)
+	{
+		this.variant = variant;
+		size = 0;
+		length = 0;
+	}
+
+	/**
+	 * Return true if this batch holds its maximum number of records.
+	 *
+	 * @return true if this batch holds its maximum number of records
+	 */
+	boolean isFull()
+	{
+		return size == capacity;
+	}
+
+	/**
+	 * Start a record, whose description is appended next.
+	 */
+	void startDescription()
+	{
+		offsets[3 * size] = length;
+	}
+
+	/**
+	 * Start the sequence of the current record.
+	 */
+	void startSequence()
+	{
+		offsets[3 * size + 1] = length;
+	}
+
+	/**
+	 * Start the quality of the current record.
+	 */
+	void startQuality()
+	{
+		offsets[3 * size + 2] = length;
+	}
+
+	/**
+	 * Return the number of bytes appended to the current part of the current record.
+	 *
+	 * @param part 0 for the description, 1 for the sequence and 2 for the quality
+	 * @return the number of bytes of the part
+	 */
+	int partLength(final int part)
+	{
+		return length - offsets[3 * size + part];
+	}
+
+	/**
+	 * Return true if the description of the current record is equal to the specified bytes.
+	 */
+	boolean descriptionEquals(final byte[] bytes, final int offset, final int length)
+	{
+		int start = offsets[3 * size];
+		int end = offsets[3 * size + 1];
+		if (end - start != length)
+		{
+			return false;
+		}
+		for (int i = 0; i < length; i++)
+		{
+			if (data[start + i] != bytes[offset + i])
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Append bytes to the current part of the current record.
+	 */
+	void append(final byte[] bytes, final int offset, final int length)
+	{
+		if (this.length + length > data.length)
+		{
+			data = Arrays.copyOf(data, Math.max(2 * data.length, this.length + length));
+		}
+		System.arraycopy(bytes, offset, data, this.length, length);
+		this.length += length;
+	}
+
+	/**
+	 * End the current record.
+	 */
+	void endRecord()
+	{
+		size++;
+	}
+}
@@ -0,0 +1,470 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Byte oriented reader of FASTQ formatted sequences, which fills reusable
+ * {@link FastqBatch}es of records instead of creating a {@link Fastq} per record.
+ *
+ * <p>
+ * The input is read in large blocks and split into lines without decoding
+ * characters. The records are checked as by {@link FastqReader#stream(Readable, StreamListener)},
+ * including wrapped sequences and qualities. To read the batches of a gzipped or plain file
+ * in parallel:
+ * <pre>
+ * try (FastqBatchReader reader = FastqBatchReader.open(Paths.get("reads.fastq.gz"), FastqVariant.FASTQ_SANGER))
+ * {
+ *   reader.forEach(ExecutionContext.forkJoin(8), batch -&gt; {
+ *     byte[] qualityScores = new byte[1024];
+ *     for (int i = 0; i &lt; batch.size(); i++)
+ *     {
+ *       batch.qualityScores(i, qualityScores);
+ *       // ...
+ *     }
+ *   });
+ * }
+ * </pre>
+ *
+ * @since 6.0.6
+ */
+public final class FastqBatchReader
+	implements Closeable
+{
+	/** Size of the blocks read from the input. */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/** Interval between checks of the context for cancellation while waiting for a free batch, in milliseconds. */
+	private static final long CANCEL_CHECK_MILLIS = 100;
+
+	/** Quality characters which are valid for each variant, by ordinal. */
+	private static final boolean[][] VALID_QUALITIES;
+
+	static
+	{
+		FastqVariant[] variants = FastqVariant.values();
+		VALID_QUALITIES = new boolean[variants.length][256];
+		for (FastqVariant variant : variants)
+		{
+			for (int c = 0; c < 256; c++)
+			{
+				int qualityScore = variant.qualityScore((char) c);
+				VALID_QUALITIES[variant.ordinal()][c] = qualityScore >= variant.minimumQualityScore() &&
+					qualityScore <= variant.maximumQualityScore();
+			}
+		}
+	}
+
+	/** Input stream. */
+	private final InputStream inputStream;
+
+	/** FASTQ sequence format variant. */
+	private final FastqVariant variant;
+
+	/** Read bytes. */
+	private byte[] buffer = new byte[BUFFER_SIZE];
+
+	/** Offset of the first unread byte in buffer. */
+	private int position;
+
+	/** Offset after the last read byte in buffer. */
+	private int limit;
+
+	/** True if the end of the input was reached. */
+	private boolean endOfInput;
+
+	/** Bounds of the last line read, without its line terminator and surrounding whitespace. */
+	private int lineStart, lineEnd;
+
+	/** First byte of the last line read, or -1 for an empty line. */
+	private int lineFirst;
+
+
+	/**
+	 * Create a new FASTQ batch reader.
+	 *
+	 * @param inputStream input stream, must not be null; it is not buffered further
+	 * @param variant FASTQ sequence format variant, must not be null
+	 */
+	public FastqBatchReader(final InputStream inputStream, final FastqVariant variant)
+	{
+		if (inputStream == null)
+		{
+			throw new IllegalArgumentException("inputStream must not be null");
+		}
+		if (variant == null)
+		{
+			throw new IllegalArgumentException("variant must not be null");
+		}
+		this.inputStream = inputStream;
+		this.variant = variant;
+	}
+
+
+	/**
+	 * Open a gzipped or plain FASTQ file, depending on its first bytes.
+	 *
+	 * @param path path to the file, must not be null
+	 * @param variant FASTQ sequence format variant, must not be null
+	 * @return a new FASTQ batch reader, to be closed
+	 * @throws IOException if an I/O error occurs
+	 */
+	public static FastqBatchReader open(final Path path, final FastqVariant variant) throws IOException
+	{
+		if (path == null)
+		{
+			throw new IllegalArgumentException("path must not be null");
+		}
+		PushbackInputStream inputStream = new PushbackInputStream(Files.newInputStream(path), 2);
+		try
+		{
+			byte[] magic = new byte[2];
+			int read = 0;
+			for (int n = 0; read < 2 && n >= 0; read += Math.max(n, 0))
+			{
+				n = inputStream.read(magic, read, 2 - read);
+			}
+			inputStream.unread(magic, 0, read);
+			if (read == 2 && magic[0] == (byte) 0x1f && magic[1] == (byte) 0x8b)
+			{
+				// concatenated members, as in bgzip files, are read as one stream
+				return new FastqBatchReader(new GZIPInputStream(inputStream, 1 << 16), variant);
+			}
+			return new FastqBatchReader(inputStream, variant);
+		}
+		catch (IOException | RuntimeException e)
+		{
+			inputStream.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Return the FASTQ sequence format variant of this reader.
+	 *
+	 * @return the FASTQ sequence format variant of this reader
+	 */
+	public FastqVariant getVariant()
+	{
+		return variant;
+	}
+
+	/**
+	 * Fill the specified batch with the next records, replacing its records.
+	 *
+	 * @param batch batch to fill, must not be null
+	 * @return true if the batch has records, false at the end of the input
+	 * @throws IOException if an I/O error occurs or the input is not valid FASTQ
+	 */
+	public boolean read(final FastqBatch batch) throws IOException
+	{
+		if (batch == null)
+		{
+			throw new IllegalArgumentException("batch must not be null");
+		}
+		batch.clear(variant);
+		while (!batch.isFull() && readRecord(batch))
+		{
+			batch.endRecord();
+		}
+		return batch.size() > 0;
+	}
+
+	/**
+	 * Read all the remaining records, and pass each batch of records to the specified consumer.
+	 * With a context, the batches are consumed in its tasks, in no particular order, and reading
+	 * waits while all the batches are being consumed. A batch must not be used after the consumer
+	 * returns, as it is filled again.
+	 *
+	 * @param context context running the consumers, or null to consume the batches in this thread
+	 * @param consumer consumer of the batches, must not be null
+	 * @throws IOException if an I/O error occurs or the input is not valid FASTQ
+	 * @throws CancellationException if the context is cancelled, including while waiting for a free batch
+	 */
+	public void forEach(final ExecutionContext context, final Consumer<? super FastqBatch> consumer) throws IOException
+	{
+		if (consumer == null)
+		{
+			throw new IllegalArgumentException("consumer must not be null");
+		}
+		if (context == null)
+		{
+			FastqBatch batch = new FastqBatch();
+			while (read(batch))
+			{
+				consumer.accept(batch);
+			}
+			return;
+		}
+
+		// the batches being consumed, and the one being filled
+		int batches = Math.min(context.getMaxPendingTasks(), 2 * Runtime.getRuntime().availableProcessors()) + 1;
+		BlockingQueue<FastqBatch> free = new ArrayBlockingQueue<FastqBatch>(batches);
+		for (int i = 0; i < batches; i++)
+		{
+			free.add(new FastqBatch());
+		}
+		Deque<Future<Void>> futures = new ArrayDeque<Future<Void>>();
+		try
+		{
+			while (true)
+			{
+				// a task cancelled before it runs never returns its batch, so waits are bounded
+				FastqBatch batch;
+				while ((batch = free.poll(CANCEL_CHECK_MILLIS, TimeUnit.MILLISECONDS)) == null)
+				{
+					if (context.isCancelled())
+					{
+						throw new CancellationException("Execution context was cancelled");
+					}
+				}
+				if (!read(batch))
+				{
+					break;
+				}
+				final FastqBatch filled = batch;
+				futures.add(context.submit(() -> {
+					try
+					{
+						consumer.accept(filled);
+					}
+					finally
+					{
+						free.add(filled);
+					}
+					return null;
+				}));
+				while (!futures.isEmpty() && futures.peek().isDone())
+				{
+					futures.poll().get();
+				}
+			}
+			while (!futures.isEmpty())
+			{
+				futures.poll().get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted while reading FASTQ batches", e);
+		}
+		catch (ExecutionException e)
+		{
+			context.cancel();
+			throw new RuntimeException("FASTQ batch consumer failed", e.getCause());
+		}
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		inputStream.close();
+	}
+
+
+	/**
+	 * Read the next record into the current record of the specified batch,
+	 * with the same checks as the parse listener of {@link StreamingFastqParser}.
+	 *
+	 * @return false at the end of the input
+	 */
+	private boolean readRecord(final FastqBatch batch) throws IOException
+	{
+		if (!readLine())
+		{
+			return false;
+		}
+		if (lineFirst != '@')
+		{
+			throw new IOException("description must begin with a '@' character");
+		}
+		batch.startDescription();
+		int descriptionStart = trimStart(lineStart + 1, lineEnd);
+		int descriptionLength = lineEnd - descriptionStart;
+		batch.append(buffer, descriptionStart, descriptionLength);
+
+		if (!readLine())
+		{
+			throw new IOException("truncated sequence");
+		}
+		batch.startSequence();
+		batch.append(buffer, lineStart, lineEnd - lineStart);
+		while (true)
+		{
+			if (!readLine())
+			{
+				throw new IOException("truncated sequence");
+			}
+			if (lineFirst == '+')
+			{
+				int repeatStart = trimStart(lineStart + 1, lineEnd);
+				int repeatLength = lineEnd - repeatStart;
+				if (descriptionLength > 0 && repeatLength > 0 && !batch.descriptionEquals(buffer, repeatStart, repeatLength))
+				{
+					throw new IOException("repeat description must match description");
+				}
+				break;
+			}
+			batch.append(buffer, lineStart, lineEnd - lineStart);
+		}
+
+		int sequenceLength = batch.partLength(1);
+		batch.startQuality();
+		do
+		{
+			if (!readLine())
+			{
+				throw new IOException("truncated sequence");
+			}
+			validateQuality();
+			batch.append(buffer, lineStart, lineEnd - lineStart);
+		}
+		while (batch.partLength(2) < sequenceLength);
+		if (batch.partLength(2) != sequenceLength)
+		{
+			throw new IOException("sequence and quality scores must be the same length");
+		}
+		return true;
+	}
+
+	/**
+	 * Check the quality characters of the last line read.
+	 */
+	private void validateQuality() throws IOException
+	{
+		boolean[] valid = VALID_QUALITIES[variant.ordinal()];
+		for (int i = lineStart; i < lineEnd; i++)
+		{
+			int c = buffer[i] & 0xff;
+			if (!valid[c])
+			{
+				int qualityScore = variant.qualityScore((char) c);
+				throw new IOException("quality score must be between " + variant.minimumQualityScore() +
+									  " and " + variant.maximumQualityScore() + ", was " + qualityScore +
+									  " for ASCII char '" + (char) c + "'");
+			}
+		}
+	}
+
+	/**
+	 * Read the next line, and set its bounds without the surrounding whitespace.
+	 *
+	 * @return false at the end of the input
+	 */
+	private boolean readLine() throws IOException
+	{
+		int end = indexOfNewLine(position);
+		while (end < 0 && !endOfInput)
+		{
+			int searched = limit - position;
+			fill();
+			end = indexOfNewLine(position + searched);
+		}
+		if (end < 0)
+		{
+			if (position == limit)
+			{
+				return false;
+			}
+			// the last line, without a line terminator
+			end = limit;
+		}
+		lineFirst = end > position ? buffer[position] & 0xff : -1;
+		lineStart = trimStart(position, end);
+		lineEnd = end;
+		while (lineEnd > lineStart && (buffer[lineEnd - 1] & 0xff) <= ' ')
+		{
+			lineEnd--;
+		}
+		position = Math.min(end + 1, limit);
+		return true;
+	}
+
+	private int indexOfNewLine(final int from)
+	{
+		for (int i = from; i < limit; i++)
+		{
+			if (buffer[i] == '\n')
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private int trimStart(int start, final int end)
+	{
+		while (start < end && (buffer[start] & 0xff) <= ' ')
+		{
+			start++;
+		}
+		return start;
+	}
+
+	/**
+	 * Move the unread bytes to the start of the buffer, growing it for long lines, and read more.
+	 */
+	private void fill() throws IOException
+	{
+		int unread = limit - position;
+		if (unread == buffer.length)
+		{
+			byte[] grown = new byte[2 * buffer.length];
+			System.arraycopy(buffer, position, grown, 0, unread);
+			buffer = grown;
+		}
+		else
+		{
+			System.arraycopy(buffer, position, buffer, 0, unread);
+		}
+		position = 0;
+		limit = unread;
+		int n = inputStream.read(buffer, limit, buffer.length - limit);
+		if (n < 0)
+		{
+			endOfInput = true;
+		}
+		else
+		{
+			limit += n;
+		}
+	}
+}
@@ -39,6 +39,9 @@
  * writer.write(new File("sanger.fastq"), fastq);
  * </pre>
  *
+ * To read large, possibly gzipped, files in reusable batches of records, see
+ * {@link org.biojava.nbio.genome.io.fastq.FastqBatchReader}.
+ *
  * For further documentation on the FASTQ sequence format,
  * its variants, and how they are handled in O|B|F projects,
  * see:
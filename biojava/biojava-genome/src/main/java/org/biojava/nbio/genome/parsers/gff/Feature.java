@@ -152,8 +152,9 @@ public class Feature implements FeatureI {
 		mScore = feature.mScore;
 		mFrame = feature.mFrame;
 		mAttributes = feature.mAttributes;
-		initAttributeHashMap();
-		mUserMap = new HashMap<String, String>(feature.mUserMap);
+		if (feature.mUserMap != null) {
+			mUserMap = new HashMap<String, String>(feature.mUserMap);
+		}
 	}
 
 	/**
@@ -176,8 +177,6 @@ public class Feature implements FeatureI {
 		mScore = score;
 		mFrame = frame;
 		mAttributes = attributes;
-		initAttributeHashMap();
-		mUserMap = new HashMap<String, String>();
 
 	}
 
@@ -196,13 +195,29 @@ public class Feature implements FeatureI {
 	 */
 	@Override
 	public HashMap<String, String> userData() {
+		if (mUserMap == null) {
+			mUserMap = new HashMap<String, String>();
+		}
 		return mUserMap;
 	}
 
-	 HashMap<String,String> attributeHashMap = new HashMap<String,String>();
+	/**
+	 * The attributes by key, parsed from the attribute string on first use
+	 */
+	private volatile HashMap<String,String> attributeHashMap;
+
+	private HashMap<String,String> attributeHashMap(){
+		HashMap<String,String> map = attributeHashMap;
+		if (map == null) {
+			map = parseAttributes(mAttributes);
+			attributeHashMap = map;
+		}
+		return map;
+	}
 
-	private void initAttributeHashMap(){
-	   String[] values = mAttributes.split(";");
+	private static HashMap<String,String> parseAttributes(String attributes){
+	   HashMap<String,String> attributeHashMap = new HashMap<String,String>();
+	   String[] values = attributes.split(";");
 	   for(String attribute : values){
 		   attribute = attribute.trim();
 		   int equalindex = attribute.indexOf("=");
@@ -212,12 +227,14 @@ public class Feature implements FeatureI {
 		   String[] data = attribute.split(splitData);
 		   String value = "";
 		   if(data.length >= 2 && data[1].indexOf('"') != -1){ // an attibute field could be empty
-			   value = data[1].replaceAll("\"","").trim();
+			   value = data[1].replace("\"","").trim();
 		   }else if(data.length >= 2){
 			   value = data[1].trim();
 		   }
-		   attributeHashMap.put(data[0].trim(), value);
+		   // the same few keys are repeated in every feature of a file
+		   attributeHashMap.put(data[0].trim().intern(), value);
 	   }
+	   return attributeHashMap;
 	}
 
 	/**
@@ -231,7 +248,7 @@ public class Feature implements FeatureI {
 	@Override
 	public String getAttribute(String key) {
 
-		return attributeHashMap.get(key);
+		return attributeHashMap().get(key);
 	}
 
 	public String getAttributeOld(String key) {
@@ -261,7 +278,7 @@ public class Feature implements FeatureI {
 
 	@Override
 	public boolean hasAttribute(String key) {
-		return attributeHashMap.containsKey(key);
+		return attributeHashMap().containsKey(key);
 	}
 
 	@Override
@@ -316,6 +333,6 @@ public class Feature implements FeatureI {
 	@Override
 	public HashMap<String, String> getAttributes() {
 
-		return attributeHashMap;
+		return attributeHashMap();
 	}
 }
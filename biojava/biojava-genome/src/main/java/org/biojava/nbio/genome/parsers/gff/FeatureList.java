@@ -21,10 +21,14 @@
 package org.biojava.nbio.genome.parsers.gff;
 
 import org.biojava.nbio.core.sequence.DNASequence;
+import org.biojava.nbio.core.util.ExecutionContext;
 
 import java.io.Serializable;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 
 
@@ -43,6 +47,13 @@ public class FeatureList extends ArrayList<FeatureI> {
 	 Map<String, Map<String,List<FeatureI>>> featindex = new HashMap<String,Map<String,List<FeatureI>>>();
 	Location mLocation;			//genomic location (union of feature locations)
 
+	/** The number of locations annotated by each task of {@link #annotate(String, Iterable, boolean, ExecutionContext)} */
+	private static final int LOCATIONS_PER_TASK = 1024;
+
+	/** The index of the feature locations, built by the first overlap query after the list is modified */
+	private transient volatile FeatureLocationIndex locationIndex;
+	private transient int locationIndexModCount;
+
 	/**
 	 * Construct an empty list.
 	 */
@@ -77,20 +88,22 @@ public class FeatureList extends ArrayList<FeatureI> {
 		} else if (null != feature.location()) {
 			mLocation = mLocation.union(feature.location().plus());
 		}
-		for (Entry<String, String> entry : feature.getAttributes().entrySet()){
-			if (featindex.containsKey(entry.getKey())){
-				Map<String,List<FeatureI>> feat = featindex.get(entry.getKey());
+		// only the indexed attributes are looked up, so that the attributes of the
+		// features are not parsed when there is no index
+		for (Entry<String, Map<String,List<FeatureI>>> entry : featindex.entrySet()){
+			if (feature.hasAttribute(entry.getKey())){
+				String value = feature.getAttribute(entry.getKey());
+				Map<String,List<FeatureI>> feat = entry.getValue();
 				if (feat==null){
 					feat= new HashMap<String,List<FeatureI>>();
+					entry.setValue(feat);
 				}
-				List<FeatureI> features = feat.get(entry.getValue());
+				List<FeatureI> features = feat.get(value);
 				if (features==null){
 					features = new ArrayList<FeatureI>();
+					feat.put(value, features);
 				}
 				features.add(feature);
-				feat.put(entry.getValue(), features);
-				featindex.put(entry.getKey(), feat);
-				//featindex.put(key, value)
 			}
 		}
 
@@ -356,19 +369,8 @@ public class FeatureList extends ArrayList<FeatureI> {
 	public FeatureList selectOverlapping(String seqname, Location location, boolean useBothStrands)
 			throws Exception {
 		FeatureList list = new FeatureList();
-
-		for (FeatureI feature : this) {
-			boolean overlaps = false;
-			if (feature.seqname().equals(seqname)) {
-				if (location.isSameStrand(feature.location())) {
-					overlaps = feature.location().overlaps(location);
-				} else if (useBothStrands) {
-					overlaps = feature.location().overlaps(location.opposite());
-				}
-			}
-			if (overlaps) {
-				list.add(feature);
-			}
+		for (int i : getLocationIndex().getOverlapping(seqname, location, useBothStrands)) {
+			list.add(get(i));
 		}
 		return list;
 	}
@@ -385,23 +387,163 @@ public class FeatureList extends ArrayList<FeatureI> {
 	 */
 	public FeatureList omitOverlapping(String seqname, Location location, boolean useBothStrands) {
 		FeatureList list = new FeatureList();
+		int[] overlapping = getLocationIndex().getOverlapping(seqname, location, useBothStrands);
+		int next = 0;
+		for (int i = 0; i < size(); i++) {
+			if (next < overlapping.length && overlapping[next] == i) {
+				next++;
+			} else {
+				list.add(get(i));
+			}
+		}
 
-		for (FeatureI feature : this) {
-			boolean overlaps = false;
-			if (feature.seqname().equals(seqname)) {
-				if (location.isSameStrand(feature.location())) {
-					overlaps = feature.location().overlaps(location);
-				} else if (useBothStrands) {
-					overlaps = feature.location().overlaps(location.opposite());
-				}
+		return list;
+	}
+
+	/**
+	 * Get the features that overlap the specified location on the specified sequence, as
+	 * {@link #selectOverlapping(String, Location, boolean)}, without building a FeatureList.
+	 *
+	 * @param seqname The sequence name.
+	 * @param location The location to check.
+	 * @param useBothStrands If true, features on both strands are considered.
+	 * @return An unmodifiable list of the features that overlap the location, in list order.
+	 * @since 6.0.6
+	 */
+	public List<FeatureI> getOverlapping(String seqname, Location location, boolean useBothStrands) {
+		int[] overlapping = getLocationIndex().getOverlapping(seqname, location, useBothStrands);
+		FeatureI[] features = new FeatureI[overlapping.length];
+		for (int i = 0; i < overlapping.length; i++) {
+			features[i] = get(overlapping[i]);
+		}
+		return Collections.unmodifiableList(Arrays.asList(features));
+	}
+
+	/**
+	 * Visit the features that overlap the specified location on the specified sequence, as
+	 * {@link #selectOverlapping(String, Location, boolean)}, without creating a list.
+	 *
+	 * @param seqname The sequence name.
+	 * @param location The location to check.
+	 * @param useBothStrands If true, features on both strands are considered.
+	 * @param visitor Called with each overlapping feature, in no particular order.
+	 * @since 6.0.6
+	 */
+	public void visitOverlapping(String seqname, Location location, boolean useBothStrands,
+			Consumer<? super FeatureI> visitor) {
+		getLocationIndex().visitOverlapping(seqname, location, useBothStrands, i -> visitor.accept(get(i)));
+	}
+
+	/**
+	 * Find the feature nearest to the specified location on the specified sequence. If features
+	 * overlap the location, the first of them in the list is returned. Otherwise the feature at the
+	 * smallest {@link Location#distance(Location)} is returned, comparing the negative strand features
+	 * with the opposite of the location if useBothStrands is true.
+	 *
+	 * @param seqname The sequence name.
+	 * @param location The location to check.
+	 * @param useBothStrands If true, features on both strands are considered.
+	 * @return The nearest feature, or null if no feature of the sequence (and strand) can be compared.
+	 * @since 6.0.6
+	 */
+	public FeatureI nearest(String seqname, Location location, boolean useBothStrands) {
+		int i = getLocationIndex().getNearest(seqname, location, useBothStrands);
+		return i < 0 ? null : get(i);
+	}
+
+	/**
+	 * Get the features overlapping each of many locations of the specified sequence, for
+	 * instance to annotate mapped reads. The locations are submitted in batches to the
+	 * given context, and the list must not be modified until the method returns.
+	 *
+	 * @param seqname The sequence name.
+	 * @param locations The locations to annotate.
+	 * @param useBothStrands If true, features on both strands are considered.
+	 * @param context The context running the tasks, or null to annotate in this thread.
+	 * @return For each location, in order, an unmodifiable list of the overlapping features,
+	 * as {@link #getOverlapping(String, Location, boolean)}.
+	 * @throws java.util.concurrent.CancellationException if the context is cancelled
+	 * @since 6.0.6
+	 */
+	public List<List<FeatureI>> annotate(String seqname, Iterable<Location> locations, boolean useBothStrands,
+			ExecutionContext context) {
+		// built before the tasks share it
+		getLocationIndex();
+		List<List<FeatureI>> annotations = new ArrayList<>();
+		if (context == null) {
+			for (Location location : locations) {
+				annotations.add(getOverlapping(seqname, location, useBothStrands));
 			}
+			return annotations;
+		}
 
-			if (!overlaps) {
-				list.add(feature);
+		List<Future<List<List<FeatureI>>>> futures = new ArrayList<>();
+		List<Location> batch = new ArrayList<>(LOCATIONS_PER_TASK);
+		for (Location location : locations) {
+			batch.add(location);
+			if (batch.size() == LOCATIONS_PER_TASK) {
+				futures.add(submitAnnotation(seqname, batch, useBothStrands, context));
+				batch = new ArrayList<>(LOCATIONS_PER_TASK);
+			}
+		}
+		if (!batch.isEmpty()) {
+			futures.add(submitAnnotation(seqname, batch, useBothStrands, context));
+		}
+		try {
+			for (Future<List<List<FeatureI>>> future : futures) {
+				annotations.addAll(future.get());
 			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted during annotation", e);
+		} catch (ExecutionException e) {
+			context.cancel();
+			throw new RuntimeException("Annotation failed", e.getCause());
 		}
+		return annotations;
+	}
 
-		return list;
+	private Future<List<List<FeatureI>>> submitAnnotation(String seqname, List<Location> batch,
+			boolean useBothStrands, ExecutionContext context) {
+		return context.submit(() -> {
+			List<List<FeatureI>> annotations = new ArrayList<>(batch.size());
+			for (Location location : batch) {
+				annotations.add(getOverlapping(seqname, location, useBothStrands));
+			}
+			return annotations;
+		});
+	}
+
+	/**
+	 * The index of the feature locations, rebuilt if the list was modified since it was built.
+	 */
+	private FeatureLocationIndex getLocationIndex() {
+		FeatureLocationIndex index = locationIndex;
+		if (index != null && locationIndexModCount == modCount) {
+			return index;
+		}
+		synchronized (this) {
+			if (locationIndex == null || locationIndexModCount != modCount) {
+				locationIndexModCount = modCount;
+				locationIndex = new FeatureLocationIndex(this);
+			}
+			return locationIndex;
+		}
+	}
+
+	/**
+	 * Replace the feature at the specified position. The bounding location and the attribute
+	 * indexes are not updated.
+	 *
+	 * @param index The position of the feature to replace.
+	 * @param feature The new feature.
+	 * @return The feature previously at the position.
+	 */
+	@Override
+	public FeatureI set(int index, FeatureI feature) {
+		locationIndex = null;
+		return super.set(index, feature);
 	}
 
 	/**
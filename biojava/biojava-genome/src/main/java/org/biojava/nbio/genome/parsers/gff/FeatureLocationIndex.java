@@ -0,0 +1,244 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.gff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * An index of the locations of the features of a {@link FeatureList}, by
+ * sequence name and strand, to find the features overlapping or nearest to a
+ * location without scanning the list.
+ * <p>
+ * The features of each sequence and strand are sorted by start, in arrays
+ * which are the in-order traversal of an implicit binary search tree whose
+ * nodes are augmented with the largest end of their subtree. The features
+ * are identified by their index in the list. The index is immutable and
+ * can be queried by several threads.
+ *
+ * @since 6.0.6
+ */
+class FeatureLocationIndex {
+
+	private final Map<String, Strand[]> strands = new HashMap<>();
+
+	/**
+	 * Indexes the features of a list. Features without a location are not indexed.
+	 */
+	FeatureLocationIndex(List<FeatureI> features) {
+		Map<String, List<Integer>[]> indices = new HashMap<>();
+		for (int i = 0; i < features.size(); i++) {
+			FeatureI feature = features.get(i);
+			if (feature.location() == null) {
+				continue;
+			}
+			@SuppressWarnings("unchecked")
+			List<Integer>[] seqIndices = indices.computeIfAbsent(feature.seqname(), k -> new List[2]);
+			int strand = feature.location().isNegative() ? 1 : 0;
+			if (seqIndices[strand] == null) {
+				seqIndices[strand] = new ArrayList<>();
+			}
+			seqIndices[strand].add(i);
+		}
+		for (Map.Entry<String, List<Integer>[]> entry : indices.entrySet()) {
+			Strand[] seqStrands = new Strand[2];
+			for (int strand = 0; strand < 2; strand++) {
+				if (entry.getValue()[strand] != null) {
+					seqStrands[strand] = new Strand(features, entry.getValue()[strand]);
+				}
+			}
+			strands.put(entry.getKey(), seqStrands);
+		}
+	}
+
+	/**
+	 * Visits the index of each feature overlapping a location, with the same rules as
+	 * {@link FeatureList#selectOverlapping(String, Location, boolean)}, in no particular order.
+	 */
+	void visitOverlapping(String seqname, Location location, boolean useBothStrands, IntConsumer visitor) {
+		Strand[] seqStrands = strands.get(seqname);
+		if (seqStrands == null) {
+			return;
+		}
+		int strand = location.isNegative() ? 1 : 0;
+		if (seqStrands[strand] != null) {
+			seqStrands[strand].visit(location.start(), location.end(), visitor);
+		}
+		if (useBothStrands && seqStrands[1 - strand] != null) {
+			Location opposite = location.opposite();
+			seqStrands[1 - strand].visit(opposite.start(), opposite.end(), visitor);
+		}
+	}
+
+	/**
+	 * @return the indices of the features overlapping a location, in increasing order
+	 */
+	int[] getOverlapping(String seqname, Location location, boolean useBothStrands) {
+		int[][] hits = { new int[8] };
+		int[] count = { 0 };
+		visitOverlapping(seqname, location, useBothStrands, i -> {
+			if (count[0] == hits[0].length) {
+				hits[0] = Arrays.copyOf(hits[0], 2 * count[0]);
+			}
+			hits[0][count[0]++] = i;
+		});
+		int[] sorted = Arrays.copyOf(hits[0], count[0]);
+		Arrays.sort(sorted);
+		return sorted;
+	}
+
+	/**
+	 * @return the index of the first feature overlapping the location or, if none does, of a
+	 * feature at the smallest distance from it, or -1 if there is no feature on the sequence
+	 * (and strand, unless useBothStrands)
+	 */
+	int getNearest(String seqname, Location location, boolean useBothStrands) {
+		int[] overlapping = getOverlapping(seqname, location, useBothStrands);
+		if (overlapping.length > 0) {
+			return overlapping[0];
+		}
+		Strand[] seqStrands = strands.get(seqname);
+		if (seqStrands == null) {
+			return -1;
+		}
+		int strand = location.isNegative() ? 1 : 0;
+		long best = Long.MAX_VALUE;
+		if (seqStrands[strand] != null) {
+			best = seqStrands[strand].getNearest(location.start(), location.end());
+		}
+		if (useBothStrands && seqStrands[1 - strand] != null) {
+			Location opposite = location.opposite();
+			best = Math.min(best, seqStrands[1 - strand].getNearest(opposite.start(), opposite.end()));
+		}
+		return best == Long.MAX_VALUE ? -1 : (int) best;
+	}
+
+	/**
+	 * The features of one strand of one sequence.
+	 */
+	private static class Strand {
+		/** The index in the list of each feature, by start */
+		private final int[] features;
+		private final int[] starts;
+		private final int[] ends;
+		/** The largest end of the subtree whose root is at the same position */
+		private final int[] maxEnds;
+		/** The position of the feature with the largest end up to each position */
+		private final int[] prefixMaxEnds;
+
+		Strand(List<FeatureI> list, List<Integer> indices) {
+			int n = indices.size();
+			Integer[] sorted = indices.toArray(new Integer[n]);
+			// stable, so that the features with the same start stay in list order
+			Arrays.sort(sorted, (a, b) -> Integer.compare(list.get(a).location().start(), list.get(b).location().start()));
+			features = new int[n];
+			starts = new int[n];
+			ends = new int[n];
+			maxEnds = new int[n];
+			prefixMaxEnds = new int[n];
+			for (int i = 0; i < n; i++) {
+				features[i] = sorted[i];
+				starts[i] = list.get(sorted[i]).location().start();
+				ends[i] = list.get(sorted[i]).location().end();
+				prefixMaxEnds[i] = i > 0 && ends[prefixMaxEnds[i - 1]] >= ends[i] ? prefixMaxEnds[i - 1] : i;
+			}
+			augment(0, n - 1);
+		}
+
+		private int augment(int lo, int hi) {
+			int mid = (lo + hi) >>> 1;
+			int max = ends[mid];
+			if (lo < mid) {
+				max = Math.max(max, augment(lo, mid - 1));
+			}
+			if (mid < hi) {
+				max = Math.max(max, augment(mid + 1, hi));
+			}
+			maxEnds[mid] = max;
+			return max;
+		}
+
+		void visit(int start, int end, IntConsumer visitor) {
+			visit(0, features.length - 1, start, end, visitor);
+		}
+
+		/**
+		 * Visits the features overlapping [start, end), as {@link Location#overlaps(Location)}.
+		 */
+		private void visit(int lo, int hi, int start, int end, IntConsumer visitor) {
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (maxEnds[mid] <= start) {
+					return;
+				}
+				visit(lo, mid - 1, start, end, visitor);
+				if (starts[mid] >= end) {
+					return;
+				}
+				if (ends[mid] > start) {
+					visitor.accept(features[mid]);
+				}
+				lo = mid + 1;
+			}
+		}
+
+		/**
+		 * Finds the nearest of the features before and after [start, end), none of which overlaps it.
+		 * @return the distance in the high bits and the feature index in the low bits, to be compared
+		 */
+		long getNearest(int start, int end) {
+			long best = Long.MAX_VALUE;
+			// the features that start before the location end before it
+			int before = firstStartAtLeast(start) - 1;
+			if (before >= 0) {
+				int i = prefixMaxEnds[before];
+				best = Math.min(best, pack(start - ends[i], features[i]));
+			}
+			int after = firstStartAtLeast(end);
+			if (after < starts.length) {
+				best = Math.min(best, pack(starts[after] - end, features[after]));
+			}
+			return best;
+		}
+
+		private static long pack(int distance, int feature) {
+			return ((long) distance << 32) | feature;
+		}
+
+		private int firstStartAtLeast(int position) {
+			int lo = 0;
+			int hi = starts.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (starts[mid] < position) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}
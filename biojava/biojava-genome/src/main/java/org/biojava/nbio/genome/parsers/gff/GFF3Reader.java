@@ -20,17 +20,15 @@
  */
 package org.biojava.nbio.genome.parsers.gff;
 
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
 
 
 /**
@@ -58,8 +56,6 @@ public class GFF3Reader {
 
 	private static final Logger logger = LoggerFactory.getLogger(GFF3Reader.class);
 
-	private static final  Pattern p = Pattern.compile("\t");
-
 	/**
 	 * Read a file into a FeatureList. Each line of the file becomes one Feature object.
 	 *
@@ -81,33 +77,7 @@ public class GFF3Reader {
 	public static FeatureList read(Path path, List<String> indexes) throws IOException {
 		logger.info("Reading: {}", path.toString());
 
-		FeatureList features = new FeatureList();
-		features.addIndexes(indexes);
-		BufferedReader br = Files.newBufferedReader(path);
-
-		String s;
-		for (s = br.readLine(); null != s; s = br.readLine()) {
-			s = s.trim();
-
-			if (s.length() > 0) {
-				if (s.charAt(0) == '#') {
-					//ignore comment lines
-					if(s.startsWith("##fasta"))
-						break;
-				} else {
-
-					FeatureI f = parseLine(s);
-					if (f != null) {
-						features.add(f);
-
-					}
-				}
-			}
-
-		}
-
-		br.close();
-		return features;
+		return new StreamingGFFReader(StreamingGFFReader.Format.GFF3).read(path, indexes, null);
 	}
 
 
@@ -119,73 +89,27 @@ public class GFF3Reader {
 		return read(path,new ArrayList<String>(0));
 	}
 
-
 	/**
-	 * create Feature from line of GFF file
+	 * Read a file into a FeatureList, parsing the lines in tasks of the given context.
+	 *
+	 * @param path The path to the GFF file.
+	 * @param indexes The attributes to index.
+	 * @param context The context running the tasks, or null to parse in this thread.
+	 * @return A FeatureList, in the order of the file.
+	 * @throws IOException Something went wrong -- check exception detail message.
+	 * @see StreamingGFFReader
+	 * @since 6.0.6
 	 */
-	private static Feature parseLine(String s) {
-		//FIXME update to use regex split on tabs
-		//FIXME better errors on parse failures
-		String[] line = p.split(s);
-		String seqname =line[0].trim();
-
-		String source =line[1].trim();
-
-		String type =line[2].trim();
-
-
-		String locStart =line[3].trim();
-
-		String locEnd =line[4].trim();
-
-		Double score;
-
-		try {
-			score = Double.parseDouble(line[5].trim());
-		} catch (Exception e) {
-			score = 0.0;
-		}
-
-
-		char strand = line[6].trim().charAt(0);
-		//added by scooter willis to deal with glimmer predictions that
-		//have the start after the end but is a negative strand
-		int locationStart = Integer.parseInt(locStart);
-		int locationEnd = Integer.parseInt(locEnd);
-		if(locationStart > locationEnd){
-			int temp = locationStart;
-			locationStart = locationEnd;
-			locationEnd = temp;
-
-		}
-		Location location = Location.fromBio(locationStart, locationEnd, strand);
-
-		assert (strand == '-') == location.isNegative();
-
-		int frame;
-		try {
-			frame = Integer.parseInt(line[7].trim());
-		} catch (Exception e) {
-			frame = -1;
-		}
-		String attributes=line[8];
-	/*    //grab everything until end of line (or # comment)
-		start = end + 1;
-		end = s.indexOf('#', start);
-		String attributes = null;
-		if (end < 0) {
-			attributes = new String(s.substring(start));
-		} else {
-			attributes = new String(s.substring(start, end));
-		}
- */
-		return new Feature(seqname, source, type, location, score, frame, attributes.split("#")[0]);
-
+	public static FeatureList read(Path path, List<String> indexes, ExecutionContext context) throws IOException {
+		logger.info("Reading: {}", path.toString());
+		return new StreamingGFFReader(StreamingGFFReader.Format.GFF3).read(path, indexes, context);
 	}
 
 
 
 
+
+
 	public static void main(String[] args) throws Exception {
 		long start = System.currentTimeMillis();
 		@SuppressWarnings("unused")
@@ -24,6 +24,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.file.Paths;
 import java.util.ListIterator;
 
 /**
@@ -61,101 +62,9 @@ public class GeneIDGFF2Reader {
 	public static FeatureList read(String filename) throws IOException {
 		logger.info("Reading: {}", filename);
 
-		FeatureList features = new FeatureList();
-		BufferedReader br = new BufferedReader(new FileReader(filename));
-
-		String s;
-		for (s = br.readLine(); null != s; s = br.readLine()) {
-			s = s.trim();
-
-			if (s.length() > 0) {
-				if (s.charAt(0) == '#') {
-					//ignore comment lines
-				} else {
-
-					FeatureI f = parseLine(s);
-					if (f != null) {
-						features.add(f);
-					}
-				}
-			}
-
-		}
-
-		br.close();
-		return features;
+		return new StreamingGFFReader(StreamingGFFReader.Format.GENEID_GFF2).read(Paths.get(filename), null, null);
 	}
 
-	/**
-	 * create Feature from line of GFF file
-	 */
-	private static Feature parseLine(String s) {
-		//FIXME update to use regex split on tabs
-		//FIXME better errors on parse failures
-
-		int start = 0;
-		int end = 0;
-
-		start = end;
-		end = s.indexOf('\t', start);
-		String seqname = s.substring(start, end).trim();
-
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		String source = s.substring(start, end).trim();
-
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		String type = s.substring(start, end);
-
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		String locStart = s.substring(start, end);
-
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		String locEnd = s.substring(start, end);
-
-		Double score;
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		try {
-			score = Double.parseDouble(s.substring(start, end));
-		} catch (Exception e) {
-			score = 0.0;
-		}
-
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		char strand = s.charAt(end - 1);
-
-		Location location = Location.fromBio(Integer.parseInt(locStart), Integer.parseInt(locEnd), strand);
-
-		assert (strand == '-') == location.isNegative();
-
-		int frame;
-		start = end + 1;
-		end = s.indexOf('\t', start);
-		try {
-			frame = Integer.parseInt(s.substring(start, end));
-		} catch (Exception e) {
-			frame = -1;
-		}
-
-		//grab everything until end of line (or # comment)
-		start = end + 1;
-		end = s.indexOf('#', start);
-		String attributes = null;
-		if (end < 0) {
-			attributes = new String(s.substring(start));
-		} else {
-			attributes = new String(s.substring(start, end));
-		}
-		//need to add in attribute assignment for geneid where it just provides a gene name and will make it gtf like
-		attributes = "gene_id " + '"' + attributes + '"' + ";";
-		return new Feature(seqname, source, type, location, score, frame, attributes);
-
-	}
 
 	/**
 	 * Write features in FeatureList to file. Each Feature becomes one line in the file.
@@ -0,0 +1,375 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.gff;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Reads the features of a GFF/GTF file one line at a time, handing each
+ * feature to a callback or an iterator instead of building a FeatureList,
+ * or builds the FeatureList from batches of lines parsed in parallel.
+ * <p>
+ * The lines are split on tabs without regular expressions, the sequence
+ * names, sources and types are shared between the features of the file,
+ * and the attributes of a {@link Feature} are only parsed when they are
+ * first accessed. {@link GFF3Reader}, {@link GeneMarkGTFReader} and
+ * {@link GeneIDGFF2Reader} read their files with this class.
+ * <pre>
+ * StreamingGFFReader reader = new StreamingGFFReader(StreamingGFFReader.Format.GFF3);
+ * reader.read(Paths.get("gencode.gff3"), feature -&gt; {
+ *     if (feature.type().equals("gene")) {
+ *         genes.add(feature);
+ *     }
+ * });
+ * </pre>
+ * A reader can be used by several threads. The shared strings are kept
+ * for the lifetime of the reader.
+ *
+ * @since 6.0.6
+ */
+public class StreamingGFFReader {
+
+	/**
+	 * The variants of the format, as read by the original readers.
+	 */
+	public enum Format {
+		/**
+		 * GFF3 (and most GTF) files, as read by {@link GFF3Reader}: the attributes
+		 * are the ninth field, the reading stops at a "##fasta" directive, and
+		 * locations whose start is after their end are reversed.
+		 */
+		GFF3(true, true, false),
+		/**
+		 * The GTF files of GeneMark, as read by {@link GeneMarkGTFReader}: the
+		 * attributes are the rest of the line.
+		 */
+		GENEMARK_GTF(false, false, false),
+		/**
+		 * The GFF2 files of GeneID, as read by {@link GeneIDGFF2Reader}: the
+		 * attributes are the gene name, which is stored as a gene_id attribute.
+		 */
+		GENEID_GFF2(false, false, true);
+
+		private final boolean stopAtFasta;
+		private final boolean ninthFieldAttributes;
+		private final boolean geneIdAttributes;
+
+		Format(boolean stopAtFasta, boolean ninthFieldAttributes, boolean geneIdAttributes) {
+			this.stopAtFasta = stopAtFasta;
+			this.ninthFieldAttributes = ninthFieldAttributes;
+			this.geneIdAttributes = geneIdAttributes;
+		}
+	}
+
+	/** The number of lines parsed by each task of {@link #read(Path, List, ExecutionContext)} */
+	private static final int LINES_PER_TASK = 4096;
+
+	private final Format format;
+	private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a reader.
+	 * @param format the variant of the files to read
+	 */
+	public StreamingGFFReader(Format format) {
+		this.format = format;
+	}
+
+	/**
+	 * @return the variant of the files read
+	 */
+	public Format getFormat() {
+		return format;
+	}
+
+	/**
+	 * Reads the features of a file, in order.
+	 *
+	 * @param path the GFF file
+	 * @param consumer called with each feature
+	 * @throws IOException if the file could not be read
+	 */
+	public void read(Path path, Consumer<? super FeatureI> consumer) throws IOException {
+		try (BufferedReader br = Files.newBufferedReader(path)) {
+			read(br, consumer);
+		}
+	}
+
+	/**
+	 * Reads the features of a stream, in order.
+	 *
+	 * @param br the GFF lines, which is not closed
+	 * @param consumer called with each feature
+	 * @throws IOException if the stream could not be read
+	 */
+	public void read(BufferedReader br, Consumer<? super FeatureI> consumer) throws IOException {
+		for (String s = br.readLine(); s != null && !isEnd(s); s = br.readLine()) {
+			Feature f = parseLine(s);
+			if (f != null) {
+				consumer.accept(f);
+			}
+		}
+	}
+
+	/**
+	 * Iterates the features of a stream, reading a line at a time.
+	 *
+	 * @param br the GFF lines, which is not closed
+	 * @return an iterator of the features, whose methods throw an {@link UncheckedIOException}
+	 * if the stream could not be read
+	 */
+	public Iterator<FeatureI> iterator(BufferedReader br) {
+		return new Iterator<FeatureI>() {
+			private Feature next;
+			private boolean end;
+
+			@Override
+			public boolean hasNext() {
+				try {
+					while (next == null && !end) {
+						String s = br.readLine();
+						if (s == null || isEnd(s)) {
+							end = true;
+						} else {
+							next = parseLine(s);
+						}
+					}
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+				return next != null;
+			}
+
+			@Override
+			public FeatureI next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				Feature f = next;
+				next = null;
+				return f;
+			}
+		};
+	}
+
+	/**
+	 * Reads a file into a FeatureList, parsing batches of lines in tasks of the given context.
+	 * The features are in the order of the file.
+	 *
+	 * @param path the GFF file
+	 * @param indexes the attributes to index, see {@link FeatureList#addIndexes(List)}, or null
+	 * @param context the context running the tasks, or null to parse in this thread
+	 * @return a new FeatureList
+	 * @throws IOException if the file could not be read
+	 * @throws java.util.concurrent.CancellationException if the context is cancelled
+	 */
+	public FeatureList read(Path path, List<String> indexes, ExecutionContext context) throws IOException {
+		FeatureList features = new FeatureList();
+		if (indexes != null) {
+			features.addIndexes(indexes);
+		}
+		if (context == null) {
+			read(path, features::add);
+			return features;
+		}
+
+		Deque<Future<List<FeatureI>>> futures = new ArrayDeque<>();
+		try (BufferedReader br = Files.newBufferedReader(path)) {
+			List<String> batch = new ArrayList<>(LINES_PER_TASK);
+			for (String s = br.readLine(); s != null && !isEnd(s); s = br.readLine()) {
+				batch.add(s);
+				if (batch.size() == LINES_PER_TASK) {
+					futures.add(submit(batch, context));
+					batch = new ArrayList<>(LINES_PER_TASK);
+					// the parsed batches are added, with their index entries, as they come rather than at the end of the file
+					while (!futures.isEmpty() && futures.peek().isDone()) {
+						features.add(futures.poll().get());
+					}
+				}
+			}
+			if (!batch.isEmpty()) {
+				futures.add(submit(batch, context));
+			}
+			while (!futures.isEmpty()) {
+				features.add(futures.poll().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted while reading " + path, e);
+		} catch (ExecutionException e) {
+			context.cancel();
+			throw new RuntimeException("Could not parse " + path, e.getCause());
+		}
+		return features;
+	}
+
+	private Future<List<FeatureI>> submit(List<String> lines, ExecutionContext context) {
+		return context.submit(() -> {
+			List<FeatureI> parsed = new ArrayList<>(lines.size());
+			for (String s : lines) {
+				Feature f = parseLine(s);
+				if (f != null) {
+					parsed.add(f);
+				}
+			}
+			return parsed;
+		});
+	}
+
+	/**
+	 * @return true if the line ends the features of the file
+	 */
+	private boolean isEnd(String s) {
+		if (!format.stopAtFasta) {
+			return false;
+		}
+		int start = skipWhitespace(s, 0, s.length());
+		return s.startsWith("##fasta", start);
+	}
+
+	/**
+	 * Parses a line of the file.
+	 *
+	 * @param s the line
+	 * @return the feature of the line, or null for an empty or comment line
+	 * @throws NumberFormatException if the location is not made of numbers
+	 * @throws IllegalArgumentException if a field is missing
+	 */
+	public Feature parseLine(String s) {
+		int lineStart = skipWhitespace(s, 0, s.length());
+		int lineEnd = trimEnd(s, lineStart, s.length());
+		if (lineStart == lineEnd || s.charAt(lineStart) == '#') {
+			return null;
+		}
+
+		int[] field = { lineStart, -1 };
+		String seqname = shared(nextField(s, field, lineEnd));
+		String source = shared(nextField(s, field, lineEnd));
+		String type = shared(nextField(s, field, lineEnd));
+		String locStart = nextField(s, field, lineEnd);
+		String locEnd = nextField(s, field, lineEnd);
+
+		double score;
+		try {
+			score = Double.parseDouble(nextField(s, field, lineEnd));
+		} catch (NumberFormatException e) {
+			score = 0.0;
+		}
+
+		String strandField = nextField(s, field, lineEnd);
+		if (strandField.isEmpty()) {
+			throw new IllegalArgumentException("No strand in GFF line: " + s);
+		}
+		char strand = strandField.charAt(0);
+
+		int locationStart = Integer.parseInt(locStart);
+		int locationEnd = Integer.parseInt(locEnd);
+		if (format.stopAtFasta && locationStart > locationEnd) {
+			// glimmer predictions have the start after the end on the negative strand
+			int temp = locationStart;
+			locationStart = locationEnd;
+			locationEnd = temp;
+		}
+		Location location = Location.fromBio(locationStart, locationEnd, strand);
+
+		int frame;
+		try {
+			frame = Integer.parseInt(nextField(s, field, lineEnd));
+		} catch (NumberFormatException e) {
+			frame = -1;
+		}
+
+		// up to a # comment
+		int attributesStart = Math.min(field[1] + 1, lineEnd);
+		int attributesEnd = format.ninthFieldAttributes ? fieldEnd(s, attributesStart, lineEnd) : lineEnd;
+		int comment = s.indexOf('#', attributesStart);
+		if (comment >= 0 && comment < attributesEnd) {
+			attributesEnd = comment;
+		}
+		String attributes = s.substring(attributesStart, attributesEnd);
+		if (format.geneIdAttributes) {
+			// a gene name, stored as a GTF attribute
+			attributes = "gene_id \"" + attributes + "\";";
+		}
+
+		return new Feature(seqname, source, type, location, score, frame, attributes);
+	}
+
+	/**
+	 * Gets the next field of a line, trimmed.
+	 * @param field the start and end of the previous field, updated to the next one
+	 */
+	private static String nextField(String s, int[] field, int lineEnd) {
+		int start = field[1] < 0 ? field[0] : field[1] + 1;
+		if (start > lineEnd) {
+			throw new IllegalArgumentException("Missing fields in GFF line: " + s);
+		}
+		int end = fieldEnd(s, start, lineEnd);
+		field[0] = start;
+		field[1] = end;
+		int trimmedStart = skipWhitespace(s, start, end);
+		return s.substring(trimmedStart, trimEnd(s, trimmedStart, end));
+	}
+
+	private static int fieldEnd(String s, int start, int lineEnd) {
+		int end = s.indexOf('\t', start);
+		return end < 0 || end > lineEnd ? lineEnd : end;
+	}
+
+	private static int skipWhitespace(String s, int start, int end) {
+		while (start < end && s.charAt(start) <= ' ') {
+			start++;
+		}
+		return start;
+	}
+
+	private static int trimEnd(String s, int start, int end) {
+		while (end > start && s.charAt(end - 1) <= ' ') {
+			end--;
+		}
+		return end;
+	}
+
+	/**
+	 * @return the instance of an equal string shared by the features of this reader
+	 */
+	private String shared(String s) {
+		String previous = strings.putIfAbsent(s, s);
+		return previous == null ? s : previous;
+	}
+}
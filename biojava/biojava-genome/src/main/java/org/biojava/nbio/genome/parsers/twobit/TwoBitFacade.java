@@ -29,7 +29,7 @@ import java.io.File;
  */
 public class TwoBitFacade {
 
-	private TwoBitParser twoBitParser = null;
+	private TwoBitReader twoBitReader = null;
 
 
 	/**
@@ -38,39 +38,29 @@ public class TwoBitFacade {
 	 *  @param file the File to a .2bit file.
 	 */
 	public TwoBitFacade(File file) throws Exception {
-		twoBitParser = new TwoBitParser(file);
+		twoBitReader = new TwoBitReader(file.toPath());
 	}
 
 	/**
-	 *  Closes .2bit file twoBitParser.
+	 *  Does nothing: the .2bit file stays mapped in memory until the facade is garbage collected.
 	 */
 	public void close() throws Exception {
-		if (twoBitParser != null)
-			twoBitParser.close();
-
 	}
 
 	/**
-	 * Sets a chromosome for TwoBitParser.
+	 * Sets a chromosome, which has no effect since {@link #getSequence(String, int, int)}
+	 * takes the chromosome name.
 	 *
 	 * @param chr The chromosome name (e.g. chr21)
+	 * @deprecated the facade keeps no current chromosome
 	 */
+	@Deprecated
 	public void setChromosome(String chr) throws Exception {
-		if ( twoBitParser == null){
-
-		}
-		twoBitParser.close();
-		String[] names = twoBitParser.getSequenceNames();
-		for(int i=0;i<names.length;i++) {
-			if ( names[i].equalsIgnoreCase(chr) ) {
-				twoBitParser.setCurrentSequence(names[i]);
-				break;
-			}
-		}
 	}
 
 	/**
-	 * Extract a sequence from a chromosome, using chromosomal coordinates
+	 * Extract a sequence from a chromosome, using chromosomal coordinates.
+	 * The facade can be used by several threads, see {@link TwoBitReader}.
 	 *
 	 * @param chromosomeName
 	 * @param start
@@ -79,8 +69,7 @@ public class TwoBitFacade {
 	 * @throws Exception
 	 */
 	public String getSequence(String chromosomeName, int start, int end) throws Exception {
-		twoBitParser.close();
-		twoBitParser.setCurrentSequence(chromosomeName);
-		return twoBitParser.loadFragment(start,end-start);
+		// a window past the end of the chromosome is cut, as by TwoBitParser.loadFragment
+		return twoBitReader.getSequence(chromosomeName, start, Math.min(end, twoBitReader.getSequenceLength(chromosomeName)));
 	}
 }
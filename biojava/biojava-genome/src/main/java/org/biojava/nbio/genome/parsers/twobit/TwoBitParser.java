@@ -40,6 +40,9 @@ import java.util.HashMap;
  * it just run this class with input file path as single parameter and set
  * stdout stream into output file. If you have any problems or ideas don't
  * hesitate to contact me through email: rsutormin[at]gmail.com.
+ * <p>
+ * The parser has a current sequence and position, so it can not be shared by
+ * threads: see {@link TwoBitReader} for random access from several threads.
  * @author Roman Sutormin
  */
 public class TwoBitParser extends InputStream {
@@ -0,0 +1,413 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.parsers.twobit;
+
+import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.DNASequence;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A random access reader of UCSC .2bit files, which maps the file in memory
+ * and keeps no cursor, so that a single reader can be shared by any number
+ * of threads fetching windows of any of the sequences.
+ * <p>
+ * The header of a sequence (its length, N-blocks and mask blocks) is read
+ * on the first access to the sequence. The blocks overlapping a window are
+ * found by binary search, and the bases are decoded four at a time from the
+ * packed bytes.
+ * <pre>
+ * TwoBitReader hg38 = new TwoBitReader(Paths.get("hg38.2bit"));
+ * String flank = hg38.getSequence("chr17", 43044294, 43044394);
+ * </pre>
+ * Unlike {@link TwoBitParser}, the positions are ints: a sequence of a .2bit
+ * file can not be longer than 2^32 - 1 bases, and none is longer than 2^31 - 1.
+ * The mapping of the file is released when the reader is garbage collected.
+ *
+ * @since 6.0.6
+ */
+public class TwoBitReader {
+
+	private static final int SIGNATURE = 0x1A412743;
+	/** The size of the mapped regions of the file, as a shift */
+	private static final int REGION_SHIFT = 30;
+	private static final long REGION_MASK = (1L << REGION_SHIFT) - 1;
+
+	/** The bases of the 2 bit codes */
+	private static final char[] BASES = { 'T', 'C', 'A', 'G' };
+	/** The four bases of each packed byte */
+	private static final char[] DECODED = new char[256 * 4];
+
+	static {
+		for (int b = 0; b < 256; b++) {
+			for (int i = 0; i < 4; i++) {
+				DECODED[4 * b + i] = BASES[(b >>> (6 - 2 * i)) & 3];
+			}
+		}
+	}
+
+	private final Path path;
+	private final MappedByteBuffer[] regions;
+	/** The offset of each sequence record in the file, in the order of the file */
+	private final Map<String, Long> offsets;
+	private final ConcurrentHashMap<String, Record> records = new ConcurrentHashMap<>();
+
+	/**
+	 * Maps a .2bit file and reads its index of sequences.
+	 *
+	 * @param path the .2bit file
+	 * @throws IOException if the file could not be read or is not a .2bit file
+	 */
+	public TwoBitReader(Path path) throws IOException {
+		this.path = path;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			regions = new MappedByteBuffer[(int) ((size + REGION_MASK) >>> REGION_SHIFT)];
+			for (int i = 0; i < regions.length; i++) {
+				long start = (long) i << REGION_SHIFT;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << REGION_SHIFT));
+			}
+		}
+		if (regions.length == 0) {
+			throw new IOException("Empty 2BIT file " + path);
+		}
+
+		ByteOrder order;
+		regions[0].order(ByteOrder.LITTLE_ENDIAN);
+		int signature = regions[0].getInt(0);
+		if (signature == SIGNATURE) {
+			order = ByteOrder.LITTLE_ENDIAN;
+		} else if (signature == Integer.reverseBytes(SIGNATURE)) {
+			order = ByteOrder.BIG_ENDIAN;
+		} else {
+			throw new IOException("Wrong start signature in 2BIT format: " + path);
+		}
+		for (MappedByteBuffer region : regions) {
+			region.order(order);
+		}
+
+		// version 1 files have 64 bit offsets
+		int version = readInt(4);
+		if (version != 0 && version != 1) {
+			throw new IOException("Unsupported 2BIT version " + version + ": " + path);
+		}
+		int count = readInt(8);
+		long pos = 16;
+		Map<String, Long> index = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++) {
+			int nameLength = byteAt(pos++) & 0xff;
+			char[] name = new char[nameLength];
+			for (int j = 0; j < nameLength; j++) {
+				name[j] = (char) (byteAt(pos++) & 0xff);
+			}
+			long offset;
+			if (version == 0) {
+				offset = readInt(pos) & 0xffffffffL;
+				pos += 4;
+			} else {
+				offset = order == ByteOrder.LITTLE_ENDIAN
+						? (readInt(pos) & 0xffffffffL) | ((long) readInt(pos + 4) << 32)
+						: ((long) readInt(pos) << 32) | (readInt(pos + 4) & 0xffffffffL);
+				pos += 8;
+			}
+			index.put(new String(name), offset);
+		}
+		offsets = Collections.unmodifiableMap(index);
+	}
+
+	/**
+	 * @return the .2bit file
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * @return the names of the sequences, in the order of the file
+	 */
+	public String[] getSequenceNames() {
+		return offsets.keySet().toArray(new String[0]);
+	}
+
+	/**
+	 * @param name the name of a sequence
+	 * @return true if the file has a sequence with this name
+	 */
+	public boolean hasSequence(String name) {
+		return offsets.containsKey(name);
+	}
+
+	/**
+	 * @param name the name of a sequence
+	 * @return the number of bases of the sequence
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public int getSequenceLength(String name) {
+		return record(name).length;
+	}
+
+	/**
+	 * Gets a window of a sequence, with the N-blocks as N and the masked bases in lower case,
+	 * as {@link TwoBitParser#loadFragment(long, int)}.
+	 *
+	 * @param name the name of the sequence
+	 * @param start the first position of the window, from 0
+	 * @param end the position after the window
+	 * @return the bases from start to end
+	 * @throws IllegalArgumentException if there is no such sequence or the window is not in it
+	 */
+	public String getSequence(String name, int start, int end) {
+		return getSequence(name, start, end, true);
+	}
+
+	/**
+	 * Gets a window of a sequence, with the N-blocks as N.
+	 *
+	 * @param name the name of the sequence
+	 * @param start the first position of the window, from 0
+	 * @param end the position after the window
+	 * @param softMasked true for the masked bases in lower case, false for all the bases in upper case
+	 * @return the bases from start to end
+	 * @throws IllegalArgumentException if there is no such sequence or the window is not in it
+	 */
+	public String getSequence(String name, int start, int end, boolean softMasked) {
+		Record record = record(name);
+		checkWindow(record, name, start, end);
+		char[] bases = new char[end - start];
+
+		long pos = record.dnaOffset + (start >>> 2);
+		int i = 0;
+		// the bases of the first byte before the window
+		int skip = start & 3;
+		while (i < bases.length) {
+			int b = byteAt(pos++) & 0xff;
+			int n = Math.min(4 - skip, bases.length - i);
+			System.arraycopy(DECODED, 4 * b + skip, bases, i, n);
+			i += n;
+			skip = 0;
+		}
+
+		for (int k = firstBlock(record.nEnds, start); k < record.nStarts.length && record.nStarts[k] < end; k++) {
+			int from = Math.max(record.nStarts[k], start);
+			int to = Math.min(record.nEnds[k], end);
+			for (int j = from; j < to; j++) {
+				bases[j - start] = 'N';
+			}
+		}
+		if (softMasked) {
+			for (int k = firstBlock(record.maskEnds, start); k < record.maskStarts.length && record.maskStarts[k] < end; k++) {
+				int from = Math.max(record.maskStarts[k], start);
+				int to = Math.min(record.maskEnds[k], end);
+				for (int j = from; j < to; j++) {
+					bases[j - start] = Character.toLowerCase(bases[j - start]);
+				}
+			}
+		}
+		return new String(bases);
+	}
+
+	/**
+	 * Gets a window of a sequence as a DNASequence, in upper case.
+	 *
+	 * @param name the name of the sequence
+	 * @param start the first position of the window, from 0
+	 * @param end the position after the window
+	 * @return the bases from start to end
+	 * @throws IllegalArgumentException if there is no such sequence or the window is not in it
+	 */
+	public DNASequence getDNASequence(String name, int start, int end) {
+		try {
+			return new DNASequence(getSequence(name, start, end, false));
+		} catch (CompoundNotFoundException e) {
+			// only ACGTN are decoded
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets a window of a sequence packed as in the file: 4 bases per byte, the first in the
+	 * high bits, with the codes T=0, C=1, A=2 and G=3. The bases of the N-blocks are packed
+	 * as T, see {@link #isN(String, int)}, and the unused bits of the last byte are 0.
+	 *
+	 * @param name the name of the sequence
+	 * @param start the first position of the window, from 0
+	 * @param end the position after the window
+	 * @return the packed bases from start to end
+	 * @throws IllegalArgumentException if there is no such sequence or the window is not in it
+	 */
+	public byte[] getPackedSequence(String name, int start, int end) {
+		Record record = record(name);
+		checkWindow(record, name, start, end);
+		int length = end - start;
+		byte[] packed = new byte[(length + 3) >>> 2];
+		long pos = record.dnaOffset + (start >>> 2);
+		int shift = 2 * (start & 3);
+		for (int i = 0; i < packed.length; i++) {
+			int b = (byteAt(pos + i) & 0xff) << shift;
+			if (shift > 0 && (start & ~3) + 4 * (i + 1) < end) {
+				b |= (byteAt(pos + i + 1) & 0xff) >>> (8 - shift);
+			}
+			packed[i] = (byte) b;
+		}
+		int tail = length & 3;
+		if (tail != 0) {
+			packed[packed.length - 1] &= (byte) (0xff << (8 - 2 * tail));
+		}
+		return packed;
+	}
+
+	/**
+	 * @param name the name of a sequence
+	 * @param position a position of the sequence, from 0
+	 * @return true if the base at the position is in an N-block
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public boolean isN(String name, int position) {
+		Record record = record(name);
+		int k = firstBlock(record.nEnds, position);
+		return k < record.nStarts.length && record.nStarts[k] <= position;
+	}
+
+	/**
+	 * @param name the name of a sequence
+	 * @param position a position of the sequence, from 0
+	 * @return true if the base at the position is in a mask block
+	 * @throws IllegalArgumentException if there is no such sequence
+	 */
+	public boolean isMasked(String name, int position) {
+		Record record = record(name);
+		int k = firstBlock(record.maskEnds, position);
+		return k < record.maskStarts.length && record.maskStarts[k] <= position;
+	}
+
+	private static void checkWindow(Record record, String name, int start, int end) {
+		if (start < 0 || end > record.length || start > end) {
+			throw new IllegalArgumentException("Window [" + start + "," + end + ") is not in sequence ["
+					+ name + "] of length " + record.length);
+		}
+	}
+
+	/**
+	 * @return the index of the first of the sorted blocks ending after the position
+	 */
+	private static int firstBlock(int[] ends, int position) {
+		int lo = 0;
+		int hi = ends.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (ends[mid] <= position) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private Record record(String name) {
+		Record record = records.get(name);
+		if (record == null) {
+			Long offset = offsets.get(name);
+			if (offset == null) {
+				throw new IllegalArgumentException("Sequence [" + name + "] was not found in 2bit file");
+			}
+			record = records.computeIfAbsent(name, k -> new Record(offset));
+		}
+		return record;
+	}
+
+	private byte byteAt(long pos) {
+		return regions[(int) (pos >>> REGION_SHIFT)].get((int) (pos & REGION_MASK));
+	}
+
+	private int readInt(long pos) {
+		int region = (int) (pos >>> REGION_SHIFT);
+		int offset = (int) (pos & REGION_MASK);
+		if (offset + 4 <= regions[region].limit()) {
+			return regions[region].getInt(offset);
+		}
+		// across two regions
+		int b0 = byteAt(pos) & 0xff;
+		int b1 = byteAt(pos + 1) & 0xff;
+		int b2 = byteAt(pos + 2) & 0xff;
+		int b3 = byteAt(pos + 3) & 0xff;
+		return regions[0].order() == ByteOrder.LITTLE_ENDIAN
+				? b0 | b1 << 8 | b2 << 16 | b3 << 24
+				: b3 | b2 << 8 | b1 << 16 | b0 << 24;
+	}
+
+	/**
+	 * The header of a sequence.
+	 */
+	private class Record {
+		private final int length;
+		private final int[] nStarts;
+		private final int[] nEnds;
+		private final int[] maskStarts;
+		private final int[] maskEnds;
+		/** The offset of the packed bases in the file */
+		private final long dnaOffset;
+
+		Record(long offset) {
+			long pos = offset;
+			length = readInt(pos);
+			pos += 4;
+			int nCount = readInt(pos);
+			pos += 4;
+			nStarts = new int[nCount];
+			nEnds = new int[nCount];
+			pos = readBlocks(pos, nStarts, nEnds);
+			int maskCount = readInt(pos);
+			pos += 4;
+			maskStarts = new int[maskCount];
+			maskEnds = new int[maskCount];
+			pos = readBlocks(pos, maskStarts, maskEnds);
+			// reserved
+			pos += 4;
+			dnaOffset = pos;
+		}
+
+		/**
+		 * Reads the starts, then the sizes of blocks.
+		 * @return the position after the blocks
+		 */
+		private long readBlocks(long pos, int[] starts, int[] ends) {
+			for (int i = 0; i < starts.length; i++) {
+				starts[i] = readInt(pos);
+				pos += 4;
+			}
+			for (int i = 0; i < ends.length; i++) {
+				ends[i] = starts[i] + readInt(pos);
+				pos += 4;
+			}
+			return pos;
+		}
+	}
+}
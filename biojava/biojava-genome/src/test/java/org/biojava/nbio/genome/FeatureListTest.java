@@ -23,7 +23,13 @@
  */
 package org.biojava.nbio.genome;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.biojava.nbio.genome.parsers.gff.Feature;
+import org.biojava.nbio.genome.parsers.gff.FeatureI;
 import org.biojava.nbio.genome.parsers.gff.FeatureList;
 import org.biojava.nbio.genome.parsers.gff.Location;
 import org.junit.Assert;
@@ -48,4 +54,104 @@ public class FeatureListTest {
 		f2.add(new Feature("seqname", "source", "type", new Location(1, 2), (double)0, 0, "gene_id \"gene_id_1\"; transcript_id \"transcript_id_1\";"));
 		Assert.assertEquals(1, f2.selectByAttribute("transcript_id").size());
 	}
+
+	private static FeatureList randomFeatures(Random random, int n) {
+		FeatureList fl = new FeatureList();
+		for (int i = 0; i < n; i++) {
+			fl.add(new Feature(random.nextBoolean() ? "chr1" : "chr2", "source", "exon",
+					randomLocation(random), (double) 0, 0, "gene_id \"g" + i + "\";"));
+		}
+		return fl;
+	}
+
+	private static Location randomLocation(Random random) {
+		int start = random.nextInt(100000);
+		Location location = new Location(start, start + 1 + random.nextInt(random.nextInt(20) == 0 ? 10000 : 300));
+		return random.nextBoolean() ? location : location.opposite();
+	}
+
+	/**
+	 * The features overlapping a location, by scanning the list
+	 */
+	private static List<FeatureI> scan(FeatureList fl, String seqname, Location location, boolean useBothStrands) {
+		List<FeatureI> list = new ArrayList<>();
+		for (FeatureI feature : fl) {
+			if (feature.seqname().equals(seqname)
+					&& (location.isSameStrand(feature.location()) ? feature.location().overlaps(location)
+							: useBothStrands && feature.location().overlaps(location.opposite()))) {
+				list.add(feature);
+			}
+		}
+		return list;
+	}
+
+	@Test
+	public void testOverlapping() throws Exception {
+		Random random = new Random(3);
+		FeatureList fl = randomFeatures(random, 3000);
+		for (int i = 0; i < 300; i++) {
+			Location location = randomLocation(random);
+			boolean useBothStrands = random.nextBoolean();
+			List<FeatureI> expected = scan(fl, "chr1", location, useBothStrands);
+			Assert.assertEquals(expected, fl.selectOverlapping("chr1", location, useBothStrands));
+			Assert.assertEquals(expected, fl.getOverlapping("chr1", location, useBothStrands));
+
+			List<FeatureI> omitted = new ArrayList<>(fl);
+			omitted.removeAll(expected);
+			Assert.assertEquals(omitted, fl.omitOverlapping("chr1", location, useBothStrands));
+
+			int[] count = new int[1];
+			fl.visitOverlapping("chr1", location, useBothStrands, f -> count[0]++);
+			Assert.assertEquals(expected.size(), count[0]);
+		}
+		Assert.assertTrue(fl.getOverlapping("chrX", new Location(0, 100000), true).isEmpty());
+
+		// the index is rebuilt when the list changes
+		Location location = new Location(500000, 500010);
+		fl.add(new Feature("chr1", "source", "exon", new Location(500005, 500020), (double) 0, 0, "gene_id \"new\";"));
+		Assert.assertEquals(1, fl.selectOverlapping("chr1", location, false).size());
+		fl.set(fl.size() - 1, new Feature("chr1", "source", "exon", new Location(600000, 600001), (double) 0, 0, ""));
+		Assert.assertEquals(0, fl.selectOverlapping("chr1", location, false).size());
+	}
+
+	@Test
+	public void testNearest() {
+		Random random = new Random(5);
+		FeatureList fl = randomFeatures(random, 1000);
+		for (int i = 0; i < 300; i++) {
+			Location location = randomLocation(random);
+			boolean useBothStrands = random.nextBoolean();
+			int best = Integer.MAX_VALUE;
+			for (FeatureI feature : fl) {
+				if (!feature.seqname().equals("chr2")) {
+					continue;
+				}
+				if (location.isSameStrand(feature.location())) {
+					best = Math.min(best, feature.location().distance(location));
+				} else if (useBothStrands) {
+					best = Math.min(best, feature.location().distance(location.opposite()));
+				}
+			}
+			FeatureI nearest = fl.nearest("chr2", location, useBothStrands);
+			Location target = location.isSameStrand(nearest.location()) ? location : location.opposite();
+			Assert.assertEquals(best, nearest.location().distance(target));
+		}
+		Assert.assertNull(fl.nearest("chrX", new Location(0, 10), true));
+	}
+
+	@Test
+	public void testAnnotate() {
+		Random random = new Random(7);
+		FeatureList fl = randomFeatures(random, 2000);
+		List<Location> reads = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			reads.add(randomLocation(random));
+		}
+		List<List<FeatureI>> annotations = fl.annotate("chr1", reads, true, null);
+		Assert.assertEquals(reads.size(), annotations.size());
+		for (int i = 0; i < reads.size(); i += 100) {
+			Assert.assertEquals(scan(fl, "chr1", reads.get(i), true), annotations.get(i));
+		}
+		Assert.assertEquals(annotations, fl.annotate("chr1", reads, true, ExecutionContext.forkJoin(4)));
+	}
 }
@@ -0,0 +1,195 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.genome.parsers.gff.Feature;
+import org.biojava.nbio.genome.parsers.gff.FeatureI;
+import org.biojava.nbio.genome.parsers.gff.FeatureList;
+import org.biojava.nbio.genome.parsers.gff.GFF3Reader;
+import org.biojava.nbio.genome.parsers.gff.StreamingGFFReader;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StreamingGFFReaderTest {
+
+	private static final Path VOLVOX = Paths.get("src/test/resources/volvox.gff3");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Runs the tasks in the submitting thread, so that they are done when submit returns.
+	 */
+	private static class DirectExecutor extends AbstractExecutorService {
+		@Override
+		public void execute(Runnable command) {
+			command.run();
+		}
+
+		@Override
+		public void shutdown() {
+		}
+
+		@Override
+		public List<Runnable> shutdownNow() {
+			return new ArrayList<>();
+		}
+
+		@Override
+		public boolean isShutdown() {
+			return false;
+		}
+
+		@Override
+		public boolean isTerminated() {
+			return false;
+		}
+
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) {
+			return true;
+		}
+	}
+
+	private Path repeatedVolvox(int times) throws IOException {
+		List<String> lines = Files.readAllLines(VOLVOX);
+		List<String> repeated = new ArrayList<>();
+		for (int i = 0; i < times; i++) {
+			repeated.addAll(lines.subList(0, lines.indexOf("##fasta")));
+		}
+		Path path = folder.newFile().toPath();
+		Files.write(path, repeated);
+		return path;
+	}
+
+	private static List<String> describe(List<FeatureI> features) {
+		List<String> lines = new ArrayList<>();
+		for (FeatureI f : features) {
+			lines.add(f.toString() + '\t' + f.location().bioStrand() + '\t' + f.getAttributes());
+		}
+		return lines;
+	}
+
+	@Test
+	public void testGFF3() throws IOException {
+		FeatureList features = GFF3Reader.read(VOLVOX);
+		// the features before the ##fasta directive
+		assertEquals(726, features.size());
+
+		FeatureI first = features.get(0);
+		assertEquals("ctgA", first.seqname());
+		assertEquals("contig", first.type());
+		assertEquals(1, first.location().bioStart());
+		assertEquals(50000, first.location().bioEnd());
+		assertEquals("ctgA", first.getAttribute("Name"));
+		// the names are shared between the features
+		assertSame(first.seqname(), features.get(1).seqname());
+
+		List<FeatureI> streamed = new ArrayList<>();
+		new StreamingGFFReader(StreamingGFFReader.Format.GFF3).read(VOLVOX, streamed::add);
+		assertEquals(describe(features), describe(streamed));
+
+		List<FeatureI> iterated = new ArrayList<>();
+		try (BufferedReader br = Files.newBufferedReader(VOLVOX)) {
+			Iterator<FeatureI> it = new StreamingGFFReader(StreamingGFFReader.Format.GFF3).iterator(br);
+			it.forEachRemaining(iterated::add);
+		}
+		assertEquals(describe(features), describe(iterated));
+	}
+
+	@Test
+	public void testParallel() throws IOException {
+		// enough lines for several tasks
+		Path path = repeatedVolvox(20);
+
+		List<String> indexes = Arrays.asList("Name");
+		FeatureList sequential = GFF3Reader.read(path, indexes);
+		FeatureList parallel = GFF3Reader.read(path, indexes, ExecutionContext.forkJoin(4));
+		assertEquals(20 * 726, parallel.size());
+		assertEquals(describe(sequential), describe(parallel));
+		assertEquals(20, parallel.selectByAttribute("Name", "EDEN").size());
+	}
+
+	@Test
+	public void testParallelBatchesDoneWhenSubmitted() throws IOException {
+		// every batch is done before the parsed batches are drained
+		Path path = repeatedVolvox(20);
+		FeatureList sequential = GFF3Reader.read(path, null);
+		FeatureList parallel = GFF3Reader.read(path, null, new ExecutionContext(new DirectExecutor()));
+		assertEquals(describe(sequential), describe(parallel));
+	}
+
+	@Test
+	public void testFormats() throws IOException {
+		StreamingGFFReader gff3 = new StreamingGFFReader(StreamingGFFReader.Format.GFF3);
+		assertNull(gff3.parseLine("  # a comment"));
+		assertNull(gff3.parseLine("   "));
+
+		// a start after the end is reversed
+		Feature f = gff3.parseLine("chr1\tglimmer\tCDS\t300\t100\t.\t-\t0\tID=cds1;Name=a # comment\textra");
+		assertEquals(100, f.location().bioStart());
+		assertEquals(300, f.location().bioEnd());
+		assertTrue(f.location().isNegative());
+		assertEquals(0.0, f.score(), 0.0);
+		assertEquals(0, f.frame());
+		assertEquals("ID=cds1;Name=a ", f.attributes());
+		assertEquals("a", f.getAttribute("Name"));
+
+		String gtf = "chr1\tGeneMark\texon\t10\t20\t1.5\t+\t.\tgene_id \"g1\"; transcript_id \"t1\";\tnote # comment";
+		f = new StreamingGFFReader(StreamingGFFReader.Format.GENEMARK_GTF).parseLine(gtf);
+		assertEquals(1.5, f.score(), 0.0);
+		assertEquals(-1, f.frame());
+		assertEquals("gene_id \"g1\"; transcript_id \"t1\";\tnote ", f.attributes());
+		assertEquals("t1", f.getAttribute("transcript_id"));
+
+		f = new StreamingGFFReader(StreamingGFFReader.Format.GENEID_GFF2).parseLine("chr1\tgeneid_v1.2\tFirst\t10\t20\t.\t+\t0\tchr1_1");
+		assertFalse(f.location().isNegative());
+		assertEquals("chr1_1", f.getAttribute("gene_id"));
+
+		// nothing is read after the sequences
+		String file = "chr1\ts\tgene\t1\t10\t.\t+\t.\tID=1\n##fasta\n>chr1\nACGT\n";
+		List<FeatureI> features = new ArrayList<>();
+		gff3.read(new BufferedReader(new StringReader(file)), features::add);
+		assertEquals(1, features.size());
+		assertFalse(new StreamingGFFReader(StreamingGFFReader.Format.GENEMARK_GTF).iterator(new BufferedReader(new StringReader("#\n"))).hasNext());
+	}
+}
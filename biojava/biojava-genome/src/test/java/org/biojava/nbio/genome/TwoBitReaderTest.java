@@ -0,0 +1,243 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.biojava.nbio.genome.parsers.twobit.TwoBitParser;
+import org.biojava.nbio.genome.parsers.twobit.TwoBitReader;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TwoBitReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private Map<String, String> sequences;
+
+	@Before
+	public void setUp() {
+		sequences = new LinkedHashMap<>();
+		Random random = new Random(3);
+		for (int s = 0; s < 3; s++) {
+			StringBuilder sb = new StringBuilder();
+			int length = 1000 + random.nextInt(1000) + s;
+			while (sb.length() < length) {
+				int run = 1 + random.nextInt(40);
+				int kind = random.nextInt(4);
+				for (int i = 0; i < run; i++) {
+					char base = "ACGT".charAt(random.nextInt(4));
+					if (kind == 0) {
+						base = 'N';
+					}
+					if (kind == 1 || random.nextInt(50) == 0) {
+						base = Character.toLowerCase(base);
+					}
+					sb.append(base);
+				}
+			}
+			sequences.put("chr" + (s + 1), sb.toString());
+		}
+	}
+
+	/**
+	 * Writes the sequences in a .2bit file.
+	 */
+	private Path write(ByteOrder order) throws IOException {
+		List<byte[]> records = new ArrayList<>();
+		int indexSize = 16;
+		for (String name : sequences.keySet()) {
+			indexSize += 1 + name.length() + 4;
+		}
+		ByteBuffer header = ByteBuffer.allocate(indexSize).order(order);
+		header.putInt(0x1A412743).putInt(0).putInt(sequences.size()).putInt(0);
+		int offset = indexSize;
+		for (Map.Entry<String, String> entry : sequences.entrySet()) {
+			byte[] record = record(entry.getValue(), order);
+			header.put((byte) entry.getKey().length()).put(entry.getKey().getBytes()).putInt(offset);
+			offset += record.length;
+			records.add(record);
+		}
+		Path path = folder.newFile().toPath();
+		Files.write(path, header.array());
+		for (byte[] record : records) {
+			Files.write(path, record, StandardOpenOption.APPEND);
+		}
+		return path;
+	}
+
+	private static byte[] record(String seq, ByteOrder order) {
+		List<int[]> nBlocks = blocks(seq, true);
+		List<int[]> maskBlocks = blocks(seq, false);
+		ByteBuffer b = ByteBuffer.allocate(16 + 8 * (nBlocks.size() + maskBlocks.size()) + (seq.length() + 3) / 4)
+				.order(order);
+		b.putInt(seq.length()).putInt(nBlocks.size());
+		for (int[] block : nBlocks) {
+			b.putInt(block[0]);
+		}
+		for (int[] block : nBlocks) {
+			b.putInt(block[1] - block[0]);
+		}
+		b.putInt(maskBlocks.size());
+		for (int[] block : maskBlocks) {
+			b.putInt(block[0]);
+		}
+		for (int[] block : maskBlocks) {
+			b.putInt(block[1] - block[0]);
+		}
+		b.putInt(0);
+		for (int i = 0; i < seq.length(); i += 4) {
+			int packed = 0;
+			for (int j = 0; j < 4; j++) {
+				int code = i + j < seq.length() ? "TCAG".indexOf(Character.toUpperCase(seq.charAt(i + j))) : 0;
+				packed = packed << 2 | Math.max(code, 0);
+			}
+			b.put((byte) packed);
+		}
+		return b.array();
+	}
+
+	private static List<int[]> blocks(String seq, boolean n) {
+		List<int[]> blocks = new ArrayList<>();
+		for (int i = 0; i < seq.length(); i++) {
+			char c = seq.charAt(i);
+			if (n ? Character.toUpperCase(c) == 'N' : Character.isLowerCase(c)) {
+				if (blocks.isEmpty() || blocks.get(blocks.size() - 1)[1] != i) {
+					blocks.add(new int[] { i, i + 1 });
+				} else {
+					blocks.get(blocks.size() - 1)[1] = i + 1;
+				}
+			}
+		}
+		return blocks;
+	}
+
+	@Test
+	public void testWindows() throws Exception {
+		for (ByteOrder order : new ByteOrder[] { ByteOrder.LITTLE_ENDIAN, ByteOrder.BIG_ENDIAN }) {
+			File file = write(order).toFile();
+			TwoBitReader reader = new TwoBitReader(file.toPath());
+			TwoBitParser parser = new TwoBitParser(file);
+			assertArrayEquals(parser.getSequenceNames(), reader.getSequenceNames());
+
+			Random random = new Random(5);
+			for (String name : reader.getSequenceNames()) {
+				String seq = sequences.get(name);
+				assertEquals(seq.length(), reader.getSequenceLength(name));
+				assertEquals(seq, reader.getSequence(name, 0, seq.length()));
+				assertEquals(seq.toUpperCase(), reader.getDNASequence(name, 0, seq.length()).getSequenceAsString());
+
+				for (int i = 0; i < 200; i++) {
+					int start = random.nextInt(seq.length());
+					int end = start + random.nextInt(Math.min(100, seq.length() - start + 1));
+					String window = reader.getSequence(name, start, end);
+					assertEquals(seq.substring(start, end), window);
+					// as the TwoBitFacade used it
+					parser.setCurrentSequence(name);
+					assertEquals(parser.loadFragment(start, end - start), window);
+					parser.close();
+					assertEquals(window.toUpperCase(), reader.getSequence(name, start, end, false));
+					assertEquals(Character.toUpperCase(seq.charAt(start)) == 'N', reader.isN(name, start));
+					assertEquals(Character.isLowerCase(seq.charAt(start)), reader.isMasked(name, start));
+				}
+			}
+			parser.closeParser();
+		}
+	}
+
+	@Test
+	public void testPacked() throws IOException {
+		TwoBitReader reader = new TwoBitReader(write(ByteOrder.LITTLE_ENDIAN));
+		String seq = sequences.get("chr2");
+		for (int start = 0; start < 9; start++) {
+			for (int end = start; end < start + 14; end++) {
+				byte[] packed = reader.getPackedSequence("chr2", start, end);
+				assertEquals((end - start + 3) / 4, packed.length);
+				byte[] expected = record(seq.substring(start, end), ByteOrder.LITTLE_ENDIAN);
+				for (int i = 0; i < packed.length; i++) {
+					// the packed bases are at the end of the record
+					assertEquals(expected[expected.length - packed.length + i], packed[i]);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConcurrentWindows() throws Exception {
+		TwoBitReader reader = new TwoBitReader(write(ByteOrder.LITTLE_ENDIAN));
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				int seed = t;
+				futures.add(executor.submit(() -> {
+					Random random = new Random(seed);
+					for (int i = 0; i < 2000; i++) {
+						String name = "chr" + (1 + random.nextInt(3));
+						String seq = sequences.get(name);
+						int start = random.nextInt(seq.length() - 50);
+						if (!seq.substring(start, start + 50).equals(reader.getSequence(name, start, start + 50))) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		} catch (ExecutionException e) {
+			throw new AssertionError(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownSequence() throws IOException {
+		TwoBitReader reader = new TwoBitReader(write(ByteOrder.LITTLE_ENDIAN));
+		assertFalse(reader.hasSequence("chrX"));
+		reader.getSequence("chrX", 0, 10);
+	}
+}
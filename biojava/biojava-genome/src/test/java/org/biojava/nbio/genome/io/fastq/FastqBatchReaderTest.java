@@ -0,0 +1,305 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.genome.io.fastq;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for FastqBatchReader and FastqBatch.
+ */
+public final class FastqBatchReaderTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static File resource(final String name) throws Exception
+	{
+		return new File(FastqBatchReaderTest.class.getResource(name).toURI());
+	}
+
+	private static FastqReader reader(final FastqVariant variant)
+	{
+		switch (variant)
+		{
+		case FASTQ_SOLEXA:
+			return new SolexaFastqReader();
+		case FASTQ_ILLUMINA:
+			return new IlluminaFastqReader();
+		default:
+			return new SangerFastqReader();
+		}
+	}
+
+	private static String describe(final Fastq fastq)
+	{
+		return fastq.getDescription() + "\n" + fastq.getSequence() + "\n" + fastq.getQuality() + "\n" + fastq.getVariant();
+	}
+
+	/**
+	 * Read the records of a file with the streaming parser, or the exception it throws.
+	 */
+	private static List<String> readStreaming(final File file, final FastqVariant variant)
+	{
+		List<String> records = new ArrayList<String>();
+		try
+		{
+			for (Fastq fastq : reader(variant).read(file))
+			{
+				records.add(describe(fastq));
+			}
+		}
+		catch (IOException e)
+		{
+			records.add("IOException");
+		}
+		return records;
+	}
+
+	/**
+	 * Read the records of a file in small batches, or the exception thrown.
+	 */
+	private static List<String> readBatches(final File file, final FastqVariant variant)
+	{
+		List<String> records = new ArrayList<String>();
+		try (FastqBatchReader reader = FastqBatchReader.open(file.toPath(), variant))
+		{
+			FastqBatch batch = new FastqBatch(3);
+			while (reader.read(batch))
+			{
+				for (int i = 0; i < batch.size(); i++)
+				{
+					records.add(describe(batch.toFastq(i)));
+				}
+			}
+		}
+		catch (IOException e)
+		{
+			records.add("IOException");
+		}
+		return records;
+	}
+
+	@Test
+	public void testSameRecordsAsStreamingParser() throws Exception
+	{
+		List<String> names = new ArrayList<String>();
+		for (String name : AbstractFastqReaderTest.ERROR_EXAMPLES)
+		{
+			names.add(name);
+		}
+		String[] examples = { "bug2335.fastq", "empty.fastq", "evil_wrapping.fastq", "example.fastq",
+				"illumina_full_range_as_illumina.fastq", "longreads_original_sanger.fastq", "misc_dna_original_sanger.fastq",
+				"misc_rna_original_sanger.fastq", "multiple-wrapped-quality.fastq", "sanger_93.fastq",
+				"sanger_full_range_as_sanger.fastq", "sanger-invalid-description.fastq", "sanger-invalid-repeat-description.fastq",
+				"solexa_full_range_as_solexa.fastq", "tricky.fastq", "wrapped-quality.fastq", "wrapped-sequence.fastq",
+				"wrapping_issues.fastq", "wrapping_original_sanger.fastq" };
+		for (String name : examples)
+		{
+			names.add(name);
+		}
+		for (String name : names)
+		{
+			File file = resource(name);
+			for (FastqVariant variant : FastqVariant.values())
+			{
+				List<String> expected = readStreaming(file, variant);
+				List<String> batches = readBatches(file, variant);
+				// both fail, though not necessarily after the same records
+				if (expected.contains("IOException"))
+				{
+					assertTrue(name + " " + variant, batches.contains("IOException"));
+				}
+				else
+				{
+					assertEquals(name + " " + variant, expected, batches);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testQualityScoresAndConvert() throws Exception
+	{
+		File file = resource("sanger_full_range_as_sanger.fastq");
+		List<Fastq> expected = new ArrayList<Fastq>();
+		for (Fastq fastq : new SangerFastqReader().read(file))
+		{
+			expected.add(fastq);
+		}
+		try (FastqBatchReader reader = FastqBatchReader.open(file.toPath(), FastqVariant.FASTQ_SANGER))
+		{
+			FastqBatch batch = new FastqBatch();
+			assertTrue(reader.read(batch));
+			assertEquals(expected.size(), batch.size());
+			for (int i = 0; i < batch.size(); i++)
+			{
+				int length = batch.getSequenceLength(i);
+				byte[] qualityScores = batch.qualityScores(i, new byte[length + 10]);
+				int[] expectedScores = FastqTools.qualityScores(expected.get(i), new int[length]);
+				for (int j = 0; j < length; j++)
+				{
+					assertEquals(expectedScores[j], qualityScores[j]);
+				}
+			}
+			// converted in turn, as the solexa qualities are lossy
+			List<Fastq> converted = new ArrayList<Fastq>(expected);
+			for (FastqVariant variant : new FastqVariant[] { FastqVariant.FASTQ_SOLEXA, FastqVariant.FASTQ_ILLUMINA, FastqVariant.FASTQ_SANGER })
+			{
+				batch.convert(variant);
+				assertEquals(variant, batch.getVariant());
+				for (int i = 0; i < batch.size(); i++)
+				{
+					converted.set(i, FastqTools.convert(converted.get(i), variant));
+					assertEquals(describe(converted.get(i)), describe(batch.toFastq(i)));
+				}
+			}
+			assertFalse(reader.read(batch));
+		}
+	}
+
+	@Test
+	public void testGzippedParallel() throws Exception
+	{
+		File file = resource("longreads_original_sanger.fastq");
+		int count = 0;
+		for (@SuppressWarnings("unused") Fastq fastq : new SangerFastqReader().read(file))
+		{
+			count++;
+		}
+
+		// enough records for several batches
+		Path gzipped = folder.newFile("reads.fastq.gz").toPath();
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipped)))
+		{
+			for (int i = 0; i < 2000; i++)
+			{
+				out.write(bytes);
+			}
+		}
+
+		AtomicInteger records = new AtomicInteger();
+		AtomicInteger batches = new AtomicInteger();
+		try (FastqBatchReader reader = FastqBatchReader.open(gzipped, FastqVariant.FASTQ_SANGER))
+		{
+			reader.forEach(ExecutionContext.forkJoin(2), batch -> {
+				batches.incrementAndGet();
+				records.addAndGet(batch.size());
+			});
+		}
+		assertEquals(2000 * count, records.get());
+		assertTrue(batches.get() > 1);
+	}
+
+	@Test
+	public void testCancelWhileConsumersAreBlocked() throws Exception
+	{
+		// many more batches than the reader allocates
+		Path path = folder.newFile("many.fastq").toPath();
+		try (OutputStream out = Files.newOutputStream(path))
+		{
+			for (int i = 0; i < 64 * FastqBatch.DEFAULT_CAPACITY; i++)
+			{
+				out.write(("@r" + i + "\nACGT\n+\nIIII\n").getBytes("US-ASCII"));
+			}
+		}
+
+		// one thread and room for all the batches, so the tasks behind the blocked one stay queued
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		ExecutorService main = Executors.newSingleThreadExecutor();
+		ExecutionContext context = new ExecutionContext(executor, 1000);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try
+		{
+			Future<Void> reading = main.submit(() -> {
+				try (FastqBatchReader reader = FastqBatchReader.open(path, FastqVariant.FASTQ_SANGER))
+				{
+					reader.forEach(context, batch -> {
+						started.countDown();
+						// ignores the interrupt of cancel(), as a consumer stuck in I/O would
+						boolean interrupted = false;
+						while (release.getCount() > 0)
+						{
+							try
+							{
+								release.await();
+							}
+							catch (InterruptedException e)
+							{
+								interrupted = true;
+							}
+						}
+						if (interrupted)
+						{
+							Thread.currentThread().interrupt();
+						}
+					});
+				}
+				return null;
+			});
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+			// lets the reader queue its batches and wait for a free one
+			Thread.sleep(200);
+			context.cancel();
+			try
+			{
+				reading.get(10, TimeUnit.SECONDS);
+				fail("Expected a CancellationException");
+			}
+			catch (ExecutionException e)
+			{
+				assertTrue(e.getCause() instanceof CancellationException);
+			}
+		}
+		finally
+		{
+			release.countDown();
+			main.shutdownNow();
+			executor.shutdownNow();
+		}
+	}
+}
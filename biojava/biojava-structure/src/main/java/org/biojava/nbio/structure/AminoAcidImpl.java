@@ -164,6 +164,7 @@ public class AminoAcidImpl extends HetatomImpl implements AminoAcid {
 		n.setResidueNumber(getResidueNumber());
 
 		n.setPDBName(getPDBName());
+		n.setId(getId());
 
 		n.setAminoType(getAminoType());
 		n.setRecordType(recordType);
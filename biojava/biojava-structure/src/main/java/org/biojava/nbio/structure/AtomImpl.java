@@ -271,6 +271,7 @@ public class AtomImpl implements Atom {
 	 */
 	@Override
 	public List<Bond> getBonds() {
+		completeBonds();
 		return bonds;
 	}
 
@@ -279,6 +280,7 @@ public class AtomImpl implements Atom {
 	 */
 	@Override
 	public boolean hasBond(Atom other){
+		completeBonds();
 		if ( bonds == null)
 			return false;
 
@@ -289,6 +291,19 @@ public class AtomImpl implements Atom {
 		return false;
 	}
 
+	/**
+	 * Creates the bonds of the structure if the parser deferred them.
+	 */
+	private void completeBonds() {
+		if (parent == null || parent.getChain() == null) {
+			return;
+		}
+		Structure structure = parent.getChain().getStructure();
+		if (structure instanceof StructureImpl) {
+			((StructureImpl) structure).completeBonds();
+		}
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
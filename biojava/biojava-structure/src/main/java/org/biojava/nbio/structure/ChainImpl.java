@@ -133,7 +133,7 @@ public class ChainImpl implements Chain {
 			g.setChain(n);
 		}
 
-		if (seqResGroups!=null){
+		if (seqResGroups()!=null){
 
 			List<Group> tmpSeqRes = new ArrayList<>();
 
@@ -349,7 +349,7 @@ public class ChainImpl implements Chain {
 	@Override
 	public int getSeqResLength() {
 		//new method returns the length of the sequence defined in the SEQRES records
-		return seqResGroups.size();
+		return seqResGroups().size();
 	}
 
 	@Override
@@ -411,7 +411,7 @@ public class ChainImpl implements Chain {
 	public String getSeqResSequence(){
 
 		StringBuilder str = new StringBuilder();
-		for (Group g : seqResGroups) {
+		for (Group g : seqResGroups()) {
 			ChemComp cc = g.getChemComp();
 			if ( cc == null) {
 				logger.warn("Could not load ChemComp for group: {}", g);
@@ -442,7 +442,7 @@ public class ChainImpl implements Chain {
 	public String getSeqResOneLetterSeq(){
 
 		StringBuilder str = new StringBuilder();
-		for (Group g : seqResGroups) {
+		for (Group g : seqResGroups()) {
 			ChemComp cc = g.getChemComp();
 			if ( cc == null) {
 				logger.warn("Could not load ChemComp for group: {}", g);
@@ -465,13 +465,13 @@ public class ChainImpl implements Chain {
 
 	@Override
 	public Group getSeqResGroup(int position) {
-		return seqResGroups.get(position);
+		return seqResGroups().get(position);
 	}
 
 	@Override
 	public List<Group> getSeqResGroups(GroupType type) {
 		List<Group> tmp = new ArrayList<>() ;
-		for (Group g : seqResGroups) {
+		for (Group g : seqResGroups()) {
 			if (g.getType().equals(type)) {
 				tmp.add(g);
 			}
@@ -482,6 +482,16 @@ public class ChainImpl implements Chain {
 
 	@Override
 	public List<Group> getSeqResGroups() {
+		return seqResGroups();
+	}
+
+	/**
+	 * The SEQRES groups, once aligned to the atom groups if the parser deferred the alignment.
+	 */
+	private List<Group> seqResGroups() {
+		if (parent instanceof StructureImpl) {
+			((StructureImpl) parent).completeSeqResAlignment();
+		}
 		return seqResGroups;
 	}
 
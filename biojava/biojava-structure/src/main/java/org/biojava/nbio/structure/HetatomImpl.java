@@ -407,6 +407,8 @@ public class HetatomImpl implements Group {
 		n.setResidueNumber(residueNumber);
 
 		n.setPDBName(getPDBName());
+		// the internal residue number, used by the deferred SEQRES alignment of a clone
+		n.setId(getId());
 
 		//clone atoms and bonds.
 		cloneAtomsAndBonds(n);
@@ -100,6 +100,7 @@ public class NucleotideImpl extends HetatomImpl {
 		n.setResidueNumber(getResidueNumber());
 
 		n.setPDBName(getPDBName());
+		n.setId(getId());
 
 		//clone atoms and bonds.
 		cloneAtomsAndBonds(n);
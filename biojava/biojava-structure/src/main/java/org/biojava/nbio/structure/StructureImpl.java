@@ -23,9 +23,13 @@
  */
 package org.biojava.nbio.structure;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 import org.biojava.nbio.structure.io.FileConvert;
 import org.slf4j.Logger;
@@ -63,6 +67,66 @@ public class StructureImpl implements Structure {
 
 	private boolean biologicalAssembly;
 
+	/**
+	 * The bond perception and SEQRES alignment deferred by the parser to their first use,
+	 * null when there is nothing left to do
+	 */
+	private transient volatile DeferredTask deferredBonds;
+	private transient volatile DeferredTask deferredSeqRes;
+
+	/**
+	 * Work on a structure that is done the first time its result is needed, by
+	 * one thread, while the others wait for it.
+	 */
+	private static class DeferredTask {
+		private final Consumer<Structure> task;
+		/** Whether the task can be applied to a clone of the structure instead */
+		private final boolean transferable;
+		/** The thread that runs the task, or clones the structure without running it */
+		private Thread owner;
+		private boolean done;
+
+		DeferredTask(Consumer<Structure> task, boolean transferable) {
+			this.task = task;
+			this.transferable = transferable;
+		}
+
+		/**
+		 * Runs the task, unless it is done or the current thread is already running it.
+		 * @return true if the task is done
+		 */
+		synchronized boolean run(Structure structure) {
+			if (done) {
+				return true;
+			}
+			if (owner == Thread.currentThread()) {
+				return false;
+			}
+			owner = Thread.currentThread();
+			try {
+				task.accept(structure);
+			} finally {
+				owner = null;
+				// failures are not retried on every access
+				done = true;
+			}
+			return true;
+		}
+
+		/**
+		 * Gets a value without running the task when the getter needs its result.
+		 */
+		synchronized <T> T suspend(Supplier<T> getter) {
+			Thread previous = owner;
+			owner = Thread.currentThread();
+			try {
+				return getter.get();
+			} finally {
+				owner = previous;
+			}
+		}
+	}
+
 	/**
 	 *  Constructs a StructureImpl object.
 	 */
@@ -108,10 +172,43 @@ public class StructureImpl implements Structure {
 	 */
 	@Override
 	public Structure clone() {
+		// the deferred work is not done for the copy: the clone does it on its own atoms, when needed
+		DeferredTask bonds = deferredBonds;
+		DeferredTask seqRes = deferredSeqRes;
+		if (bonds != null && !bonds.transferable) {
+			completeBonds();
+			bonds = null;
+		}
+		if (seqRes != null && !seqRes.transferable) {
+			completeSeqResAlignment();
+			seqRes = null;
+		}
+		Supplier<StructureImpl> copy = this::cloneStructure;
+		if (bonds != null) {
+			Supplier<StructureImpl> inner = copy;
+			DeferredTask b = bonds;
+			copy = () -> b.suspend(inner);
+		}
+		if (seqRes != null) {
+			Supplier<StructureImpl> inner = copy;
+			DeferredTask r = seqRes;
+			copy = () -> r.suspend(inner);
+		}
+		StructureImpl n = copy.get();
+		if (bonds != null && deferredBonds != null) {
+			n.deferredBonds = new DeferredTask(bonds.task, true);
+		}
+		if (seqRes != null && deferredSeqRes != null) {
+			n.deferredSeqRes = new DeferredTask(seqRes.task, true);
+		}
+		return n;
+	}
+
+	private StructureImpl cloneStructure() {
 		// Note: structures are also cloned in SubstructureIdentifier.reduce().
 		// Changes might need to be made there as well
 
-		Structure n = new StructureImpl();
+		StructureImpl n = new StructureImpl();
 		// go through whole substructure and clone ...
 
 		// copy structure data
@@ -871,6 +968,7 @@ public class StructureImpl implements Structure {
 	/** {@inheritDoc} */
 	@Override
 	public List<Bond> getSSBonds(){
+		completeBonds();
 		return ssbonds;
 
 	}
@@ -1090,4 +1188,97 @@ public class StructureImpl implements Structure {
 		return new SubstructureIdentifier(getPdbId(),range);
 	}
 
+
+	/**
+	 * Defers the creation of the bonds until they are first accessed, through
+	 * {@link Atom#getBonds()}, {@link Atom#hasBond(Atom)} or {@link #getSSBonds()}.
+	 * Used by the parsers in lazy mode, see
+	 * {@link org.biojava.nbio.structure.io.FileParsingParameters#setLazy(boolean)}.
+	 * <p>
+	 * The bond maker is applied to this structure, or to each {@link #clone()}
+	 * taken before the bonds are created, so it must only depend on the
+	 * structure it is given.
+	 * @param bondMaker creates the bonds of the given structure
+	 * @since 6.0.6
+	 */
+	public void setDeferredBonds(Consumer<Structure> bondMaker) {
+		deferredBonds = bondMaker == null ? null : new DeferredTask(bondMaker, true);
+	}
+
+	/**
+	 * Defers the alignment of the SEQRES groups to the ATOM groups until the
+	 * SEQRES groups of a chain are first accessed.
+	 * <p>
+	 * As for the bonds, the aligner is applied to this structure, or to each
+	 * {@link #clone()} taken before the alignment, so that structures kept in a
+	 * {@link org.biojava.nbio.structure.align.util.StructureCache} are aligned
+	 * on first use too.
+	 * @param aligner sets the SEQRES groups of the chains of the given structure
+	 * @since 6.0.6
+	 */
+	public void setDeferredSeqResAlignment(Consumer<Structure> aligner) {
+		deferredSeqRes = aligner == null ? null : new DeferredTask(aligner, true);
+	}
+
+	/**
+	 * @return true if the bonds deferred by {@link #setDeferredBonds(Consumer)}
+	 * are not created yet
+	 * @since 6.0.6
+	 */
+	public boolean isBondsDeferred() {
+		return deferredBonds != null;
+	}
+
+	/**
+	 * @return true if the SEQRES alignment deferred by
+	 * {@link #setDeferredSeqResAlignment(Consumer)} is not done yet
+	 * @since 6.0.6
+	 */
+	public boolean isSeqResAlignmentDeferred() {
+		return deferredSeqRes != null;
+	}
+
+	/**
+	 * Creates the bonds deferred by {@link #setDeferredBonds(Consumer)} now, if
+	 * they were not created yet.
+	 * @since 6.0.6
+	 */
+	public void completeBonds() {
+		DeferredTask task = deferredBonds;
+		if (task != null && task.run(this)) {
+			deferredBonds = null;
+		}
+	}
+
+	/**
+	 * Aligns the SEQRES groups deferred by {@link #setDeferredSeqResAlignment(Consumer)}
+	 * now, if they were not aligned yet.
+	 * @since 6.0.6
+	 */
+	public void completeSeqResAlignment() {
+		DeferredTask task = deferredSeqRes;
+		if (task != null && task.run(this)) {
+			deferredSeqRes = null;
+		}
+	}
+
+	/**
+	 * Makes the work deferred in a structure whose groups are shared with this
+	 * structure, as in {@link SubstructureIdentifier#reduce(Structure)}, run
+	 * on first access through this structure.
+	 */
+	void shareDeferred(StructureImpl source) {
+		if (source.deferredBonds != null) {
+			deferredBonds = new DeferredTask(s -> source.completeBonds(), false);
+		}
+		if (source.deferredSeqRes != null) {
+			deferredSeqRes = new DeferredTask(s -> source.completeSeqResAlignment(), false);
+		}
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		completeSeqResAlignment();
+		completeBonds();
+		out.defaultWriteObject();
+	}
 }
@@ -207,6 +207,10 @@ public class SubstructureIdentifier implements StructureIdentifier {
 
 		// Create new structure & copy basic properties
 		Structure newS = new StructureImpl();
+		if (s instanceof StructureImpl) {
+			// the chains and groups are shared, so is the work deferred by the parser
+			((StructureImpl) newS).shareDeferred((StructureImpl) s);
+		}
 
 		newS.setPdbId(s.getPdbId());
 		newS.setPDBHeader(s.getPDBHeader());
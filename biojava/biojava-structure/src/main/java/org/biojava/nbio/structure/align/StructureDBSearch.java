@@ -0,0 +1,493 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIdentifier;
+import org.biojava.nbio.structure.align.ce.ConfigStrucAligParams;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AFPChainScorer;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aligns a query structure against a database of target structures, for example a representative set of PDB chains
+ * or SCOP/CATH domains, with any algorithm of the {@link StructureAlignmentFactory}.
+ * <p>
+ * The atoms of the targets are loaded from an {@link AtomCache} by a separate loader thread, a few targets ahead of
+ * the alignments, which run as {@link CallableStructureAlignment}s in an {@link ExecutionContext}.  Only the best
+ * hits are kept, ranked by TM-score or by the probability reported by the algorithm.
+ * <p>
+ * When a checkpoint file is set, every finished target is written to it, and targets found in the file are not
+ * aligned again, so that an interrupted search can be resumed by running it again with the same file.  Hits read
+ * from the checkpoint have their scores, but no {@link AFPChain}.
+ * <p>
+ * With a {@link StructureFragmentIndex} as pre-filter, only the targets of the index most similar to the query are
+ * aligned.
+ * <pre>
+ * StructureDBSearch search = new StructureDBSearch(new StructureName("4hhb.A"), targets, CeMain.algorithmName,
+ * 		new AtomCache());
+ * search.setMaxHits(50);
+ * search.setCheckpointFile(new File("4hhb.A.tsv"));
+ * for (StructureDBSearch.Hit hit : search.run()) {
+ * 	System.out.println(hit);
+ * }
+ * </pre>
+ *
+ * @since 6.0.6
+ */
+public class StructureDBSearch {
+
+	private final static Logger logger = LoggerFactory.getLogger(StructureDBSearch.class);
+
+	/**
+	 * The score by which hits are ranked.
+	 */
+	public enum Ranking {
+		/** The TM-score of the alignment, normalized by the shorter structure.  Higher is better. */
+		TM_SCORE,
+		/** The probability of the alignment as a Z-score, reported by CE.  Higher is better. */
+		Z_SCORE,
+		/** The probability of the alignment as a P-value, reported by FATCAT.  Lower is better. */
+		P_VALUE;
+
+		private Comparator<Hit> comparator() {
+			switch (this) {
+			case TM_SCORE:
+				return Comparator.comparingDouble(Hit::getTMScore).reversed();
+			case Z_SCORE:
+				return Comparator.comparingDouble(Hit::getProbability).reversed();
+			default:
+				return Comparator.comparingDouble(Hit::getProbability);
+			}
+		}
+	}
+
+	/**
+	 * The scores of the alignment of the query with one target.
+	 */
+	public static class Hit {
+
+		private final String identifier;
+		private final double tmScore, probability, rmsd, alignScore, identity;
+		private final int length;
+		private final AFPChain afpChain;
+
+		private Hit(String identifier, double tmScore, double probability, double rmsd, double alignScore,
+				double identity, int length, AFPChain afpChain) {
+			this.identifier = identifier;
+			this.tmScore = tmScore;
+			this.probability = probability;
+			this.rmsd = rmsd;
+			this.alignScore = alignScore;
+			this.identity = identity;
+			this.length = length;
+			this.afpChain = afpChain;
+		}
+
+		/**
+		 * @return the identifier of the target
+		 */
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		public double getTMScore() {
+			return tmScore;
+		}
+
+		public double getProbability() {
+			return probability;
+		}
+
+		public double getRmsd() {
+			return rmsd;
+		}
+
+		public double getAlignScore() {
+			return alignScore;
+		}
+
+		public double getIdentity() {
+			return identity;
+		}
+
+		/**
+		 * @return the number of aligned residues
+		 */
+		public int getLength() {
+			return length;
+		}
+
+		/**
+		 * @return the alignment, or null if the hit was read from a checkpoint
+		 */
+		public AFPChain getAFPChain() {
+			return afpChain;
+		}
+
+		private String toLine() {
+			return identifier + "\t" + tmScore + "\t" + probability + "\t" + rmsd + "\t" + alignScore + "\t"
+					+ identity + "\t" + length + "\n";
+		}
+
+		private static Hit fromLine(String line) {
+			String[] fields = line.split("\t");
+			if (fields.length != 7) {
+				throw new IllegalArgumentException("Invalid checkpoint line: " + line);
+			}
+			return new Hit(fields[0], Double.parseDouble(fields[1]), Double.parseDouble(fields[2]),
+					Double.parseDouble(fields[3]), Double.parseDouble(fields[4]), Double.parseDouble(fields[5]),
+					Integer.parseInt(fields[6]), null);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s\ttm=%.3f\tprob=%.2e\trmsd=%.2f\tlen=%d", identifier, tmScore, probability, rmsd,
+					length);
+		}
+	}
+
+	private final StructureIdentifier query;
+	private final List<StructureIdentifier> targets;
+	private final String algorithmName;
+	private final AtomCache cache;
+
+	private ConfigStrucAligParams params;
+	private Ranking ranking = Ranking.TM_SCORE;
+	private int maxHits = 100;
+	private int prefetch = 16;
+	private File checkpointFile;
+	private StructureFragmentIndex preFilter;
+	private int preFilterCandidates;
+
+	private final AtomicInteger aligned = new AtomicInteger(), failed = new AtomicInteger();
+	private int resumed;
+
+	/**
+	 * @param query the structure to search for
+	 * @param targets the structures to search in
+	 * @param algorithmName the name of the algorithm in the {@link StructureAlignmentFactory}, a new instance is
+	 * 			created for each alignment
+	 * @param cache loads the atoms of the query and the targets
+	 */
+	public StructureDBSearch(StructureIdentifier query, List<? extends StructureIdentifier> targets,
+			String algorithmName, AtomCache cache) {
+		this.query = query;
+		this.targets = new ArrayList<>(targets);
+		this.algorithmName = algorithmName;
+		this.cache = cache;
+	}
+
+	/**
+	 * @param params the parameters of the algorithm, or null for its defaults
+	 */
+	public void setParameters(ConfigStrucAligParams params) {
+		this.params = params;
+	}
+
+	public void setRanking(Ranking ranking) {
+		this.ranking = ranking;
+	}
+
+	public Ranking getRanking() {
+		return ranking;
+	}
+
+	/**
+	 * @param maxHits the number of best hits kept, 100 by default
+	 */
+	public void setMaxHits(int maxHits) {
+		if (maxHits < 1) {
+			throw new IllegalArgumentException("The number of hits must be positive");
+		}
+		this.maxHits = maxHits;
+	}
+
+	public int getMaxHits() {
+		return maxHits;
+	}
+
+	/**
+	 * @param prefetch the number of targets loaded ahead of the alignments, 16 by default
+	 */
+	public void setPrefetch(int prefetch) {
+		if (prefetch < 1) {
+			throw new IllegalArgumentException("The number of prefetched targets must be positive");
+		}
+		this.prefetch = prefetch;
+	}
+
+	public int getPrefetch() {
+		return prefetch;
+	}
+
+	/**
+	 * @param checkpointFile the file in which finished targets are recorded, or null to not keep a checkpoint
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Aligns only the targets most similar to the query in an index.  Targets which are not in the index are always
+	 * aligned.
+	 *
+	 * @param index the index of the targets, or null to align all targets
+	 * @param maxCandidates the number of targets of the index aligned
+	 */
+	public void setPreFilter(StructureFragmentIndex index, int maxCandidates) {
+		this.preFilter = index;
+		this.preFilterCandidates = maxCandidates;
+	}
+
+	/**
+	 * @return the number of targets aligned by the last run
+	 */
+	public int getAlignedCount() {
+		return aligned.get();
+	}
+
+	/**
+	 * @return the number of targets which could not be loaded or aligned in the last run
+	 */
+	public int getFailedCount() {
+		return failed.get();
+	}
+
+	/**
+	 * @return the number of targets read from the checkpoint by the last run
+	 */
+	public int getResumedCount() {
+		return resumed;
+	}
+
+	/**
+	 * Runs the search on the common fork-join pool.
+	 *
+	 * @return the best hits, best first
+	 * @throws IOException if the query or the checkpoint cannot be read
+	 * @throws StructureException if the query cannot be loaded
+	 */
+	public List<Hit> run() throws IOException, StructureException {
+		return run(ExecutionContext.forkJoin(2 * Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * Runs the search.  If the thread is interrupted, the pending alignments are cancelled and the finished ones are
+	 * kept in the checkpoint.
+	 *
+	 * @param context runs the alignments
+	 * @return the best hits, best first
+	 * @throws IOException if the query or the checkpoint cannot be read, or the checkpoint cannot be written
+	 * @throws StructureException if the query cannot be loaded
+	 * @throws CancellationException if the search was cancelled
+	 */
+	public List<Hit> run(ExecutionContext context) throws IOException, StructureException {
+		aligned.set(0);
+		failed.set(0);
+		Comparator<Hit> comparator = ranking.comparator();
+		// the worst of the best hits is the head of the queue
+		PriorityQueue<Hit> best = new PriorityQueue<>(maxHits + 1, comparator.reversed());
+
+		Atom[] ca1 = cache.getAtoms(query);
+
+		Set<String> candidates = null;
+		if (preFilter != null) {
+			candidates = new HashSet<>();
+			for (StructureFragmentIndex.Candidate candidate : preFilter.search(ca1, preFilterCandidates)) {
+				candidates.add(candidate.getIdentifier());
+			}
+		}
+		Map<String, Hit> finished = readCheckpoint();
+		resumed = finished.size();
+		for (Hit hit : finished.values()) {
+			offer(best, hit);
+		}
+		List<StructureIdentifier> remaining = new ArrayList<>();
+		for (StructureIdentifier target : targets) {
+			String id = target.getIdentifier();
+			if (finished.containsKey(id)) {
+				continue;
+			}
+			if (candidates == null || candidates.contains(id) || !preFilter.contains(id)) {
+				remaining.add(target);
+			}
+		}
+		logger.info("Aligning {} with {} targets, {} already done", query.getIdentifier(), remaining.size(),
+				resumed);
+		if (remaining.isEmpty()) {
+			return sorted(best, comparator);
+		}
+
+		// each hit is flushed, so that the checkpoint keeps all finished targets if the search is killed
+		BufferedWriter out = checkpointFile == null ? null : new BufferedWriter(new FileWriter(checkpointFile, true));
+		ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+			Thread t = new Thread(r, "StructureDBSearch-loader");
+			t.setDaemon(true);
+			return t;
+		});
+		List<Future<Void>> alignments = new ArrayList<>();
+		try {
+			Deque<Future<Atom[]>> loading = new ArrayDeque<>();
+			Iterator<StructureIdentifier> next = remaining.iterator();
+			for (StructureIdentifier target : remaining) {
+				while (loading.size() < prefetch && next.hasNext()) {
+					StructureIdentifier toLoad = next.next();
+					loading.add(loader.submit(() -> cache.getAtoms(toLoad)));
+				}
+				Atom[] ca2;
+				try {
+					ca2 = loading.poll().get();
+				} catch (ExecutionException e) {
+					logger.warn("Could not load {}: {}", target.getIdentifier(), e.getCause().getMessage());
+					failed.incrementAndGet();
+					continue;
+				}
+				alignments.add(context.submit(() -> {
+					align(target, ca1, ca2, best, out);
+					return null;
+				}, target.getIdentifier()));
+			}
+			for (Future<Void> alignment : alignments) {
+				alignment.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new CancellationException("Structure database search was interrupted");
+		} catch (CancellationException e) {
+			context.cancel();
+			throw e;
+		} catch (ExecutionException e) {
+			context.cancel();
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			loader.shutdownNow();
+			if (out != null) {
+				out.close();
+			}
+		}
+		logger.info("Aligned {} with {} targets, {} failed", query.getIdentifier(), aligned.get(), failed.get());
+		return sorted(best, comparator);
+	}
+
+	private void align(StructureIdentifier target, Atom[] ca1, Atom[] ca2, PriorityQueue<Hit> best,
+			BufferedWriter out) throws Exception {
+		CallableStructureAlignment alignment = new CallableStructureAlignment(ca1, ca2, algorithmName, params);
+		AFPChain afpChain = alignment.call();
+		if (afpChain == null) {
+			// the exception was logged by the alignment
+			failed.incrementAndGet();
+			return;
+		}
+		afpChain.setName1(query.getIdentifier());
+		afpChain.setName2(target.getIdentifier());
+		double tmScore = afpChain.getTMScore();
+		if (tmScore < 0) {
+			tmScore = AFPChainScorer.getTMScore(afpChain, ca1, ca2);
+		}
+		Hit hit = new Hit(target.getIdentifier(), tmScore, afpChain.getProbability(), afpChain.getTotalRmsdOpt(),
+				afpChain.getAlignScore(), afpChain.getIdentity(), afpChain.getOptLength(), afpChain);
+		aligned.incrementAndGet();
+		offer(best, hit);
+		if (out != null) {
+			synchronized (out) {
+				out.write(hit.toLine());
+				out.flush();
+			}
+		}
+	}
+
+	private void offer(PriorityQueue<Hit> best, Hit hit) {
+		synchronized (best) {
+			best.add(hit);
+			if (best.size() > maxHits) {
+				best.poll();
+			}
+		}
+	}
+
+	private static List<Hit> sorted(PriorityQueue<Hit> best, Comparator<Hit> comparator) {
+		List<Hit> hits = new ArrayList<>(best);
+		Collections.sort(hits, comparator);
+		return hits;
+	}
+
+	private Map<String, Hit> readCheckpoint() throws IOException {
+		Map<String, Hit> finished = new HashMap<>();
+		if (checkpointFile == null || !checkpointFile.exists()) {
+			return finished;
+		}
+		try (BufferedReader reader = new BufferedReader(new FileReader(checkpointFile))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty()) {
+					continue;
+				}
+				try {
+					Hit hit = Hit.fromLine(line);
+					finished.put(hit.getIdentifier(), hit);
+				} catch (IllegalArgumentException e) {
+					// the last line may be incomplete if the search was killed while writing it
+					logger.warn("Skipping line of checkpoint {}: {}", checkpointFile, e.getMessage());
+				}
+			}
+		}
+		return finished;
+	}
+
+}
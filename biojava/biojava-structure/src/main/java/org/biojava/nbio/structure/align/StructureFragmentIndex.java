@@ -0,0 +1,382 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIdentifier;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An inverted index of the local C-alpha geometry of many structures, to quickly find the targets of a structural
+ * database search which are worth a full alignment, as done by {@link StructureDBSearch#setPreFilter}.
+ * <p>
+ * Each structure is described by pairs of nearby fragments, as the aligned fragment pairs of FATCAT and CE:
+ * the shape of a fragment of {@value #FRAGMENT_LENGTH} residues is discretised from its internal C-alpha distances,
+ * and each pair of fragments which are close in space, but not in sequence, gives a key made of the two shapes and
+ * of the discretised distance between them.  A query is compared to all structures sharing at least one key, and
+ * scored by the Dice coefficient of their multisets of keys, which takes milliseconds for thousands of structures.
+ * <p>
+ * Structures can be added at any time, for example as new entries reach a local PDB directory, and the index can be
+ * written to a file and read back.  Queries can run concurrently with each other and with additions.
+ *
+ * @since 6.0.6
+ */
+public class StructureFragmentIndex {
+
+	private final static Logger logger = LoggerFactory.getLogger(StructureFragmentIndex.class);
+
+	/** The number of residues in a fragment. */
+	public static final int FRAGMENT_LENGTH = 6;
+
+	// fragments closer than this in sequence are not paired
+	private static final int MIN_SEPARATION = FRAGMENT_LENGTH;
+	// maximum distance between the centres of paired fragments
+	private static final double MAX_DISTANCE = 16.0;
+	private static final double SHAPE_BIN = 1.5;
+	private static final double DISTANCE_BIN = 2.0;
+
+	// 3 bits for each shape distance, 3 bits for the pair distance
+	private static final int SHAPE_BITS = 6;
+	private static final int KEY_COUNT = 1 << (2 * SHAPE_BITS + 3);
+
+	private static final int MAGIC = 0x53464931; // "SFI1"
+
+	/**
+	 * A structure of the index, with its similarity to a query.
+	 */
+	public static class Candidate {
+
+		private final String identifier;
+		private final double score;
+
+		private Candidate(String identifier, double score) {
+			this.identifier = identifier;
+			this.score = score;
+		}
+
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		/**
+		 * @return the Dice coefficient of the fragment pairs of the query and of this structure, from 0 to 1
+		 */
+		public double getScore() {
+			return score;
+		}
+
+		@Override
+		public String toString() {
+			return identifier + "\t" + score;
+		}
+	}
+
+	private final List<String> identifiers = new ArrayList<>();
+	private final Map<String, Integer> entries = new HashMap<>();
+	// number of fragment pairs of each entry
+	private int[] sizes = new int[16];
+
+	// for each key, the entries which have it and how many times, as pairs of ints
+	private final int[][] postings = new int[KEY_COUNT][];
+	private final int[] postingLengths = new int[KEY_COUNT];
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	/**
+	 * Creates an empty index.
+	 */
+	public StructureFragmentIndex() {
+	}
+
+	/**
+	 * @return the number of indexed structures
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return identifiers.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @param identifier the identifier of a structure
+	 * @return true if it is in the index
+	 */
+	public boolean contains(String identifier) {
+		lock.readLock().lock();
+		try {
+			return entries.containsKey(identifier);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a structure to the index.
+	 *
+	 * @param identifier the identifier of the structure
+	 * @param ca the representative atoms of the structure
+	 * @throws IllegalArgumentException if the identifier is already in the index
+	 */
+	public void add(String identifier, Atom[] ca) {
+		int[] keys = getKeys(ca);
+		lock.writeLock().lock();
+		try {
+			if (entries.containsKey(identifier)) {
+				throw new IllegalArgumentException(identifier + " is already in the index");
+			}
+			int entry = identifiers.size();
+			identifiers.add(identifier);
+			entries.put(identifier, entry);
+			if (entry == sizes.length) {
+				sizes = Arrays.copyOf(sizes, 2 * entry);
+			}
+			sizes[entry] = keys.length;
+			for (int k = 0; k < keys.length; ) {
+				int key = keys[k], count = 0;
+				for (; k < keys.length && keys[k] == key; k++) {
+					count++;
+				}
+				addPosting(key, entry, count);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds the structures which are not in the index yet.  Structures which cannot be loaded are skipped.
+	 *
+	 * @param ids the identifiers of the structures
+	 * @param cache loads the atoms of the structures
+	 * @return the number of added structures
+	 */
+	public int addAll(Collection<? extends StructureIdentifier> ids, AtomCache cache) {
+		int added = 0;
+		for (StructureIdentifier id : ids) {
+			if (contains(id.getIdentifier())) {
+				continue;
+			}
+			try {
+				add(id.getIdentifier(), cache.getAtoms(id));
+				added++;
+			} catch (IOException | StructureException e) {
+				logger.warn("Could not index {}: {}", id.getIdentifier(), e.getMessage());
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * Finds the structures of the index most similar to a query.
+	 *
+	 * @param ca the representative atoms of the query
+	 * @param maxCandidates the maximum number of structures returned
+	 * @return the most similar structures, best first
+	 */
+	public List<Candidate> search(Atom[] ca, int maxCandidates) {
+		int[] keys = getKeys(ca);
+		List<Candidate> candidates = new ArrayList<>();
+		lock.readLock().lock();
+		try {
+			int[] shared = new int[identifiers.size()];
+			for (int k = 0; k < keys.length; ) {
+				int key = keys[k], count = 0;
+				for (; k < keys.length && keys[k] == key; k++) {
+					count++;
+				}
+				int[] posting = postings[key];
+				for (int p = 0; p < postingLengths[key]; p += 2) {
+					shared[posting[p]] += Math.min(count, posting[p + 1]);
+				}
+			}
+			for (int entry = 0; entry < shared.length; entry++) {
+				if (shared[entry] > 0) {
+					candidates.add(new Candidate(identifiers.get(entry),
+							2.0 * shared[entry] / (keys.length + sizes[entry])));
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		candidates.sort((c1, c2) -> Double.compare(c2.getScore(), c1.getScore()));
+		return candidates.size() > maxCandidates ? new ArrayList<>(candidates.subList(0, maxCandidates)) : candidates;
+	}
+
+	/**
+	 * Writes the index to a gzip compressed file.
+	 *
+	 * @param file the file
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		lock.readLock().lock();
+		try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(file))))) {
+			out.writeInt(MAGIC);
+			out.writeInt(identifiers.size());
+			for (int entry = 0; entry < identifiers.size(); entry++) {
+				out.writeUTF(identifiers.get(entry));
+				out.writeInt(sizes[entry]);
+			}
+			for (int key = 0; key < KEY_COUNT; key++) {
+				out.writeInt(postingLengths[key]);
+				for (int p = 0; p < postingLengths[key]; p++) {
+					out.writeInt(postings[key][p]);
+				}
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Reads an index written by {@link #write(File)}.
+	 *
+	 * @param file the file
+	 * @return the index
+	 * @throws IOException if the file cannot be read or is not an index
+	 */
+	public static StructureFragmentIndex read(File file) throws IOException {
+		StructureFragmentIndex index = new StructureFragmentIndex();
+		try (DataInputStream in = new DataInputStream(
+				new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a structure fragment index");
+			}
+			int n = in.readInt();
+			index.sizes = new int[Math.max(16, n)];
+			for (int entry = 0; entry < n; entry++) {
+				String identifier = in.readUTF();
+				index.identifiers.add(identifier);
+				index.entries.put(identifier, entry);
+				index.sizes[entry] = in.readInt();
+			}
+			for (int key = 0; key < KEY_COUNT; key++) {
+				int length = in.readInt();
+				if (length > 0) {
+					index.postings[key] = new int[length];
+					for (int p = 0; p < length; p++) {
+						index.postings[key][p] = in.readInt();
+					}
+					index.postingLengths[key] = length;
+				}
+			}
+		}
+		return index;
+	}
+
+	private void addPosting(int key, int entry, int count) {
+		int[] posting = postings[key];
+		int length = postingLengths[key];
+		if (posting == null) {
+			posting = postings[key] = new int[8];
+		} else if (length == posting.length) {
+			posting = postings[key] = Arrays.copyOf(posting, 2 * length);
+		}
+		posting[length] = entry;
+		posting[length + 1] = count;
+		postingLengths[key] = length + 2;
+	}
+
+	/**
+	 * Returns the keys of all pairs of nearby fragments of a structure, sorted.
+	 */
+	static int[] getKeys(Atom[] ca) {
+		int nFragments = ca.length - FRAGMENT_LENGTH + 1;
+		if (nFragments <= 0) {
+			return new int[0];
+		}
+		double[] coords = new double[3 * ca.length];
+		for (int i = 0; i < ca.length; i++) {
+			coords[3 * i] = ca[i].getX();
+			coords[3 * i + 1] = ca[i].getY();
+			coords[3 * i + 2] = ca[i].getZ();
+		}
+		int[] shapes = new int[nFragments];
+		double[] centres = new double[3 * nFragments];
+		for (int f = 0; f < nFragments; f++) {
+			// the two internal distances distinguish helices, strands and turns
+			int d1 = bin(distance(coords, f, f + FRAGMENT_LENGTH / 2), SHAPE_BIN);
+			int d2 = bin(distance(coords, f, f + FRAGMENT_LENGTH - 1), SHAPE_BIN);
+			shapes[f] = d1 << (SHAPE_BITS / 2) | d2;
+			for (int i = f; i < f + FRAGMENT_LENGTH; i++) {
+				centres[3 * f] += coords[3 * i] / FRAGMENT_LENGTH;
+				centres[3 * f + 1] += coords[3 * i + 1] / FRAGMENT_LENGTH;
+				centres[3 * f + 2] += coords[3 * i + 2] / FRAGMENT_LENGTH;
+			}
+		}
+		int[] keys = new int[64];
+		int n = 0;
+		for (int f = 0; f < nFragments; f++) {
+			for (int g = f + MIN_SEPARATION; g < nFragments; g++) {
+				double d = distance(centres, f, g);
+				if (d >= MAX_DISTANCE) {
+					continue;
+				}
+				if (n == keys.length) {
+					keys = Arrays.copyOf(keys, 2 * n);
+				}
+				keys[n++] = (shapes[f] << SHAPE_BITS | shapes[g]) << 3 | bin(d, DISTANCE_BIN);
+			}
+		}
+		keys = Arrays.copyOf(keys, n);
+		Arrays.sort(keys);
+		return keys;
+	}
+
+	private static double distance(double[] coords, int i, int j) {
+		double dx = coords[3 * i] - coords[3 * j];
+		double dy = coords[3 * i + 1] - coords[3 * j + 1];
+		double dz = coords[3 * i + 2] - coords[3 * j + 2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	// 3 bits: distances above 7 bins are all in the last one
+	private static int bin(double distance, double width) {
+		return Math.min(7, (int) (distance / width));
+	}
+
+}
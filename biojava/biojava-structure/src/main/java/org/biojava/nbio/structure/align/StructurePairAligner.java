@@ -27,8 +27,9 @@ import org.biojava.nbio.structure.align.ce.GuiWrapper;
 import org.biojava.nbio.structure.align.helper.AlignUtils;
 import org.biojava.nbio.structure.align.helper.JointFragments;
 import org.biojava.nbio.structure.align.pairwise.*;
+import org.biojava.nbio.structure.geometry.CalcPoint;
 import org.biojava.nbio.structure.geometry.Matrices;
-import org.biojava.nbio.structure.geometry.SuperPositions;
+import org.biojava.nbio.structure.geometry.SuperPositionQCPBatch;
 import org.biojava.nbio.structure.io.PDBFileParser;
 import org.biojava.nbio.structure.io.PDBFileReader;
 import org.biojava.nbio.structure.jama.Matrix;
@@ -444,10 +445,15 @@ public class StructurePairAligner {
 
 		List<FragmentPair> fragments = new ArrayList<>();
 
+		// the fragments of structure 2 are superposed straight from its packed coordinates
+		double[] coords2 = CalcPoint.toPackedArray(Calc.atomsToPoints(ca2));
+
 		for (int i = 0; i < rows; i++) {
 
 			Atom[] catmp1 = AlignUtils.getFragment(ca1, i, fragmentLength);
 			Atom center1 = AlignUtils.getCenter(ca1, i, fragmentLength);
+			// one reference for all fragments of structure 2, created for the first match
+			SuperPositionQCPBatch batch = null;
 
 			for (int j = 0; j < cols; j++) {
 
@@ -462,17 +468,15 @@ public class StructurePairAligner {
 
 				if (rdd < params.getFragmentMiniDistance()) {
 					FragmentPair f = new FragmentPair(fragmentLength, i, j);
-					Atom[] catmp2 = AlignUtils.getFragment(ca2, j,
-							fragmentLength);
 					Atom center2 = AlignUtils.getCenter(ca2, j,
 							fragmentLength);
 
 					f.setCenter1(center1);
 					f.setCenter2(center2);
 
-					Matrix4d t = SuperPositions.superpose(
-							Calc.atomsToPoints(catmp1),
-							Calc.atomsToPoints(catmp2));
+					if (batch == null)
+						batch = new SuperPositionQCPBatch(Calc.atomsToPoints(catmp1));
+					Matrix4d t = batch.superposeAt(coords2, j);
 
 					Matrix rotmat = Matrices.getRotationJAMA(t);
 					f.setRot(rotmat);
@@ -37,6 +37,7 @@ import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
 import org.biojava.nbio.core.sequence.compound.AminoAcidCompoundSet;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import javax.vecmath.Matrix4d;
@@ -63,8 +64,17 @@ public class CeCalculatorEnhanced {
 
 	int[] f1;
 	int[] f2;
-	double[][]dist1;
-	double[][]dist2;
+	// intramolecular distances of both structures, in flat row-major arrays of double or single precision
+	private double[] dist1, dist2;
+	private float[] floatDist1, floatDist2;
+	private int nDist1, nDist2;
+	private boolean singlePrecision;
+	// the workspace which lent the distance arrays, or null if they belong to this calculator
+	private CeWorkspace workspace;
+	// the atoms of the distance matrices, to recompute them if the workspace was taken
+	private Atom[] distAtoms1, distAtoms2;
+	// the matrices returned by getDist1() and getDist2(), built on the first call
+	private double[][] distMatrix1, distMatrix2;
 	protected double[][]mat;
 	protected int[] bestTrace1;
 	protected int[] bestTrace2;
@@ -113,8 +123,8 @@ public class CeCalculatorEnhanced {
 
 	public CeCalculatorEnhanced(CeParameters params){
 		timeStart = System.currentTimeMillis();
-		dist1= new double[0][0];
-		dist2= new double[0][0];
+		dist1= new double[0];
+		dist2= new double[0];
 		this.params = params;
 		matrixListeners = new ArrayList<MatrixListener>();
 
@@ -142,8 +152,7 @@ public class CeCalculatorEnhanced {
 		f1 = new int[nse1];
 		f2 = new int[nse2];
 
-		dist1 = initIntraDistmatrix(ca1, nse1);
-		dist2 = initIntraDistmatrix(ca2, nse2);
+		initIntraDistmatrix(ca1, ca2);
 
 
 		if ( debug )
@@ -353,28 +362,74 @@ public class CeCalculatorEnhanced {
 		}
 	}
 
-	/** build up intramolecular distance matrix dist1 & dist2
+	/** build up intramolecular distance matrices dist1 & dist2, in the workspace of the current thread
 	 *
-	 * @param ca
-	 * @param nse
-	 * @return
+	 * @param ca1
+	 * @param ca2
 	 * @throws StructureException
 	 */
-	private double[][] initIntraDistmatrix(Atom[] ca, int nse) throws StructureException
+	private void initIntraDistmatrix(Atom[] ca1, Atom[] ca2) throws StructureException
 	{
+		singlePrecision = params != null && params.isSinglePrecision();
+		workspace = CeWorkspace.get();
+		workspace.acquire(this);
+		distAtoms1 = ca1;
+		distAtoms2 = ca2;
+		distMatrix1 = null;
+		distMatrix2 = null;
+		nDist1 = ca1.length;
+		nDist2 = ca2.length;
+		if (singlePrecision) {
+			floatDist1 = workspace.getFloatDistances(1, nDist1);
+			floatDist2 = workspace.getFloatDistances(2, nDist2);
+			dist1 = null;
+			dist2 = null;
+		} else {
+			dist1 = workspace.getDistances(1, nDist1);
+			dist2 = workspace.getDistances(2, nDist2);
+			floatDist1 = null;
+			floatDist2 = null;
+		}
+		initIntraDistmatrix(ca1, dist1, floatDist1);
+		initIntraDistmatrix(ca2, dist2, floatDist2);
+	}
 
-
-		double[][] intraDist = new double[nse][nse];
-
-		//
+	private void initIntraDistmatrix(Atom[] ca, double[] dist, float[] floatDist) throws StructureException
+	{
+		int nse = ca.length;
 		for(int ise1=0; ise1<nse; ise1++)  {
 
 			for(int ise2=0; ise2<nse; ise2++)  {
-				intraDist[ise1][ise2] = getDistanceWithSidechain(ca[ise1], ca[ise2]);
-
+				double d = getDistanceWithSidechain(ca[ise1], ca[ise2]);
+				if (dist != null)
+					dist[ise1*nse+ise2] = d;
+				else
+					floatDist[ise1*nse+ise2] = (float) d;
 			}
 		}
-		return intraDist;
+	}
+
+	/**
+	 * Recomputes the distance matrices if another calculator of this thread took the workspace since they were
+	 * built, or if this calculator is now used by another thread.
+	 */
+	private void ensureIntraDistmatrix(Atom[] ca1, Atom[] ca2) {
+		if (workspace == null || (workspace == CeWorkspace.get() && workspace.isOwner(this)))
+			return;
+		try {
+			initIntraDistmatrix(ca1, ca2);
+		} catch (StructureException e) {
+			// the same atoms were already used to build the matrices
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private double dist1(int i, int j) {
+		return singlePrecision ? floatDist1[i*nDist1+j] : dist1[i*nDist1+j];
+	}
+
+	private double dist2(int i, int j) {
+		return singlePrecision ? floatDist2[i*nDist2+j] : dist2[i*nDist2+j];
 	}
 
 
@@ -382,6 +437,8 @@ public class CeCalculatorEnhanced {
 
 		double d;
 
+		ensureIntraDistmatrix(ca1, ca2);
+
 		double[][] mat   = new double[nse1][nse2];
 
 		// init the initial mat[] array.
@@ -399,7 +456,7 @@ public class CeCalculatorEnhanced {
 					for(int is2=is1+2; is2<winSize; is2++) {
 						//System.out.println("pos1 :" +  (ise1+is1) + " " + (ise1+is2) +  " " + (ise2+is1) + " " + (ise2+is2));
 						// is this abs or floor? check!
-						d+=Math.abs(dist1[ise1+is1][ise1+is2]-dist2[ise2+is1][ise2+is2]);
+						d+=Math.abs(dist1(ise1+is1, ise1+is2)-dist2(ise2+is1, ise2+is2));
 					}
 				mat[ise1][ise2]=d/winSizeComb1;
 
@@ -443,6 +500,8 @@ public class CeCalculatorEnhanced {
 		int nse1 = ca1.length;
 		int nse2 = ca2.length;
 
+		ensureIntraDistmatrix(ca1, ca2);
+
 		//System.out.println("nse1 :" +nse1 + " nse2: " + nse2);
 
 		int traceMaxSize=nse1<nse2?nse1:nse2;
@@ -471,7 +530,7 @@ public class CeCalculatorEnhanced {
 		} else {
 			iterDepth = traceMaxSize;
 		}
-		double[][] traceScore = new double[traceMaxSize][iterDepth];
+		double[] traceScore = CeWorkspace.get().getTraceScores(traceMaxSize*iterDepth);
 
 		nTraces =0;
 		long tracesLimit=(long)5e7;
@@ -672,7 +731,7 @@ public class CeCalculatorEnhanced {
 														bestExtScore=score2;
 														nBestExtTrace=nTrace;
 														traceIndex_=it;
-														traceScore[nTrace-1][traceIndex_]=score1;
+														traceScore[(nTrace-1)*iterDepth+traceIndex_]=score1;
 													}
 
 												}
@@ -692,18 +751,18 @@ public class CeCalculatorEnhanced {
 
 											if(iter==0){
 
-												score1=(traceScore[nTrace-1][traceIndex_]*winSizeComb2*nTrace+
+												score1=(traceScore[(nTrace-1)*iterDepth+traceIndex_]*winSizeComb2*nTrace+
 														mat[jse1][jse2]*winSizeComb1)/(winSizeComb2*nTrace+
 																winSizeComb1);
 
-												score2 = getScore2(jse1, jse2, traceScore, traceIndex_, traceIndex, winSizeComb1, winSizeComb2, score0, score1);
+												score2 = getScore2(jse1, jse2, traceScore, iterDepth, traceIndex_, traceIndex, winSizeComb1, winSizeComb2, score0, score1);
 
 												if(score2>rmsdThrJoin)
 													traceIndex_=-1;
 												else if ( score2 > userRMSDMax)
 													traceIndex_=-1;
 												else {
-													traceScore[nTrace-1][traceIndex_]=score2;
+													traceScore[(nTrace-1)*iterDepth+traceIndex_]=score2;
 
 													traceTotalScore=score2;
 												}
@@ -796,17 +855,17 @@ public class CeCalculatorEnhanced {
 
 	}
 
-	protected double getScore2(int jse1, int jse2, double[][] traceScore, int traceIndex_,int[] traceIndex,int winSizeComb1, int winSizeComb2, double score0, double score1 ) {
+	protected double getScore2(int jse1, int jse2, double[] traceScore, int iterDepth, int traceIndex_,int[] traceIndex,int winSizeComb1, int winSizeComb2, double score0, double score1 ) {
 
 
 
 		/*double score2=
-			((nTrace>1?traceScore[nTrace-2][traceIndex[nTrace-1]]:score0)
+			((nTrace>1?traceScore[(nTrace-2)*iterDepth+traceIndex[nTrace-1]]:score0)
 		 *a[nTrace-1]+score1*(a[nTrace]-a[nTrace-1]))/a[nTrace];
 		 */
 		double val = 0;
 		if ( nTrace>1)
-			val =traceScore[nTrace-2][traceIndex[nTrace-1]];
+			val =traceScore[(nTrace-2)*iterDepth+traceIndex[nTrace-1]];
 		else
 			val = score0;
 
@@ -892,16 +951,15 @@ nBestTrace=nTrace;
 		// reduce sign. values to C code.. 6 digits..
 
 		for(int itrace=0; itrace<nTrace; itrace++) {
-			score+=  Math.abs(dist1[trace1[itrace]][mse1]-
-					dist2[trace2[itrace]][mse2]);
+			score+=  Math.abs(dist1(trace1[itrace], mse1)-
+					dist2(trace2[itrace], mse2));
 
-			score+=  Math.abs(dist1[trace1[itrace]+winSize-1]
-					[mse1+winSize-1]-
-					dist2[trace2[itrace]+winSize-1][mse2+winSize-1]);
+			score+=  Math.abs(dist1(trace1[itrace]+winSize-1, mse1+winSize-1)-
+					dist2(trace2[itrace]+winSize-1, mse2+winSize-1));
 
 			for(int id=1; id<winSize-1; id++)
-				score+=  Math.abs(dist1[trace1[itrace]+id][mse1+winSize-1-id]-
-						dist2[trace2[itrace]+id][mse2+winSize-1-id]);
+				score+=  Math.abs(dist1(trace1[itrace]+id, mse1+winSize-1-id)-
+						dist2(trace2[itrace]+id, mse2+winSize-1-id));
 
 		}
 
@@ -1584,6 +1642,12 @@ nBestTrace=nTrace;
 	}
 
 	private boolean[][] notifyBreakFlagListener(boolean[][] brkFlag){
+		if (matrixListeners.isEmpty())
+			return brkFlag;
+		// the listeners may keep the flags, which are reused by the next alignment of this thread
+		brkFlag = brkFlag.clone();
+		for (int i = 0; i < brkFlag.length; i++)
+			brkFlag[i] = brkFlag[i].clone();
 		for (MatrixListener li : matrixListeners) {
 			brkFlag = li.initializeBreakFlag(brkFlag);
 		}
@@ -1606,8 +1670,7 @@ nBestTrace=nTrace;
 		boolean hasGapExtensionPenalty=(gapE!=0.0?true:false);
 		double  sum_ret, sum_brk;
 
-		boolean[][] brk_flg=new boolean [nSeq1][nSeq2];
-		for(i=0; i<nSeq1; i++) brk_flg[i]=new boolean [nSeq2];
+		boolean[][] brk_flg=CeWorkspace.get().getBreakFlags(nSeq1, nSeq2);
 
 		brk_flg = notifyBreakFlagListener(brk_flg);
 
@@ -2233,12 +2296,13 @@ nBestTrace=nTrace;
 		int nse2 = ca2.length;
 		//System.out.println("dist1 :" + dist1.length + " " + dist2.length);
 
-		if ( nse1 > 0 && dist1.length > 0 )
-			afpChain.setDisTable1(new Matrix(dist1));
+		ensureIntraDistmatrix(ca1, ca2);
+		if ( nse1 > 0 && nDist1 > 0 )
+			afpChain.setDisTable1(new Matrix(getDist1()));
 		else
 			afpChain.setDisTable1 (Matrix.identity(3, 3));
-		if ( nse2 > 0 && dist2.length > 0 )
-			afpChain.setDisTable2(new Matrix(dist2));
+		if ( nse2 > 0 && nDist2 > 0 )
+			afpChain.setDisTable2(new Matrix(getDist2()));
 		else
 			afpChain.setDisTable2(Matrix.identity(3, 3));
 
@@ -2395,20 +2459,92 @@ nBestTrace=nTrace;
 		return t;
 	}
 
+	/**
+	 * Returns the intramolecular distance matrix of the first structure. The matrix is built
+	 * on the first call and returned again by the following ones.
+	 * Changes to the matrix are used by the alignment once set back with {@link #setDist1(double[][])}.
+	 * @return the distances between all pairs of atoms of the first structure
+	 */
 	public double[][] getDist1() {
-		return dist1;
+		ensureIntraDistmatrix(distAtoms1, distAtoms2);
+		if (distMatrix1 == null)
+			distMatrix1 = getDistances(dist1, floatDist1, nDist1);
+		return distMatrix1;
 	}
 
 	public void setDist1(double[][] dist1) {
-		this.dist1 = dist1;
+		detachIntraDistmatrix();
+		distMatrix1 = dist1;
+		nDist1 = dist1.length;
+		if (singlePrecision)
+			floatDist1 = toFlatFloats(dist1);
+		else
+			this.dist1 = toFlatDoubles(dist1);
 	}
 
+	/**
+	 * Returns the intramolecular distance matrix of the second structure. The matrix is built
+	 * on the first call and returned again by the following ones.
+	 * Changes to the matrix are used by the alignment once set back with {@link #setDist2(double[][])}.
+	 * @return the distances between all pairs of atoms of the second structure
+	 */
 	public double[][] getDist2() {
-		return dist2;
+		ensureIntraDistmatrix(distAtoms1, distAtoms2);
+		if (distMatrix2 == null)
+			distMatrix2 = getDistances(dist2, floatDist2, nDist2);
+		return distMatrix2;
 	}
 
 	public void setDist2(double[][] dist2) {
-		this.dist2 = dist2;
+		detachIntraDistmatrix();
+		distMatrix2 = dist2;
+		nDist2 = dist2.length;
+		if (singlePrecision)
+			floatDist2 = toFlatFloats(dist2);
+		else
+			this.dist2 = toFlatDoubles(dist2);
+	}
+
+	/**
+	 * Copies the distance matrices out of the workspace, so that they can be changed.
+	 */
+	private void detachIntraDistmatrix() {
+		if (workspace == null)
+			return;
+		ensureIntraDistmatrix(distAtoms1, distAtoms2);
+		if (singlePrecision) {
+			floatDist1 = Arrays.copyOf(floatDist1, nDist1*nDist1);
+			floatDist2 = Arrays.copyOf(floatDist2, nDist2*nDist2);
+		} else {
+			dist1 = Arrays.copyOf(dist1, nDist1*nDist1);
+			dist2 = Arrays.copyOf(dist2, nDist2*nDist2);
+		}
+		workspace = null;
+	}
+
+	private double[][] getDistances(double[] dist, float[] floatDist, int n) {
+		double[][] matrix = new double[n][n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				matrix[i][j] = singlePrecision ? floatDist[i*n+j] : dist[i*n+j];
+		return matrix;
+	}
+
+	private static double[] toFlatDoubles(double[][] matrix) {
+		int n = matrix.length;
+		double[] flat = new double[n*n];
+		for (int i = 0; i < n; i++)
+			System.arraycopy(matrix[i], 0, flat, i*n, n);
+		return flat;
+	}
+
+	private static float[] toFlatFloats(double[][] matrix) {
+		int n = matrix.length;
+		float[] flat = new float[n*n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				flat[i*n+j] = (float) matrix[i][j];
+		return flat;
 	}
 
 
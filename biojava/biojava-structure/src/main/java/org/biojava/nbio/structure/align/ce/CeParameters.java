@@ -78,6 +78,11 @@ public class CeParameters implements ConfigStrucAligParams  {
 	 */
 	private boolean optimizeAlignment;
 
+	/**
+	 * Whether the intramolecular distance matrices are kept in single precision, halving their memory.
+	 */
+	private boolean singlePrecision;
+
 	protected static final double DEFAULT_GAP_OPEN = 5.0;
 	protected static final double DEFAULT_GAP_EXTENSION = 0.5;
 	protected static final double DISTANCE_INCREMENT = 0.5;
@@ -108,6 +113,7 @@ public class CeParameters implements ConfigStrucAligParams  {
 		+ ", showAFPRanges=" + showAFPRanges
 		+ ", maxOptRMSD=" + maxOptRMSD
 		+ ", seqWeight=" + seqWeight
+		+ ", singlePrecision=" + singlePrecision
 		+ "]";
 	}
 
@@ -130,6 +136,7 @@ public class CeParameters implements ConfigStrucAligParams  {
 		maxNrIterationsForOptimization = Integer.MAX_VALUE;
 		seqWeight = 0;
 		optimizeAlignment = true;
+		singlePrecision = false;
 	}
 
 	/** The window size to look at
@@ -447,4 +454,24 @@ public class CeParameters implements ConfigStrucAligParams  {
 		this.optimizeAlignment = optimizeAlignment;
 	}
 
+	/**
+	 * Whether the intramolecular distance matrices are kept in single precision. This halves their memory and
+	 * speeds up the alignment of large structures, with slightly different scores. Off by default.
+	 *
+	 * @return singlePrecision
+	 */
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/**
+	 * Whether the intramolecular distance matrices are kept in single precision. This halves their memory and
+	 * speeds up the alignment of large structures, with slightly different scores. Off by default.
+	 *
+	 * @param singlePrecision
+	 */
+	public void setSinglePrecision(boolean singlePrecision) {
+		this.singlePrecision = singlePrecision;
+	}
+
 }
@@ -0,0 +1,160 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import java.util.Arrays;
+
+/**
+ * The buffers of the CE calculations of one thread, reused by all the alignments of {@link CeMain},
+ * {@link CeCPMain} and {@link org.biojava.nbio.structure.symmetry.internal.CeSymm CeSymm} run in that thread.
+ * <p>
+ * The intramolecular distance matrices of both structures are kept in flat row-major arrays, in double or, with
+ * {@link CeParameters#setSinglePrecision(boolean)}, single precision.  They are lent to the calculator which
+ * extracted fragments last: a calculator which lost them to another one recomputes them from its atoms when it
+ * needs them again.  The other buffers are scratch space used within a single step of an alignment.
+ * <p>
+ * The buffers grow to the largest alignment of the thread, up to {@link #MAX_RETAINED_SIZE} elements each: larger
+ * buffers are allocated for their alignment only.  {@link #release()} drops the buffers of the current thread, for
+ * instance when a long-lived thread of a pool is done with CE alignments.
+ *
+ * @since 6.0.6
+ */
+public class CeWorkspace {
+
+	/**
+	 * The number of elements above which a buffer is not kept for the next alignments: the distance matrices of
+	 * two structures of 2048 residues, 32 MB each in double precision.
+	 */
+	public static final int MAX_RETAINED_SIZE = 2048 * 2048;
+
+	private static final ThreadLocal<CeWorkspace> WORKSPACES = ThreadLocal.withInitial(CeWorkspace::new);
+
+	private Object owner;
+
+	private double[] dist1, dist2;
+	private float[] floatDist1, floatDist2;
+	private double[] traceScores = new double[0];
+	private boolean[][] breakFlags = new boolean[0][0];
+
+	private CeWorkspace() {
+	}
+
+	/**
+	 * @return the workspace of the current thread
+	 */
+	public static CeWorkspace get() {
+		return WORKSPACES.get();
+	}
+
+	/**
+	 * Drops the workspace of the current thread and its buffers.  The distance matrices of the calculators which
+	 * used it stay valid.
+	 */
+	public static void release() {
+		WORKSPACES.remove();
+	}
+
+	/**
+	 * Lends the distance buffers to a calculator, taking them from their previous owner.
+	 */
+	void acquire(Object owner) {
+		this.owner = owner;
+	}
+
+	/**
+	 * @return true if the distance buffers are lent to a calculator
+	 */
+	boolean isOwner(Object owner) {
+		return this.owner == owner;
+	}
+
+	/**
+	 * @param which 1 or 2, for the first or second structure
+	 * @param n the number of atoms
+	 * @return a buffer for n x n distances, with undefined content
+	 */
+	double[] getDistances(int which, int n) {
+		if ((long) n * n > MAX_RETAINED_SIZE) {
+			// only used by the calculator which asked for it
+			return new double[n * n];
+		}
+		if (which == 1) {
+			return dist1 = ensureSize(dist1, n * n);
+		}
+		return dist2 = ensureSize(dist2, n * n);
+	}
+
+	/**
+	 * @param which 1 or 2, for the first or second structure
+	 * @param n the number of atoms
+	 * @return a buffer for n x n distances in single precision, with undefined content
+	 */
+	float[] getFloatDistances(int which, int n) {
+		if ((long) n * n > MAX_RETAINED_SIZE) {
+			return new float[n * n];
+		}
+		if (which == 1) {
+			return floatDist1 = ensureSize(floatDist1, n * n);
+		}
+		return floatDist2 = ensureSize(floatDist2, n * n);
+	}
+
+	/**
+	 * @return a buffer for the scores of traces, filled with 0
+	 */
+	double[] getTraceScores(int size) {
+		if (size > MAX_RETAINED_SIZE) {
+			return new double[size];
+		}
+		if (traceScores.length < size) {
+			traceScores = new double[size];
+		} else {
+			Arrays.fill(traceScores, 0, size, 0.0);
+		}
+		return traceScores;
+	}
+
+	/**
+	 * @return a rows x cols matrix of break flags, filled with false
+	 */
+	boolean[][] getBreakFlags(int rows, int cols) {
+		if ((long) rows * cols > MAX_RETAINED_SIZE) {
+			return new boolean[rows][cols];
+		}
+		if (breakFlags.length != rows || rows > 0 && breakFlags[0].length != cols) {
+			breakFlags = new boolean[rows][cols];
+		} else {
+			for (boolean[] row : breakFlags) {
+				Arrays.fill(row, false);
+			}
+		}
+		return breakFlags;
+	}
+
+	private static double[] ensureSize(double[] buffer, int size) {
+		return buffer != null && buffer.length >= size ? buffer : new double[size];
+	}
+
+	private static float[] ensureSize(float[] buffer, int size) {
+		return buffer != null && buffer.length >= size ? buffer : new float[size];
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.multiple.mc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs several independent Monte Carlo optimizations (trajectories) of the
+ * same problem and keeps the best scoring result.
+ * <p>
+ * The trajectories advance in rounds of a fixed number of steps, each
+ * trajectory of a round in its own task. Between rounds, the best score of all
+ * trajectories is compared to the score of each one, and the trajectories
+ * lagging behind the best by more than a margin are terminated early.
+ * Since the trajectories only interact at the end of the rounds, the result
+ * only depends on the random seeds of the trajectories, and not on the number
+ * of threads or the order in which the tasks run. Ties are resolved in favour
+ * of the first trajectory.
+ *
+ * @since 6.0.6
+ * @see MultipleMcMain
+ * @see org.biojava.nbio.structure.symmetry.internal.SymmOptimizer
+ */
+public class MonteCarloMultiStart {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(MonteCarloMultiStart.class);
+
+	/**
+	 * One Monte Carlo optimization, which can be run a few steps at a time.
+	 *
+	 * @param <T>
+	 *            the type of the result of the optimization
+	 */
+	public interface Trajectory<T> {
+
+		/**
+		 * Runs the next steps of the optimization.
+		 *
+		 * @param steps
+		 *            the maximum number of steps to run
+		 * @return true if the optimization can continue, false if it
+		 *         converged or reached its maximum number of steps
+		 * @throws Exception
+		 *             if the optimization failed
+		 */
+		boolean run(int steps) throws Exception;
+
+		/**
+		 * @return the score of the result the optimization would return now
+		 */
+		double getScore();
+
+		/**
+		 * Ends the optimization.
+		 *
+		 * @return the result of the optimization
+		 * @throws Exception
+		 *             if the result could not be obtained
+		 */
+		T getResult() throws Exception;
+	}
+
+	private enum State {
+		RUNNING, FINISHED, TERMINATED, FAILED
+	}
+
+	/** Prevent instantiation */
+	private MonteCarloMultiStart() {
+	}
+
+	/**
+	 * Runs the trajectories to the end, or until they fall behind the best
+	 * one, and returns the result of the best scoring one.
+	 *
+	 * @param trajectories
+	 *            the optimizations, with different random seeds
+	 * @param roundSteps
+	 *            the number of steps of each trajectory between two
+	 *            comparisons of the scores
+	 * @param margin
+	 *            the difference of score to the best trajectory above which a
+	 *            trajectory is terminated
+	 * @param context
+	 *            the context running the rounds of the trajectories, or null
+	 *            to run them in this thread
+	 * @return the result of the best scoring trajectory
+	 * @throws ExecutionException
+	 *             with the exception of the first trajectory, if all of them
+	 *             failed
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the context is cancelled
+	 */
+	public static <T> T optimize(List<? extends Trajectory<T>> trajectories,
+			int roundSteps, double margin, ExecutionContext context)
+			throws ExecutionException {
+
+		int n = trajectories.size();
+		if (n == 0) {
+			throw new IllegalArgumentException("No trajectories to optimize");
+		}
+
+		State[] states = new State[n];
+		Exception[] failures = new Exception[n];
+		Arrays.fill(states, State.RUNNING);
+
+		int round = 0;
+		while (Arrays.asList(states).contains(State.RUNNING)) {
+			runRound(trajectories, states, failures, roundSteps, context);
+			round++;
+
+			double best = Double.NEGATIVE_INFINITY;
+			for (int t = 0; t < n; t++) {
+				if (states[t] == State.RUNNING || states[t] == State.FINISHED) {
+					best = Math.max(best, trajectories.get(t).getScore());
+				}
+			}
+			for (int t = 0; t < n; t++) {
+				if (states[t] == State.RUNNING
+						&& trajectories.get(t).getScore() < best - margin) {
+					logger.debug("Terminating trajectory {} after {} rounds: score {} behind best {}",
+							t, round, trajectories.get(t).getScore(), best);
+					states[t] = State.TERMINATED;
+				}
+			}
+		}
+
+		int winner = -1;
+		for (int t = 0; t < n; t++) {
+			if (states[t] == State.FINISHED && (winner < 0 || trajectories.get(t)
+					.getScore() > trajectories.get(winner).getScore())) {
+				winner = t;
+			}
+		}
+		if (winner < 0) {
+			for (Exception e : failures) {
+				if (e != null) {
+					throw new ExecutionException(e);
+				}
+			}
+		}
+		logger.debug("Best trajectory is {} with score {}", winner,
+				trajectories.get(winner).getScore());
+		try {
+			return trajectories.get(winner).getResult();
+		} catch (Exception e) {
+			throw new ExecutionException(e);
+		}
+	}
+
+	/**
+	 * Runs one round of all the running trajectories, and records which of
+	 * them continue, finished or failed.
+	 */
+	private static <T> void runRound(
+			List<? extends Trajectory<T>> trajectories, State[] states,
+			Exception[] failures, int steps, ExecutionContext context) {
+
+		List<Future<Boolean>> futures = new ArrayList<>();
+		for (int t = 0; t < states.length; t++) {
+			if (states[t] != State.RUNNING) {
+				futures.add(null);
+				continue;
+			}
+			Callable<Boolean> round = new RoundWorker(trajectories.get(t), steps);
+			if (context == null) {
+				try {
+					states[t] = round.call() ? State.RUNNING : State.FINISHED;
+				} catch (Exception e) {
+					logger.warn("Trajectory {} failed: {}", t, e.getMessage());
+					failures[t] = e;
+					states[t] = State.FAILED;
+				}
+				futures.add(null);
+			} else {
+				futures.add(context.submit(round));
+			}
+		}
+		if (context == null) {
+			return;
+		}
+
+		try {
+			for (int t = 0; t < states.length; t++) {
+				Future<Boolean> future = futures.get(t);
+				if (future == null) {
+					continue;
+				}
+				try {
+					states[t] = future.get() ? State.RUNNING : State.FINISHED;
+				} catch (ExecutionException e) {
+					Exception cause = e.getCause() instanceof Exception
+							? (Exception) e.getCause() : e;
+					logger.warn("Trajectory {} failed: {}", t, cause.getMessage());
+					failures[t] = cause;
+					states[t] = State.FAILED;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted during Monte Carlo optimization", e);
+		}
+	}
+
+	/**
+	 * Runs the steps of one trajectory in a round.
+	 */
+	private static class RoundWorker implements Callable<Boolean> {
+
+		private final Trajectory<?> trajectory;
+		private final int steps;
+
+		RoundWorker(Trajectory<?> trajectory, int steps) {
+			this.trajectory = trajectory;
+			this.steps = steps;
+		}
+
+		@Override
+		public Boolean call() throws Exception {
+			return trajectory.run(steps);
+		}
+	}
+}
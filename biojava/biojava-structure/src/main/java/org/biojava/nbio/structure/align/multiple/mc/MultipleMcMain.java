@@ -31,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.align.CallableStructureAlignment;
@@ -320,6 +321,44 @@ public class MultipleMcMain implements MultipleStructureAligner {
 		return seed;
 	}
 
+	/**
+	 * Optimizes the seed alignment. With more than one start in the
+	 * parameters, independent optimizations with consecutive random seeds
+	 * run in parallel and the best scoring alignment is returned; the result
+	 * only depends on the random seed and the number of starts.
+	 *
+	 * @param seed the seed alignment
+	 * @return the optimized alignment
+	 * @throws StructureException
+	 */
+	private MultipleAlignment optimize(MultipleAlignment seed)
+			throws StructureException {
+
+		int starts = params.getNrStarts();
+		if (starts <= 1) {
+			return new MultipleMcOptimizer(seed, params, reference).optimize();
+		}
+
+		List<MultipleMcOptimizer> optimizers =
+				new ArrayList<MultipleMcOptimizer>(starts);
+		for (int i=0; i<starts; i++){
+			optimizers.add(new MultipleMcOptimizer(seed, params, reference,
+					params.getRandomSeed()+i));
+		}
+		MultipleMcOptimizer first = optimizers.get(0);
+		ExecutionContext context = ExecutionContext.forkJoin(
+				Math.max(params.getNrThreads(), 1));
+		try {
+			return MonteCarloMultiStart.optimize(optimizers,
+					first.getConvergenceSteps(),
+					first.getProbabilityConstant(), context);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof StructureException)
+				throw (StructureException) e.getCause();
+			throw new StructureException(e.getCause());
+		}
+	}
+
 	@Override
 	public MultipleAlignment align(List<Atom[]> atomArrays, Object parameters)
 			throws StructureException {
@@ -341,49 +380,10 @@ public class MultipleMcMain implements MultipleStructureAligner {
 			logger.warn("Seed generation failed.",e);
 		}
 
-		//Repeat the optimization in parallel - DISALLOWED
-		/*int threads = params.getNrThreads();
-			ExecutorService executor = Executors.newFixedThreadPool(threads);
-			List<Future<MultipleAlignment>> msaFuture =
-					new ArrayList<Future<MultipleAlignment>>();
-
-			for (int i=0; i<params.getNrThreads(); i++){
-				//Change the random seed for each parallelization
-				MultipleMcParameters paramsMC = (MultipleMcParameters) params;
-				paramsMC.setRandomSeed(paramsMC.getRandomSeed()+i);
-
-				Callable<MultipleAlignment> worker =
-						new MultipleMcOptimizer(
-								result, paramsMC, reference);
-
-	  			Future<MultipleAlignment> submit = executor.submit(worker);
-	  			msaFuture.add(submit);
-			}
-
-			double maxScore = Double.NEGATIVE_INFINITY;
-			//Take the one with the best result (best MC-Score)
-			for (int i=0; i<msaFuture.size(); i++){
-				MultipleAlignment align = msaFuture.get(i).get();
-				double s = align.getScore(MultipleAlignmentScorer.MC_SCORE);
-				if (s > maxScore){
-					result = align;
-					maxScore = s;
-				}
-			}
-			Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
-			ensemble.setCalculationTime(runtime);
-
-			result.setEnsemble(ensemble);
-			ensemble.addMultipleAlignment(result);
-			executor.shutdown();*/
-
-		MultipleMcOptimizer optimizer = new MultipleMcOptimizer(
-				result, params, reference);
-
 		Long runtime = System.currentTimeMillis()-ensemble.getIoTime();
 		ensemble.setCalculationTime(runtime);
 
-		result = optimizer.optimize();
+		result = optimize(result);
 		result.setEnsemble(ensemble);
 		ensemble.addMultipleAlignment(result);
 
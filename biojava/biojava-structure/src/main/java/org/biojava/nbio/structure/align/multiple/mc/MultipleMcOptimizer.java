@@ -56,13 +56,15 @@ import org.slf4j.LoggerFactory;
  * generate the seed multiple alignment.
  * <p>
  * This class implements Callable, because multiple instances of the
- * optimization can be run in parallel.
+ * optimization can be run in parallel. To run several instances with
+ * different random seeds and keep the best, see {@link MonteCarloMultiStart}.
  *
  * @author Aleix Lafita
  * @since 4.1.0
  *
  */
-public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
+public class MultipleMcOptimizer implements Callable<MultipleAlignment>,
+		MonteCarloMultiStart.Trajectory<MultipleAlignment> {
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(MultipleMcOptimizer.class);
@@ -91,6 +93,12 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	private int blockNr; // the number of Blocks in the alignment
 	private double mcScore; // Optimization score, objective function
 
+	// Optimization state
+	private boolean initialized = false;
+	private int conv; // Number of steps without an alignment improvement
+	private int iteration;
+	private int maxIter;
+
 	// Variables that store the history of the optimization - slower if on
 	private static final boolean history = false;
 	private static final String pathToHistory = "McOptHistory.csv";
@@ -112,13 +120,31 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 */
 	public MultipleMcOptimizer(MultipleAlignment seedAln,
 			MultipleMcParameters params, int reference) {
+		this(seedAln, params, reference, params.getRandomSeed());
+	}
+
+	/**
+	 * Constructor with a random seed different from the one of the
+	 * parameters, to run several optimizations of the same seed alignment.
+	 *
+	 * @param seedAln
+	 *            MultipleAlignment to be optimized.
+	 * @param params
+	 *            the parameter beam
+	 * @param reference
+	 *            the index of the most similar structure to all others
+	 * @param randomSeed
+	 *            the seed of the random number generator
+	 */
+	public MultipleMcOptimizer(MultipleAlignment seedAln,
+			MultipleMcParameters params, int reference, int randomSeed) {
 
 		MultipleAlignmentEnsemble e = seedAln.getEnsemble().clone();
 		msa = e.getMultipleAlignment(0);
 		atomArrays = msa.getAtomArrays();
 		size = seedAln.size();
 
-		rnd = new Random(params.getRandomSeed());
+		rnd = new Random(randomSeed);
 		Gopen = params.getGapOpen();
 		Gextend = params.getGapExtension();
 		dCutoff = params.getDistanceCutoff();
@@ -223,6 +249,11 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 			rmsdHistory = new ArrayList<Double>();
 			scoreHistory = new ArrayList<Double>();
 		}
+
+		conv = 0;
+		iteration = 1;
+		maxIter = convergenceSteps * 100;
+		initialized = true;
 	}
 
 	/**
@@ -239,86 +270,151 @@ public class MultipleMcOptimizer implements Callable<MultipleAlignment> {
 	 */
 	public MultipleAlignment optimize() throws StructureException {
 
-		initialize();
+		while (run(Integer.MAX_VALUE))
+			;
+		return getResult();
+	}
 
-		int conv = 0; // Number of steps without an alignment improvement
-		int i = 1;
-		int maxIter = convergenceSteps * 100;
+	/**
+	 * Runs the next steps of the optimization, initializing it first if
+	 * needed.
+	 *
+	 * @param steps
+	 *            maximum number of steps to run
+	 * @return true if the optimization has not converged yet
+	 * @throws StructureException
+	 */
+	@Override
+	public boolean run(int steps) throws StructureException {
 
-		while (i < maxIter && conv < convergenceSteps) {
+		if (!initialized)
+			initialize();
 
-			// Save the state of the system
-			MultipleAlignment lastMSA = msa.clone();
-			List<SortedSet<Integer>> lastFreePool = new ArrayList<SortedSet<Integer>>();
-			for (int k = 0; k < size; k++) {
-				SortedSet<Integer> p = new TreeSet<Integer>();
-				for (Integer l : freePool.get(k))
-					p.add(l);
-				lastFreePool.add(p);
-			}
-			double lastScore = mcScore;
-
-			boolean moved = false;
-
-			while (!moved) {
-				// Randomly select one of the steps to modify the alignment
-				double move = rnd.nextDouble();
-				if (move < 0.4) {
-					moved = shiftRow();
-					logger.debug("did shift");
-				} else if (move < 0.7) {
-					moved = expandBlock();
-					logger.debug("did expand");
-				} else if (move < 0.85) {
-					moved = shrinkBlock();
-					logger.debug("did shrink");
-				} else {
-					moved = insertGap();
-					logger.debug("did insert gap");
-				}
-			}
+		for (int s = 0; s < steps && !isConverged(); s++)
+			step();
 
-			// Get the score of the new alignment
-			msa.clear();
-			imposer.superimpose(msa);
-			mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
-					dCutoff);
+		return !isConverged();
+	}
 
-			double AS = mcScore - lastScore;
-			double prob = 1.0;
+	/**
+	 * @return the number of steps without a change of score after which the
+	 *         optimization stops
+	 */
+	int getConvergenceSteps() {
+		return convergenceSteps;
+	}
 
-			if (AS < 0) {
+	/**
+	 * @return the constant of the probability function: moves decreasing
+	 *         the score by more than this are never accepted
+	 */
+	double getProbabilityConstant() {
+		return C;
+	}
 
-				// Probability of accepting the move
-				prob = probabilityFunction(AS, i, maxIter);
-				double p = rnd.nextDouble();
-				// Reject the move
-				if (p > prob) {
-					msa = lastMSA;
-					freePool = lastFreePool;
-					mcScore = lastScore;
-					conv++;
+	private boolean isConverged() {
+		return iteration >= maxIter || conv >= convergenceSteps;
+	}
 
-				} else
-					conv = 0;
+	/**
+	 * @return the MC score of the current alignment
+	 */
+	@Override
+	public double getScore() {
+		return mcScore;
+	}
+
+	/**
+	 * One step of the optimization: a random move, accepted or rejected
+	 * according to the change of score.
+	 */
+	private void step() throws StructureException {
+
+		// Save the state of the system
+		MultipleAlignment lastMSA = msa.clone();
+		List<SortedSet<Integer>> lastFreePool = new ArrayList<SortedSet<Integer>>();
+		for (int k = 0; k < size; k++) {
+			SortedSet<Integer> p = new TreeSet<Integer>();
+			for (Integer l : freePool.get(k))
+				p.add(l);
+			lastFreePool.add(p);
+		}
+		double lastScore = mcScore;
+
+		boolean moved = false;
+
+		while (!moved) {
+			// Randomly select one of the steps to modify the alignment
+			double move = rnd.nextDouble();
+			if (move < 0.4) {
+				moved = shiftRow();
+				logger.debug("did shift");
+			} else if (move < 0.7) {
+				moved = expandBlock();
+				logger.debug("did expand");
+			} else if (move < 0.85) {
+				moved = shrinkBlock();
+				logger.debug("did shrink");
+			} else {
+				moved = insertGap();
+				logger.debug("did insert gap");
+			}
+		}
+
+		// Get the score of the new alignment
+		msa.clear();
+		imposer.superimpose(msa);
+		mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
+				dCutoff);
+
+		double AS = mcScore - lastScore;
+		double prob = 1.0;
+
+		if (AS < 0) {
+
+			// Probability of accepting the move
+			prob = probabilityFunction(AS, iteration, maxIter);
+			double p = rnd.nextDouble();
+			// Reject the move
+			if (p > prob) {
+				msa = lastMSA;
+				freePool = lastFreePool;
+				mcScore = lastScore;
+				conv++;
 
 			} else
 				conv = 0;
 
-			logger.debug("Step: " + i + ": --prob: " + prob
-					+ ", --score change: " + AS + ", --conv: " + conv);
+		} else
+			conv = 0;
 
-			if (history) {
-				if (i % 100 == 1) {
-					lengthHistory.add(msa.length());
-					rmsdHistory.add(MultipleAlignmentScorer.getRMSD(msa));
-					scoreHistory.add(mcScore);
-				}
-			}
+		logger.debug("Step: " + iteration + ": --prob: " + prob
+				+ ", --score change: " + AS + ", --conv: " + conv);
 
-			i++;
+		if (history) {
+			if (iteration % 100 == 1) {
+				lengthHistory.add(msa.length());
+				rmsdHistory.add(MultipleAlignmentScorer.getRMSD(msa));
+				scoreHistory.add(mcScore);
+			}
 		}
 
+		iteration++;
+	}
+
+	/**
+	 * Ends the optimization and returns the current alignment, with its
+	 * superposition and scores.
+	 *
+	 * @return the optimized MultipleAlignment
+	 * @throws StructureException
+	 */
+	@Override
+	public MultipleAlignment getResult() throws StructureException {
+
+		if (!initialized)
+			initialize();
+
 		// Return Multiple Alignment
 		imposer.superimpose(msa);
 		MultipleAlignmentScorer.calculateScores(msa);
@@ -43,6 +43,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 	private double distanceCutoff;
 	private int convergenceSteps;
 	private int nrThreads;
+	private int nrStarts;
 
 	/**
 	 * Constructor with DEFAULT values of the parameters.
@@ -63,6 +64,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("DistanceCutoff");
 		params.add("ConvergenceSteps");
 		params.add("NrThreads");
+		params.add("NrStarts");
 		return params;
 	}
 
@@ -78,6 +80,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add("Distance Cutoff");
 		params.add("Steps to Convergence");
 		params.add("Number of Threads");
+		params.add("Number of Starts");
 		return params;
 	}
 
@@ -94,6 +97,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(Double.class);
 		params.add(Integer.class);
 		params.add(Integer.class);
+		params.add(Integer.class);
 		return params;
 	}
 
@@ -123,6 +127,10 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		String nrThreads =
 				"Number of threads to be used for the seed calculation (all-"
 				+ "to-all pairwise alignments) and the MC optimization.";
+		String nrStarts =
+				"Number of independent MC optimizations of the seed alignment,"
+				+ " with consecutive random seeds starting at the Random Seed,"
+				+ " run in parallel. The best scoring alignment is returned.";
 
 		params.add(randomSeed);
 		params.add(minBlockLen);
@@ -132,6 +140,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		params.add(dCutoff);
 		params.add(convergenceSteps);
 		params.add(nrThreads);
+		params.add(nrStarts);
 		return params;
 	}
 
@@ -142,7 +151,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 				+ minAlignedStructures + ", gapOpen=" + gapOpen
 				+ ", gapExtension=" + gapExtension + ", distanceCutoff="
 				+ distanceCutoff + ", convergenceSteps=" + convergenceSteps
-				+ ", nrThreads=" + nrThreads + "]";
+				+ ", nrThreads=" + nrThreads + ", nrStarts=" + nrStarts + "]";
 	}
 
 	@Override
@@ -156,6 +165,7 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		distanceCutoff = 7.0;
 		convergenceSteps = 0;
 		nrThreads = Runtime.getRuntime().availableProcessors();
+		nrStarts = 1;
 	}
 
 	public int getRandomSeed() {
@@ -214,6 +224,14 @@ public class MultipleMcParameters implements ConfigStrucAligParams {
 		this.nrThreads = nrThreads;
 	}
 
+	public int getNrStarts() {
+		return nrStarts;
+	}
+
+	public void setNrStarts(Integer nrStarts) {
+		this.nrStarts = nrStarts;
+	}
+
 	public double getDistanceCutoff() {
 		return distanceCutoff;
 	}
@@ -22,6 +22,7 @@ package org.biojava.nbio.structure.align.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -56,6 +57,10 @@ import org.slf4j.LoggerFactory;
  * re-using the same PDB structures, the AtomCache keeps an in-memory cache of the files for quicker access. The cache
  * is a soft-cache, this means it won't cause out of memory exceptions, but garbage collects the data if the Java
  * virtual machine needs to free up space. The AtomCache is thread-safe.
+ * <p>
+ * Parsed structures can additionally be kept in memory by setting a {@link StructureCache}
+ * with {@link #setStructureCache(StructureCache)}, so that repeated requests for the same
+ * entry don't need to read and parse the file again.
  *
  * @author Andreas Prlic
  * @author Spencer Bliven
@@ -89,6 +94,9 @@ public class AtomCache {
 	private String path;
 	private StructureFiletype filetype = StructureFiletype.BCIF;
 
+	// optional in-memory cache of parsed structures, disabled if null
+	private StructureCache structureCache;
+
 	/**
 	 * Default AtomCache constructor.
 	 *
@@ -173,7 +181,14 @@ public class AtomCache {
 		Atom[] atoms;
 
 		// System.out.println("loading " + name);
-		Structure s = getStructure(name);
+		Structure s;
+		FileParsingParameters projection = getCAProjection(name);
+		if (projection != null) {
+			s = name.reduce(getStructureForPdbId(name.toCanonical().getPdbId(), projection));
+			s.setStructureIdentifier(name);
+		} else {
+			s = getStructure(name);
+		}
 		atoms = StructureTools.getAtomCAArray(s);
 
 		/*
@@ -182,6 +197,40 @@ public class AtomCache {
 		return atoms;
 	}
 
+	/**
+	 * Returns the parameters to parse only the CA atoms of the whole chains identified by the
+	 * given name from a mmCIF or BinaryCIF file, or null if the name needs the complete entry.
+	 * Names with residue ranges are not projected, as their ligands are picked by proximity
+	 * to any chain, and neither are the "_" chain or chain indices, which are resolved
+	 * against all chains.
+	 */
+	private FileParsingParameters getCAProjection(StructureIdentifier name) throws StructureException {
+		if (filetype != StructureFiletype.CIF && filetype != StructureFiletype.BCIF)
+			return null;
+		if (!(name instanceof StructureName && ((StructureName) name).isPdbId())
+				&& name.getClass() != SubstructureIdentifier.class)
+			return null;
+
+		SubstructureIdentifier canonical = name.toCanonical();
+		if (canonical.getPdbId() == null || canonical.getResidueRanges().isEmpty())
+			return null;
+		List<String> chainNames = new ArrayList<>();
+		for (ResidueRange range : canonical.getResidueRanges()) {
+			String chainName = range.getChainName();
+			if (range.getStart() != null || range.getEnd() != null
+					|| chainName.equals("_") || chainName.matches("\\d+"))
+				return null;
+			chainNames.add(chainName);
+		}
+
+		FileParsingParameters projection = new FileParsingParameters(params);
+		if (projection.getAcceptedChainNames() == null)
+			projection.setAcceptedChainNames(chainNames.toArray(new String[0]));
+		if (projection.getAcceptedAtomNames() == null)
+			projection.setAcceptedAtomNames(new String[] { StructureTools.CA_ATOM_NAME });
+		return projection;
+	}
+
 	/**
 	 * Returns the representative atoms for the provided name.
 	 * See {@link #getStructure(String)} for supported naming conventions.
@@ -742,6 +791,51 @@ public class AtomCache {
 		this.filetype = filetype;
 	}
 
+	/**
+	 * Returns the in-memory cache of parsed structures, or null if in-memory caching is disabled (the default).
+	 * @return the StructureCache
+	 * @since 6.0.6
+	 */
+	public StructureCache getStructureCache() {
+		return structureCache;
+	}
+
+	/**
+	 * Set an in-memory cache for parsed structures. When set, {@link #getStructureForPdbId(PdbId)}
+	 * (and therefore {@link #getStructure(String)}, {@link #getAtoms(String)}, etc.) only read and parse
+	 * a file the first time an entry is requested with a given file type and {@link FileParsingParameters}.
+	 * Subsequent requests are served with a copy of the cached structure.
+	 * <p>
+	 * A single StructureCache can be shared by several AtomCache instances.
+	 * @param structureCache the cache to use, or null to disable in-memory caching
+	 * @since 6.0.6
+	 */
+	public void setStructureCache(StructureCache structureCache) {
+		this.structureCache = structureCache;
+	}
+
+	/**
+	 * Returns the key of a PDB entry in the {@link StructureCache}. Structures parsed from different
+	 * file types or with different parsing parameters are cached separately.
+	 */
+	private String getStructureCacheKey(PdbId pdbId, FileParsingParameters params) {
+		return filetype + ":" + pdbId.getId() + ":"
+				+ params.isParseSecStruc() + ","
+				+ params.isAlignSeqRes() + ","
+				+ params.isParseCAOnly() + ","
+				+ params.isHeaderOnly() + ","
+				+ params.isLazy() + ","
+				+ params.isParseBioAssembly() + ","
+				+ params.shouldCreateAtomBonds() + ","
+				+ params.shouldCreateAtomCharges() + ","
+				+ params.getAtomCaThreshold() + ","
+				+ params.getMaxAtoms() + ","
+				+ Arrays.toString(params.getAcceptedAtomNames()) + ","
+				+ Arrays.toString(params.getAcceptedChainNames()) + ","
+				+ Arrays.toString(params.getAcceptedModels()) + ","
+				+ Arrays.toString(params.getAcceptedCategories());
+	}
+
 	private boolean checkLoading(PdbId pdbId) {
 		return currentlyLoading.contains(pdbId.getId());
 	}
@@ -810,9 +904,23 @@ public class AtomCache {
 	 * @throws StructureException
 	 */
 	public Structure getStructureForPdbId(PdbId pdbId) throws IOException {
+		return getStructureForPdbId(pdbId, params);
+	}
+
+	/**
+	 * Loads a structure directly by PDB ID, parsing it with the given parameters instead of those of this cache.
+	 * With the parameters of this cache, the file is loaded through the single-argument
+	 * <code>loadStructureFrom...ByPdbId</code> methods, otherwise through their overloads taking the parameters.
+	 * @param pdbId
+	 * @param params the parameters used to parse the file
+	 * @return
+	 * @throws IOException
+	 * @since 6.0.6
+	 */
+	protected Structure getStructureForPdbId(PdbId pdbId, FileParsingParameters params) throws IOException {
 		if (pdbId == null)
 			return null;
-		
+
 		while (checkLoading(pdbId)) {
 			// waiting for loading to be finished...
 			try {
@@ -822,20 +930,44 @@ public class AtomCache {
 			}
 		}
 
+		// only looked up after waiting, so that concurrent requests find what was just loaded
+		StructureCache cache = structureCache;
+		String key = null;
+		if (cache != null) {
+			key = getStructureCacheKey(pdbId, params);
+			Structure cached = cache.get(key);
+			if (cached != null) {
+				logger.debug("Found {} in structure cache", pdbId);
+				return cached;
+			}
+		}
+
+		// the single-argument methods stay the hooks of loads with the parameters of this cache
+		boolean ownParams = params == this.params;
+		Structure s;
 		switch (filetype) {
 			case CIF:
 				logger.debug("loading from mmcif");
-				return loadStructureFromCifByPdbId(pdbId);
+				s = ownParams ? loadStructureFromCifByPdbId(pdbId) : loadStructureFromCifByPdbId(pdbId, params);
+				break;
 			case BCIF:
 				logger.debug("loading from bcif");
-				return loadStructureFromBcifByPdbId(pdbId);
+				s = ownParams ? loadStructureFromBcifByPdbId(pdbId) : loadStructureFromBcifByPdbId(pdbId, params);
+				break;
 			case MMTF:
 				logger.debug("loading from mmtf");
-				return loadStructureFromMmtfByPdbId(pdbId);
+				s = loadStructureFromMmtfByPdbId(pdbId);
+				break;
 			case PDB: default:
 				logger.debug("loading from pdb");
-				return loadStructureFromPdbByPdbId(pdbId);
+				s = ownParams ? loadStructureFromPdbByPdbId(pdbId) : loadStructureFromPdbByPdbId(pdbId, params);
+				break;
+		}
+
+		if (cache != null && s != null) {
+			cache.put(key, s);
 		}
+		return s;
 	}
 
 	
@@ -862,6 +994,18 @@ public class AtomCache {
 	}
 	
 	protected Structure loadStructureFromCifByPdbId(PdbId pdbId) throws IOException {
+		return loadStructureFromCifByPdbId(pdbId, params);
+	}
+
+	/**
+	 * Load a {@link Structure} from an mmCIF file, parsed with the given parameters.
+	 * @param pdbId the input PDB id
+	 * @param params the parameters used to parse the file
+	 * @return the {@link Structure} object of the parsed structure
+	 * @throws IOException error reading from Web or file system
+	 * @since 6.0.6
+	 */
+	protected Structure loadStructureFromCifByPdbId(PdbId pdbId, FileParsingParameters params) throws IOException {
 		logger.debug("Loading structure {} from mmCIF file {}.", pdbId, path);
 		Structure s;
 		flagLoading(pdbId);
@@ -882,6 +1026,18 @@ public class AtomCache {
 		return loadStructureFromBcifByPdbId(new PdbId(pdbId));
 	}
 	protected Structure loadStructureFromBcifByPdbId(PdbId pdbId) throws IOException {
+		return loadStructureFromBcifByPdbId(pdbId, params);
+	}
+
+	/**
+	 * Load a {@link Structure} from a BinaryCIF file, parsed with the given parameters.
+	 * @param pdbId the input PDB id
+	 * @param params the parameters used to parse the file
+	 * @return the {@link Structure} object of the parsed structure
+	 * @throws IOException error reading from Web or file system
+	 * @since 6.0.6
+	 */
+	protected Structure loadStructureFromBcifByPdbId(PdbId pdbId, FileParsingParameters params) throws IOException {
 		logger.debug("Loading structure {} from BinaryCIF file {}.", pdbId, path);
 		Structure s;
 		flagLoading(pdbId);
@@ -903,6 +1059,18 @@ public class AtomCache {
 	}
 
 	protected Structure loadStructureFromPdbByPdbId(PdbId pdbId) throws IOException {
+		return loadStructureFromPdbByPdbId(pdbId, params);
+	}
+
+	/**
+	 * Load a {@link Structure} from a PDB file, parsed with the given parameters.
+	 * @param pdbId the input PDB id
+	 * @param params the parameters used to parse the file
+	 * @return the {@link Structure} object of the parsed structure
+	 * @throws IOException error reading from Web or file system
+	 * @since 6.0.6
+	 */
+	protected Structure loadStructureFromPdbByPdbId(PdbId pdbId, FileParsingParameters params) throws IOException {
 		logger.debug("Loading structure {} from PDB file {}.", pdbId, path);
 		Structure s;
 		flagLoading(pdbId);
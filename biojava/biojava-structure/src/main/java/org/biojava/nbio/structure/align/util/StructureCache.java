@@ -0,0 +1,255 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A thread-safe, size-bounded in-memory cache of parsed {@link Structure} objects,
+ * evicting the least recently used entries first.
+ * <p>
+ * The cache can be bounded by the number of entries, by the estimated number of bytes
+ * used by the cached structures, or both. The size of a structure is estimated from its
+ * number of atoms, see {@link #estimateSize(Structure)}.
+ * <p>
+ * Structures are mutable, so the cache never hands out the instance it stores:
+ * {@link #get(String)} returns a {@link Structure#clone() clone} of the cached entry,
+ * which is still much cheaper than reading and parsing the file again.
+ *
+ * @since 6.0.6
+ * @see AtomCache#setStructureCache(StructureCache)
+ */
+public class StructureCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(StructureCache.class);
+
+	/**
+	 * Rough estimate of the heap used by one atom, including its group, bonds and coordinates.
+	 */
+	public static final long BYTES_PER_ATOM = 250;
+
+	/**
+	 * Default maximum number of entries, see {@link #StructureCache()}
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private final int maxEntries;
+	private final long maxBytes;
+
+	private final LinkedHashMap<String, Entry> map;
+
+	private long currentBytes;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	private static class Entry {
+		private final Structure structure;
+		private final long size;
+
+		private Entry(Structure structure, long size) {
+			this.structure = structure;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Creates a cache holding at most {@value #DEFAULT_MAX_ENTRIES} structures
+	 * with no bound on their estimated size.
+	 */
+	public StructureCache() {
+		this(DEFAULT_MAX_ENTRIES, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Creates a cache holding at most maxEntries structures, whose estimated sizes
+	 * add up to at most maxBytes.
+	 *
+	 * @param maxEntries the maximum number of structures to keep, must be positive
+	 * @param maxBytes the maximum estimated size in bytes of all cached structures, must be positive.
+	 * Use {@link Long#MAX_VALUE} for no limit
+	 */
+	public StructureCache(int maxEntries, long maxBytes) {
+		if (maxEntries <= 0)
+			throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+		if (maxBytes <= 0)
+			throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		// access-ordered, so that iteration starts at the least recently used entry
+		this.map = new LinkedHashMap<>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns a copy of the structure cached under the given key, or null if there is none.
+	 * @param key
+	 * @return a clone of the cached structure, or null
+	 */
+	public Structure get(String key) {
+		Structure s;
+		synchronized (this) {
+			Entry e = map.get(key);
+			if (e == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			s = e.structure;
+		}
+		// cloning outside the lock: cached instances are never modified
+		return s.clone();
+	}
+
+	/**
+	 * Caches a structure under the given key. The cache keeps its own copy, so the given
+	 * structure can be modified freely afterwards. Entries that do not fit in the
+	 * cache on their own are ignored.
+	 * @param key
+	 * @param structure
+	 */
+	public void put(String key, Structure structure) {
+		long size = estimateSize(structure);
+		if (size > maxBytes) {
+			logger.debug("Not caching {}: estimated size {} exceeds cache limit of {} bytes", key, size, maxBytes);
+			return;
+		}
+		Entry entry = new Entry(structure.clone(), size);
+		synchronized (this) {
+			Entry old = map.put(key, entry);
+			if (old != null) {
+				currentBytes -= old.size;
+			}
+			currentBytes += size;
+			evict();
+		}
+	}
+
+	/**
+	 * Removes the least recently used entries until the cache is within its limits.
+	 * Must be called holding the lock.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Entry>> it = map.entrySet().iterator();
+		while ((map.size() > maxEntries || currentBytes > maxBytes) && it.hasNext()) {
+			Map.Entry<String, Entry> eldest = it.next();
+			logger.debug("Evicting {} from structure cache", eldest.getKey());
+			currentBytes -= eldest.getValue().size;
+			it.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes the entry for the given key, if present.
+	 * @param key
+	 */
+	public synchronized void remove(String key) {
+		Entry old = map.remove(key);
+		if (old != null) {
+			currentBytes -= old.size;
+		}
+	}
+
+	/**
+	 * Removes all entries. Statistics are kept.
+	 */
+	public synchronized void clear() {
+		map.clear();
+		currentBytes = 0;
+	}
+
+	/**
+	 * @return the number of cached structures
+	 */
+	public synchronized int size() {
+		return map.size();
+	}
+
+	/**
+	 * @return the sum of the estimated sizes in bytes of all cached structures
+	 */
+	public synchronized long getEstimatedBytes() {
+		return currentBytes;
+	}
+
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * @return the number of {@link #get(String)} calls that found an entry
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of {@link #get(String)} calls that did not find an entry
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of entries removed to keep the cache within its limits
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Resets hit, miss and eviction counts to 0.
+	 */
+	public synchronized void resetStatistics() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * Estimates the heap used by a structure as its number of atoms (over all models)
+	 * times {@link #BYTES_PER_ATOM}.
+	 * @param s
+	 * @return the estimated size in bytes
+	 */
+	public static long estimateSize(Structure s) {
+		long nrAtoms = StructureTools.getNrAtoms(s);
+		return Math.max(1, nrAtoms) * BYTES_PER_ATOM;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "StructureCache [size=" + map.size() + ", estimatedBytes=" + currentBytes
+				+ ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+}
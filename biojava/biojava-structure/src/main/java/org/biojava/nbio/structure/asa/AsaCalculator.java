@@ -21,16 +21,19 @@
 package org.biojava.nbio.structure.asa;
 
 import org.biojava.nbio.structure.*;
-import org.biojava.nbio.structure.contact.Contact;
+import org.biojava.nbio.structure.contact.ContactBuffer;
 import org.biojava.nbio.structure.contact.Grid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.biojava.nbio.core.util.ExecutionContext;
+
 import javax.vecmath.Point3d;
-import javax.vecmath.Vector3d;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 
 /**
@@ -44,6 +47,11 @@ import java.util.concurrent.Executors;
  * A few optimizations come from Eisenhaber et al, J Comp Chemistry 1994
  * (https://onlinelibrary.wiley.com/doi/epdf/10.1002/jcc.540160303)
  * <p>
+ * The calculation works over primitive arrays: the neighbours of all atoms are found once per calculation
+ * with a {@link Grid} and kept in flat arrays, the sphere points are generated once per number of points and
+ * shared by all calculators, and each thread reuses its own scratch buffers, so that the many small calculations
+ * of interface areas do not allocate per atom.
+ * <p>
  * See
  * Shrake, A., and J. A. Rupley. "Environment and Exposure to Solvent of Protein Atoms.
  * Lysozyme and Insulin." JMB (1973) 79:351-371.
@@ -66,6 +74,15 @@ public class AsaCalculator {
 
 	private static final boolean DEFAULT_USE_SPATIAL_HASHING = true;
 
+	// number of atoms in each parallel task
+	private static final int ATOMS_PER_TASK = 256;
+
+	// the sphere points for each number of points, as x,y,z triplets
+	private static final Map<Integer, double[]> SPHERE_POINTS = new ConcurrentHashMap<>();
+
+	// per thread scratch buffer of calcSingleAsa, with x,y,z and squared radius for each neighbor
+	private static final ThreadLocal<double[]> SCRATCH = ThreadLocal.withInitial(() -> new double[4*64]);
+
 
 
 	// Chothia's amino acid atoms vdw radii
@@ -85,19 +102,27 @@ public class AsaCalculator {
 
 
 
-	private class AsaCalcWorker implements Runnable {
+	private class AsaCalcWorker implements Callable<Void> {
 
-		private final int i;
+		private final int start, end;
+		private final double[] coords;
+		private final NeighborList neighbors;
 		private final double[] asas;
 
-		private AsaCalcWorker(int i, double[] asas) {
-			this.i = i;
+		private AsaCalcWorker(int start, int end, double[] coords, NeighborList neighbors, double[] asas) {
+			this.start = start;
+			this.end = end;
+			this.coords = coords;
+			this.neighbors = neighbors;
 			this.asas = asas;
 		}
 
 		@Override
-		public void run() {
-			asas[i] = calcSingleAsa(i);
+		public Void call() {
+			for (int i = start; i < end; i++) {
+				asas[i] = calcSingleAsa(i, coords, neighbors);
+			}
+			return null;
 		}
 	}
 
@@ -110,15 +135,76 @@ public class AsaCalculator {
 		}
 	}
 
+	/**
+	 * The neighbors of every atom, sorted from closest to farthest: those of atom i are at positions
+	 * start[i] to start[i+1]-1 of the index and distance arrays.
+	 */
+	private static class NeighborList {
+		final int[] start;
+		final int[] indices;
+		final double[] dists;
+
+		/**
+		 * @param nAtoms the number of atoms
+		 * @param pairs each pair of neighbors, once
+		 */
+		NeighborList(int nAtoms, ContactBuffer pairs) {
+			start = new int[nAtoms+1];
+			for (int k=0;k<pairs.size();k++) {
+				start[pairs.getI(k)+1]++;
+				start[pairs.getJ(k)+1]++;
+			}
+			for (int i=0;i<nAtoms;i++) {
+				start[i+1] += start[i];
+			}
+			indices = new int[start[nAtoms]];
+			dists = new double[start[nAtoms]];
+			int[] next = Arrays.copyOf(start, nAtoms);
+			for (int k=0;k<pairs.size();k++) {
+				int i = pairs.getI(k), j = pairs.getJ(k);
+				double dist = pairs.getDistance(k);
+				indices[next[i]] = j;
+				dists[next[i]++] = dist;
+				indices[next[j]] = i;
+				dists[next[j]++] = dist;
+			}
+			// Sorting by closest to farthest away neighbors achieves faster runtimes when checking for occluded
+			// sphere sample points, see calcSingleAsa
+			for (int i=0;i<nAtoms;i++) {
+				for (int a=start[i]+1;a<start[i+1];a++) {
+					int index = indices[a];
+					double dist = dists[a];
+					int b = a-1;
+					for (;b>=start[i] && dists[b]>dist;b--) {
+						indices[b+1] = indices[b];
+						dists[b+1] = dists[b];
+					}
+					indices[b+1] = index;
+					dists[b+1] = dist;
+				}
+			}
+		}
+
+		IndexAndDistance[][] toArrays() {
+			IndexAndDistance[][] nbsIndices = new IndexAndDistance[start.length-1][];
+			for (int i=0;i<nbsIndices.length;i++) {
+				nbsIndices[i] = new IndexAndDistance[start[i+1]-start[i]];
+				for (int a=start[i];a<start[i+1];a++) {
+					nbsIndices[i][a-start[i]] = new IndexAndDistance(indices[a], dists[a]);
+				}
+			}
+			return nbsIndices;
+		}
+	}
+
 
 	private final Point3d[] atomCoords;
 	private final Atom[] atoms;
 	private final double[] radii;
 	private final double probe;
 	private final int nThreads;
-	private Vector3d[] spherePoints;
+	private double[] spherePoints;
 	private double cons;
-	private IndexAndDistance[][] neighborIndices;
 
 	private boolean useSpatialHashingForNeighbors;
 
@@ -221,8 +307,8 @@ public class AsaCalculator {
 
 		logger.debug("Will use {} sphere points", nSpherePoints);
 
-		// initialising the sphere points to sample
-		spherePoints = generateSpherePoints(nSpherePoints);
+		// initialising the sphere points to sample, generated only once for each number of points
+		spherePoints = SPHERE_POINTS.computeIfAbsent(nSpherePoints, AsaCalculator::generateSpherePoints);
 
 		cons = 4.0 * Math.PI / nSpherePoints;
 	}
@@ -235,10 +321,24 @@ public class AsaCalculator {
 	 * @return
 	 */
 	public GroupAsa[] getGroupAsas() {
+		return getGroupAsas(calculateAsas());
+	}
 
-		TreeMap<ResidueNumber, GroupAsa> asas = new TreeMap<>();
+	/**
+	 * Calculates ASA for all atoms and return them as a GroupAsa
+	 * array (one element per residue in structure) containing ASAs per residue
+	 * and per atom, running the calculation in the given context.
+	 * @param context the context running the tasks of the calculation
+	 * @return
+	 * @see #calculateAsas(ExecutionContext)
+	 */
+	public GroupAsa[] getGroupAsas(ExecutionContext context) {
+		return getGroupAsas(calculateAsas(context));
+	}
 
-		double[] asasPerAtom = calculateAsas();
+	private GroupAsa[] getGroupAsas(double[] asasPerAtom) {
+
+		TreeMap<ResidueNumber, GroupAsa> asas = new TreeMap<>();
 
 		for (int i=0;i<atomCoords.length;i++) {
 			Group g = atoms[i].getGroup();
@@ -257,44 +357,72 @@ public class AsaCalculator {
 
 	/**
 	 * Calculates the Accessible Surface Areas for the atoms given in constructor and with parameters given.
-	 * Beware that the parallel implementation is quite memory hungry. It scales well as long as there is
-	 * enough memory available.
+	 * With more than one thread, the calculation runs on the common fork-join pool, with at most as many
+	 * tasks at a time as the number of threads given in the constructor.
 	 * @return an array with asa values corresponding to each atom of the input array
 	 */
 	public double[] calculateAsas() {
+		if (nThreads<=1) { // (i.e. it will also be 1 thread if 0 or negative number specified)
+			return calculateAsas(null);
+		}
+		logger.debug("Will use {} threads for ASA calculation", nThreads);
+		return calculateAsas(ExecutionContext.forkJoin(nThreads));
+	}
+
+	/**
+	 * Calculates the Accessible Surface Areas for the atoms given in constructor and with parameters given,
+	 * submitting the calculation in tasks of a few hundred atoms to the given context. The number
+	 * of threads given in the constructor is not used.
+	 * @param context the context running the tasks of the calculation, or null to calculate in this thread
+	 * @return an array with asa values corresponding to each atom of the input array
+	 * @throws java.util.concurrent.CancellationException if the context is cancelled during the calculation
+	 */
+	public double[] calculateAsas(ExecutionContext context) {
 
 		double[] asas = new double[atomCoords.length];
 
+		// the coordinates are copied at each calculation, since atoms may have moved
+		double[] coords = new double[3*atomCoords.length];
+		for (int i=0;i<atomCoords.length;i++) {
+			coords[3*i] = atomCoords[i].x;
+			coords[3*i+1] = atomCoords[i].y;
+			coords[3*i+2] = atomCoords[i].z;
+		}
+
 		long start = System.currentTimeMillis();
+		NeighborList neighbors;
 		if (useSpatialHashingForNeighbors) {
 			logger.debug("Will use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndicesSpatialHashing();
+			neighbors = findNeighborsSpatialHashing();
 		} else {
 			logger.debug("Will not use spatial hashing to find neighbors");
-			neighborIndices = findNeighborIndices();
+			neighbors = findNeighbors();
 		}
 		long end = System.currentTimeMillis();
 		logger.debug("Took {} s to find neighbors", (end-start)/1000.0);
 
 		start = System.currentTimeMillis();
-		if (nThreads<=1) { // (i.e. it will also be 1 thread if 0 or negative number specified)
+		if (context == null) {
 			logger.debug("Will use 1 thread for ASA calculation");
-			for (int i=0;i<atomCoords.length;i++) {
-				asas[i] = calcSingleAsa(i);
-			}
+			new AsaCalcWorker(0, atomCoords.length, coords, neighbors, asas).call();
 
 		} else {
-			logger.debug("Will use {} threads for ASA calculation", nThreads);
-
-			ExecutorService threadPool = Executors.newFixedThreadPool(nThreads);
-
-			for (int i=0;i<atomCoords.length;i++) {
-				threadPool.submit(new AsaCalcWorker(i,asas));
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i=0;i<atomCoords.length;i+=ATOMS_PER_TASK) {
+				futures.add(context.submit(new AsaCalcWorker(i, Math.min(i + ATOMS_PER_TASK, atomCoords.length), coords, neighbors, asas)));
+			}
+			try {
+				for (Future<Void> future : futures) {
+					future.get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				context.cancel();
+				throw new RuntimeException("Interrupted during ASA calculation", e);
+			} catch (ExecutionException e) {
+				context.cancel();
+				throw new RuntimeException("ASA calculation failed", e.getCause());
 			}
-
-			threadPool.shutdown();
-
-			while (!threadPool.isTerminated());
 
 		}
 		end = System.currentTimeMillis();
@@ -317,17 +445,19 @@ public class AsaCalculator {
 	 * Returns list of 3d coordinates of points on a unit sphere using the
 	 * Golden Section Spiral algorithm.
 	 * @param nSpherePoints the number of points to be used in generating the spherical dot-density
-	 * @return the array of points as Vector3d objects
+	 * @return the array of points as x,y,z triplets
 	 */
-	private Vector3d[] generateSpherePoints(int nSpherePoints) {
-		Vector3d[] points = new Vector3d[nSpherePoints];
+	private static double[] generateSpherePoints(int nSpherePoints) {
+		double[] points = new double[3*nSpherePoints];
 		double inc = Math.PI * (3.0 - Math.sqrt(5.0));
 		double offset = 2.0 / nSpherePoints;
 		for (int k=0;k<nSpherePoints;k++) {
 			double y = k * offset - 1.0 + (offset / 2.0);
 			double r = Math.sqrt(1.0 - y*y);
 			double phi = k * inc;
-			points[k] = new Vector3d(Math.cos(phi)*r, y, Math.sin(phi)*r);
+			points[3*k] = Math.cos(phi)*r;
+			points[3*k+1] = y;
+			points[3*k+2] = Math.sin(phi)*r;
 		}
 		return points;
 	}
@@ -337,31 +467,7 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndices() {
-
-		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
-		int initialCapacity = 60;
-
-		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
-
-		for (int k=0; k<atomCoords.length; k++) {
-			double radius = radii[k] + probe + probe;
-
-			List<IndexAndDistance> thisNbIndices = new ArrayList<>(initialCapacity);
-
-			for (int i = 0; i < atomCoords.length; i++) {
-				if (i == k) continue;
-
-				double dist = atomCoords[i].distance(atomCoords[k]);
-
-				if (dist < radius + radii[i]) {
-					thisNbIndices.add(new IndexAndDistance(i, dist));
-				}
-			}
-
-			IndexAndDistance[] indicesArray = thisNbIndices.toArray(new IndexAndDistance[0]);
-			nbsIndices[k] = indicesArray;
-		}
-		return nbsIndices;
+		return findNeighbors().toArrays();
 	}
 
 	/**
@@ -370,125 +476,111 @@ public class AsaCalculator {
 	 * @return 2-dimensional array of size: n_atoms x n_neighbors_per_atom
 	 */
 	IndexAndDistance[][] findNeighborIndicesSpatialHashing() {
+		return findNeighborsSpatialHashing().toArrays();
+	}
 
-		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
-		int initialCapacity = 60;
-
-		List<Contact> contactList = calcContacts();
-		Map<Integer, List<IndexAndDistance>> indices = new HashMap<>(atomCoords.length);
-		for (Contact contact : contactList) {
-			// note contacts are stored 1-way only, with j>i
-			int i = contact.getI();
-			int j = contact.getJ();
-
-			List<IndexAndDistance> iIndices;
-			List<IndexAndDistance> jIndices;
-			if (!indices.containsKey(i)) {
-				iIndices = new ArrayList<>(initialCapacity);
-				indices.put(i, iIndices);
-			} else {
-				iIndices = indices.get(i);
-			}
-			if (!indices.containsKey(j)) {
-				jIndices = new ArrayList<>(initialCapacity);
-				indices.put(j, jIndices);
-			} else {
-				jIndices = indices.get(j);
-			}
+	/**
+	 * Finds the neighbors of every atom with an all to all distance calculation.
+	 */
+	private NeighborList findNeighbors() {
+
+		ContactBuffer pairs = new ContactBuffer(30*atomCoords.length);
 
+		for (int i=0; i<atomCoords.length; i++) {
 			double radius = radii[i] + probe + probe;
-			double dist = contact.getDistance();
-			if (dist < radius + radii[j]) {
-				iIndices.add(new IndexAndDistance(j, dist));
-				jIndices.add(new IndexAndDistance(i, dist));
-			}
-		}
 
-		// convert map to array for fast access
-		IndexAndDistance[][] nbsIndices = new IndexAndDistance[atomCoords.length][];
-		for (Map.Entry<Integer, List<IndexAndDistance>> entry : indices.entrySet()) {
-			List<IndexAndDistance> list = entry.getValue();
-			IndexAndDistance[] indexAndDistances = list.toArray(new IndexAndDistance[0]);
-			nbsIndices[entry.getKey()] = indexAndDistances;
-		}
+			for (int j = i+1; j < atomCoords.length; j++) {
+				double dist = atomCoords[i].distance(atomCoords[j]);
 
-		// important: some atoms might have no neighbors at all: we need to initialise to empty arrays
-		for (int i=0; i<nbsIndices.length; i++) {
-			if (nbsIndices[i] == null) {
-				nbsIndices[i] = new IndexAndDistance[0];
+				if (dist < radius + radii[j]) {
+					pairs.add(i, j, dist);
+				}
 			}
 		}
+		return new NeighborList(atomCoords.length, pairs);
+	}
+
+	/**
+	 * Finds the neighbors of every atom, using spatial hashing to avoid all to all distance calculation.
+	 */
+	private NeighborList findNeighborsSpatialHashing() {
 
-		return nbsIndices;
+		// looking at a typical protein case, number of neighbours are from ~10 to ~50, with an average of ~30
+		ContactBuffer pairs = new ContactBuffer(15*atomCoords.length);
+
+		if (atomCoords.length > 0) {
+			double maxRadius = 0;
+			OptionalDouble optionalDouble = Arrays.stream(radii).max();
+			if (optionalDouble.isPresent())
+				maxRadius = optionalDouble.getAsDouble();
+			double cutoff = maxRadius + maxRadius + probe + probe;
+			logger.debug("Max radius is {}, cutoff is {}", maxRadius, cutoff);
+			Grid grid = new Grid(cutoff);
+			grid.addCoords(atomCoords);
+			// note contacts are found 1-way only, with j>i
+			grid.forEachContact((i, j, dist) -> {
+				double radius = radii[i] + probe + probe;
+				if (dist < radius + radii[j]) {
+					pairs.add(i, j, dist);
+				}
+			});
+		}
+		return new NeighborList(atomCoords.length, pairs);
 	}
 
 	Point3d[] getAtomCoords() {
 		return atomCoords;
 	}
 
-	private List<Contact> calcContacts() {
-		if (atomCoords.length == 0)
-			return new ArrayList<>();
-		double maxRadius = 0;
-		OptionalDouble optionalDouble = Arrays.stream(radii).max();
-		if (optionalDouble.isPresent())
-			maxRadius = optionalDouble.getAsDouble();
-		double cutoff = maxRadius + maxRadius + probe + probe;
-		logger.debug("Max radius is {}, cutoff is {}", maxRadius, cutoff);
-		Grid grid = new Grid(cutoff);
-		grid.addCoords(atomCoords);
-		return grid.getIndicesContacts();
-	}
-
-	private double calcSingleAsa(int i) {
-		Point3d atom_i = atomCoords[i];
+	private double calcSingleAsa(int i, double[] coords, NeighborList neighbors) {
+		double x_i = coords[3*i], y_i = coords[3*i+1], z_i = coords[3*i+2];
 
-		int n_neighbor = neighborIndices[i].length;
-		IndexAndDistance[] neighbor_indices = neighborIndices[i];
-		// Sorting by closest to farthest away neighbors achieves faster runtimes when checking for occluded
+		int first = neighbors.start[i];
+		int n_neighbor = neighbors.start[i+1] - first;
+		// Neighbors are sorted by closest to farthest away, which achieves faster runtimes when checking for occluded
 		// sphere sample points below. This follows the ideas exposed in
 		// Eisenhaber et al, J Comp Chemistry 1994 (https://onlinelibrary.wiley.com/doi/epdf/10.1002/jcc.540160303)
 		// This is essential for performance. In my tests this brings down the number of occlusion checks in loop below to
 		// an average of n_sphere_points/10 per atom i, producing ~ x4 performance gain overall
-		Arrays.sort(neighbor_indices, Comparator.comparingDouble(o -> o.dist));
 
 		double radius_i = probe + radii[i];
 
 		int n_accessible_point = 0;
-		// purely for debugging
-		int[] numDistsCalced = null;
-		if (logger.isDebugEnabled()) numDistsCalced = new int[n_neighbor];
+
+		double[] scratch = SCRATCH.get();
+		if (scratch.length < 4*n_neighbor) {
+			scratch = new double[4*n_neighbor];
+			SCRATCH.set(scratch);
+		}
 
 		// now we precalculate anything depending only on i,j in equation 3 in Eisenhaber 1994
-		double[] sqRadii = new double[n_neighbor];
-		Vector3d[] aj_minus_ais = new Vector3d[n_neighbor];
 		for (int nbArrayInd =0; nbArrayInd<n_neighbor; nbArrayInd++) {
-			int j = neighbor_indices[nbArrayInd].index;
-			double dist = neighbor_indices[nbArrayInd].dist;
+			int j = neighbors.indices[first+nbArrayInd];
+			double dist = neighbors.dists[first+nbArrayInd];
 			double radius_j = radii[j] + probe;
+			// aj - ai
+			scratch[4*nbArrayInd] = coords[3*j] - x_i;
+			scratch[4*nbArrayInd+1] = coords[3*j+1] - y_i;
+			scratch[4*nbArrayInd+2] = coords[3*j+2] - z_i;
 			// see equation 3 in Eisenhaber 1994
-			sqRadii[nbArrayInd] = (dist*dist + radius_i*radius_i - radius_j*radius_j)/(2*radius_i);
-			Vector3d aj_minus_ai = new Vector3d(atomCoords[j]);
-			aj_minus_ai.sub(atom_i);
-			aj_minus_ais[nbArrayInd] = aj_minus_ai;
+			scratch[4*nbArrayInd+3] = (dist*dist + radius_i*radius_i - radius_j*radius_j)/(2*radius_i);
 		}
 
-		for (Vector3d point: spherePoints){
+		for (int p = 0; p < spherePoints.length; p += 3) {
+			double px = spherePoints[p], py = spherePoints[p+1], pz = spherePoints[p+2];
 			boolean is_accessible = true;
 
 			// note that the neighbors are sorted by distance, achieving optimal performance in this inner loop
 			// See Eisenhaber et al, J Comp Chemistry 1994
 
-			for (int nbArrayInd =0; nbArrayInd<n_neighbor; nbArrayInd++) {
+			for (int k = 0; k < 4*n_neighbor; k += 4) {
 
 				// see equation 3 in Eisenhaber 1994. This is slightly more efficient than
 				// calculating distances to the actual sphere points on atom_i (which would be obtained with:
 				// Point3d test_point = new Point3d(point.x*radius + atom_i.x,point.y*radius + atom_i.y,point.z*radius + atom_i.z))
-				double dotProd = aj_minus_ais[nbArrayInd].dot(point);
-
-				if (numDistsCalced!=null) numDistsCalced[nbArrayInd]++;
+				double dotProd = scratch[k]*px + scratch[k+1]*py + scratch[k+2]*pz;
 
-				if (dotProd > sqRadii[nbArrayInd]) {
+				if (dotProd > scratch[k+3]) {
 					is_accessible = false;
 					break;
 				}
@@ -498,13 +590,6 @@ public class AsaCalculator {
 			}
 		}
 
-		// purely for debugging
-		if (numDistsCalced!=null) {
-			int sum = 0;
-			for (int numDistCalcedForJ : numDistsCalced) sum += numDistCalcedForJ;
-			logger.debug("Number of sample points distances calculated for neighbors of i={} : average {}, all {}", i, (double) sum / (double) n_neighbor, numDistsCalced);
-		}
-
 		return cons*n_accessible_point*radius_i*radius_i;
 	}
 
@@ -393,6 +393,58 @@ public class SubunitCluster {
 				.getPairwiseAligner(thisSequence, otherSequence, alignerType,
 						gapPenalty, subsMatrix);
 
+		return mergeSequence(other, params, aligner);
+	}
+
+	/**
+	 * Aligns the sequences of two Subunits as done by
+	 * {@link #mergeSequence(SubunitCluster, SubunitClustererParameters)}.
+	 * The alignment is computed before returning, so that the aligner can be
+	 * shared with other threads.
+	 *
+	 * @param s1
+	 *            representative Subunit of the merging cluster
+	 * @param s2
+	 *            representative Subunit of the merged cluster
+	 * @param params
+	 *            {@link SubunitClustererParameters}, with information whether
+	 *            to use local or global alignment
+	 * @return the aligner of the two sequences, with the alignment computed
+	 * @throws CompoundNotFoundException
+	 */
+	static PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> alignSequence(
+			Subunit s1, Subunit s2, SubunitClustererParameters params)
+			throws CompoundNotFoundException {
+		PairwiseSequenceAlignerType alignerType = PairwiseSequenceAlignerType.LOCAL;
+		if (params.isUseGlobalMetrics()) {
+			alignerType = PairwiseSequenceAlignerType.GLOBAL;
+		}
+		PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner = Alignments
+				.getPairwiseAligner(s1.getProteinSequence(), s2.getProteinSequence(),
+						alignerType, new SimpleGapPenalty(),
+						SubstitutionMatrixHelper.getBlosum62());
+		aligner.getPair();
+		return aligner;
+	}
+
+	/**
+	 * Merges the other SubunitCluster into this one if the alignment of their
+	 * representatives sequences is similar (according to the criteria in
+	 * params).
+	 *
+	 * @param other
+	 *            SubunitCluster
+	 * @param params
+	 *            {@link SubunitClustererParameters}, with sequence identity
+	 *            and coverage thresholds
+	 * @param aligner
+	 *            the aligner of the representative sequence of this cluster
+	 *            (query) to the one of the other cluster (target)
+	 * @return true if the SubunitClusters were merged, false otherwise
+	 */
+	boolean mergeSequence(SubunitCluster other, SubunitClustererParameters params,
+			PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner) {
+
 		double sequenceIdentity;
 		if(params.isUseGlobalMetrics()) {
 			sequenceIdentity = aligner.getPair().getPercentageOfIdentity(true);
@@ -474,6 +526,31 @@ public class SubunitCluster {
 
 	public boolean mergeStructure(SubunitCluster other, SubunitClustererParameters params) throws StructureException {
 
+		AFPChain afp = alignStructure(this.subunits.get(this.representative),
+				other.subunits.get(other.representative), params);
+
+		return mergeStructure(other, params, afp);
+	}
+
+	/**
+	 * Aligns the representative Atoms of two Subunits as done by
+	 * {@link #mergeStructure(SubunitCluster, SubunitClustererParameters)}.
+	 * A new aligner is created for each call, so that different threads can
+	 * align at the same time.
+	 *
+	 * @param s1
+	 *            representative Subunit of the merging cluster
+	 * @param s2
+	 *            representative Subunit of the merged cluster
+	 * @param params
+	 *            {@link SubunitClustererParameters}, with information on what
+	 *            alignment algorithm to use
+	 * @return the structural alignment of the two Subunits
+	 * @throws StructureException
+	 */
+	static AFPChain alignStructure(Subunit s1, Subunit s2,
+			SubunitClustererParameters params) throws StructureException {
+
 		StructureAlignment aligner = StructureAlignmentFactory.getAlgorithm(params.getSuperpositionAlgorithm());
 		ConfigStrucAligParams aligner_params = aligner.getParameters();
 
@@ -491,10 +568,28 @@ public class SubunitCluster {
 			}
 		}
 
-		AFPChain afp = aligner.align(this.subunits.get(this.representative)
-				.getRepresentativeAtoms(),
-				other.subunits.get(other.representative)
-						.getRepresentativeAtoms());
+		return aligner.align(s1.getRepresentativeAtoms(),
+				s2.getRepresentativeAtoms());
+	}
+
+	/**
+	 * Merges the other SubunitCluster into this one if the structural
+	 * alignment of their representative Atoms is similar (according to the
+	 * criteria in params).
+	 *
+	 * @param other
+	 *            SubunitCluster
+	 * @param params
+	 *            {@link SubunitClustererParameters}, with RMSD/TMScore and
+	 *            structure coverage thresholds
+	 * @param afp
+	 *            the alignment of the representative Atoms of this cluster
+	 *            to the ones of the other cluster
+	 * @return true if the SubunitClusters were merged, false otherwise
+	 * @throws StructureException
+	 */
+	boolean mergeStructure(SubunitCluster other, SubunitClustererParameters params,
+			AFPChain afp) throws StructureException {
 
 		// Convert AFPChain to MultipleAlignment for convenience
 		MultipleAlignment msa = new MultipleAlignmentEnsembleImpl(
@@ -723,6 +818,13 @@ public class SubunitCluster {
 		return true;
 	}
 
+	/**
+	 * @return the representative Subunit of the cluster, the longest one
+	 */
+	Subunit getRepresentativeSubunit() {
+		return subunits.get(representative);
+	}
+
 	/**
 	 * @return the number of Subunits in the cluster
 	 */
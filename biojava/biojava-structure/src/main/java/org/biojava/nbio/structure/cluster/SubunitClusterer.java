@@ -21,11 +21,24 @@
 package org.biojava.nbio.structure.cluster;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
+import org.biojava.nbio.alignment.template.PairwiseSequenceAligner;
+import org.biojava.nbio.core.alignment.matrices.SubstitutionMatrixHelper;
 import org.biojava.nbio.core.exceptions.CompoundNotFoundException;
+import org.biojava.nbio.core.sequence.ProteinSequence;
+import org.biojava.nbio.core.sequence.compound.AminoAcidCompound;
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.align.model.AFPChain;
 import org.biojava.nbio.structure.symmetry.core.Stoichiometry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +46,21 @@ import org.slf4j.LoggerFactory;
 /**
  * The SubunitClusterer takes as input a collection of {@link Subunit} and
  * returns a collection of {@link SubunitCluster}.
+ * <p>
+ * Clusters are merged greedily, each cluster absorbing the following ones
+ * that are similar to it. To keep this fast for large assemblies (e.g.
+ * icosahedral capsids with 60 or 180 Subunits):
+ * <ul>
+ * <li>Subunits with identical sequences are first grouped together, and a
+ * single sequence alignment is done for each group;</li>
+ * <li>the remaining pairwise comparisons (sequence and structure alignments)
+ * of the representatives of the clusters are memoised and, given an
+ * {@link ExecutionContext}, run in parallel ahead of the greedy merging;</li>
+ * <li>given an {@link ExecutionContext}, the internal symmetry of each
+ * cluster is analyzed in parallel.</li>
+ * </ul>
+ * The merging itself is sequential, so the clusters do not depend on the
+ * number of threads.
  *
  * @author Aleix Lafita
  * @since 5.0.0
@@ -57,6 +85,25 @@ public class SubunitClusterer {
 	}
 
 	public static Stoichiometry cluster(List<Subunit> subunits, SubunitClustererParameters params) {
+		return cluster(subunits, params, null);
+	}
+
+	/**
+	 * Clusters the Subunits, running the pairwise comparisons and the internal
+	 * symmetry analyses in the given context.
+	 *
+	 * @param subunits
+	 *            the Subunits to cluster
+	 * @param params
+	 *            {@link SubunitClustererParameters}
+	 * @param context
+	 *            the context running the comparisons, or null to compare
+	 *            in this thread, as they are needed
+	 * @return the {@link Stoichiometry} of the clusters
+	 * @since 6.0.6
+	 */
+	public static Stoichiometry cluster(List<Subunit> subunits,
+			SubunitClustererParameters params, ExecutionContext context) {
 		List<SubunitCluster> clusters = new ArrayList<>();
 		if (subunits.size() == 0)
 			return new Stoichiometry(clusters);
@@ -67,71 +114,296 @@ public class SubunitClusterer {
 
 		if (params.getClustererMethod() == SubunitClustererMethod.SEQUENCE ||
 				params.getClustererMethod() == SubunitClustererMethod.SEQUENCE_STRUCTURE) {
-			// Now merge clusters by SEQUENCE
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (params.isUseEntityIdForSeqIdentityDetermination() &&
-								clusters.get(c1).mergeIdenticalByEntityId(clusters.get(c2))) {
-							// This we will only do if the switch is for entity id comparison is on.
-							// In some cases it can save enormous amounts of time, e.g. for clustering full
-							// chains of deposited PDB entries. For instance for 6NHJ: with pure alignments it
-							// takes ~ 6 hours, with entity id comparisons it takes 2 minutes.
-							clusters.remove(c2);
-						} else if (clusters.get(c1).mergeSequence(clusters.get(c2), params)) {
-							clusters.remove(c2);
-						}
-
-					} catch (CompoundNotFoundException e) {
-						logger.warn("Could not merge by Sequence. {}",
-								e.getMessage());
-					}
-				}
-			}
+			// Now merge clusters by SEQUENCE, identical ones first
+			SequenceMerger merger = new SequenceMerger(params);
+			clusters = mergeIdentical(clusters, merger, context);
+			merge(clusters, merger, context);
 		}
 
 		if (params.getClustererMethod() == SubunitClustererMethod.STRUCTURE ||
 				params.getClustererMethod() == SubunitClustererMethod.SEQUENCE_STRUCTURE) {
 			// Now merge clusters by STRUCTURE
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (clusters.get(c1).mergeStructure(clusters.get(c2), params)) {
-							clusters.remove(c2);
-						}
-					} catch (StructureException e) {
-						logger.warn("Could not merge by Structure. {}", e.getMessage());
-					}
-				}
-			}
+			merge(clusters, new StructureMerger(params), context);
 		}
 
 		if (params.isInternalSymmetry()) {
 			// Now divide clusters by their INTERNAL SYMMETRY
-			for (int c = 0; c < clusters.size(); c++) {
+			List<Future<Boolean>> futures = new ArrayList<>();
+			for (SubunitCluster cluster : clusters)
+				futures.add(submit(context, () -> cluster.divideInternally(params)));
+			for (Future<Boolean> future : futures) {
 				try {
-					clusters.get(c).divideInternally(params);
+					getResult(future, context);
 				} catch (StructureException e) {
 					logger.warn("Error analyzing internal symmetry. {}",
 							e.getMessage());
+				} catch (Exception e) {
+					throw rethrow(e);
 				}
 			}
 
 			// After internal symmetry merge again by structural similarity
 			// Use case: C8 propeller with 3 chains with 3+3+2 repeats each
-			for (int c1 = 0; c1 < clusters.size(); c1++) {
-				for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
-					try {
-						if (clusters.get(c1).mergeStructure(clusters.get(c2), params))
-							clusters.remove(c2);
-					} catch (StructureException e) {
-						logger.warn("Could not merge by Structure. {}",
-								e.getMessage());
+			merge(clusters, new StructureMerger(params), context);
+		}
+
+		return new Stoichiometry(clusters);
+	}
+
+	/**
+	 * Merges the clusters of identical sequences, aligning each sequence only
+	 * once.
+	 *
+	 * @return the remaining clusters, in their original order
+	 */
+	private static List<SubunitCluster> mergeIdentical(
+			List<SubunitCluster> clusters, SequenceMerger merger,
+			ExecutionContext context) {
+
+		// Group the clusters by sequence (hash and length, then equality)
+		Map<String, List<SubunitCluster>> groups = new LinkedHashMap<>();
+		for (SubunitCluster c : clusters) {
+			Subunit s = c.getRepresentativeSubunit();
+			try {
+				// The sequence is cached in the Subunit, create it before the
+				// alignments run in parallel
+				s.getProteinSequence();
+			} catch (CompoundNotFoundException e) {
+				// reported when the Subunit is aligned
+			}
+			groups.computeIfAbsent(s.getProteinSequenceString(),
+					k -> new ArrayList<>()).add(c);
+		}
+
+		List<Future<PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound>>> alignments = new ArrayList<>();
+		for (List<SubunitCluster> group : groups.values()) {
+			if (group.size() == 1) {
+				alignments.add(null);
+				continue;
+			}
+			Subunit s1 = group.get(0).getRepresentativeSubunit();
+			Subunit s2 = group.get(1).getRepresentativeSubunit();
+			alignments.add(submit(context, () -> merger.compare(s1, s2)));
+		}
+
+		Map<SubunitCluster, Boolean> merged = new IdentityHashMap<>();
+		int g = 0;
+		for (List<SubunitCluster> group : groups.values()) {
+			Future<PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound>> alignment = alignments.get(g++);
+			for (int c = group.size() - 1; c > 0; c--) {
+				try {
+					if (merger.mergeIdentical(group.get(0), group.get(c))
+							|| merger.merge(group.get(0), group.get(c), getResult(alignment, context)))
+						merged.put(group.get(c), true);
+				} catch (Exception e) {
+					merger.failed(e);
+				}
+			}
+		}
+
+		List<SubunitCluster> remaining = new ArrayList<>();
+		for (SubunitCluster c : clusters) {
+			if (!merged.containsKey(c))
+				remaining.add(c);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Merges each cluster with the following ones that are similar to it.
+	 * The comparisons of the representative of a cluster to the
+	 * representatives of the following clusters are submitted together, and
+	 * again if the representative changes after a merge.
+	 */
+	private static <T> void merge(List<SubunitCluster> clusters,
+			ClusterMerger<T> merger, ExecutionContext context) {
+
+		Map<Subunit, Map<Subunit, Future<T>>> comparisons = new IdentityHashMap<>();
+		List<Future<T>> futures = new ArrayList<>();
+
+		for (int c1 = 0; c1 < clusters.size(); c1++) {
+			for (int c2 = clusters.size() - 1; c2 > c1; c2--) {
+				SubunitCluster cluster1 = clusters.get(c1);
+				SubunitCluster cluster2 = clusters.get(c2);
+				Subunit s1 = cluster1.getRepresentativeSubunit();
+				Map<Subunit, Future<T>> row = comparisons
+						.computeIfAbsent(s1, k -> new IdentityHashMap<>());
+
+				if (!row.containsKey(cluster2.getRepresentativeSubunit())) {
+					// Compare to all the clusters left in this loop
+					for (int c = c2; c > c1; c--) {
+						Subunit s2 = clusters.get(c).getRepresentativeSubunit();
+						if (!row.containsKey(s2)) {
+							Future<T> future = submit(context, () -> merger.compare(s1, s2));
+							row.put(s2, future);
+							futures.add(future);
+						}
 					}
 				}
+
+				try {
+					if (merger.mergeIdentical(cluster1, cluster2)
+							|| merger.merge(cluster1, cluster2, getResult(
+									row.get(cluster2.getRepresentativeSubunit()), context)))
+						clusters.remove(c2);
+				} catch (Exception e) {
+					merger.failed(e);
+				}
 			}
 		}
 
-		return new Stoichiometry(clusters);
+		// Comparisons to a replaced representative are not needed anymore
+		for (Future<T> future : futures)
+			future.cancel(false);
+	}
+
+	/**
+	 * Submits a comparison to the context or, without a context, defers it to
+	 * the first call to {@link Future#get()}, so that the comparisons which
+	 * are not needed anymore are not run.
+	 */
+	private static <T> Future<T> submit(ExecutionContext context,
+			Callable<T> comparison) {
+		if (context != null)
+			return context.submit(comparison);
+		return new FutureTask<T>(comparison) {
+			@Override
+			public T get() throws InterruptedException, ExecutionException {
+				run();
+				return super.get();
+			}
+		};
+	}
+
+	/**
+	 * Waits for a comparison, and throws the exception of the comparison if it
+	 * failed.
+	 */
+	private static <T> T getResult(Future<T> future, ExecutionContext context)
+			throws Exception {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			if (context != null)
+				context.cancel();
+			throw new RuntimeException("Interrupted while clustering subunits", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof Exception)
+				throw (Exception) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+
+	private static RuntimeException rethrow(Exception e) {
+		if (e instanceof RuntimeException)
+			return (RuntimeException) e;
+		return new RuntimeException(e);
+	}
+
+	/**
+	 * The comparison of the representatives of two clusters, and the merging of
+	 * the clusters from the result of the comparison.
+	 *
+	 * @param <T>
+	 *            the result of the comparison
+	 */
+	private interface ClusterMerger<T> {
+
+		/**
+		 * Merges the clusters without comparing them, if that is possible.
+		 */
+		boolean mergeIdentical(SubunitCluster c1, SubunitCluster c2);
+
+		/**
+		 * Compares two Subunits. This is called from several threads.
+		 */
+		T compare(Subunit s1, Subunit s2) throws Exception;
+
+		/**
+		 * Merges c2 into c1 if their comparison is good enough.
+		 */
+		boolean merge(SubunitCluster c1, SubunitCluster c2, T comparison)
+				throws Exception;
+
+		/**
+		 * Reports a failed comparison or merge.
+		 */
+		void failed(Exception e);
+	}
+
+	private static class SequenceMerger implements
+			ClusterMerger<PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound>> {
+
+		private final SubunitClustererParameters params;
+
+		SequenceMerger(SubunitClustererParameters params) {
+			this.params = params;
+			// Load the shared matrix before the alignments run in parallel
+			SubstitutionMatrixHelper.getBlosum62();
+		}
+
+		@Override
+		public boolean mergeIdentical(SubunitCluster c1, SubunitCluster c2) {
+			// This we will only do if the switch is for entity id comparison is on.
+			// In some cases it can save enormous amounts of time, e.g. for clustering full
+			// chains of deposited PDB entries. For instance for 6NHJ: with pure alignments it
+			// takes ~ 6 hours, with entity id comparisons it takes 2 minutes.
+			return params.isUseEntityIdForSeqIdentityDetermination()
+					&& c1.mergeIdenticalByEntityId(c2);
+		}
+
+		@Override
+		public PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> compare(
+				Subunit s1, Subunit s2) throws CompoundNotFoundException {
+			return SubunitCluster.alignSequence(s1, s2, params);
+		}
+
+		@Override
+		public boolean merge(SubunitCluster c1, SubunitCluster c2,
+				PairwiseSequenceAligner<ProteinSequence, AminoAcidCompound> aligner) {
+			return c1.mergeSequence(c2, params, aligner);
+		}
+
+		@Override
+		public void failed(Exception e) {
+			if (e instanceof CompoundNotFoundException)
+				logger.warn("Could not merge by Sequence. {}", e.getMessage());
+			else
+				throw rethrow(e);
+		}
+	}
+
+	private static class StructureMerger implements ClusterMerger<AFPChain> {
+
+		private final SubunitClustererParameters params;
+
+		StructureMerger(SubunitClustererParameters params) {
+			this.params = params;
+		}
+
+		@Override
+		public boolean mergeIdentical(SubunitCluster c1, SubunitCluster c2) {
+			return false;
+		}
+
+		@Override
+		public AFPChain compare(Subunit s1, Subunit s2) throws StructureException {
+			return SubunitCluster.alignStructure(s1, s2, params);
+		}
+
+		@Override
+		public boolean merge(SubunitCluster c1, SubunitCluster c2, AFPChain afp)
+				throws StructureException {
+			return c1.mergeStructure(c2, params, afp);
+		}
+
+		@Override
+		public void failed(Exception e) {
+			if (e instanceof StructureException)
+				logger.warn("Could not merge by Structure. {}", e.getMessage());
+			else
+				throw rethrow(e);
+		}
 	}
 }
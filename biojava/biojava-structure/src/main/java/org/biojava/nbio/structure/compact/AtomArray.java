@@ -0,0 +1,754 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.HetatomImpl;
+import org.biojava.nbio.structure.NucleotideImpl;
+import org.biojava.nbio.structure.ResidueNumber;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.contact.BoundingBox;
+
+/**
+ * A compact, column oriented (structure of arrays) representation of a set of atoms.
+ * <p>
+ * Instead of one {@link org.biojava.nbio.structure.AtomImpl AtomImpl} object per atom, each with its own
+ * {@link Point3d}, name and bond list, all properties are stored in primitive arrays indexed by atom
+ * number: coordinates in three <code>double[]</code>, elements as <code>short[]</code> ordinals, atom and group
+ * names interned, and bonds in compressed sparse row (CSR) form. Groups and chains are stored the same way,
+ * as ranges of atom and group indices. This uses several times less memory than the object model for
+ * large structures and keeps coordinates contiguous, so that the geometric calculations of this class run
+ * over plain arrays, see {@link #getXCoords()}, {@link #getCentroid()} and {@link #transform(Matrix4d)}.
+ * {@link org.biojava.nbio.structure.geometry.SuperPositionQCPBatch} reads the packed coordinates of
+ * {@link #getCoordsPacked()}; other APIs such as {@link org.biojava.nbio.structure.Calc},
+ * {@link org.biojava.nbio.structure.contact.Grid} or
+ * {@link org.biojava.nbio.structure.geometry.SuperPositionQCP} still take atoms or points, which are
+ * copied by {@link #toPoint3dArray()}.
+ * <p>
+ * Code that works with the object model can use {@link #getAtom(int)}: atom views read and write the
+ * arrays directly. They are created on demand and are not cached, two views of the same atom are
+ * {@link Object#equals(Object) equal}. {@link #getGroup(int)} and {@link #getChain(int)} return group
+ * and chain objects holding the atom views. These are created once, one chain at a time, and cached,
+ * but they are not views: their names and residue numbers are copied from the arrays when created,
+ * and changing them or their lists of groups and atoms does not modify this AtomArray.
+ * <p>
+ * The number of atoms, groups and chains and the bonds can't be changed after creation.
+ * Instances can be read concurrently, but modifying coordinates or other properties is not
+ * thread-safe.
+ * <p>
+ * Usage:
+ * <pre>
+ *  Structure s = StructureIO.getStructure("4hhb");
+ *  AtomArray atoms = AtomArray.fromStructure(s);
+ *  Point3d centroid = atoms.getCentroid();
+ * </pre>
+ *
+ * @since 6.0.6
+ */
+public class AtomArray {
+
+	private static final Element[] ELEMENTS = Element.values();
+	private static final GroupType[] GROUP_TYPES = GroupType.values();
+
+	// atoms
+	private final int size;
+	private final double[] x;
+	private final double[] y;
+	private final double[] z;
+	private final short[] element;
+	private final String[] name;
+	private final int[] serial;
+	private final float[] occupancy;
+	private final float[] tempFactor;
+	private final char[] altLoc;
+	private final short[] charge;
+	private final int[] atomGroup;
+
+	// bonds in CSR form: the partners of atom i are bondPartner[bondOffset[i]] to bondPartner[bondOffset[i+1]-1]
+	private final int[] bondOffset;
+	private final int[] bondPartner;
+	private final byte[] bondOrder;
+
+	// groups: the atoms of group g are groupAtomOffset[g] to groupAtomOffset[g+1]-1
+	private final int nGroups;
+	private final String[] groupName;
+	private final int[] groupResNum;
+	private final char[] groupInsCode;
+	private final byte[] groupType;
+	private final boolean[] groupHetAtomInFile;
+	private final int[] groupAtomOffset;
+	private final int[] groupChain;
+
+	// chains: the groups of chain c are chainGroupOffset[c] to chainGroupOffset[c+1]-1
+	private final int nChains;
+	private final String[] chainId;
+	private final String[] chainName;
+	private final int[] chainGroupOffset;
+
+	// lazily created groups and chains holding the atom views
+	private Group[] groups;
+	private Chain[] chains;
+
+	private AtomArray(int size, int nGroups, int nChains, int nBonds) {
+		this.size = size;
+		x = new double[size];
+		y = new double[size];
+		z = new double[size];
+		element = new short[size];
+		name = new String[size];
+		serial = new int[size];
+		occupancy = new float[size];
+		tempFactor = new float[size];
+		altLoc = new char[size];
+		charge = new short[size];
+		atomGroup = new int[size];
+
+		bondOffset = new int[size + 1];
+		bondPartner = new int[nBonds];
+		bondOrder = new byte[nBonds];
+
+		this.nGroups = nGroups;
+		groupName = new String[nGroups];
+		groupResNum = new int[nGroups];
+		groupInsCode = new char[nGroups];
+		groupType = new byte[nGroups];
+		groupHetAtomInFile = new boolean[nGroups];
+		groupAtomOffset = new int[nGroups + 1];
+		groupChain = new int[nGroups];
+
+		this.nChains = nChains;
+		chainId = new String[nChains];
+		chainName = new String[nChains];
+		chainGroupOffset = new int[nChains + 1];
+	}
+
+	/**
+	 * Creates an AtomArray with all atoms of the first model of the given structure.
+	 * @param s
+	 * @return
+	 */
+	public static AtomArray fromStructure(Structure s) {
+		return fromStructure(s, 0);
+	}
+
+	/**
+	 * Creates an AtomArray with all atoms of the given model of the given structure.
+	 * @param s
+	 * @param modelNr the 0-based model index
+	 * @return
+	 */
+	public static AtomArray fromStructure(Structure s, int modelNr) {
+		return fromAtoms(StructureTools.getAllAtomArray(s, modelNr));
+	}
+
+	/**
+	 * Creates an AtomArray from the given atoms. Atoms must be sorted so that the atoms of
+	 * each group, and the groups of each chain, are contiguous, as returned by
+	 * {@link StructureTools#getAllAtomArray(Structure)} or {@link StructureTools#getRepresentativeAtomArray(Structure)}.
+	 * Atoms without a parent group, and groups without a parent chain, are each given a group or chain of their own.
+	 * Bonds to atoms that are not part of the input are dropped.
+	 * @param atoms
+	 * @return
+	 */
+	public static AtomArray fromAtoms(Atom[] atoms) {
+		// first pass: count groups, chains and bonds
+		Map<Atom, Integer> atomIndex = new IdentityHashMap<>(atoms.length);
+		int nGroups = 0;
+		int nChains = 0;
+		Group lastGroup = null;
+		Chain lastChain = null;
+		for (int i = 0; i < atoms.length; i++) {
+			atomIndex.put(atoms[i], i);
+			Group g = atoms[i].getGroup();
+			if (g == null || g != lastGroup) {
+				nGroups++;
+				Chain c = g == null ? null : g.getChain();
+				if (c == null || c != lastChain || nChains == 0) {
+					nChains++;
+				}
+				lastChain = c;
+			}
+			lastGroup = g;
+		}
+		int nBonds = 0;
+		for (Atom a : atoms) {
+			if (a.getBonds() == null)
+				continue;
+			for (Bond b : a.getBonds()) {
+				if (atomIndex.containsKey(b.getOther(a)))
+					nBonds++;
+			}
+		}
+
+		AtomArray array = new AtomArray(atoms.length, nGroups, nChains, nBonds);
+
+		// second pass: fill the arrays
+		Map<String, String> pool = new HashMap<>();
+		int g = -1;
+		int c = -1;
+		int b = 0;
+		lastGroup = null;
+		lastChain = null;
+		for (int i = 0; i < atoms.length; i++) {
+			Atom a = atoms[i];
+			Group group = a.getGroup();
+			if (group == null || group != lastGroup) {
+				g++;
+				array.groupAtomOffset[g] = i;
+				Chain chain = group == null ? null : group.getChain();
+				if (chain == null || chain != lastChain || c < 0) {
+					c++;
+					array.chainGroupOffset[c] = g;
+					if (chain != null) {
+						array.chainId[c] = intern(pool, chain.getId());
+						array.chainName[c] = intern(pool, chain.getName());
+					}
+				}
+				lastChain = chain;
+				array.groupChain[g] = c;
+				if (group != null) {
+					array.groupName[g] = intern(pool, group.getPDBName());
+					array.groupType[g] = (byte) group.getType().ordinal();
+					array.groupHetAtomInFile[g] = group.isHetAtomInFile();
+					ResidueNumber resNum = group.getResidueNumber();
+					if (resNum != null) {
+						array.groupResNum[g] = resNum.getSeqNum() == null ? 0 : resNum.getSeqNum();
+						array.groupInsCode[g] = resNum.getInsCode() == null ? 0 : resNum.getInsCode();
+					}
+				} else {
+					array.groupType[g] = (byte) GroupType.HETATM.ordinal();
+				}
+			}
+			lastGroup = group;
+
+			array.atomGroup[i] = g;
+			array.x[i] = a.getX();
+			array.y[i] = a.getY();
+			array.z[i] = a.getZ();
+			array.element[i] = (short) (a.getElement() == null ? Element.R : a.getElement()).ordinal();
+			array.name[i] = intern(pool, a.getName());
+			array.serial[i] = a.getPDBserial();
+			array.occupancy[i] = a.getOccupancy();
+			array.tempFactor[i] = a.getTempFactor();
+			array.altLoc[i] = a.getAltLoc() == null ? 0 : a.getAltLoc();
+			array.charge[i] = a.getCharge();
+
+			array.bondOffset[i] = b;
+			if (a.getBonds() != null) {
+				for (Bond bond : a.getBonds()) {
+					Integer partner = atomIndex.get(bond.getOther(a));
+					if (partner != null) {
+						array.bondPartner[b] = partner;
+						array.bondOrder[b] = (byte) bond.getBondOrder();
+						b++;
+					}
+				}
+			}
+		}
+		array.bondOffset[atoms.length] = b;
+		array.groupAtomOffset[nGroups] = atoms.length;
+		array.chainGroupOffset[nChains] = nGroups;
+		return array;
+	}
+
+	private static String intern(Map<String, String> pool, String s) {
+		if (s == null)
+			return null;
+		String interned = pool.putIfAbsent(s, s);
+		return interned == null ? s : interned;
+	}
+
+	/**
+	 * @return the number of atoms
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return the number of groups
+	 */
+	public int getGroupCount() {
+		return nGroups;
+	}
+
+	/**
+	 * @return the number of chains
+	 */
+	public int getChainCount() {
+		return nChains;
+	}
+
+	/**
+	 * Returns the backing array of x coordinates. Changes to the returned array are
+	 * reflected in this AtomArray and its views.
+	 * @return
+	 */
+	public double[] getXCoords() {
+		return x;
+	}
+
+	/**
+	 * Returns the backing array of y coordinates. Changes to the returned array are
+	 * reflected in this AtomArray and its views.
+	 * @return
+	 */
+	public double[] getYCoords() {
+		return y;
+	}
+
+	/**
+	 * Returns the backing array of z coordinates. Changes to the returned array are
+	 * reflected in this AtomArray and its views.
+	 * @return
+	 */
+	public double[] getZCoords() {
+		return z;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getZ(int i) {
+		return z[i];
+	}
+
+	public void setCoords(int i, double x, double y, double z) {
+		this.x[i] = x;
+		this.y[i] = y;
+		this.z[i] = z;
+	}
+
+	public Element getElement(int i) {
+		return ELEMENTS[element[i]];
+	}
+
+	public void setElement(int i, Element e) {
+		element[i] = (short) e.ordinal();
+	}
+
+	public String getName(int i) {
+		return name[i];
+	}
+
+	public void setName(int i, String s) {
+		name[i] = s;
+	}
+
+	public int getPDBserial(int i) {
+		return serial[i];
+	}
+
+	public void setPDBserial(int i, int s) {
+		serial[i] = s;
+	}
+
+	public float getOccupancy(int i) {
+		return occupancy[i];
+	}
+
+	public void setOccupancy(int i, float o) {
+		occupancy[i] = o;
+	}
+
+	public float getTempFactor(int i) {
+		return tempFactor[i];
+	}
+
+	public void setTempFactor(int i, float t) {
+		tempFactor[i] = t;
+	}
+
+	/**
+	 * @param i
+	 * @return the alt loc of atom i, or 0 if it has none
+	 */
+	public char getAltLoc(int i) {
+		return altLoc[i];
+	}
+
+	public void setAltLoc(int i, char c) {
+		altLoc[i] = c;
+	}
+
+	public short getCharge(int i) {
+		return charge[i];
+	}
+
+	public void setCharge(int i, short c) {
+		charge[i] = c;
+	}
+
+	/**
+	 * @param i
+	 * @return the index of the group atom i belongs to
+	 */
+	public int getGroupIndex(int i) {
+		return atomGroup[i];
+	}
+
+	/**
+	 * @param i
+	 * @return the number of atoms bonded to atom i
+	 */
+	public int getBondCount(int i) {
+		return bondOffset[i + 1] - bondOffset[i];
+	}
+
+	/**
+	 * @param i
+	 * @param n
+	 * @return the index of the n-th atom bonded to atom i
+	 */
+	public int getBondPartner(int i, int n) {
+		return bondPartner[bondOffset[i] + n];
+	}
+
+	/**
+	 * @param i
+	 * @param n
+	 * @return the order of the n-th bond of atom i
+	 */
+	public int getBondOrder(int i, int n) {
+		return bondOrder[bondOffset[i] + n];
+	}
+
+	/**
+	 * @param i
+	 * @param j
+	 * @return true if atoms i and j are bonded
+	 */
+	public boolean hasBond(int i, int j) {
+		for (int b = bondOffset[i]; b < bondOffset[i + 1]; b++) {
+			if (bondPartner[b] == j)
+				return true;
+		}
+		return false;
+	}
+
+	public String getGroupName(int g) {
+		return groupName[g];
+	}
+
+	public int getGroupResidueNumber(int g) {
+		return groupResNum[g];
+	}
+
+	/**
+	 * @param g
+	 * @return the insertion code of group g, or 0 if it has none
+	 */
+	public char getGroupInsCode(int g) {
+		return groupInsCode[g];
+	}
+
+	public GroupType getGroupType(int g) {
+		return GROUP_TYPES[groupType[g]];
+	}
+
+	/**
+	 * @param g
+	 * @return the index of the first atom of group g
+	 */
+	public int getGroupStart(int g) {
+		return groupAtomOffset[g];
+	}
+
+	/**
+	 * @param g
+	 * @return the index after the last atom of group g
+	 */
+	public int getGroupEnd(int g) {
+		return groupAtomOffset[g + 1];
+	}
+
+	/**
+	 * @param g
+	 * @return the index of the chain group g belongs to
+	 */
+	public int getChainIndex(int g) {
+		return groupChain[g];
+	}
+
+	public String getChainId(int c) {
+		return chainId[c];
+	}
+
+	public String getChainName(int c) {
+		return chainName[c];
+	}
+
+	/**
+	 * @param c
+	 * @return the index of the first group of chain c
+	 */
+	public int getChainStart(int c) {
+		return chainGroupOffset[c];
+	}
+
+	/**
+	 * @param c
+	 * @return the index after the last group of chain c
+	 */
+	public int getChainEnd(int c) {
+		return chainGroupOffset[c + 1];
+	}
+
+	/**
+	 * Returns the distance between atoms i and j.
+	 * @param i
+	 * @param j
+	 * @return
+	 */
+	public double getDistance(int i, int j) {
+		double dx = x[i] - x[j];
+		double dy = y[i] - y[j];
+		double dz = z[i] - z[j];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+
+	/**
+	 * Returns the centroid of all atoms, unweighted.
+	 * @return
+	 */
+	public Point3d getCentroid() {
+		double cx = 0, cy = 0, cz = 0;
+		for (int i = 0; i < size; i++) {
+			cx += x[i];
+			cy += y[i];
+			cz += z[i];
+		}
+		return new Point3d(cx / size, cy / size, cz / size);
+	}
+
+	/**
+	 * Translates all atoms by the given vector.
+	 * @param v
+	 */
+	public void translate(Vector3d v) {
+		for (int i = 0; i < size; i++) {
+			x[i] += v.x;
+			y[i] += v.y;
+			z[i] += v.z;
+		}
+	}
+
+	/**
+	 * Transforms all atoms in place with the given rotation and translation.
+	 * @param m
+	 */
+	public void transform(Matrix4d m) {
+		for (int i = 0; i < size; i++) {
+			double xi = x[i], yi = y[i], zi = z[i];
+			x[i] = m.m00 * xi + m.m01 * yi + m.m02 * zi + m.m03;
+			y[i] = m.m10 * xi + m.m11 * yi + m.m12 * zi + m.m13;
+			z[i] = m.m20 * xi + m.m21 * yi + m.m22 * zi + m.m23;
+		}
+	}
+
+	/**
+	 * @return the bounding box of all atoms
+	 * @throws IllegalArgumentException if there are no atoms
+	 */
+	public BoundingBox getBoundingBox() {
+		if (size == 0)
+			throw new IllegalArgumentException("Can't compute the bounding box of an empty AtomArray");
+		double xmin = x[0], xmax = x[0], ymin = y[0], ymax = y[0], zmin = z[0], zmax = z[0];
+		for (int i = 1; i < size; i++) {
+			xmin = Math.min(xmin, x[i]);
+			xmax = Math.max(xmax, x[i]);
+			ymin = Math.min(ymin, y[i]);
+			ymax = Math.max(ymax, y[i]);
+			zmin = Math.min(zmin, z[i]);
+			zmax = Math.max(zmax, z[i]);
+		}
+		return new BoundingBox(xmin, xmax, ymin, ymax, zmin, zmax);
+	}
+
+	/**
+	 * Returns a copy of the coordinates, interleaved as x0,y0,z0,x1,y1,z1,...
+	 * @return
+	 */
+	public double[] getCoordsPacked() {
+		double[] packed = new double[3 * size];
+		for (int i = 0; i < size; i++) {
+			packed[3 * i] = x[i];
+			packed[3 * i + 1] = y[i];
+			packed[3 * i + 2] = z[i];
+		}
+		return packed;
+	}
+
+	/**
+	 * Returns a copy of the coordinates as points, to be used with APIs such as
+	 * {@link org.biojava.nbio.structure.geometry.SuperPositionQCP} or
+	 * {@link org.biojava.nbio.structure.contact.Grid}.
+	 * @return
+	 */
+	public Point3d[] toPoint3dArray() {
+		Point3d[] points = new Point3d[size];
+		for (int i = 0; i < size; i++) {
+			points[i] = new Point3d(x[i], y[i], z[i]);
+		}
+		return points;
+	}
+
+	/**
+	 * Returns a view of atom i. The view reads and writes this AtomArray.
+	 * @param i
+	 * @return
+	 */
+	public Atom getAtom(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Atom index " + i + " out of bounds for size " + size);
+		return new CompactAtom(this, i);
+	}
+
+	/**
+	 * Returns views of all atoms.
+	 * @return
+	 */
+	public Atom[] getAtoms() {
+		Atom[] atoms = new Atom[size];
+		for (int i = 0; i < size; i++) {
+			atoms[i] = new CompactAtom(this, i);
+		}
+		return atoms;
+	}
+
+	/**
+	 * Returns group g, created with its chain and cached. Its atoms are views of this AtomArray,
+	 * while its name and residue number are copies: changing them, or adding or removing atoms,
+	 * does not modify this AtomArray.
+	 * @param g
+	 * @return
+	 */
+	public Group getGroup(int g) {
+		if (g < 0 || g >= nGroups)
+			throw new IndexOutOfBoundsException("Group index " + g + " out of bounds for size " + nGroups);
+		getChain(groupChain[g]);
+		return groups[g];
+	}
+
+	/**
+	 * Returns chain c, with its groups, created on the first call and cached.
+	 * Only the atoms of the groups are views of this AtomArray.
+	 * @param c
+	 * @return
+	 * @see #getGroup(int)
+	 */
+	public synchronized Chain getChain(int c) {
+		if (c < 0 || c >= nChains)
+			throw new IndexOutOfBoundsException("Chain index " + c + " out of bounds for size " + nChains);
+		if (chains == null) {
+			chains = new Chain[nChains];
+			groups = new Group[nGroups];
+		}
+		if (chains[c] == null) {
+			Chain chain = new ChainImpl();
+			chain.setId(chainId[c]);
+			chain.setName(chainName[c]);
+			for (int g = chainGroupOffset[c]; g < chainGroupOffset[c + 1]; g++) {
+				Group group = createGroup(g);
+				groups[g] = group;
+				List<Atom> atoms = new ArrayList<>(groupAtomOffset[g + 1] - groupAtomOffset[g]);
+				for (int i = groupAtomOffset[g]; i < groupAtomOffset[g + 1]; i++) {
+					atoms.add(new CompactAtom(this, i));
+				}
+				group.setAtoms(atoms);
+				chain.addGroup(group);
+			}
+			chains[c] = chain;
+		}
+		return chains[c];
+	}
+
+	/**
+	 * Returns all chains.
+	 * @return
+	 * @see #getChain(int)
+	 */
+	public List<Chain> getChains() {
+		List<Chain> all = new ArrayList<>(nChains);
+		for (int c = 0; c < nChains; c++) {
+			all.add(getChain(c));
+		}
+		return all;
+	}
+
+	private Group createGroup(int g) {
+		Group group;
+		switch (getGroupType(g)) {
+		case AMINOACID:
+			group = new AminoAcidImpl();
+			break;
+		case NUCLEOTIDE:
+			group = new NucleotideImpl();
+			break;
+		default:
+			group = new HetatomImpl();
+			break;
+		}
+		group.setPDBName(groupName[g]);
+		group.setHetAtomInFile(groupHetAtomInFile[g]);
+		group.setResidueNumber(chainName[groupChain[g]], groupResNum[g],
+				groupInsCode[g] == 0 ? null : groupInsCode[g]);
+		return group;
+	}
+
+	/**
+	 * Returns group g, or null if it was not created yet.
+	 * Only used by the atom views, which must not trigger the creation of the groups
+	 * while those are being created.
+	 */
+	synchronized Group getGroupIfCreated(int g) {
+		return groups == null ? null : groups[g];
+	}
+
+	@Override
+	public String toString() {
+		return "AtomArray [atoms=" + size + ", groups=" + nGroups + ", chains=" + nChains
+				+ ", bonds=" + bondPartner.length + "]";
+	}
+}
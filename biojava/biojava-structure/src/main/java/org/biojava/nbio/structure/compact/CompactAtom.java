@@ -0,0 +1,287 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.BondImpl;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.io.FileConvert;
+
+/**
+ * An {@link Atom} that is a view of one atom of an {@link AtomArray}: all getters and
+ * setters read and write the arrays.
+ * <p>
+ * Note that {@link #getCoordsAsPoint3d()} returns a copy, so modifying it does not move the atom,
+ * use {@link #setX(double)} etc. or {@link AtomArray#transform(javax.vecmath.Matrix4d)} instead.
+ * Bonds are read-only and {@link #getBonds()} creates new {@link Bond} objects on each call.
+ *
+ * @since 6.0.6
+ */
+class CompactAtom implements Atom {
+
+	private static final long serialVersionUID = 1L;
+
+	private final AtomArray array;
+	private final int index;
+
+	CompactAtom(AtomArray array, int index) {
+		this.array = array;
+		this.index = index;
+	}
+
+	/**
+	 * @return the index of this atom in its AtomArray
+	 */
+	int getIndex() {
+		return index;
+	}
+
+	@Override
+	public void setName(String s) {
+		array.setName(index, s);
+	}
+
+	@Override
+	public String getName() {
+		return array.getName(index);
+	}
+
+	@Override
+	public void setElement(Element e) {
+		array.setElement(index, e);
+	}
+
+	@Override
+	public Element getElement() {
+		return array.getElement(index);
+	}
+
+	@Override
+	public void setPDBserial(int i) {
+		array.setPDBserial(index, i);
+	}
+
+	@Override
+	public int getPDBserial() {
+		return array.getPDBserial(index);
+	}
+
+	@Override
+	public void setCoords(double[] c) {
+		array.setCoords(index, c[0], c[1], c[2]);
+	}
+
+	@Override
+	public double[] getCoords() {
+		return new double[] {getX(), getY(), getZ()};
+	}
+
+	/**
+	 * Returns a copy of the coordinates: modifying it does not move the atom.
+	 */
+	@Override
+	public Point3d getCoordsAsPoint3d() {
+		return new Point3d(getX(), getY(), getZ());
+	}
+
+	@Override
+	public void setX(double x) {
+		array.getXCoords()[index] = x;
+	}
+
+	@Override
+	public void setY(double y) {
+		array.getYCoords()[index] = y;
+	}
+
+	@Override
+	public void setZ(double z) {
+		array.getZCoords()[index] = z;
+	}
+
+	@Override
+	public double getX() {
+		return array.getX(index);
+	}
+
+	@Override
+	public double getY() {
+		return array.getY(index);
+	}
+
+	@Override
+	public double getZ() {
+		return array.getZ(index);
+	}
+
+	@Override
+	public void setAltLoc(Character c) {
+		array.setAltLoc(index, c == null ? 0 : c);
+	}
+
+	@Override
+	public Character getAltLoc() {
+		char c = array.getAltLoc(index);
+		if (c == 0)
+			return null;
+		return c;
+	}
+
+	@Override
+	public void setOccupancy(float occupancy) {
+		array.setOccupancy(index, occupancy);
+	}
+
+	@Override
+	public float getOccupancy() {
+		return array.getOccupancy(index);
+	}
+
+	@Override
+	public void setTempFactor(float temp) {
+		array.setTempFactor(index, temp);
+	}
+
+	@Override
+	public float getTempFactor() {
+		return array.getTempFactor(index);
+	}
+
+	/**
+	 * Returns a detached copy of this atom, as an {@link AtomImpl} without parent group or bonds.
+	 */
+	@Override
+	public Object clone() {
+		AtomImpl n = new AtomImpl();
+		n.setName(getName());
+		n.setElement(getElement());
+		n.setPDBserial(getPDBserial());
+		n.setX(getX());
+		n.setY(getY());
+		n.setZ(getZ());
+		n.setAltLoc(getAltLoc());
+		n.setOccupancy(getOccupancy());
+		n.setTempFactor(getTempFactor());
+		n.setCharge(getCharge());
+		return n;
+	}
+
+	/**
+	 * Only the group of this atom in its AtomArray can be set as parent, since the atom can't be moved
+	 * to a different group.
+	 * @throws UnsupportedOperationException for any other group
+	 */
+	@Override
+	public void setGroup(Group parent) {
+		if (parent != array.getGroupIfCreated(array.getGroupIndex(index)))
+			throw new UnsupportedOperationException("The group of an AtomArray atom can't be changed");
+	}
+
+	@Override
+	public Group getGroup() {
+		return array.getGroup(array.getGroupIndex(index));
+	}
+
+	/**
+	 * @throws UnsupportedOperationException bonds of an AtomArray can't be changed
+	 */
+	@Override
+	public void addBond(Bond bond) {
+		throw new UnsupportedOperationException("Bonds of an AtomArray can't be changed");
+	}
+
+	@Override
+	public List<Bond> getBonds() {
+		int n = array.getBondCount(index);
+		if (n == 0)
+			return null;
+		List<Bond> bonds = new ArrayList<>(n);
+		for (int b = 0; b < n; b++) {
+			Atom other = new CompactAtom(array, array.getBondPartner(index, b));
+			bonds.add(new BondImpl(this, other, array.getBondOrder(index, b), false));
+		}
+		return bonds;
+	}
+
+	/**
+	 * @throws UnsupportedOperationException bonds of an AtomArray can't be changed
+	 */
+	@Override
+	public void setBonds(List<Bond> bonds) {
+		throw new UnsupportedOperationException("Bonds of an AtomArray can't be changed");
+	}
+
+	@Override
+	public boolean hasBond(Atom other) {
+		if (!(other instanceof CompactAtom))
+			return false;
+		CompactAtom o = (CompactAtom) other;
+		return o.array == array && array.hasBond(index, o.index);
+	}
+
+	@Override
+	public short getCharge() {
+		return array.getCharge(index);
+	}
+
+	@Override
+	public void setCharge(short charge) {
+		array.setCharge(index, charge);
+	}
+
+	@Override
+	public String toPDB() {
+		return FileConvert.toPDB(this);
+	}
+
+	@Override
+	public void toPDB(StringBuffer buf) {
+		FileConvert.toPDB(this, buf);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof CompactAtom))
+			return false;
+		CompactAtom other = (CompactAtom) o;
+		return array == other.array && index == other.index;
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * System.identityHashCode(array) + index;
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " " + getElement() + " " + getPDBserial() + " " + getX() + " " + getY() + " " + getZ();
+	}
+}
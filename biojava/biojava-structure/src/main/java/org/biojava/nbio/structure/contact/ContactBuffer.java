@@ -0,0 +1,152 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+import java.util.Arrays;
+
+/**
+ * A growable list of contacts held in primitive arrays: the pairs of indices and their distance. Unlike a list of
+ * {@link Contact}s, no object is created per contact.
+ * <p>
+ * A buffer is not thread safe: it must have a single writer. When given to
+ * {@link Grid#forEachContact(ContactConsumer)} of a parallel grid, the contacts are first gathered by the grid, one
+ * buffer per task, and then added to it from the calling thread.
+ *
+ * @see Grid#getContactBuffer()
+ * @since 6.0.6
+ */
+public class ContactBuffer implements ContactConsumer {
+
+	private int[] is;
+	private int[] js;
+	private double[] distances;
+	private int size;
+
+	public ContactBuffer() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity the initial number of contacts that can be added without growing the arrays
+	 */
+	public ContactBuffer(int capacity) {
+		capacity = Math.max(1, capacity);
+		is = new int[capacity];
+		js = new int[capacity];
+		distances = new double[capacity];
+	}
+
+	/**
+	 * Adds a contact.
+	 * @param i the index of the first point
+	 * @param j the index of the second point
+	 * @param distance the distance between the two points
+	 */
+	public void add(int i, int j, double distance) {
+		if (size == is.length) {
+			grow(size + 1);
+		}
+		is[size] = i;
+		js[size] = j;
+		distances[size] = distance;
+		size++;
+	}
+
+	/**
+	 * Adds all contacts of another buffer, after those of this one.
+	 * @param other
+	 */
+	public void addAll(ContactBuffer other) {
+		if (size + other.size > is.length) {
+			grow(size + other.size);
+		}
+		System.arraycopy(other.is, 0, is, size, other.size);
+		System.arraycopy(other.js, 0, js, size, other.size);
+		System.arraycopy(other.distances, 0, distances, size, other.size);
+		size += other.size;
+	}
+
+	@Override
+	public void accept(int i, int j, double distance) {
+		add(i, j, distance);
+	}
+
+	private void grow(int minCapacity) {
+		int capacity = Math.max(minCapacity, is.length + (is.length >> 1));
+		is = Arrays.copyOf(is, capacity);
+		js = Arrays.copyOf(js, capacity);
+		distances = Arrays.copyOf(distances, capacity);
+	}
+
+	/**
+	 * @return the number of contacts
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param k the index of a contact
+	 * @return the index of its first point
+	 */
+	public int getI(int k) {
+		checkIndex(k);
+		return is[k];
+	}
+
+	/**
+	 * @param k the index of a contact
+	 * @return the index of its second point
+	 */
+	public int getJ(int k) {
+		checkIndex(k);
+		return js[k];
+	}
+
+	/**
+	 * @param k the index of a contact
+	 * @return the distance between its points
+	 */
+	public double getDistance(int k) {
+		checkIndex(k);
+		return distances[k];
+	}
+
+	/**
+	 * @param k the index of a contact
+	 * @return the contact as an object
+	 */
+	public Contact getContact(int k) {
+		checkIndex(k);
+		return new Contact(is[k], js[k], distances[k]);
+	}
+
+	private void checkIndex(int k) {
+		if (k < 0 || k >= size) {
+			throw new IndexOutOfBoundsException("Index " + k + " out of " + size + " contacts");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ContactBuffer [%d contacts]", size);
+	}
+}
@@ -0,0 +1,39 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.contact;
+
+/**
+ * Receives the contacts found by a {@link Grid} one by one, as pairs of indices and their distance, so that they
+ * do not need to be kept in memory.
+ *
+ * @see Grid#forEachContact(ContactConsumer)
+ * @since 6.0.6
+ */
+public interface ContactConsumer {
+
+	/**
+	 * Called for each contact.
+	 * @param i the index of the first point, in the i points of the grid
+	 * @param j the index of the second point, in the j points of the grid, or in the i points if there are no j points
+	 * @param distance the distance between the two points
+	 */
+	void accept(int i, int j, double distance);
+}
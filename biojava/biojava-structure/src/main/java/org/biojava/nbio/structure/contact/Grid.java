@@ -25,6 +25,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.vecmath.Point3d;
 
@@ -36,7 +38,15 @@ import org.biojava.nbio.structure.Calc;
  * A grid to be used for calculating atom contacts through a spatial hashing algorithm.
  * <p>
  * The grid is composed of cells of size of the cutoff so that the distances that need to be calculated
- * are reduced to those within each cell and to the neighbouring cells.
+ * are reduced to those within each cell and to the neighbouring cells. Only the non-empty cells are stored, in a
+ * hash table keyed by cell position, and the coordinates are copied to primitive arrays, so that memory use is
+ * proportional to the number of points and not to the volume of their bounding box, which matters for large
+ * assemblies such as capsids.
+ * <p>
+ * Contacts can be obtained as {@link Contact} or {@link AtomContact} objects, in primitive arrays with
+ * {@link #getContactBuffer()}, or streamed to a {@link ContactConsumer} with {@link #forEachContact(ContactConsumer)}
+ * without keeping them in memory. In parallel mode (see {@link #setParallel(boolean)}) the cells are split
+ * between the threads of the common fork-join pool; the contacts are found in the same order either way.
  * <p>
  * Usage, for generic 3D points:
  * <pre>
@@ -63,7 +73,25 @@ public class Grid {
 	 */
 	private static final int SCALE=100;
 
-	private GridCell[][][] cells;
+	/**
+	 * The number of cells enumerated by a task in parallel mode
+	 */
+	private static final int CELLS_PER_TASK = 256;
+
+	// the non-empty cells, in order of position (x first), as offsets into the i and j point indices
+	private int numCells;
+	private int[] cellX, cellY, cellZ;
+	private int[] iCellStart, iCellIndices;
+	private int[] jCellStart, jCellIndices;
+	private CellTable cellTable;
+	// the number of cells along y and z
+	private int ny, nz;
+
+	// the coordinates, as x,y,z triplets
+	private double[] iCoords;
+	private double[] jCoords;
+
+	private boolean parallel;
 
 	private double cutoff;
 	private int cellSize;
@@ -291,6 +319,11 @@ public class Grid {
 	 */
 	private void fillGrid() {
 
+		noOverlap = false;
+		iCoords = null;
+		jCoords = null;
+		cellTable = null;
+
 		if (jbounds!=null && !ibounds.overlaps(jbounds, cutoff)) {
 			//System.out.print("-");
 			noOverlap = true;
@@ -299,38 +332,91 @@ public class Grid {
 
 		findFullGridIntBounds();
 
-		cells = new GridCell[1+(bounds[3]-bounds[0])/cellSize]
-		                    [1+(bounds[4]-bounds[1])/cellSize]
-		                    [1+(bounds[5]-bounds[2])/cellSize];
+		int nx = 1+(bounds[3]-bounds[0])/cellSize;
+		ny = 1+(bounds[4]-bounds[1])/cellSize;
+		nz = 1+(bounds[5]-bounds[2])/cellSize;
 
-		int i = 0;
-		for (Point3d atom:iAtoms) {
+		iCoords = toCoords(iAtoms);
+		long[] iKeys = getCellKeys(iCoords, nx);
+		long[] jKeys = new long[0];
+		if (jAtoms!=null) {
+			jCoords = toCoords(jAtoms);
+			jKeys = getCellKeys(jCoords, nx);
+		}
 
-			int xind = xintgrid2xgridindex(getFloor(atom.x));
-			int yind = yintgrid2ygridindex(getFloor(atom.y));
-			int zind = zintgrid2zgridindex(getFloor(atom.z));
-			if (cells[xind][yind][zind]==null) {
-				cells[xind][yind][zind] = new GridCell(this);
-			}
-			cells[xind][yind][zind].addIindex(i);
-			i++;
+		// the distinct keys, sorted, are the cells
+		long[] keys = Arrays.copyOf(iKeys, iKeys.length+jKeys.length);
+		System.arraycopy(jKeys, 0, keys, iKeys.length, jKeys.length);
+		Arrays.sort(keys);
+		numCells = 0;
+		for (int k=0;k<keys.length;k++) {
+			if (k==0 || keys[k]!=keys[k-1]) keys[numCells++] = keys[k];
+		}
+		cellTable = new CellTable(numCells);
+		cellX = new int[numCells];
+		cellY = new int[numCells];
+		cellZ = new int[numCells];
+		for (int c=0;c<numCells;c++) {
+			cellTable.put(keys[c], c);
+			cellX[c] = (int) (keys[c]/((long)ny*nz));
+			cellY[c] = (int) (keys[c]/nz%ny);
+			cellZ[c] = (int) (keys[c]%nz);
 		}
 
-		if (jAtoms==null) return;
+		iCellStart = new int[numCells+1];
+		iCellIndices = fillCells(iKeys, iCellStart);
+		jCellStart = new int[numCells+1];
+		jCellIndices = fillCells(jKeys, jCellStart);
+	}
 
-		int j = 0;
-		for (Point3d atom:jAtoms) {
+	private static double[] toCoords(Point3d[] points) {
+		double[] coords = new double[3*points.length];
+		for (int i=0;i<points.length;i++) {
+			coords[3*i] = points[i].x;
+			coords[3*i+1] = points[i].y;
+			coords[3*i+2] = points[i].z;
+		}
+		return coords;
+	}
 
-			int xind = xintgrid2xgridindex(getFloor(atom.x));
-			int yind = yintgrid2ygridindex(getFloor(atom.y));
-			int zind = zintgrid2zgridindex(getFloor(atom.z));
-			if (cells[xind][yind][zind]==null) {
-				cells[xind][yind][zind] = new GridCell(this);
+	/**
+	 * Returns the key of the cell of each point, which orders cells by x, then y, then z index.
+	 */
+	private long[] getCellKeys(double[] coords, int nx) {
+		long[] keys = new long[coords.length/3];
+		for (int i=0;i<keys.length;i++) {
+			int xind = xintgrid2xgridindex(getFloor(coords[3*i]));
+			int yind = yintgrid2ygridindex(getFloor(coords[3*i+1]));
+			int zind = zintgrid2zgridindex(getFloor(coords[3*i+2]));
+			if (xind<0 || xind>=nx || yind<0 || yind>=ny || zind<0 || zind>=nz) {
+				throw new IllegalArgumentException("Point "+i+" is outside of the given bounds");
 			}
-			cells[xind][yind][zind].addJindex(j);
-			j++;
+			keys[i] = ((long)xind*ny+yind)*nz+zind;
 		}
+		return keys;
+	}
 
+	/**
+	 * Groups the point indices by cell, keeping them in increasing order within each cell.
+	 * @param keys the cell key of each point
+	 * @param start receives the offset of each cell in the returned indices
+	 * @return the point indices
+	 */
+	private int[] fillCells(long[] keys, int[] start) {
+		int[] cellOfPoint = new int[keys.length];
+		for (int i=0;i<keys.length;i++) {
+			cellOfPoint[i] = cellTable.get(keys[i]);
+			start[cellOfPoint[i]+1]++;
+		}
+		for (int c=0;c<numCells;c++) {
+			start[c+1] += start[c];
+		}
+		int[] next = Arrays.copyOf(start, numCells);
+		int[] indices = new int[keys.length];
+		for (int i=0;i<keys.length;i++) {
+			indices[next[cellOfPoint[i]]++] = i;
+		}
+		return indices;
 	}
 
 	/**
@@ -382,17 +468,11 @@ public class Grid {
 
 		AtomContactSet contacts = new AtomContactSet(cutoff);
 
-		List<Contact> list = getIndicesContacts();
-
-		if (jAtomObjects == null) {
-			for (Contact cont : list) {
-				contacts.add(new AtomContact(new Pair<Atom>(iAtomObjects[cont.getI()],iAtomObjects[cont.getJ()]),cont.getDistance()));
-			}
+		ContactBuffer buffer = getContactBuffer();
 
-		} else {
-			for (Contact cont : list) {
-				contacts.add(new AtomContact(new Pair<Atom>(iAtomObjects[cont.getI()],jAtomObjects[cont.getJ()]),cont.getDistance()));
-			}
+		Atom[] jObjects = jAtomObjects == null ? iAtomObjects : jAtomObjects;
+		for (int k = 0; k < buffer.size(); k++) {
+			contacts.add(new AtomContact(new Pair<Atom>(iAtomObjects[buffer.getI(k)],jObjects[buffer.getJ(k)]),buffer.getDistance(k)));
 		}
 
 		return contacts;
@@ -418,41 +498,133 @@ public class Grid {
 	 */
 	public List<Contact> getIndicesContacts() {
 
-		List<Contact> list = new ArrayList<>();
+		ContactBuffer buffer = getContactBuffer();
+
+		List<Contact> list = new ArrayList<>(buffer.size());
+		for (int k = 0; k < buffer.size(); k++) {
+			list.add(buffer.getContact(k));
+		}
+
+		return list;
+	}
+
+	/**
+	 * Returns all contacts, i.e. all atoms that are within the cutoff distance, as the atom indices pairs and the
+	 * distance held in primitive arrays. The contacts are the same, in the same order, as those of
+	 * {@link #getIndicesContacts()}.
+	 * If both iAtoms and jAtoms are defined then contacts are between iAtoms and jAtoms,
+	 * if jAtoms is null, then contacts are within the iAtoms.
+	 * @return
+	 * @since 6.0.6
+	 */
+	public ContactBuffer getContactBuffer() {
 
 		// if the 2 sets of atoms are not overlapping they are too far away and no need to calculate anything
 		// this won't apply if there's only one set of atoms (iAtoms), where we would want all-to-all contacts
-		if (noOverlap) return list;
+		if (noOverlap) return new ContactBuffer();
 
+		if (!parallel || numCells <= CELLS_PER_TASK) {
+			ContactBuffer buffer = new ContactBuffer();
+			forEachContact(0, numCells, buffer);
+			return buffer;
+		}
 
-		for (int xind=0;xind<cells.length;xind++) {
-			for (int yind=0;yind<cells[xind].length;yind++) {
-				for (int zind=0;zind<cells[xind][yind].length;zind++) {
-					// distances of points within this cell
-					GridCell thisCell = cells[xind][yind][zind];
-					if (thisCell==null) continue;
+		// each task fills its own buffer, which are then concatenated in order
+		List<ContactBuffer> buffers = IntStream.range(0, (numCells+CELLS_PER_TASK-1)/CELLS_PER_TASK).parallel()
+				.mapToObj(t -> {
+					ContactBuffer buffer = new ContactBuffer();
+					forEachContact(t*CELLS_PER_TASK, Math.min(numCells, (t+1)*CELLS_PER_TASK), buffer);
+					return buffer;
+				})
+				.collect(Collectors.toList());
+		int size = 0;
+		for (ContactBuffer buffer : buffers) {
+			size += buffer.size();
+		}
+		ContactBuffer all = new ContactBuffer(size);
+		for (ContactBuffer buffer : buffers) {
+			all.addAll(buffer);
+		}
+		return all;
+	}
+
+	/**
+	 * Passes all contacts, i.e. all atoms that are within the cutoff distance, to the given consumer, without keeping
+	 * them in memory. In parallel mode the consumer is called concurrently from several threads, and must then be
+	 * thread safe; otherwise it receives the contacts in the order of {@link #getIndicesContacts()}. A
+	 * {@link ContactBuffer} is not thread safe, so it always receives the contacts from the calling thread, in order.
+	 * If both iAtoms and jAtoms are defined then contacts are between iAtoms and jAtoms,
+	 * if jAtoms is null, then contacts are within the iAtoms.
+	 * @param consumer
+	 * @since 6.0.6
+	 */
+	public void forEachContact(ContactConsumer consumer) {
 
-					list.addAll(thisCell.getContactsWithinCell());
+		if (noOverlap) return;
 
-					// distances of points from this box to all neighbouring boxes: 26 iterations (26 neighbouring boxes)
-					for (int x=xind-1;x<=xind+1;x++) {
-						for (int y=yind-1;y<=yind+1;y++) {
-							for (int z=zind-1;z<=zind+1;z++) {
-								if (x==xind && y==yind && z==zind) continue;
+		if (!parallel || numCells <= CELLS_PER_TASK) {
+			forEachContact(0, numCells, consumer);
+			return;
+		}
+
+		if (consumer instanceof ContactBuffer) {
+			((ContactBuffer) consumer).addAll(getContactBuffer());
+			return;
+		}
 
-								if (x>=0 && x<cells.length && y>=0 && y<cells[x].length && z>=0 && z<cells[x][y].length) {
-									if (cells[x][y][z] == null) continue;
+		IntStream.range(0, (numCells+CELLS_PER_TASK-1)/CELLS_PER_TASK).parallel()
+				.forEach(t -> forEachContact(t*CELLS_PER_TASK, Math.min(numCells, (t+1)*CELLS_PER_TASK), consumer));
+	}
 
-									list.addAll(thisCell.getContactsToOtherCell(cells[x][y][z]));
-								}
-							}
+	/**
+	 * Finds the contacts of the i points of the given range of cells.
+	 */
+	private void forEachContact(int fromCell, int toCell, ContactConsumer consumer) {
+
+		boolean self = jCoords==null;
+		double[] jc = self ? iCoords : jCoords;
+		int[] jStart = self ? iCellStart : jCellStart;
+		int[] jIndices = self ? iCellIndices : jCellIndices;
+		// compared squared first, then as the distance itself, to get the same contacts as Point3d.distance()
+		double cutoffSq = cutoff*cutoff*(1+1e-9);
+
+		for (int c=fromCell;c<toCell;c++) {
+			if (iCellStart[c]==iCellStart[c+1]) continue;
+
+			// distances of points within this cell first, then to the 26 neighbouring cells
+			for (int n=-1;n<27;n++) {
+				int other;
+				if (n<0) {
+					other = c;
+				} else {
+					if (n==13) continue; // this cell
+					other = getCell(cellX[c]+n/9-1, cellY[c]+n/3%3-1, cellZ[c]+n%3-1);
+					if (other<0) continue;
+				}
+				for (int a=iCellStart[c];a<iCellStart[c+1];a++) {
+					int i = iCellIndices[a];
+					double x = iCoords[3*i], y = iCoords[3*i+1], z = iCoords[3*i+2];
+					for (int b=jStart[other];b<jStart[other+1];b++) {
+						int j = jIndices[b];
+						if (self && j<=i) continue;
+						double dx = x-jc[3*j], dy = y-jc[3*j+1], dz = z-jc[3*j+2];
+						double distSq = dx*dx+dy*dy+dz*dz;
+						if (distSq<cutoffSq) {
+							double distance = Math.sqrt(distSq);
+							if (distance<cutoff) consumer.accept(i, j, distance);
 						}
 					}
 				}
 			}
 		}
+	}
 
-		return list;
+	/**
+	 * Returns the index of the cell at the given position, or -1 if it is empty or outside of the grid.
+	 */
+	private int getCell(int xind, int yind, int zind) {
+		if (xind<0 || yind<0 || yind>=ny || zind<0 || zind>=nz) return -1;
+		return cellTable.get(((long)xind*ny+yind)*nz+zind);
 	}
 
 	/**
@@ -474,15 +646,13 @@ public class Grid {
 
 			// Consider 3x3x3 grid of cells around point
 			for (int x=xind-1;x<=xind+1;x++) {
-				if( x<0 || cells.length<=x) continue;
 				for (int y=yind-1;y<=yind+1;y++) {
-					if( y<0 || cells[x].length<=y ) continue;
 					for (int z=zind-1;z<=zind+1;z++) {
-						if( z<0 || cells[x][y].length<=z ) continue;
-
-						GridCell cell = cells[x][y][z];
+						int cell = getCell(x, y, z);
+						if (cell<0) continue;
 						// Check for contacts in this cell
-						if(cell != null && cell.hasContactToAtom(iAtoms, jAtoms, atom, cutoff)) {
+						if (hasContactToAtom(iCoords, iCellStart, iCellIndices, cell, atom)
+								|| (jCoords!=null && hasContactToAtom(jCoords, jCellStart, jCellIndices, cell, atom))) {
 							return true;
 						}
 					}
@@ -492,6 +662,15 @@ public class Grid {
 		return false;
 	}
 
+	private boolean hasContactToAtom(double[] coords, int[] start, int[] indices, int cell, Point3d query) {
+		for (int a=start[cell];a<start[cell+1];a++) {
+			int i = indices[a];
+			double dx = coords[3*i]-query.x, dy = coords[3*i+1]-query.y, dz = coords[3*i+2]-query.z;
+			if (Math.sqrt(dx*dx+dy*dy+dz*dz)<cutoff) return true;
+		}
+		return false;
+	}
+
 	public double getCutoff() {
 		return cutoff;
 	}
@@ -505,6 +684,27 @@ public class Grid {
 		return noOverlap;
 	}
 
+	/**
+	 * Tells whether contacts are enumerated in parallel.
+	 * @return true if contacts are enumerated by several threads
+	 * @since 6.0.6
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Sets whether contacts are enumerated in parallel, on the common fork-join pool. This pays off for large sets of
+	 * atoms, e.g. whole assemblies. The contacts found, and their order, are the same in either mode, but a
+	 * {@link ContactConsumer} passed to {@link #forEachContact(ContactConsumer)} is called from several threads.
+	 * Default is false.
+	 * @param parallel
+	 * @since 6.0.6
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
 	protected Point3d[] getIAtoms() {
 		return iAtoms;
 	}
@@ -513,4 +713,43 @@ public class Grid {
 		return jAtoms;
 	}
 
+	/**
+	 * An open addressing hash table from cell keys to cell indices.
+	 */
+	private static class CellTable {
+
+		private final long[] keys;
+		private final int[] values;
+		private final int mask;
+
+		CellTable(int size) {
+			int capacity = Integer.highestOneBit(Math.max(2, size)*2-1)*2;
+			keys = new long[capacity];
+			values = new int[capacity];
+			Arrays.fill(values, -1);
+			mask = capacity-1;
+		}
+
+		private int slot(long key) {
+			long h = key*0x9E3779B97F4A7C15L;
+			return (int) (h^(h>>>32)) & mask;
+		}
+
+		void put(long key, int value) {
+			int s = slot(key);
+			while (values[s]>=0 && keys[s]!=key) s = (s+1) & mask;
+			keys[s] = key;
+			values[s] = value;
+		}
+
+		int get(long key) {
+			int s = slot(key);
+			while (values[s]>=0) {
+				if (keys[s]==key) return values[s];
+				s = (s+1) & mask;
+			}
+			return -1;
+		}
+	}
+
 }
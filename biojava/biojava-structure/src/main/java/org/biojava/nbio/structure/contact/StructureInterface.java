@@ -34,22 +34,23 @@ import org.biojava.nbio.structure.chem.ChemComp;
 import org.biojava.nbio.structure.chem.PolymerType;
 import org.biojava.nbio.structure.io.FileConvert;
 import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.RecordWriter;
 import org.biojava.nbio.structure.io.cif.AbstractCifFileSupplier;
+import org.biojava.nbio.structure.io.cif.CifStructureWriter;
 import org.biojava.nbio.structure.xtal.CrystalTransform;
-import org.rcsb.cif.CifBuilder;
-import org.rcsb.cif.CifIO;
-import org.rcsb.cif.model.Category;
-import org.rcsb.cif.schema.StandardSchemata;
-import org.rcsb.cif.schema.mm.MmCifBlockBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.TreeMap;
 
 
@@ -717,6 +718,24 @@ public class StructureInterface implements Serializable, Comparable<StructureInt
 	 * @return the PDB-formatted string
 	 */
 	public String toPDB() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			RecordWriter out = new RecordWriter(bytes);
+			toPDB(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write the 2 molecules of this interface in PDB format, as {@link #toPDB()}, one atom at a time.
+	 * @param out the writer of the records
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toPDB(RecordWriter out) throws IOException {
 
 		String molecId1 = getMoleculeIds().getFirst();
 		String molecId2 = getMoleculeIds().getSecond();
@@ -732,20 +751,21 @@ public class StructureInterface implements Serializable, Comparable<StructureInt
 			}
 		}
 
-		StringBuilder sb = new StringBuilder();
+		String newline = System.getProperty("line.separator");
+		StringBuilder line = new StringBuilder(82);
 		for (Atom atom:this.molecules.getFirst()) {
-			sb.append(FileConvert.toPDB(atom, molecId1));
+			line.setLength(0);
+			FileConvert.toPDB(atom, line, molecId1);
+			out.append(line);
 		}
-		sb.append("TER");
-		sb.append(System.getProperty("line.separator"));
+		out.append("TER").append(newline);
 		for (Atom atom:this.molecules.getSecond()) {
-			sb.append(FileConvert.toPDB(atom,molecId2));
+			line.setLength(0);
+			FileConvert.toPDB(atom, line, molecId2);
+			out.append(line);
 		}
-		sb.append("TER");
-		sb.append(System.getProperty("line.separator"));
-		sb.append("END");
-		sb.append(System.getProperty("line.separator"));
-		return sb.toString();
+		out.append("TER").append(newline);
+		out.append("END").append(newline);
 	}
 
 	/**
@@ -755,46 +775,61 @@ public class StructureInterface implements Serializable, Comparable<StructureInt
 	 * @return the mmCIF-formatted string
 	 */
 	public String toMMCIF() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			RecordWriter out = new RecordWriter(bytes);
+			toMMCIF(out);
+			out.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Write the 2 molecules of this interface in mmCIF format, as {@link #toMMCIF()}, one atom at a time.
+	 * @param out the writer of the records
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toMMCIF(RecordWriter out) throws IOException {
 		String molecId1 = getMoleculeIds().getFirst();
 		String molecId2 = getMoleculeIds().getSecond();
 
-		if (isSymRelated()) {
+		boolean symRelated = isSymRelated();
+		if (symRelated) {
 			// if both chains are named equally we want to still named them differently in the output mmcif file
 			// so that molecular viewers can handle properly the 2 chains as separate entities
 			molecId2 = molecId2 + "_" + getTransforms().getSecond().getTransformId();
 		}
-
-		MmCifBlockBuilder mmCifBlockBuilder = CifBuilder.enterFile(StandardSchemata.MMCIF)
-				.enterBlock("BioJava_interface_" + getId());
+		final String chainId2 = molecId2;
 
 		// we reassign atom ids if sym related (otherwise atom ids would be duplicated and some molecular viewers can't cope with that)
-		int atomId = 1;
-		List<AbstractCifFileSupplier.WrappedAtom> wrappedAtoms = new ArrayList<>();
-		for (Atom atom : this.molecules.getFirst()) {
-			if (isSymRelated()) {
-				wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, molecId1, molecId1, atom, atomId));
-			} else {
-				wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, molecId1, molecId1, atom, atom.getPDBserial()));
-			}
-			atomId++;
-		}
-		for (Atom atom : this.molecules.getSecond()) {
-			if (isSymRelated()) {
-				wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, molecId2, molecId2, atom, atomId));
-			} else {
-				wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, molecId2, molecId2, atom, atom.getPDBserial()));
+		Atom[] first = this.molecules.getFirst();
+		Atom[] second = this.molecules.getSecond();
+		Iterator<AbstractCifFileSupplier.WrappedAtom> wrappedAtoms = new Iterator<AbstractCifFileSupplier.WrappedAtom>() {
+			private int i = 0;
+
+			@Override
+			public boolean hasNext() {
+				return i < first.length + second.length;
 			}
-			atomId++;
-		}
 
-		Category atomSite = wrappedAtoms.stream().collect(AbstractCifFileSupplier.toAtomSite());
-		mmCifBlockBuilder.addCategory(atomSite);
+			@Override
+			public AbstractCifFileSupplier.WrappedAtom next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int atomId = i + 1;
+				String chainId = i < first.length ? molecId1 : chainId2;
+				Atom atom = i < first.length ? first[i] : second[i - first.length];
+				i++;
+				return new AbstractCifFileSupplier.WrappedAtom(1, chainId, chainId, atom,
+						symRelated ? atomId : atom.getPDBserial());
+			}
+		};
 
-		try {
-			return new String(CifIO.writeText(mmCifBlockBuilder.leaveBlock().leaveFile()));
-		} catch (IOException e) {
-			throw new UncheckedIOException(e);
-		}
+		new CifStructureWriter(out).write("BioJava_interface_" + getId(), wrappedAtoms);
 	}
 
 	@Override
@@ -111,6 +111,25 @@ public class CalcPoint {
 		return clone;
 	}
 
+	/**
+	 * Copy an array of points into a flat array of coordinates, interleaved as
+	 * x0,y0,z0,x1,y1,z1,...
+	 *
+	 * @param x
+	 *            array of points. Point objects will not be modified
+	 * @return new array of 3 * x.length coordinates
+	 * @see SuperPositionQCPBatch
+	 */
+	public static double[] toPackedArray(Point3d[] x) {
+		double[] packed = new double[3 * x.length];
+		for (int i = 0; i < x.length; i++) {
+			packed[3 * i] = x[i].x;
+			packed[3 * i + 1] = x[i].y;
+			packed[3 * i + 2] = x[i].z;
+		}
+		return packed;
+	}
+
 	/*
 	 * Peter can you document this method? TODO
 	 *
@@ -236,7 +236,7 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		return transformation;
 	}
 
-	private Matrix3d getRotationMatrix() {
+	Matrix3d getRotationMatrix() {
 		getRmsd();
 		if (!transformationCalculated) {
 			calcRotationMatrix();
@@ -261,13 +261,13 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 			// translate to origin
 			xref = CalcPoint.clonePoint3dArray(x);
 			xtrans = CalcPoint.centroid(xref);
-			logger.debug("x centroid: " + xtrans);
+			logger.debug("x centroid: {}", xtrans);
 			xtrans.negate();
 			CalcPoint.translate(new Vector3d(xtrans), xref);
 
 			yref = CalcPoint.clonePoint3dArray(y);
 			ytrans = CalcPoint.centroid(yref);
-			logger.debug("y centroid: " + ytrans);
+			logger.debug("y centroid: {}", ytrans);
 			ytrans.negate();
 			CalcPoint.translate(new Vector3d(ytrans), yref);
 			innerProduct(yref, xref);
@@ -384,6 +384,38 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		e0 = (g1 + g2) * 0.5;
 	}
 
+	/**
+	 * Calculates the RMSD from the inner product of two centered coordinate
+	 * sets, computed elsewhere. The rotation matrix can then be obtained with
+	 * {@link #getRotationMatrix()}.
+	 *
+	 * @param s
+	 *            the 9 sums Sxx, Sxy, Sxz, Syx, Syy, Syz, Szx, Szy, Szz of the
+	 *            products of the reference and moved coordinates
+	 * @param e0
+	 *            half the sum of the squared norms of both coordinate sets
+	 * @param len
+	 *            the number of points (or the sum of their weights)
+	 * @return root mean square deviation of the optimal superposition
+	 * @see SuperPositionQCPBatch
+	 */
+	double calcRmsd(double[] s, double e0, double len) {
+		Sxx = s[0];
+		Sxy = s[1];
+		Sxz = s[2];
+		Syx = s[3];
+		Syy = s[4];
+		Syz = s[5];
+		Szx = s[6];
+		Szy = s[7];
+		Szz = s[8];
+		this.e0 = e0;
+		calcRmsd(len);
+		rmsdCalculated = true;
+		transformationCalculated = false;
+		return rmsd;
+	}
+
 	private int calcRmsd(double len) {
 		double Sxx2 = Sxx * Sxx;
 		double Syy2 = Syy * Syy;
@@ -442,9 +474,9 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		}
 
 		if (i == 50) {
-			logger.warn(String.format("More than %d iterations needed!", i));
+			logger.warn("More than {} iterations needed!", i);
 		} else {
-			logger.info(String.format("%d iterations needed!", i));
+			logger.debug("{} iterations needed!", i);
 		}
 
 		/*
@@ -536,7 +568,9 @@ public final class SuperPositionQCP extends SuperPositionAbstract {
 		q3 /= normq;
 		q4 /= normq;
 
-		logger.debug("q: " + q1 + " " + q2 + " " + q3 + " " + q4);
+		if (logger.isDebugEnabled()) {
+			logger.debug("q: " + q1 + " " + q2 + " " + q3 + " " + q4);
+		}
 
 		double a2 = q1 * q1;
 		double x2 = q2 * q2;
@@ -0,0 +1,462 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import javax.vecmath.Matrix3d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+
+/**
+ * Superposition of many coordinate sets onto one reference with the
+ * Quaternion-Based Characteristic Polynomial algorithm of
+ * {@link SuperPositionQCP}.
+ * <p>
+ * The coordinates are given as flat arrays, interleaved as
+ * x0,y0,z0,x1,y1,z1,... (see {@link CalcPoint#toPackedArray(Point3d[])} and
+ * {@link org.biojava.nbio.structure.compact.AtomArray#getCoordsPacked()}).
+ * The reference is copied and centered once, when the batch is created.
+ * Candidates are either single arrays, or concatenated in one array where
+ * candidate k occupies the coordinates [3nk, 3n(k+1)) for a reference of n
+ * points. Candidate coordinates are never modified nor copied.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ *    SuperPositionQCPBatch batch = new SuperPositionQCPBatch(reference);
+ *    double rmsd = batch.getRmsd(candidate);
+ *    double[] rmsds = batch.getRmsds(candidates, ExecutionContext.forkJoin(4));
+ *    Matrix4d transform = batch.superpose(candidates, k);
+ * </pre>
+ * <p>
+ * The transformations superpose the candidates onto the reference, like
+ * {@link SuperPositionQCP#superpose(Point3d[], Point3d[])} with the reference
+ * as fixed points. A batch is immutable and can be shared between threads.
+ *
+ * @since 6.0.6
+ */
+public class SuperPositionQCPBatch {
+
+	/**
+	 * The number of candidates superposed by each task of a parallel
+	 * calculation.
+	 */
+	private static final int CANDIDATES_PER_TASK = 64;
+
+	private static final ThreadLocal<Kernel> KERNELS = ThreadLocal.withInitial(Kernel::new);
+
+	private final int length;
+	private final double[] reference;
+	private final double cx, cy, cz;
+	private final double g1;
+
+	/**
+	 * Creates a batch with the given reference coordinates.
+	 *
+	 * @param reference
+	 *            the coordinates of the reference, interleaved as
+	 *            x0,y0,z0,x1,y1,z1,... The array is not modified.
+	 * @throws IllegalArgumentException
+	 *             if the array is empty or its length is not a multiple of 3
+	 */
+	public SuperPositionQCPBatch(double[] reference) {
+		if (reference.length == 0 || reference.length % 3 != 0) {
+			throw new IllegalArgumentException("The reference must have 3 coordinates for each of at least one point, found "
+					+ reference.length + " coordinates");
+		}
+		length = reference.length / 3;
+
+		double x = 0, y = 0, z = 0;
+		for (int i = 0; i < reference.length; i += 3) {
+			x += reference[i];
+			y += reference[i + 1];
+			z += reference[i + 2];
+		}
+		cx = x / length;
+		cy = y / length;
+		cz = z / length;
+
+		this.reference = new double[reference.length];
+		double g = 0;
+		for (int i = 0; i < reference.length; i += 3) {
+			double x1 = reference[i] - cx;
+			double y1 = reference[i + 1] - cy;
+			double z1 = reference[i + 2] - cz;
+			this.reference[i] = x1;
+			this.reference[i + 1] = y1;
+			this.reference[i + 2] = z1;
+			g += x1 * x1 + y1 * y1 + z1 * z1;
+		}
+		g1 = g;
+	}
+
+	/**
+	 * Creates a batch with the given reference points.
+	 *
+	 * @param reference
+	 *            the points of the reference. Point objects will not be
+	 *            modified
+	 */
+	public SuperPositionQCPBatch(Point3d[] reference) {
+		this(CalcPoint.toPackedArray(reference));
+	}
+
+	/**
+	 * @return the number of points of the reference, and of each candidate
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the centroid of the reference
+	 */
+	public Point3d getCentroid() {
+		return new Point3d(cx, cy, cz);
+	}
+
+	/**
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @return the number of candidates in the array
+	 * @throws IllegalArgumentException
+	 *             if the array does not contain a whole number of candidates
+	 */
+	public int getCandidateCount(double[] candidates) {
+		if (candidates.length % reference.length != 0) {
+			throw new IllegalArgumentException("Expected candidates of " + reference.length + " coordinates, found "
+					+ candidates.length + " coordinates");
+		}
+		return candidates.length / reference.length;
+	}
+
+	/**
+	 * Returns the RMSD of the optimal superposition of a candidate onto the
+	 * reference.
+	 *
+	 * @param candidate
+	 *            the coordinates of a candidate, as many as the reference
+	 * @return root mean square deviation of the superposition
+	 */
+	public double getRmsd(double[] candidate) {
+		checkCandidate(candidate, 0);
+		return calcRmsd(KERNELS.get(), candidate, 0);
+	}
+
+	/**
+	 * Returns the RMSD of the optimal superposition of one of the
+	 * concatenated candidates onto the reference.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @param index
+	 *            the index of the candidate in the array
+	 * @return root mean square deviation of the superposition
+	 */
+	public double getRmsd(double[] candidates, int index) {
+		checkCandidate(candidates, index);
+		return calcRmsd(KERNELS.get(), candidates, index * reference.length);
+	}
+
+	/**
+	 * Returns the transformation superposing a candidate onto the reference.
+	 *
+	 * @param candidate
+	 *            the coordinates of a candidate, as many as the reference
+	 * @return a new transformation matrix
+	 */
+	public Matrix4d superpose(double[] candidate) {
+		return superpose(candidate, 0);
+	}
+
+	/**
+	 * Returns the transformation superposing one of the concatenated
+	 * candidates onto the reference.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @param index
+	 *            the index of the candidate in the array
+	 * @return a new transformation matrix
+	 */
+	public Matrix4d superpose(double[] candidates, int index) {
+		checkCandidate(candidates, index);
+		Kernel kernel = KERNELS.get();
+		calcRmsd(kernel, candidates, index * reference.length);
+		return getTransformation(kernel);
+	}
+
+	/**
+	 * Returns the transformation superposing consecutive points of a packed
+	 * coordinate array onto the reference, e.g. a fragment of a chain. Unlike
+	 * the concatenated candidates, the candidates of overlapping fragments
+	 * can start at any point.
+	 *
+	 * @param points
+	 *            the packed coordinates of at least as many points as the
+	 *            reference, from the start point on
+	 * @param start
+	 *            the index of the first point of the candidate
+	 * @return a new transformation matrix
+	 */
+	public Matrix4d superposeAt(double[] points, int start) {
+		if (start < 0 || 3 * start + reference.length > points.length) {
+			throw new IllegalArgumentException("No candidate of " + length + " points at point " + start
+					+ " in an array of " + points.length + " coordinates");
+		}
+		Kernel kernel = KERNELS.get();
+		calcRmsd(kernel, points, 3 * start);
+		return getTransformation(kernel);
+	}
+
+	/**
+	 * Returns the RMSDs of the optimal superpositions of all concatenated
+	 * candidates onto the reference, calculated in this thread.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @return the RMSD of each candidate
+	 */
+	public double[] getRmsds(double[] candidates) {
+		return getRmsds(candidates, null);
+	}
+
+	/**
+	 * Returns the RMSDs of the optimal superpositions of all concatenated
+	 * candidates onto the reference, submitting the calculation in tasks of a
+	 * few dozen candidates to the given context.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @param context
+	 *            the context running the tasks, or null to calculate in this
+	 *            thread
+	 * @return the RMSD of each candidate
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the context is cancelled during the calculation
+	 */
+	public double[] getRmsds(double[] candidates, ExecutionContext context) {
+		double[] rmsds = new double[getCandidateCount(candidates)];
+		calculate(candidates, rmsds, null, context);
+		return rmsds;
+	}
+
+	/**
+	 * Returns the transformations superposing all concatenated candidates
+	 * onto the reference, calculated in this thread.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @return a new transformation matrix for each candidate
+	 */
+	public Matrix4d[] superposeAll(double[] candidates) {
+		return superposeAll(candidates, null, null);
+	}
+
+	/**
+	 * Returns the transformations superposing all concatenated candidates
+	 * onto the reference, submitting the calculation in tasks of a few dozen
+	 * candidates to the given context.
+	 *
+	 * @param candidates
+	 *            the concatenated coordinates of candidates
+	 * @param rmsds
+	 *            an array receiving the RMSD of each candidate, or null
+	 * @param context
+	 *            the context running the tasks, or null to calculate in this
+	 *            thread
+	 * @return a new transformation matrix for each candidate
+	 * @throws java.util.concurrent.CancellationException
+	 *             if the context is cancelled during the calculation
+	 */
+	public Matrix4d[] superposeAll(double[] candidates, double[] rmsds, ExecutionContext context) {
+		int count = getCandidateCount(candidates);
+		if (rmsds == null) {
+			rmsds = new double[count];
+		} else if (rmsds.length < count) {
+			throw new IllegalArgumentException("The RMSD array has room for " + rmsds.length + " of " + count
+					+ " candidates");
+		}
+		Matrix4d[] transformations = new Matrix4d[count];
+		calculate(candidates, rmsds, transformations, context);
+		return transformations;
+	}
+
+	/**
+	 * Computes the inner product of the centered candidate starting at the
+	 * given offset with the centered reference, and solves its RMSD. Only the
+	 * candidate is centered here, the reference was centered once.
+	 */
+	private double calcRmsd(Kernel kernel, double[] candidates, int offset) {
+		int end = offset + reference.length;
+		double x = 0, y = 0, z = 0;
+		for (int i = offset; i < end; i += 3) {
+			x += candidates[i];
+			y += candidates[i + 1];
+			z += candidates[i + 2];
+		}
+		double mx = x / length;
+		double my = y / length;
+		double mz = z / length;
+
+		double g2 = 0;
+		double sxx = 0, sxy = 0, sxz = 0, syx = 0, syy = 0, syz = 0, szx = 0, szy = 0, szz = 0;
+		for (int i = 0, j = offset; i < reference.length; i += 3, j += 3) {
+			double x1 = reference[i];
+			double y1 = reference[i + 1];
+			double z1 = reference[i + 2];
+			double x2 = candidates[j] - mx;
+			double y2 = candidates[j + 1] - my;
+			double z2 = candidates[j + 2] - mz;
+
+			g2 += x2 * x2 + y2 * y2 + z2 * z2;
+
+			sxx += x1 * x2;
+			sxy += x1 * y2;
+			sxz += x1 * z2;
+
+			syx += y1 * x2;
+			syy += y1 * y2;
+			syz += y1 * z2;
+
+			szx += z1 * x2;
+			szy += z1 * y2;
+			szz += z1 * z2;
+		}
+
+		double[] s = kernel.s;
+		s[0] = sxx;
+		s[1] = sxy;
+		s[2] = sxz;
+		s[3] = syx;
+		s[4] = syy;
+		s[5] = syz;
+		s[6] = szx;
+		s[7] = szy;
+		s[8] = szz;
+		kernel.mx = mx;
+		kernel.my = my;
+		kernel.mz = mz;
+		return kernel.qcp.calcRmsd(s, (g1 + g2) * 0.5, length);
+	}
+
+	/**
+	 * Returns the transformation of the candidate last passed to
+	 * {@link #calcRmsd(Kernel, double[], int)}: the translation of its
+	 * centroid to the origin, the rotation, and the translation to the
+	 * centroid of the reference.
+	 */
+	private Matrix4d getTransformation(Kernel kernel) {
+		Matrix3d rotmat = kernel.qcp.getRotationMatrix();
+		Matrix4d transformation = new Matrix4d();
+		transformation.set(rotmat);
+		transformation.m03 = cx - (rotmat.m00 * kernel.mx + rotmat.m01 * kernel.my + rotmat.m02 * kernel.mz);
+		transformation.m13 = cy - (rotmat.m10 * kernel.mx + rotmat.m11 * kernel.my + rotmat.m12 * kernel.mz);
+		transformation.m23 = cz - (rotmat.m20 * kernel.mx + rotmat.m21 * kernel.my + rotmat.m22 * kernel.mz);
+		return transformation;
+	}
+
+	private void checkCandidate(double[] candidates, int index) {
+		if (index < 0 || (index + 1) * reference.length > candidates.length) {
+			throw new IllegalArgumentException("No candidate " + index + " of " + reference.length
+					+ " coordinates in an array of " + candidates.length + " coordinates");
+		}
+	}
+
+	private void calculate(double[] candidates, double[] rmsds, Matrix4d[] transformations,
+			ExecutionContext context) {
+		int count = getCandidateCount(candidates);
+		if (context == null) {
+			new BatchWorker(0, count, candidates, rmsds, transformations).call();
+			return;
+		}
+
+		List<Future<Void>> futures = new ArrayList<>();
+		for (int i = 0; i < count; i += CANDIDATES_PER_TASK) {
+			futures.add(context.submit(new BatchWorker(i, Math.min(i + CANDIDATES_PER_TASK, count), candidates,
+					rmsds, transformations)));
+		}
+		try {
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted during superposition", e);
+		} catch (ExecutionException e) {
+			context.cancel();
+			throw new RuntimeException("Superposition failed", e.getCause());
+		}
+	}
+
+	/**
+	 * Superposes a range of the concatenated candidates.
+	 */
+	private class BatchWorker implements Callable<Void> {
+
+		private final int start;
+		private final int end;
+		private final double[] candidates;
+		private final double[] rmsds;
+		private final Matrix4d[] transformations;
+
+		BatchWorker(int start, int end, double[] candidates, double[] rmsds, Matrix4d[] transformations) {
+			this.start = start;
+			this.end = end;
+			this.candidates = candidates;
+			this.rmsds = rmsds;
+			this.transformations = transformations;
+		}
+
+		@Override
+		public Void call() {
+			Kernel kernel = KERNELS.get();
+			for (int k = start; k < end; k++) {
+				rmsds[k] = calcRmsd(kernel, candidates, k * reference.length);
+				if (transformations != null) {
+					transformations[k] = getTransformation(kernel);
+				}
+			}
+			return null;
+		}
+	}
+
+	/**
+	 * The buffers of the calculations of one thread, shared by all batches.
+	 * The eigenvalue and rotation are solved by a {@link SuperPositionQCP}
+	 * from the inner product computed by the batch.
+	 */
+	private static class Kernel {
+
+		private final SuperPositionQCP qcp = new SuperPositionQCP(true);
+		private final double[] s = new double[9];
+		private double mx, my, mz;
+	}
+
+}
@@ -21,7 +21,12 @@
  */
 package org.biojava.nbio.structure.io;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
@@ -38,9 +43,11 @@ import org.biojava.nbio.structure.Element;
 import org.biojava.nbio.structure.Group;
 import org.biojava.nbio.structure.GroupType;
 import org.biojava.nbio.structure.PDBHeader;
+import org.biojava.nbio.structure.ResidueNumber;
 import org.biojava.nbio.structure.Site;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.io.cif.CifStructureWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -61,6 +68,11 @@ public class FileConvert {
 	private boolean printConnections;
 
 	// Locale should be english, e.g. in DE separator is "," -> PDB files have "." !
+	/**
+	 * @deprecated no longer used to write atom records, which are formatted by {@link RecordWriter} with the same
+	 * settings (3 fraction digits, at most 4 integer digits). Changes to this format do not affect the output.
+	 */
+	@Deprecated
 	public static DecimalFormat d3 = (DecimalFormat)NumberFormat.getInstance(Locale.US);
 	static {
 		d3.setMaximumIntegerDigits(4);
@@ -68,6 +80,11 @@ public class FileConvert {
 		d3.setMaximumFractionDigits(3);
 		d3.setGroupingUsed(false);
 	}
+	/**
+	 * @deprecated no longer used to write atom records, which are formatted by {@link RecordWriter} with the same
+	 * settings (2 fraction digits, at most 3 integer digits). Changes to this format do not affect the output.
+	 */
+	@Deprecated
 	public static DecimalFormat d2 = (DecimalFormat)NumberFormat.getInstance(Locale.US);
 	static {
 		d2.setMaximumIntegerDigits(3);
@@ -78,6 +95,17 @@ public class FileConvert {
 
 	private static final String newline = System.getProperty("line.separator");
 
+	private static final String TER = String.format("%-80s","TER");
+	private static final String ENDMDL = String.format("%-80s","ENDMDL");
+
+	/** The upper case symbols of the elements, by ordinal */
+	private static final String[] ELEMENT_SYMBOLS = new String[Element.values().length];
+	static {
+		for (Element e : Element.values()) {
+			ELEMENT_SYMBOLS[e.ordinal()] = e.toString().toUpperCase();
+		}
+	}
+
 	/**
 	 * Constructs a FileConvert object.
 	 *
@@ -112,29 +140,73 @@ public class FileConvert {
 	 * Rewritten since 5.0 to use {@link Bond}s
 	 * Will produce strictly one CONECT record per bond (won't group several bonds in one line)
 	 */
-	private String printPDBConnections(){
-
-		StringBuilder str = new StringBuilder();
+	private void printPDBConnections(RecordWriter out, StringBuilder line) throws IOException {
 
 		for (Chain c:structure.getChains()) {
 			for (Group g:c.getAtomGroups()) {
 				for (Atom a:g.getAtoms()) {
 					if (a.getBonds()!=null) {
-						for (Bond b:a.getBonds()) {				//7890123456789012345678901234567890123456789012345678901234567890
-							str.append(String.format("CONECT%5d%5d                                                                "+newline, b.getAtomA().getPDBserial(), b.getAtomB().getPDBserial()));
+						for (Bond b:a.getBonds()) {
+							line.setLength(0);
+							line.append("CONECT");
+							appendRight(line, b.getAtomA().getPDBserial(), 5);
+							appendRight(line, b.getAtomB().getPDBserial(), 5);
+							RecordWriter.padRight(line, 0, 80);
+							out.append(line).append(newline);
 						}
 					}
 				}
 			}
 		}
-
-		return str.toString();
 	}
 
 	/** Convert a structure into a PDB file.
 	 * @return a String representing a PDB file.
 	 */
 	public String toPDB() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (RecordWriter out = new RecordWriter(bytes)) {
+			toPDB(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Writes the structure as a PDB file to a stream, without building the
+	 * whole file in memory.
+	 * @param out the stream to write to, which is flushed but not closed
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toPDB(OutputStream out) throws IOException {
+		RecordWriter writer = new RecordWriter(out);
+		toPDB(writer);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the structure to a PDB file, compressed with gzip if the name of
+	 * the file ends with ".gz".
+	 * @param path the file to write to
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toPDB(Path path) throws IOException {
+		try (RecordWriter out = RecordWriter.open(path)) {
+			toPDB(out);
+		}
+	}
+
+	/**
+	 * Writes the records of the PDB file of the structure. The ATOM records
+	 * are formatted one at a time into a reused line.
+	 * @param out the writer of the records
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toPDB(RecordWriter out) throws IOException {
 
 
 		StringBuffer str = new StringBuffer();
@@ -187,11 +259,14 @@ public class FileConvert {
 		if ( structure.isNmr()) {
 			str.append("EXPDTA    NMR, "+ nrModels+" STRUCTURES"+newline) ;
 		}
+		out.append(str);
+
+		StringBuilder line = new StringBuilder(82);
 		for (int m = 0 ; m < nrModels ; m++) {
 
 
 			if ( nrModels>1 ) {
-				str.append("MODEL      " + (m+1)+ newline);
+				out.append("MODEL      " + (m+1)+ newline);
 			}
 
 			List<Chain> polyChains = structure.getPolyChains(m);
@@ -206,11 +281,11 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					toPDB(g,out,line);
 
 				}
 				// End any polymeric chain with a "TER" record
-				if (nrGroups > 0) str.append(String.format("%-80s","TER")).append(newline);
+				if (nrGroups > 0) out.append(TER).append(newline);
 
 			}
 
@@ -223,13 +298,13 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					toPDB(g,out,line);
 
 					nonPolyGroupsExist = true;
 				}
 
 			}
-			if (nonPolyGroupsExist) str.append(String.format("%-80s","TER")).append(newline);;
+			if (nonPolyGroupsExist) out.append(TER).append(newline);
 
 			boolean waterGroupsExist = false;
 			for (Chain chain : waterChains) {
@@ -240,17 +315,17 @@ public class FileConvert {
 
 					Group g= chain.getAtomGroup(h);
 
-					toPDB(g,str);
+					toPDB(g,out,line);
 
 					waterGroupsExist = true;
 				}
 
 			}
-			if (waterGroupsExist) str.append(String.format("%-80s","TER")).append(newline);;
+			if (waterGroupsExist) out.append(TER).append(newline);
 
 
 			if ( nrModels>1) {
-				str.append(String.format("%-80s","ENDMDL")).append(newline);
+				out.append(ENDMDL).append(newline);
 			}
 
 
@@ -258,9 +333,26 @@ public class FileConvert {
 		}
 
 		if ( doPrintConnections() )
-			str.append(printPDBConnections());
+			printPDBConnections(out, line);
+	}
+
+	private static void toPDB(Group g, RecordWriter out, StringBuilder line) throws IOException {
+		int groupsize  = g.size();
+
+		for ( int atompos = 0 ; atompos < groupsize; atompos++) {
+			Atom a = g.getAtom(atompos);
+			if ( a == null)
+				continue ;
 
-		return str.toString() ;
+			line.setLength(0);
+			appendAtomRecord(line, a, a.getGroup().getChain().getName());
+			out.append(line);
+		}
+		if ( g.hasAltLoc()){
+			for (Group alt : g.getAltLocs() ) {
+				toPDB(alt,out,line);
+			}
+		}
 	}
 
 	private static void toPDB(Group g, StringBuffer str) {
@@ -383,89 +475,109 @@ public class FileConvert {
 	 * @param chainID the chain ID that the Atom will have in the output string
 	 */
 	public static void toPDB(Atom a, StringBuffer str, String chainID) {
+		StringBuilder line = new StringBuilder(82);
+		appendAtomRecord(line, a, chainID);
+		str.append(line);
+	}
+
+	/**
+	 * Appends the PDB formatted line of an Atom to a line that can be reused
+	 * for the next Atom, as {@link #toPDB(Atom, StringBuffer, String)}.
+	 * @param a the atom
+	 * @param line the line to append to
+	 * @param chainID the chain ID that the Atom will have in the output string
+	 * @since 6.0.6
+	 */
+	public static void toPDB(Atom a, StringBuilder line, String chainID) {
+		appendAtomRecord(line, a, chainID);
+	}
+
+	/**
+	 * Appends the ATOM or HETATM record of the atom, with its line separator,
+	 * to the line, without intermediate Strings.
+	 * @see #toPDB(Atom, StringBuffer, String)
+	 */
+	private static void appendAtomRecord(StringBuilder s, Atom a, String chainID) {
 
 		Group g = a.getGroup();
 
 		GroupType type = g.getType() ;
 
-		String record = "" ;
 		if ( type.equals(GroupType.HETATM) ) {
-			record = "HETATM";
+			s.append("HETATM");
 		} else {
-			record = "ATOM  ";
+			s.append("ATOM  ");
 		}
 
-
-		// format output ...
-		String resName = g.getPDBName();
-		String pdbcode = g.getResidueNumber().toString();
-
-
-		int    seri       = a.getPDBserial()        ;
-		String serial     = String.format("%5d",seri);
-		String fullName   = formatAtomName(a);
+		appendRight(s, a.getPDBserial(), 5);
+		s.append(' ');
+		s.append(formatAtomName(a));
 
 		Character  altLoc = a.getAltLoc();
 		if ( altLoc == null)
 			altLoc = ' ';
+		s.append(altLoc.charValue());
 
-		String resseq = "" ;
-		if ( hasInsertionCode(pdbcode) )
-			resseq     = String.format("%5s",pdbcode);
-		else
-			resseq     = String.format("%4s",pdbcode)+" ";
-
-		String x          = String.format("%8s",d3.format(a.getX()));
-		String y          = String.format("%8s",d3.format(a.getY()));
-		String z          = String.format("%8s",d3.format(a.getZ()));
-		String occupancy  = String.format("%6s",d2.format(a.getOccupancy())) ;
-		String tempfactor = String.format("%6s",d2.format(a.getTempFactor()));
-
-
-		String leftResName = String.format("%3s",resName);
-
-		StringBuffer s = new StringBuffer();
-		s.append(record);
-		s.append(serial);
-		s.append(" ");
-		s.append(fullName);
-		s.append(altLoc);
-		s.append(leftResName);
-		s.append(" ");
+		int start = s.length();
+		s.append(g.getPDBName());
+		RecordWriter.padLeft(s, start, 3);
+		s.append(' ');
 		s.append(chainID);
-		s.append(resseq);
+
+		// the residue number with its insertion code, as ResidueNumber.toString()
+		ResidueNumber residueNumber = g.getResidueNumber();
+		Integer seqNum = residueNumber.getSeqNum();
+		Character insCode = residueNumber.getInsCode();
+		boolean hasInsertionCode = seqNum == null || (insCode != null && insCode != ' ');
+		start = s.length();
+		if (seqNum == null)
+			s.append("null");
+		else
+			s.append(seqNum.intValue());
+		if (insCode != null && insCode != ' ')
+			s.append(insCode.charValue());
+		if ( hasInsertionCode ) {
+			RecordWriter.padLeft(s, start, 5);
+		} else {
+			RecordWriter.padLeft(s, start, 4);
+			s.append(' ');
+		}
 		s.append("   ");
-		s.append(x);
-		s.append(y);
-		s.append(z);
-		s.append(occupancy);
-		s.append(tempfactor);
 
-		Element e = a.getElement();
+		// as the d3 and d2 formats
+		appendRight(s, a.getX(), 3, 4, 8);
+		appendRight(s, a.getY(), 3, 4, 8);
+		appendRight(s, a.getZ(), 3, 4, 8);
+		appendRight(s, a.getOccupancy(), 2, 3, 6);
+		appendRight(s, a.getTempFactor(), 2, 3, 6);
 
-		String eString = e.toString().toUpperCase();
+		RecordWriter.padRight(s, 0, 76);
 
+		Element e = a.getElement();
+		String eString = ELEMENT_SYMBOLS[e.ordinal()];
 		if ( e.equals(Element.R)) {
 			eString = "X";
 		}
-		str.append(String.format("%-76s%2s", s.toString(),eString));
-		str.append(newline);
-
+		start = s.length();
+		s.append(eString);
+		RecordWriter.padLeft(s, start, 2);
+		s.append(newline);
 	}
 
-	public static void toPDB(Atom a, StringBuffer str) {
-		toPDB(a,str,a.getGroup().getChain().getName());
+	private static void appendRight(StringBuilder s, int i, int width) {
+		int start = s.length();
+		s.append(i);
+		RecordWriter.padLeft(s, start, width);
 	}
 
+	private static void appendRight(StringBuilder s, double value, int fractionDigits, int integerDigits, int width) {
+		int start = s.length();
+		RecordWriter.appendDecimal(s, value, fractionDigits, true, integerDigits);
+		RecordWriter.padLeft(s, start, width);
+	}
 
-	/** test if pdbserial has an insertion code */
-	private static boolean hasInsertionCode(String pdbserial) {
-		try {
-			Integer.parseInt(pdbserial) ;
-		} catch (NumberFormatException e) {
-			return true ;
-		}
-		return false ;
+	public static void toPDB(Atom a, StringBuffer str) {
+		toPDB(a,str,a.getGroup().getChain().getName());
 	}
 
 
@@ -599,6 +711,39 @@ public class FileConvert {
 		return CifStructureConverter.toText(this.structure);
 	}
 
+	/**
+	 * Writes the structure as a CIF file to a stream, without building the
+	 * whole file in memory.
+	 * @param out the stream to write to, which is flushed but not closed
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toMMCIF(OutputStream out) throws IOException {
+		CifStructureConverter.toText(this.structure, out);
+	}
+
+	/**
+	 * Writes the structure to a CIF file, compressed with gzip if the name of
+	 * the file ends with ".gz".
+	 * @param path the file to write to
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toMMCIF(Path path) throws IOException {
+		CifStructureConverter.toTextFile(this.structure, path);
+	}
+
+	/**
+	 * Writes the categories of the CIF file of the structure, one atom at a
+	 * time.
+	 * @param out the writer of the records
+	 * @throws IOException if writing fails
+	 * @since 6.0.6
+	 */
+	public void toMMCIF(RecordWriter out) throws IOException {
+		new CifStructureWriter(out).write(this.structure);
+	}
+
 	/**
 	 * Convert a chain to its CIF representation.
 	 * @param chain data
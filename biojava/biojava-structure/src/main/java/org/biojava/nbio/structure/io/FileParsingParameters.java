@@ -98,6 +98,11 @@ public class FileParsingParameters implements Serializable
 	 */
 	private boolean createAtomCharges;
 
+	/**
+	 * Should the bonds and the SEQRES alignment that are not requested be deferred to their first use?
+	 */
+	private boolean lazy;
+
 	/**
 	 * The maximum number of atoms we will add to a structure,
 	 * this protects from memory overflows in the few really big protein structures.
@@ -109,10 +114,45 @@ public class FileParsingParameters implements Serializable
 
 	String[] fullAtomNames;
 
+	/**
+	 * The chain names and model numbers to parse, null for all
+	 */
+	private String[] acceptedChainNames;
+
+	private int[] acceptedModels;
+
+	/**
+	 * The mmCIF categories to read, null for all
+	 */
+	private String[] acceptedCategories;
+
 	public FileParsingParameters(){
 		setDefault();
 	}
 
+	/**
+	 * Creates a copy of the given parameters. The arrays of accepted names, models and
+	 * categories are shared with the given parameters.
+	 * @param params the parameters to copy
+	 * @since 6.0.6
+	 */
+	public FileParsingParameters(FileParsingParameters params){
+		parseSecStruc = params.parseSecStruc;
+		alignSeqRes = params.alignSeqRes;
+		parseCAOnly = params.parseCAOnly;
+		headerOnly = params.headerOnly;
+		fullAtomNames = params.fullAtomNames;
+		acceptedChainNames = params.acceptedChainNames;
+		acceptedModels = params.acceptedModels;
+		acceptedCategories = params.acceptedCategories;
+		maxAtoms = params.maxAtoms;
+		atomCaThreshold = params.atomCaThreshold;
+		parseBioAssembly = params.parseBioAssembly;
+		createAtomBonds = params.createAtomBonds;
+		createAtomCharges = params.createAtomCharges;
+		lazy = params.lazy;
+	}
+
 	public void setDefault(){
 
 		parseSecStruc = false;
@@ -124,6 +164,12 @@ public class FileParsingParameters implements Serializable
 
 		fullAtomNames = null;
 
+		acceptedChainNames = null;
+
+		acceptedModels = null;
+
+		acceptedCategories = null;
+
 		maxAtoms = MAX_ATOMS;
 
 		atomCaThreshold = ATOM_CA_THRESHOLD;
@@ -134,6 +180,8 @@ public class FileParsingParameters implements Serializable
 
 		createAtomCharges = true;
 
+		lazy = false;
+
 	}
 
 	/**
@@ -230,6 +278,69 @@ public class FileParsingParameters implements Serializable
 		this.fullAtomNames = fullAtomNames;
 	}
 
+	/**
+	 * The chains to be read, by their author chain names (auth_asym_id), e.g. {"A"}
+	 * to parse only what is needed for "1abc.A". Atoms of other chains are skipped
+	 * before any of their other columns are read. Only used by the mmCIF and BinaryCIF parsers.
+	 * @return accepted chain names, or null if all chains are accepted. default null
+	 * @since 6.0.6
+	 */
+	public String[] getAcceptedChainNames() {
+		return acceptedChainNames;
+	}
+
+	/**
+	 * The chains to be read, by their author chain names (auth_asym_id).
+	 * Only used by the mmCIF and BinaryCIF parsers.
+	 * @param acceptedChainNames accepted chain names, or null if all chains are accepted. default null
+	 * @since 6.0.6
+	 */
+	public void setAcceptedChainNames(String[] acceptedChainNames) {
+		this.acceptedChainNames = acceptedChainNames;
+	}
+
+	/**
+	 * The models to be read, by their model numbers in the file (pdbx_PDB_model_num), e.g. {1}
+	 * for the first model only. Only used by the mmCIF and BinaryCIF parsers.
+	 * @return accepted model numbers, or null if all models are accepted. default null
+	 * @since 6.0.6
+	 */
+	public int[] getAcceptedModels() {
+		return acceptedModels;
+	}
+
+	/**
+	 * The models to be read, by their model numbers in the file (pdbx_PDB_model_num).
+	 * Only used by the mmCIF and BinaryCIF parsers.
+	 * @param acceptedModels accepted model numbers, or null if all models are accepted. default null
+	 * @since 6.0.6
+	 */
+	public void setAcceptedModels(int[] acceptedModels) {
+		this.acceptedModels = acceptedModels;
+	}
+
+	/**
+	 * The mmCIF categories to be read, e.g. {"atom_site", "entity", "struct_asym"}. The other
+	 * categories are treated as absent from the file and are never decoded, which for BinaryCIF
+	 * files means that none of their columns are decoded. Without "atom_site", only the header is parsed.
+	 * Only used by the mmCIF and BinaryCIF parsers.
+	 * @return accepted category names, or null if all categories are accepted. default null
+	 * @since 6.0.6
+	 */
+	public String[] getAcceptedCategories() {
+		return acceptedCategories;
+	}
+
+	/**
+	 * The mmCIF categories to be read. The other categories are treated as absent from the file.
+	 * Only used by the mmCIF and BinaryCIF parsers.
+	 * @param acceptedCategories accepted category names, or null if all categories are accepted. default null
+	 * @since 6.0.6
+	 */
+	public void setAcceptedCategories(String[] acceptedCategories) {
+		this.acceptedCategories = acceptedCategories;
+	}
+
 
 	/**
 	 * The maximum numbers of atoms to load in a protein structure (prevents memory overflows)
@@ -332,6 +443,32 @@ public class FileParsingParameters implements Serializable
 		this.createAtomCharges = createAtomCharges;
 	}
 
+	/**
+	 * Are the bonds and the SEQRES alignment that were not requested created on their first use?
+	 *
+	 * @return true if they are deferred, false if they are never created
+	 * @since 6.0.6
+	 */
+	public boolean isLazy() {
+		return lazy;
+	}
+
+	/**
+	 * Should the bonds and the SEQRES alignment that were not requested be created on their first use,
+	 * instead of never? In lazy mode {@link #setCreateAtomBonds(boolean)} and, for the mmCIF and
+	 * BinaryCIF parsers, {@link #setAlignSeqRes(boolean)} only tell whether the work is done while parsing:
+	 * when false, it is done the first time {@link org.biojava.nbio.structure.Atom#getBonds()},
+	 * {@link org.biojava.nbio.structure.Structure#getSSBonds()} or the SEQRES groups of a chain are accessed.
+	 * Nothing is deferred when only the header is parsed.
+	 *
+	 * @param lazy true to defer the bonds and the SEQRES alignment, default false
+	 * @see org.biojava.nbio.structure.StructureImpl#completeBonds()
+	 * @since 6.0.6
+	 */
+	public void setLazy(boolean lazy) {
+		this.lazy = lazy;
+	}
+
 
 
 }
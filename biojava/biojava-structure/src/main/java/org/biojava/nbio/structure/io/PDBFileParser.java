@@ -2725,7 +2725,13 @@ public class PDBFileParser  {
 		triggerEndFileChecks();
 
 		if (params.shouldCreateAtomBonds()) {
-			formBonds();
+			formBonds(structure, params, linkRecords, ssbonds);
+		} else if (params.isLazy() && !params.isHeaderOnly()) {
+			// the records are copied since the parser may be reused
+			FileParsingParameters bondParams = params;
+			List<LinkRecord> links = new ArrayList<>(linkRecords);
+			List<SSBondImpl> disulfides = new ArrayList<>(ssbonds);
+			((StructureImpl) structure).setDeferredBonds(s -> formBonds(s, bondParams, links, disulfides));
 		}
 
 		if ( params.shouldCreateAtomCharges()) {
@@ -2838,7 +2844,8 @@ public class PDBFileParser  {
 	 * Note: the current implementation only looks at the first model of each
 	 * structure. This may need to be fixed in the future.
 	 */
-	private void formBonds() {
+	private static void formBonds(Structure structure, FileParsingParameters params, List<LinkRecord> linkRecords,
+			List<SSBondImpl> ssbonds) {
 
 		BondMaker maker = new BondMaker(structure, params);
 
@@ -0,0 +1,337 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A buffered writer of the text records of structure files (PDB, mmCIF). The
+ * records are encoded (as UTF-8) directly into a reusable byte buffer, which
+ * is written to an {@link OutputStream} or a {@link WritableByteChannel} when
+ * full, so that a file of any size is written without building it as a
+ * String.
+ * <p>
+ * The static methods format numbers into a reusable {@link StringBuilder}
+ * line, without {@link String#format(String, Object...)}.
+ * <pre>
+ * try (RecordWriter out = RecordWriter.open(Paths.get("assembly.cif.gz"))) {
+ *     new FileConvert(structure).toMMCIF(out);
+ * }
+ * </pre>
+ * A RecordWriter is not thread-safe.
+ *
+ * @since 6.0.6
+ */
+public class RecordWriter implements Closeable, Flushable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/** The largest scaled value formatted without the exact (BigDecimal) rounding of DecimalFormat */
+	private static final double MAX_FAST_DECIMAL = 1L << 31;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = 10 * POWERS_OF_TEN[i - 1];
+		}
+	}
+
+	private static final char[] SPACES = new char[80];
+	static {
+		Arrays.fill(SPACES, ' ');
+	}
+
+	private final OutputStream out;
+	private final WritableByteChannel channel;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position = 0;
+
+	/**
+	 * Creates a writer to a stream. The stream is closed with the writer.
+	 *
+	 * @param out the stream to write to
+	 */
+	public RecordWriter(OutputStream out) {
+		this.out = out;
+		this.channel = null;
+	}
+
+	/**
+	 * Creates a writer to a channel. The channel is closed with the writer.
+	 *
+	 * @param channel the channel to write to
+	 */
+	public RecordWriter(WritableByteChannel channel) {
+		this.out = null;
+		this.channel = channel;
+	}
+
+	/**
+	 * Creates a writer to a file, which is compressed with gzip if its name
+	 * ends with ".gz".
+	 *
+	 * @param path the file to write to
+	 * @return a new writer, which must be closed
+	 * @throws IOException if the file can not be opened
+	 */
+	public static RecordWriter open(Path path) throws IOException {
+		OutputStream os = Files.newOutputStream(path);
+		if (path.getFileName().toString().endsWith(".gz")) {
+			os = new GZIPOutputStream(os, BUFFER_SIZE);
+		}
+		return new RecordWriter(os);
+	}
+
+	/**
+	 * Appends the characters of a string or line.
+	 *
+	 * @param s the characters to write
+	 * @return this writer
+	 * @throws IOException if the buffer could not be written
+	 */
+	public RecordWriter append(CharSequence s) throws IOException {
+		int length = s.length();
+		for (int i = 0; i < length; i++) {
+			char c = s.charAt(i);
+			if (c < 0x80) {
+				if (position == buffer.length) {
+					drain();
+				}
+				buffer[position++] = (byte) c;
+			} else if (Character.isHighSurrogate(c) && i + 1 < length
+					&& Character.isLowSurrogate(s.charAt(i + 1))) {
+				appendEncoded(s.subSequence(i, i + 2));
+				i++;
+			} else {
+				appendEncoded(String.valueOf(c));
+			}
+		}
+		return this;
+	}
+
+	/**
+	 * Appends one character.
+	 *
+	 * @param c the character to write
+	 * @return this writer
+	 * @throws IOException if the buffer could not be written
+	 */
+	public RecordWriter append(char c) throws IOException {
+		if (c >= 0x80) {
+			return append(String.valueOf(c));
+		}
+		if (position == buffer.length) {
+			drain();
+		}
+		buffer[position++] = (byte) c;
+		return this;
+	}
+
+	/**
+	 * Appends the decimal representation of an integer.
+	 *
+	 * @param i the integer to write
+	 * @return this writer
+	 * @throws IOException if the buffer could not be written
+	 */
+	public RecordWriter append(int i) throws IOException {
+		if (i == Integer.MIN_VALUE) {
+			return append(Integer.toString(i));
+		}
+		if (buffer.length - position < 11) {
+			drain();
+		}
+		if (i < 0) {
+			buffer[position++] = '-';
+			i = -i;
+		}
+		int digits = 1;
+		while (digits < 10 && i >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		for (int d = position + digits - 1; d >= position; d--) {
+			buffer[d] = (byte) ('0' + i % 10);
+			i /= 10;
+		}
+		position += digits;
+		return this;
+	}
+
+	private void appendEncoded(CharSequence s) throws IOException {
+		byte[] bytes = s.toString().getBytes(StandardCharsets.UTF_8);
+		if (buffer.length - position < bytes.length) {
+			drain();
+		}
+		System.arraycopy(bytes, 0, buffer, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * Writes the buffer to the stream or channel.
+	 */
+	private void drain() throws IOException {
+		if (out != null) {
+			out.write(buffer, 0, position);
+		} else {
+			ByteBuffer bb = ByteBuffer.wrap(buffer, 0, position);
+			while (bb.hasRemaining()) {
+				channel.write(bb);
+			}
+		}
+		position = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drain();
+		if (out != null) {
+			out.flush();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			if (out != null) {
+				out.close();
+			} else {
+				channel.close();
+			}
+		}
+	}
+
+	/**
+	 * Appends a number as a {@link DecimalFormat} with HALF_EVEN rounding, no
+	 * grouping, at least one integer digit and a '.' decimal separator would
+	 * format it, e.g. the pattern "0.000" or "0.######".
+	 *
+	 * @param sb the line to append to
+	 * @param value the number to format
+	 * @param fractionDigits the maximum number of fraction digits
+	 * @param fixed true to always write fractionDigits digits, false to
+	 *            remove the trailing zeros
+	 * @param maxIntegerDigits the number of low order integer digits to keep
+	 */
+	public static void appendDecimal(StringBuilder sb, double value, int fractionDigits,
+			boolean fixed, int maxIntegerDigits) {
+
+		long scale = POWERS_OF_TEN[fractionDigits];
+		double scaled = Math.abs(value) * scale;
+		// also false for NaN and infinity
+		if (!(scaled < MAX_FAST_DECIMAL)) {
+			sb.append(getFormat(fractionDigits, fixed, maxIntegerDigits).format(value));
+			return;
+		}
+		long floor = (long) scaled;
+		double remainder = scaled - floor;
+		// values close to a tie are rounded on their exact binary value, as DecimalFormat does
+		if (Math.abs(remainder - 0.5) < 1e-6) {
+			sb.append(getFormat(fractionDigits, fixed, maxIntegerDigits).format(value));
+			return;
+		}
+		long rounded = remainder > 0.5 ? floor + 1 : floor;
+		long integer = rounded / scale;
+		long fraction = rounded % scale;
+		if (maxIntegerDigits < POWERS_OF_TEN.length && integer >= POWERS_OF_TEN[maxIntegerDigits]) {
+			sb.append(getFormat(fractionDigits, fixed, maxIntegerDigits).format(value));
+			return;
+		}
+
+		// DecimalFormat keeps the sign of negative numbers rounded to 0
+		if (value < 0 || (value == 0 && 1 / value < 0)) {
+			sb.append('-');
+		}
+		sb.append(integer);
+		int digits = fractionDigits;
+		if (!fixed) {
+			while (digits > 0 && fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+		}
+		if (digits > 0) {
+			sb.append('.');
+			for (int d = digits - 1; d > 0 && fraction < POWERS_OF_TEN[d]; d--) {
+				sb.append('0');
+			}
+			sb.append(fraction);
+		}
+	}
+
+	private static DecimalFormat getFormat(int fractionDigits, boolean fixed, int maxIntegerDigits) {
+		DecimalFormat format = new DecimalFormat("0", DecimalFormatSymbols.getInstance(Locale.US));
+		format.setGroupingUsed(false);
+		format.setMaximumIntegerDigits(maxIntegerDigits);
+		format.setMinimumFractionDigits(fixed ? fractionDigits : 0);
+		format.setMaximumFractionDigits(fractionDigits);
+		return format;
+	}
+
+	/**
+	 * Right-justifies the characters appended since start, like the width of
+	 * a "%5s" format: nothing is done if they are already wider.
+	 *
+	 * @param sb the line
+	 * @param start the index of the first character of the field
+	 * @param width the width of the field
+	 */
+	public static void padLeft(StringBuilder sb, int start, int width) {
+		int padding = width - (sb.length() - start);
+		while (padding > 0) {
+			int n = Math.min(padding, SPACES.length);
+			sb.insert(start, SPACES, 0, n);
+			padding -= n;
+		}
+	}
+
+	/**
+	 * Left-justifies the characters appended since start, like the width of
+	 * a "%-80s" format: nothing is done if they are already wider.
+	 *
+	 * @param sb the line
+	 * @param start the index of the first character of the field
+	 * @param width the width of the field
+	 */
+	public static void padRight(StringBuilder sb, int start, int width) {
+		int padding = width - (sb.length() - start);
+		while (padding > 0) {
+			int n = Math.min(padding, SPACES.length);
+			sb.append(SPACES, 0, n);
+			padding -= n;
+		}
+	}
+}
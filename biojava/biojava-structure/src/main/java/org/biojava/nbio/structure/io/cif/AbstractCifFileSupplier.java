@@ -20,6 +20,7 @@ import org.rcsb.cif.schema.mm.MmCifBlockBuilder;
 import org.rcsb.cif.schema.mm.MmCifCategoryBuilder;
 import org.rcsb.cif.schema.mm.MmCifFileBuilder;
 
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -99,36 +100,71 @@ public abstract class AbstractCifFileSupplier<S> implements CifFileSupplier<S> {
         final String chainName = chain.getName();
         final String chainId = chain.getId();
         for (Group group : chain.getAtomGroups()) {
-            // The alt locs can have duplicates, since at parsing time we make sure that all alt loc groups have
-            // all atoms (see StructureTools#cleanUpAltLocs)
-            // Thus we have to remove duplicates here by using the atom id
-            // See issue https://github.com/biojava/biojava/issues/778 and
-            // TestAltLocs.testMmcifWritingAllAltlocs/testMmcifWritingPartialAltlocs
-            Map<Integer, WrappedAtom> uniqueAtoms = new LinkedHashMap<>();
-            for (int atomIndex = 0; atomIndex < group.size(); atomIndex++) {
-                Atom atom = group.getAtom(atomIndex);
-                if (atom == null) {
-                    continue;
-                }
+            wrappedAtoms.addAll(getUniqueAtoms(group, model, chainName, chainId));
+        }
+    }
 
-                uniqueAtoms.put(atom.getPDBserial(), new WrappedAtom(model, chainName, chainId, atom, atom.getPDBserial()));
+    /**
+     * Wraps the atoms of a group and of its alt loc groups, once per atom id.
+     * @param group the group
+     * @param model the model number
+     * @param chainName the auth_asym_id
+     * @param chainId the label_asym_id
+     * @return the wrapped atoms, in the order of the group
+     */
+    static Collection<WrappedAtom> getUniqueAtoms(Group group, int model, String chainName, String chainId) {
+        // The alt locs can have duplicates, since at parsing time we make sure that all alt loc groups have
+        // all atoms (see StructureTools#cleanUpAltLocs)
+        // Thus we have to remove duplicates here by using the atom id
+        // See issue https://github.com/biojava/biojava/issues/778 and
+        // TestAltLocs.testMmcifWritingAllAltlocs/testMmcifWritingPartialAltlocs
+        Map<Integer, WrappedAtom> uniqueAtoms = new LinkedHashMap<>();
+        for (int atomIndex = 0; atomIndex < group.size(); atomIndex++) {
+            Atom atom = group.getAtom(atomIndex);
+            if (atom == null) {
+                continue;
             }
 
-            if (group.hasAltLoc()) {
-                for (Group alt : group.getAltLocs()) {
-                    for (int atomIndex = 0; atomIndex < alt.size(); atomIndex++) {
-                        Atom atom = alt.getAtom(atomIndex);
-                        if (atom == null) {
-                            continue;
-                        }
+            uniqueAtoms.put(atom.getPDBserial(), new WrappedAtom(model, chainName, chainId, atom, atom.getPDBserial()));
+        }
 
-                        uniqueAtoms.put(atom.getPDBserial(), new WrappedAtom(model, chainName, chainId, atom, atom.getPDBserial()));
+        if (group.hasAltLoc()) {
+            for (Group alt : group.getAltLocs()) {
+                for (int atomIndex = 0; atomIndex < alt.size(); atomIndex++) {
+                    Atom atom = alt.getAtom(atomIndex);
+                    if (atom == null) {
+                        continue;
                     }
+
+                    uniqueAtoms.put(atom.getPDBserial(), new WrappedAtom(model, chainName, chainId, atom, atom.getPDBserial()));
                 }
             }
+        }
+
+        return uniqueAtoms.values();
+    }
 
-            wrappedAtoms.addAll(uniqueAtoms.values());
+    /**
+     * @return the label_entity_id of the atoms of the chain, "0" if it has no entity
+     */
+    static String getEntityId(Chain chain) {
+        if (chain.getEntityInfo() != null) {
+            return Integer.toString(chain.getEntityInfo().getMolId());
         }
+        return "0";
+    }
+
+    /**
+     * @return the label_seq_id of the atoms of the group
+     */
+    static int getLabelSeqId(Group group, Chain chain) {
+        int seqId = group.getResidueNumber().getSeqNum();
+        if (chain.getEntityInfo() != null && chain.getEntityInfo().getType() == EntityType.POLYMER) {
+            // this only makes sense for polymeric chains, non-polymer chains will never have seqres groups and
+            // there's no point in calling getAlignedResIndex
+            seqId = chain.getEntityInfo().getAlignedResIndex(group, chain);
+        }
+        return seqId;
     }
 
     /**
@@ -256,18 +292,8 @@ public abstract class AbstractCifFileSupplier<S> implements CifFileSupplier<S> {
             }
             labelCompId.add(group.getPDBName());
             labelAsymId.add(wrappedAtom.getChainId());
-            String entityId = "0";
-            int seqId = group.getResidueNumber().getSeqNum();
-            if (chain.getEntityInfo() != null) {
-                entityId = Integer.toString(chain.getEntityInfo().getMolId());
-                if (chain.getEntityInfo().getType() == EntityType.POLYMER) {
-                    // this only makes sense for polymeric chains, non-polymer chains will never have seqres groups and
-                    // there's no point in calling getAlignedResIndex
-                    seqId = chain.getEntityInfo().getAlignedResIndex(group, chain);
-                }
-            }
-            labelEntityId.add(entityId);
-            labelSeqId.add(seqId);
+            labelEntityId.add(getEntityId(chain));
+            labelSeqId.add(getLabelSeqId(group, chain));
             String insCode = "";
             if (group.getResidueNumber().getInsCode() != null) {
                 insCode = Character.toString(group.getResidueNumber().getInsCode());
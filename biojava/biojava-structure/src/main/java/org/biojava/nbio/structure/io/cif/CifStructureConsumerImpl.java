@@ -5,8 +5,10 @@ import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeFormatterBuilder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
@@ -14,6 +16,7 @@ import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.OptionalInt;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -205,7 +208,33 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         IntColumn labelSeqId = atomSite.getLabelSeqId();
         IntColumn pdbx_pdb_model_num = atomSite.getPdbxPDBModelNum();
 
+        Set<String> acceptedChainNames = toSet(params.getAcceptedChainNames());
+        Set<String> acceptedAtomNames = toSet(params.getAcceptedAtomNames());
+        Set<Integer> acceptedModels = null;
+        if (params.getAcceptedModels() != null) {
+            acceptedModels = new HashSet<>();
+            for (int model : params.getAcceptedModels()) {
+                acceptedModels.add(model);
+            }
+        }
+
         for (int atomIndex = 0; atomIndex < atomSite.getRowCount(); atomIndex++) {
+            // skip the rows that are not wanted before reading any of their other columns
+            if (acceptedModels != null && !acceptedModels.contains(
+                    pdbx_pdb_model_num.isDefined() ? pdbx_pdb_model_num.get(atomIndex) : 1)) {
+                continue;
+            }
+            if (acceptedChainNames != null && !acceptedChainNames.contains(authAsymId.get(atomIndex))) {
+                continue;
+            }
+            if (acceptedAtomNames != null && !acceptedAtomNames.contains(labelAtomId.get(atomIndex))) {
+                continue;
+            }
+            if (params.isParseCAOnly() && !labelAtomId.get(atomIndex).equals(StructureTools.CA_ATOM_NAME)
+                    && "C".equals(typeSymbol.get(atomIndex))) {
+                continue;
+            }
+
             boolean startOfNewChain = false;
             Character oneLetterCode = StructureTools.get1LetterCodeAmino(labelCompId.get(atomIndex));
 
@@ -315,12 +344,6 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
                 }
             }
 
-            if (params.isParseCAOnly()) {
-                if (!labelAtomId.get(atomIndex).equals(StructureTools.CA_ATOM_NAME) && "C".equals(typeSymbol.get(atomIndex))) {
-                    continue;
-                }
-            }
-
             Atom atom = new AtomImpl();
 
             atom.setPDBserial(id.get(atomIndex));
@@ -366,6 +389,10 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         }
     }
 
+    private static Set<String> toSet(String[] values) {
+        return values == null ? null : new HashSet<>(Arrays.asList(values));
+    }
+
     private Group getAltLocGroup(String recordName, Character altLoc, Character oneLetterCode, String threeLetterCode,
                                  long seqId) {
         List<Atom> atoms = currentGroup.getAtoms();
@@ -1197,7 +1224,12 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         // Otherwise, we store the empty SeqRes Groups unchanged in the right chains.
         if (params.isAlignSeqRes() && !params.isHeaderOnly()){
             logger.debug("Parsing mode align_seqres, will parse SEQRES and align to ATOM sequence");
-            alignSeqRes();
+            alignSeqRes(structure, seqResChains);
+        } else if (params.isLazy() && !params.isHeaderOnly()) {
+            logger.debug("Parsing mode lazy, will align SEQRES to ATOM sequence on first access");
+            // the lambdas only capture what they need, not this consumer and its categories
+            List<Chain> seqResTemplates = seqResChains;
+            ((StructureImpl) structure).setDeferredSeqResAlignment(s -> alignSeqRes(s, seqResTemplates));
         } else {
             logger.debug("Parsing mode unalign_seqres, will parse SEQRES but not align it to ATOM sequence");
             SeqRes2AtomAligner.storeUnAlignedSeqRes(structure, seqResChains, params.isHeaderOnly());
@@ -1209,7 +1241,11 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         // NOTE bonds and charges can only be done at this point that the chain id mapping is properly sorted out
         if (!params.isHeaderOnly()) {
             if (params.shouldCreateAtomBonds()) {
-                addBonds();
+                addBonds(structure, params, structConn);
+            } else if (params.isLazy()) {
+                FileParsingParameters bondParams = params;
+                StructConn bondStructConn = structConn;
+                ((StructureImpl) structure).setDeferredBonds(s -> addBonds(s, bondParams, bondStructConn));
             }
 
             if (params.shouldCreateAtomCharges()) {
@@ -1590,13 +1626,13 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         return trimmedChain;
     }
 
-    private void addBonds() {
+    private static void addBonds(Structure structure, FileParsingParameters params, StructConn structConn) {
         BondMaker maker = new BondMaker(structure, params);
         maker.makeBonds();
         maker.formBondsFromStructConn(structConn);
     }
 
-    private void alignSeqRes() {
+    private static void alignSeqRes(Structure structure, List<Chain> seqResChains) {
         logger.debug("Parsing mode align_seqres, will align to ATOM to SEQRES sequence");
 
         // fix SEQRES residue numbering for all models
@@ -1649,7 +1685,7 @@ public class CifStructureConsumerImpl implements CifStructureConsumer {
         }
     }
 
-    private int getInternalNr(Group atomG) {
+    private static int getInternalNr(Group atomG) {
         if (atomG.getType().equals(GroupType.AMINOACID)) {
             AminoAcidImpl aa = (AminoAcidImpl) atomG;
             return (int) aa.getId();
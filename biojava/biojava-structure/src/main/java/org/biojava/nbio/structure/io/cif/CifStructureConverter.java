@@ -3,17 +3,28 @@ package org.biojava.nbio.structure.io.cif;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.io.FileParsingParameters;
+import org.biojava.nbio.structure.io.RecordWriter;
 import org.rcsb.cif.CifIO;
+import org.rcsb.cif.model.Block;
+import org.rcsb.cif.model.Category;
 import org.rcsb.cif.model.CifFile;
 import org.rcsb.cif.schema.StandardSchemata;
 import org.rcsb.cif.schema.mm.MmCifBlock;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Convert BioJava structures to CifFiles and vice versa.
@@ -108,6 +119,9 @@ public class CifStructureConverter {
 
         // feed individual categories to consumer
         MmCifBlock cifBlock = cifFile.as(StandardSchemata.MMCIF).getFirstBlock();
+        if (parameters.getAcceptedCategories() != null) {
+            cifBlock = new MmCifBlock(new ProjectedBlock(cifBlock, parameters.getAcceptedCategories()));
+        }
 
         consumer.consumeAuditAuthor(cifBlock.getAuditAuthor());
         consumer.consumeAtomSite(cifBlock.getAtomSite());
@@ -163,13 +177,29 @@ public class CifStructureConverter {
     }
 
     /**
-     * Write a structure to a CIF file.
+     * Write a structure to a CIF file, which is compressed with gzip if its name ends with ".gz". The file is
+     * written as the structure is traversed, without building the CifFile or its text in memory.
      * @param structure the source
      * @param path where to write to
      * @throws IOException thrown when writing fails
      */
     public static void toTextFile(Structure structure, Path path) throws IOException {
-        CifIO.writeText(toCifFile(structure), path);
+        try (RecordWriter out = RecordWriter.open(path)) {
+            new CifStructureWriter(out).write(structure);
+        }
+    }
+
+    /**
+     * Write a structure in mmCIF format to a stream, as it is traversed. The stream is flushed, but not closed.
+     * @param structure the source
+     * @param outputStream where to write to
+     * @throws IOException thrown when writing fails
+     * @since 6.0.6
+     */
+    public static void toText(Structure structure, OutputStream outputStream) throws IOException {
+        RecordWriter out = new RecordWriter(outputStream);
+        new CifStructureWriter(out).write(structure);
+        out.flush();
     }
 
     /**
@@ -202,7 +232,9 @@ public class CifStructureConverter {
      */
     public static String toText(Structure structure) {
         try {
-            return new String(CifIO.writeText(toCifFile(structure)));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            toText(structure, outputStream);
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -215,7 +247,11 @@ public class CifStructureConverter {
      */
     public static String toText(Chain chain) {
         try {
-            return new String(CifIO.writeText(toCifFile(chain)));
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            RecordWriter out = new RecordWriter(outputStream);
+            new CifStructureWriter(out).write(chain);
+            out.flush();
+            return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -238,4 +274,49 @@ public class CifStructureConverter {
     public static CifFile toCifFile(Chain chain) {
         return new CifChainSupplierImpl().get(chain);
     }
+
+    /**
+     * A block in which only the accepted categories are present, so that the others are never decoded.
+     */
+    private static class ProjectedBlock implements Block {
+        private final Block delegate;
+        private final Set<String> acceptedCategories;
+
+        ProjectedBlock(Block delegate, String[] acceptedCategories) {
+            this.delegate = delegate;
+            this.acceptedCategories = new HashSet<>();
+            for (String category : acceptedCategories) {
+                this.acceptedCategories.add(category.toLowerCase());
+            }
+        }
+
+        @Override
+        public String getBlockHeader() {
+            return delegate.getBlockHeader();
+        }
+
+        @Override
+        public Category getCategory(String name) {
+            if (!acceptedCategories.contains(name.toLowerCase())) {
+                return new Category.EmptyCategory(name);
+            }
+            return delegate.getCategory(name);
+        }
+
+        @Override
+        public Map<String, Category> getCategories() {
+            Map<String, Category> categories = new LinkedHashMap<>();
+            for (Map.Entry<String, Category> entry : delegate.getCategories().entrySet()) {
+                if (acceptedCategories.contains(entry.getKey().toLowerCase())) {
+                    categories.put(entry.getKey(), entry.getValue());
+                }
+            }
+            return categories;
+        }
+
+        @Override
+        public List<Block> getSaveFrames() {
+            return delegate.getSaveFrames();
+        }
+    }
 }
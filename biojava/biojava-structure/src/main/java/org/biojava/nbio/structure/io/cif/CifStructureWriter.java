@@ -0,0 +1,400 @@
+package org.biojava.nbio.structure.io.cif;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.io.RecordWriter;
+import org.biojava.nbio.structure.io.cif.AbstractCifFileSupplier.WrappedAtom;
+import org.biojava.nbio.structure.xtal.CrystalCell;
+import org.biojava.nbio.structure.xtal.SpaceGroup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Writes a structure as mmCIF text, one atom_site row at a time, instead of
+ * building the {@link org.rcsb.cif.model.CifFile} of
+ * {@link CifStructureConverter#toCifFile(Structure)} and its text in memory.
+ * The output is the same as the text of that CifFile: the struct_keywords,
+ * atom_site, cell and symmetry categories.
+ * @since 6.0.6
+ */
+public class CifStructureWriter {
+    private static final String[] ATOM_SITE_COLUMNS = {
+            "group_PDB", "id", "type_symbol", "label_atom_id", "label_alt_id", "label_comp_id", "label_asym_id",
+            "label_entity_id", "label_seq_id", "pdbx_PDB_ins_code", "Cartn_x", "Cartn_y", "Cartn_z", "occupancy",
+            "B_iso_or_equiv", "auth_seq_id", "auth_comp_id", "auth_asym_id", "auth_atom_id", "pdbx_PDB_model_num"
+    };
+    private static final String[] CELL_COLUMNS = {
+            "length_a", "length_b", "length_c", "angle_alpha", "angle_beta", "angle_gamma"
+    };
+
+    private final RecordWriter out;
+    private final StringBuilder number = new StringBuilder();
+
+    /**
+     * Create a writer.
+     * @param out where to write the mmCIF text to
+     */
+    public CifStructureWriter(RecordWriter out) {
+        this.out = out;
+    }
+
+    /**
+     * Write all models of a structure.
+     * @param structure the source
+     * @throws IOException thrown when writing fails
+     */
+    public void write(Structure structure) throws IOException {
+        writeBlock(structure, new AtomIterator(structure));
+    }
+
+    /**
+     * Write a chain, as model 1.
+     * @param chain the source
+     * @throws IOException thrown when writing fails
+     */
+    public void write(Chain chain) throws IOException {
+        writeBlock(chain.getStructure(), new AtomIterator(chain));
+    }
+
+    /**
+     * Write a data block with only the atom_site category.
+     * @param blockHeader the name of the data block
+     * @param atoms the atoms of the atom_site category
+     * @throws IOException thrown when writing fails
+     */
+    public void write(String blockHeader, Iterator<WrappedAtom> atoms) throws IOException {
+        writeBlockHeader(blockHeader);
+        writeAtomSite(atoms);
+    }
+
+    private void writeBlock(Structure structure, Iterator<WrappedAtom> atoms) throws IOException {
+        CrystalCell crystalCell = structure.getPDBHeader().getCrystallographicInfo().getCrystalCell();
+        SpaceGroup spaceGroup = structure.getPDBHeader().getCrystallographicInfo().getSpaceGroup();
+
+        writeBlockHeader(structure.getPDBCode());
+
+        Category structKeywords = new Category("struct_keywords", new String[] { "text" }, true);
+        structKeywords.value(String.join(", ", structure.getPDBHeader().getKeywords()));
+        structKeywords.end();
+
+        writeAtomSite(atoms);
+
+        if (crystalCell != null) {
+            Category cell = new Category("cell", CELL_COLUMNS, true);
+            cell.value(crystalCell.getA(), 6, false);
+            cell.value(crystalCell.getB(), 6, false);
+            cell.value(crystalCell.getC(), 6, false);
+            cell.value(crystalCell.getAlpha(), 6, false);
+            cell.value(crystalCell.getBeta(), 6, false);
+            cell.value(crystalCell.getGamma(), 6, false);
+            cell.end();
+        }
+
+        if (spaceGroup != null) {
+            Category symmetry = new Category("symmetry", new String[] { "space_group_name_H-M" }, true);
+            symmetry.value(spaceGroup.getShortSymbol());
+            symmetry.end();
+        }
+    }
+
+    private void writeBlockHeader(String blockHeader) throws IOException {
+        out.append("data_")
+                .append(blockHeader != null ? blockHeader.replaceAll("[ \n\t]", "").toUpperCase() : "UNKNOWN")
+                .append("\n#\n");
+    }
+
+    /**
+     * Writes the atoms as a loop, or as a single record if there is only one.
+     */
+    private void writeAtomSite(Iterator<WrappedAtom> atoms) throws IOException {
+        if (!atoms.hasNext()) {
+            return;
+        }
+        WrappedAtom first = atoms.next();
+        Category atomSite = new Category("atom_site", ATOM_SITE_COLUMNS, !atoms.hasNext());
+        writeAtom(atomSite, first);
+        while (atoms.hasNext()) {
+            writeAtom(atomSite, atoms.next());
+        }
+        atomSite.end();
+    }
+
+    /**
+     * Writes the row of an atom, as {@link AbstractCifFileSupplier#toAtomSite()}.
+     */
+    private void writeAtom(Category atomSite, WrappedAtom wrappedAtom) throws IOException {
+        Atom atom = wrappedAtom.getAtom();
+        Group group = atom.getGroup();
+        Chain chain = group.getChain();
+
+        atomSite.value(group.getType().equals(GroupType.HETATM) ? "HETATM" : "ATOM");
+        atomSite.value(wrappedAtom.getAtomId());
+        Element element = atom.getElement();
+        atomSite.value(element.equals(Element.R) ? "X" : element.toString().toUpperCase());
+        atomSite.value(atom.getName());
+        Character altLoc = atom.getAltLoc();
+        if (altLoc == null || altLoc == ' ') {
+            atomSite.notPresent();
+        } else {
+            atomSite.value(String.valueOf(altLoc));
+        }
+        atomSite.value(group.getPDBName());
+        atomSite.value(wrappedAtom.getChainId());
+        atomSite.value(AbstractCifFileSupplier.getEntityId(chain));
+        atomSite.value(AbstractCifFileSupplier.getLabelSeqId(group, chain));
+        Character insCode = group.getResidueNumber().getInsCode();
+        if (insCode == null) {
+            atomSite.unknown();
+        } else {
+            atomSite.value(Character.toString(insCode));
+        }
+        atomSite.value(atom.getX(), 3, true);
+        atomSite.value(atom.getY(), 3, true);
+        atomSite.value(atom.getZ(), 3, true);
+        atomSite.value(atom.getOccupancy(), 2, true);
+        atomSite.value(atom.getTempFactor(), 6, false);
+        atomSite.value(group.getResidueNumber().getSeqNum());
+        atomSite.value(group.getPDBName());
+        atomSite.value(wrappedAtom.getChainName());
+        atomSite.value(atom.getName());
+        atomSite.value(wrappedAtom.getModel());
+        atomSite.endRow();
+    }
+
+    /**
+     * Writes the values of a category, row by row, in the format of the text
+     * writer of ciftools: a loop if the category has several rows, otherwise
+     * a single record with one line per column.
+     */
+    private class Category {
+        private final String name;
+        private final String[] columns;
+        private final boolean single;
+        private final int keyWidth;
+        private int column = 0;
+        /** Whether the last value ended its line */
+        private boolean multiline = false;
+
+        Category(String name, String[] columns, boolean single) throws IOException {
+            this.name = name;
+            this.columns = columns;
+            this.single = single;
+            int width = 0;
+            for (String column : columns) {
+                width = Math.max(width, column.length());
+            }
+            keyWidth = width + 6 + name.length();
+            if (!single) {
+                out.append("loop_\n");
+                for (String column : columns) {
+                    out.append('_').append(name).append('.').append(column).append('\n');
+                }
+            }
+        }
+
+        private void key() throws IOException {
+            if (single) {
+                String key = columns[column];
+                out.append('_').append(name).append('.').append(key);
+                for (int i = name.length() + key.length() + 2; i < keyWidth; i++) {
+                    out.append(' ');
+                }
+            }
+            column++;
+        }
+
+        private void endValue() throws IOException {
+            if (single && !multiline) {
+                out.append('\n');
+            }
+        }
+
+        void value(String value) throws IOException {
+            key();
+            if (value != null && value.contains("\n")) {
+                writeMultiline(value);
+                multiline = true;
+            } else {
+                multiline = writeChecked(value);
+            }
+            endValue();
+        }
+
+        void value(int value) throws IOException {
+            key();
+            out.append(value).append(' ');
+            multiline = false;
+            endValue();
+        }
+
+        void value(double value, int fractionDigits, boolean fixed) throws IOException {
+            key();
+            number.setLength(0);
+            RecordWriter.appendDecimal(number, value, fractionDigits, fixed, Integer.MAX_VALUE);
+            out.append(number).append(' ');
+            multiline = false;
+            endValue();
+        }
+
+        void notPresent() throws IOException {
+            key();
+            out.append(". ");
+            multiline = false;
+            endValue();
+        }
+
+        void unknown() throws IOException {
+            key();
+            out.append("? ");
+            multiline = false;
+            endValue();
+        }
+
+        void endRow() throws IOException {
+            if (!single && !multiline) {
+                out.append('\n');
+            }
+            column = 0;
+        }
+
+        void end() throws IOException {
+            out.append("#\n");
+        }
+
+        private void writeMultiline(String value) throws IOException {
+            out.append("\n;").append(value).append("\n;\n");
+        }
+
+        /**
+         * Writes a value, quoted if needed.
+         * @return true if the value was written on its own lines
+         */
+        private boolean writeChecked(String value) throws IOException {
+            if (value == null || value.isEmpty()) {
+                out.append(". ");
+                return false;
+            }
+
+            boolean escape = value.charAt(0) == '_';
+            String escapeCharStart = "'";
+            String escapeCharEnd = "' ";
+            boolean hasWhitespace = false;
+            boolean hasSingle = false;
+            boolean hasDouble = false;
+            for (int i = 0; i < value.length(); i++) {
+                switch (value.charAt(i)) {
+                    case '\t':
+                    case ' ':
+                        hasWhitespace = true;
+                        break;
+                    case '\n':
+                        writeMultiline(value);
+                        return true;
+                    case '"':
+                        if (hasSingle) {
+                            writeMultiline(value);
+                            return true;
+                        }
+                        hasDouble = true;
+                        escape = true;
+                        escapeCharStart = "'";
+                        escapeCharEnd = "' ";
+                        break;
+                    case '\'':
+                        if (hasDouble) {
+                            writeMultiline(value);
+                            return true;
+                        }
+                        escape = true;
+                        hasSingle = true;
+                        escapeCharStart = "\"";
+                        escapeCharEnd = "\" ";
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            char first = value.charAt(0);
+            if (!escape && (first == '#' || first == '$' || first == ';' || first == '[' || first == ']'
+                    || hasWhitespace)) {
+                escapeCharStart = "'";
+                escapeCharEnd = "' ";
+                escape = true;
+            }
+
+            if (escape) {
+                out.append(escapeCharStart).append(value).append(escapeCharEnd);
+            } else {
+                out.append(value).append(' ');
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Iterates the unique atoms of chains, one group at a time.
+     */
+    private static class AtomIterator implements Iterator<WrappedAtom> {
+        private final Structure structure;
+        private final List<Chain> singleChain;
+        private int model = -1;
+        private Iterator<Chain> chains = Collections.emptyIterator();
+        private Chain chain;
+        private Iterator<Group> groups = Collections.emptyIterator();
+        private Iterator<WrappedAtom> atoms = Collections.emptyIterator();
+
+        AtomIterator(Structure structure) {
+            this.structure = structure;
+            this.singleChain = null;
+        }
+
+        AtomIterator(Chain chain) {
+            this.structure = null;
+            this.singleChain = Collections.singletonList(chain);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!atoms.hasNext()) {
+                while (!groups.hasNext()) {
+                    while (!chains.hasNext()) {
+                        model++;
+                        if (singleChain != null) {
+                            if (model > 0) {
+                                return false;
+                            }
+                            chains = singleChain.iterator();
+                        } else {
+                            if (model >= structure.nrModels()) {
+                                return false;
+                            }
+                            chains = structure.getChains(model).iterator();
+                        }
+                    }
+                    chain = chains.next();
+                    groups = chain.getAtomGroups().iterator();
+                }
+                atoms = AbstractCifFileSupplier.getUniqueAtoms(groups.next(), model + 1, chain.getName(),
+                        chain.getId()).iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public WrappedAtom next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return atoms.next();
+        }
+    }
+}
@@ -0,0 +1,470 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.symmetry.core;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.cluster.SubunitCluster;
+import org.biojava.nbio.structure.symmetry.utils.SymmetryTools;
+import org.jgrapht.Graph;
+import org.jgrapht.alg.clique.CliqueMinimalSeparatorDecomposition;
+import org.jgrapht.graph.AsSubgraph;
+import org.jgrapht.graph.DefaultEdge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.vecmath.Point3d;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.stream.Collectors;
+
+/**
+ * The memoised and parallel search of LOCAL symmetries of
+ * {@link QuatSymmetryDetector#calcLocalSymmetries(Stoichiometry, QuatSymmetryParameters, ExecutionContext)}.
+ * <p>
+ * The subsets of Subunits are explored exactly as in the sequential search:
+ * the single clusters and their groups first, then the components of the
+ * contact graph of the Subunits, depth first, recursively removing one Subunit
+ * from the asymmetric components. The set of subsets already considered and
+ * the limits of the {@link QuatSymmetryParameters} are handled by the calling
+ * thread only, so that the same subsets are reached and the same symmetries
+ * found as sequentially. The expensive steps are done in the tasks of the
+ * context:
+ * <ul>
+ * <li>when a component is asymmetric, the sub-graphs left after removing each
+ * of its Subunits are decomposed, and their components evaluated, ahead of
+ * the recursion reaching them;</li>
+ * <li>the decomposition of each sub-graph and the symmetry of each subset are
+ * cached, and computed once by whichever thread needs them first;</li>
+ * <li>the CA traces and centroids of the Subunits are computed once and shared
+ * by all the subsets;</li>
+ * <li>subsets with coprime cluster sizes, which cannot be symmetric, are not
+ * superposed.</li>
+ * </ul>
+ *
+ * @since 6.0.6
+ */
+class LocalSymmetrySearch {
+
+	private static final Logger logger = LoggerFactory
+			.getLogger(LocalSymmetrySearch.class);
+
+	private final QuatSymmetryParameters symmParams;
+	private final ExecutionContext context;
+	/** The number of look-ahead tasks pending at most, leaving a processor to the search itself */
+	private final int maxPrefetches;
+
+	private final boolean heteromeric;
+	private final List<SubunitCluster> clusters;
+	private final Stoichiometry composition;
+	private final Graph<Integer, DefaultEdge> graph;
+	private final List<Integer> subunitClusterIds;
+	private final Map<Integer, List<Integer>> clusterIdToSubunitIds;
+
+	/** The aligned CA coordinates of each Subunit, shared by all subsets */
+	private final List<Point3d[]> traces;
+	/** The centroid of each trace */
+	private final List<Point3d> centers;
+
+	/** The symmetry of each subset */
+	private final ConcurrentMap<Set<Integer>, FutureTask<Subset>> evaluations = new ConcurrentHashMap<>();
+	/** The atoms of the decomposition of each sub-graph */
+	private final ConcurrentMap<Set<Integer>, FutureTask<Set<Set<Integer>>>> decompositions = new ConcurrentHashMap<>();
+	/** The look-ahead tasks, not needed anymore once the search ends */
+	private final List<Future<?>> prefetches = new ArrayList<>();
+	private volatile boolean finished = false;
+
+	/** The subsets already considered, as in the sequential search */
+	private final Set<Set<Integer>> knownCombinations = new HashSet<>();
+	private boolean incomplete = false;
+
+	/**
+	 * A subset of the Subunits, and its symmetry once evaluated.
+	 */
+	private static class Subset {
+
+		private final Set<Integer> subunitIds;
+		private final Stoichiometry stoichiometry;
+		private final Map<SubunitCluster, List<Integer>> clusterSubunitIds;
+
+		private boolean evaluated = false;
+		private QuatSymmetryResults result = null;
+
+		Subset(Stoichiometry stoichiometry, Map<SubunitCluster, List<Integer>> clusterSubunitIds) {
+			this.stoichiometry = stoichiometry;
+			this.clusterSubunitIds = clusterSubunitIds;
+			subunitIds = new HashSet<>();
+			clusterSubunitIds.values().forEach(subunitIds::addAll);
+		}
+	}
+
+	LocalSymmetrySearch(Stoichiometry globalComposition,
+			QuatSymmetryParameters symmParams, ExecutionContext context) {
+
+		this.symmParams = symmParams;
+		this.context = context;
+		maxPrefetches = Math.min(context.getMaxPendingTasks(),
+				Runtime.getRuntime().availableProcessors() - 1);
+
+		//more than one subunit per cluster required for symmetry
+		List<SubunitCluster> globalClusters = globalComposition.getClusters();
+		heteromeric = globalClusters.size() > 1;
+		clusters = globalClusters.stream().
+				filter(cluster -> (cluster.size()>1)).
+				collect(Collectors.toList());
+
+		QuatSymmetrySubunits subunits = new QuatSymmetrySubunits(clusters);
+		traces = subunits.getTraces();
+		centers = subunits.getOriginalCenters();
+		subunitClusterIds = subunits.getClusterIds();
+
+		composition = new Stoichiometry(clusters, false);
+		graph = QuatSymmetryDetector.initContactGraph(clusters);
+
+		clusterIdToSubunitIds = new HashMap<>();
+		for (int i = 0; i < subunitClusterIds.size(); i++) {
+			clusterIdToSubunitIds.computeIfAbsent(subunitClusterIds.get(i),
+					k -> new ArrayList<>()).add(i);
+		}
+	}
+
+	/**
+	 * @return the LOCAL symmetries which are not superseded by any other one
+	 */
+	List<QuatSymmetryResults> run() {
+
+		if (traces.size() < 2)
+			return new ArrayList<>();
+
+		List<QuatSymmetryResults> redundantSymmetries = new ArrayList<>();
+		try {
+			// first, find symmetries for single clusters and their groups
+			if (heteromeric)
+				redundantSymmetries.addAll(searchClusters());
+			//find symmetries for groups based on connectivity of subunits
+			// disregarding initial clustering
+			redundantSymmetries.addAll(searchGraph(graph));
+		} finally {
+			finished = true;
+			prefetches.forEach(prefetch -> prefetch.cancel(false));
+		}
+
+		List<QuatSymmetryResults> outputSymmetries =
+				redundantSymmetries.stream().
+					filter(a -> redundantSymmetries.stream().
+						noneMatch(b -> a!=b && a.isSupersededBy(b))).
+						collect(Collectors.toList());
+
+		if (incomplete || symmParams.isLocalLimitsExceeded(knownCombinations)) {
+			logger.warn("Exceeded calculation limits for local symmetry detection. The results may be incomplete.");
+		}
+		return outputSymmetries;
+	}
+
+	/**
+	 * Evaluates the single clusters, and the groups of clusters with the same
+	 * symmetry and number of Subunits.
+	 */
+	private List<QuatSymmetryResults> searchClusters() {
+
+		List<Subset> subsets = new ArrayList<>();
+		for (int i = 0; i < composition.numberOfComponents(); i++) {
+			Stoichiometry component = composition.getComponent(i);
+			subsets.add(new Subset(component, getSubunitIds(component)));
+		}
+
+		List<QuatSymmetryResults> clusterSymmetries = new ArrayList<>();
+		for (Subset subset : evaluateAll(subsets)) {
+			if (subset.result != null) {
+				clusterSymmetries.add(subset.result);
+				// since symmetry is found,
+				// do not try graph decomposition of this set of subunits later
+				knownCombinations.add(subset.subunitIds);
+			}
+		}
+
+		// group clusters by symmetries found, in case they all share axes and have the same number of subunits
+		Map<String, Map<Integer,List<QuatSymmetryResults>>> groupedSymmetries =
+				clusterSymmetries.stream().
+					collect(Collectors.
+						groupingBy(QuatSymmetryResults::getSymmetry,Collectors.
+							groupingBy(QuatSymmetryResults::getSubunitCount,Collectors.toList())));
+
+		List<Subset> groups = new ArrayList<>();
+		for (Map<Integer,List<QuatSymmetryResults>> symmetriesByGroup: groupedSymmetries.values()) {
+			for (List<QuatSymmetryResults> symmetriesBySubunits: symmetriesByGroup.values()) {
+				Stoichiometry groupComposition =
+						symmetriesBySubunits.stream().
+							map(QuatSymmetryResults::getStoichiometry).
+								reduce(Stoichiometry::combineWith).get();
+				if (groupComposition.numberOfComponents() > 1)
+					groups.add(new Subset(groupComposition, getSubunitIds(groupComposition)));
+			}
+		}
+
+		for (Subset group : evaluateAll(groups)) {
+			if (group.result != null) {
+				clusterSymmetries.add(group.result);
+				knownCombinations.add(group.subunitIds);
+			}
+		}
+		return clusterSymmetries;
+	}
+
+	/**
+	 * Evaluates the components of a (sub-)graph, and recursively the
+	 * sub-graphs of the asymmetric ones, as the sequential search.
+	 */
+	private List<QuatSymmetryResults> searchGraph(Graph<Integer, DefaultEdge> subGraph) {
+
+		List<QuatSymmetryResults> localSymmetries = new ArrayList<>();
+
+		// do not go any deeper into recursion if over the time/combinations limit
+		if (symmParams.isLocalLimitsExceeded(knownCombinations)) {
+			return localSymmetries;
+		}
+
+		// only consider components with more than 1 vertex (subunit)
+		Set<Set<Integer>> graphComponents =
+				getResult(compute(decompositions, subGraph.vertexSet(), () -> decompose(subGraph), true)).
+					stream().
+					filter(component -> component.size()>1).
+					collect(Collectors.toSet());
+
+		//do not go into what has already been explored
+		graphComponents.removeAll(knownCombinations);
+
+		for (Set<Integer> graphComponent: graphComponents) {
+			knownCombinations.add(graphComponent);
+
+			List<Integer> usedSubunitIds = new ArrayList<>(graphComponent);
+			Subset subset = trim(usedSubunitIds);
+			if (subset == null) {
+				continue;
+			}
+
+			//NB: usedSubunitIds might have changed when trimming clusters
+			if (!graphComponent.equals(subset.subunitIds)
+					&& !knownCombinations.add(subset.subunitIds)) {
+				continue;
+			}
+
+			subset = getResult(compute(evaluations, subset.subunitIds, evaluation(subset), true));
+			if (subset.result != null) {
+				localSymmetries.add(subset.result);
+				continue;
+			}
+			if (!subset.evaluated) {
+				incomplete = true;
+				continue;
+			}
+
+			if (usedSubunitIds.size() < 3) {
+				// cannot decompose this component any further
+				continue;
+			}
+
+			List<Set<Integer>> prunedGraphs = new ArrayList<>();
+			for (Integer removeSubunitId: usedSubunitIds) {
+				// try removing subunits one by one and decompose the sub-graph recursively
+				Set<Integer> prunedGraphVertices = new HashSet<>(usedSubunitIds);
+				prunedGraphVertices.remove(removeSubunitId);
+				if (!knownCombinations.contains(prunedGraphVertices))
+					prunedGraphs.add(prunedGraphVertices);
+			}
+			prefetch(subGraph, prunedGraphs);
+
+			for (Set<Integer> prunedGraphVertices : prunedGraphs) {
+				if (!knownCombinations.add(prunedGraphVertices)) {
+					continue;
+				}
+				localSymmetries.addAll(searchGraph(new AsSubgraph<>(subGraph, prunedGraphVertices)));
+			}
+		}
+		return localSymmetries;
+	}
+
+	/**
+	 * Submits the decomposition of the sub-graphs, and the evaluation of their
+	 * components, as long as the context has idle threads.
+	 */
+	private void prefetch(Graph<Integer, DefaultEdge> subGraph, List<Set<Integer>> prunedGraphs) {
+
+		for (Set<Integer> prunedGraphVertices : prunedGraphs) {
+			if (context.getPendingTaskCount() >= maxPrefetches)
+				return;
+			if (decompositions.containsKey(prunedGraphVertices))
+				continue;
+			prefetches.add(context.submit(() -> {
+				if (finished)
+					return null;
+				Graph<Integer, DefaultEdge> prunedGraph = new AsSubgraph<>(subGraph, prunedGraphVertices);
+				FutureTask<Set<Set<Integer>>> atoms = compute(decompositions, prunedGraphVertices,
+						() -> decompose(prunedGraph), false);
+				if (atoms == null)
+					return null;
+				for (Set<Integer> component : atoms.get()) {
+					if (finished || symmParams.isLocalLimitsExceeded())
+						return null;
+					if (component.size() < 2)
+						continue;
+					Subset subset = trim(new ArrayList<>(component));
+					if (subset != null)
+						compute(evaluations, subset.subunitIds, evaluation(subset), false);
+				}
+				return null;
+			}));
+		}
+	}
+
+	/**
+	 * @return the atoms of the clique minimal separator decomposition of the
+	 *         sub-graph
+	 */
+	private static Set<Set<Integer>> decompose(Graph<Integer, DefaultEdge> subGraph) {
+		return new CliqueMinimalSeparatorDecomposition<>(subGraph).getAtoms();
+	}
+
+	/**
+	 * Gets the clusters which contain only Subunits of the component.
+	 *
+	 * @param usedSubunitIds
+	 *            the ids of the component, sorted and trimmed in place
+	 * @return null if no cluster is left
+	 */
+	private Subset trim(List<Integer> usedSubunitIds) {
+
+		Collections.sort(usedSubunitIds);
+		Map<SubunitCluster, List<Integer>> clusterSubunitIds = new IdentityHashMap<>();
+		Stoichiometry localStoichiometry = QuatSymmetryDetector.trimSubunitClusters(
+				composition, subunitClusterIds, clusterIdToSubunitIds,
+				usedSubunitIds, clusterSubunitIds);
+		if (localStoichiometry.numberOfComponents() == 0)
+			return null;
+		return new Subset(localStoichiometry, clusterSubunitIds);
+	}
+
+	/**
+	 * Evaluates the subsets in parallel.
+	 *
+	 * @return the evaluated subsets, in the same order
+	 */
+	private List<Subset> evaluateAll(List<Subset> subsets) {
+
+		List<Future<FutureTask<Subset>>> futures = new ArrayList<>();
+		for (Subset subset : subsets)
+			futures.add(context.submit(() -> compute(evaluations, subset.subunitIds, evaluation(subset), true)));
+
+		List<Subset> evaluated = new ArrayList<>();
+		for (Future<FutureTask<Subset>> future : futures) {
+			Subset subset = getResult(getResult(future));
+			if (!subset.evaluated)
+				incomplete = true;
+			evaluated.add(subset);
+		}
+		return evaluated;
+	}
+
+	/**
+	 * Gets the value of the key from the cache, computing it in this thread if
+	 * no other thread did.
+	 *
+	 * @param wait
+	 *            whether to return the value being computed by another thread,
+	 *            or null
+	 */
+	private static <K, V> FutureTask<V> compute(ConcurrentMap<K, FutureTask<V>> cache,
+			K key, Callable<V> callable, boolean wait) {
+
+		FutureTask<V> task = new FutureTask<>(callable);
+		FutureTask<V> existing = cache.putIfAbsent(key, task);
+		if (existing == null) {
+			task.run();
+			return task;
+		}
+		return wait ? existing : null;
+	}
+
+	private Callable<Subset> evaluation(Subset subset) {
+		return () -> {
+			// leave the subset unevaluated if over the time limit
+			if (symmParams.isLocalLimitsExceeded())
+				return subset;
+
+			List<SubunitCluster> subsetClusters = subset.stoichiometry.getClusters();
+			List<Integer> sizes = subsetClusters.stream().map(SubunitCluster::size)
+					.collect(Collectors.toList());
+
+			// no rotation or helix is possible if the cluster sizes are coprime
+			if (SymmetryTools.getValidFolds(sizes).size() > 1) {
+				List<Point3d[]> subsetTraces = new ArrayList<>();
+				List<Point3d> subsetCenters = new ArrayList<>();
+				for (SubunitCluster cluster : subsetClusters) {
+					for (int id : subset.clusterSubunitIds.get(cluster)) {
+						subsetTraces.add(traces.get(id));
+						subsetCenters.add(centers.get(id));
+					}
+				}
+				QuatSymmetrySubunits subunits = new QuatSymmetrySubunits(
+						subsetClusters, subsetTraces, subsetCenters);
+
+				QuatSymmetryResults localResult = QuatSymmetryDetector.calcQuatSymmetry(
+						subset.stoichiometry, subunits, symmParams);
+				if (localResult != null && !localResult.getSymmetry().equals("C1")) {
+					localResult.setLocal(true);
+					subset.result = localResult;
+				}
+			}
+			subset.evaluated = true;
+			return subset;
+		};
+	}
+
+	/**
+	 * @return the global ids of the Subunits of each (untrimmed) cluster of
+	 *         the composition
+	 */
+	private Map<SubunitCluster, List<Integer>> getSubunitIds(Stoichiometry stoichiometry) {
+		Map<SubunitCluster, List<Integer>> ids = new IdentityHashMap<>();
+		for (SubunitCluster cluster : stoichiometry.getClusters())
+			ids.put(cluster, clusterIdToSubunitIds.get(clusters.indexOf(cluster)));
+		return ids;
+	}
+
+	private <T> T getResult(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			context.cancel();
+			throw new RuntimeException("Interrupted during local symmetry search", e);
+		} catch (ExecutionException e) {
+			context.cancel();
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+}
@@ -22,6 +22,7 @@
  */
 package org.biojava.nbio.structure.symmetry.core;
 
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.biojava.nbio.structure.Calc;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.cluster.*;
@@ -263,8 +264,39 @@ public class QuatSymmetryDetector {
 		return outputSymmetries;
 	}
 
+	/**
+	 * Returns a List of LOCAL symmetry results, like
+	 * {@link #calcLocalSymmetries(Stoichiometry, QuatSymmetryParameters)}, with
+	 * a search suited to large heteromeric complexes:
+	 * <ul>
+	 * <li>the CA traces and centroids of the subunits are computed once, and
+	 * the symmetry of each subset of subunits is cached;</li>
+	 * <li>subsets whose stoichiometry does not allow any symmetry (coprime
+	 * cluster sizes) are not superposed;</li>
+	 * <li>the subsets the search will reach next are decomposed and evaluated
+	 * ahead of time by the tasks of the context.</li>
+	 * </ul>
+	 * The subsets are explored in the same order, and within the same limits
+	 * of {@link QuatSymmetryParameters}, as the sequential search, so the
+	 * results are the same.
+	 *
+	 * @param globalComposition
+	 *            {@link Stoichiometry} object that contains global clustering results
+	 * @param symmParams
+	 *            quaternary symmetry parameters
+	 * @param context
+	 *            the context running the evaluation of the subsets
+	 * @return List of LOCAL quaternary structure symmetry results. Empty if
+	 *         none.
+	 * @since 6.0.6
+	 */
+	public static List<QuatSymmetryResults> calcLocalSymmetries(Stoichiometry globalComposition,
+			QuatSymmetryParameters symmParams, ExecutionContext context) {
+		return new LocalSymmetrySearch(globalComposition, symmParams, context).run();
+	}
+
 
-	private static  Graph<Integer, DefaultEdge> initContactGraph(List<SubunitCluster> clusters){
+	static Graph<Integer, DefaultEdge> initContactGraph(List<SubunitCluster> clusters){
 
 		Graph<Integer, DefaultEdge> graph = new SimpleGraph<>(DefaultEdge.class);
 
@@ -457,6 +489,20 @@ public class QuatSymmetryDetector {
 	                                                        List<Integer> allSubunitClusterIds,
 	                                                        Map<Integer, List<Integer>> clusterIdToSubunitIds,
 	                                                        List<Integer> usedSubunitIds) {
+		return trimSubunitClusters(globalComposition, allSubunitClusterIds, clusterIdToSubunitIds,
+				usedSubunitIds, new HashMap<>());
+	}
+
+	/**
+	 * Keeps only the used subunits in the clusters, and drops the clusters left
+	 * with a single subunit (whose subunit ids are removed from usedSubunitIds).
+	 * The subunit ids of each trimmed cluster are added to trimmedSubunitIds.
+	 */
+	static Stoichiometry trimSubunitClusters(Stoichiometry globalComposition,
+	                                         List<Integer> allSubunitClusterIds,
+	                                         Map<Integer, List<Integer>> clusterIdToSubunitIds,
+	                                         List<Integer> usedSubunitIds,
+	                                         Map<SubunitCluster, List<Integer>> trimmedSubunitIds) {
 		List<SubunitCluster> globalClusters = globalComposition.getClusters();
 		List<SubunitCluster> localClusters = new ArrayList<>();
 
@@ -485,6 +531,7 @@ public class QuatSymmetryDetector {
 			if (subunitsToRetain.size()>1) {
 				SubunitCluster filteredCluster = new SubunitCluster(originalCluster, subunitsToRetain);
 				localClusters.add(filteredCluster);
+				trimmedSubunitIds.put(filteredCluster, usedSubunitIdsInCluster);
 			} else {
 				// if the cluster ends up having only 1 subunit, remove it from further processing
 				usedSubunitIds.removeAll(usedSubunitIdsInCluster);
@@ -497,6 +544,22 @@ public class QuatSymmetryDetector {
 	private static QuatSymmetryResults calcQuatSymmetry(Stoichiometry composition, QuatSymmetryParameters parameters) {
 
 		QuatSymmetrySubunits subunits = new QuatSymmetrySubunits(composition.getClusters());
+		return calcQuatSymmetry(composition, subunits, parameters);
+	}
+
+	/**
+	 * Calculates the symmetry of the Subunits of a composition.
+	 *
+	 * @param composition
+	 *            the clusters of the Subunits
+	 * @param subunits
+	 *            the Subunits of the clusters, in the order of the clusters
+	 * @param parameters
+	 *            quaternary symmetry parameters
+	 * @return the symmetry results, or null if there are no Subunits
+	 */
+	static QuatSymmetryResults calcQuatSymmetry(Stoichiometry composition,
+			QuatSymmetrySubunits subunits, QuatSymmetryParameters parameters) {
 
 		if (subunits.getSubunitCount() == 0)
 			return null;
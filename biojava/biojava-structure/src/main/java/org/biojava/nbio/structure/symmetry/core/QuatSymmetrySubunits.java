@@ -88,6 +88,36 @@ public class QuatSymmetrySubunits {
 		folds = SymmetryTools.getValidFolds(stoichiometries);
 	}
 
+	/**
+	 * Creates the Subunits from precomputed traces and centers, which are
+	 * shared and must not be modified.
+	 *
+	 * @param clusters
+	 *            List of SubunitCluster
+	 * @param traces
+	 *            the aligned CA coordinates of each Subunit, in the order of
+	 *            the clusters
+	 * @param originalCenters
+	 *            the centroid of each trace
+	 */
+	QuatSymmetrySubunits(List<SubunitCluster> clusters,
+			List<Point3d[]> traces, List<Point3d> originalCenters) {
+
+		this.clusters = clusters;
+
+		for (int c = 0; c < clusters.size(); c++) {
+			for (int s = 0; s < clusters.get(c).size(); s++)
+				clusterIds.add(c);
+		}
+		caCoords.addAll(traces);
+		for (Point3d center : originalCenters)
+			this.originalCenters.add(new Point3d(center));
+
+		List<Integer> stoichiometries = clusters.stream().map(c -> c.size())
+				.collect(Collectors.toList());
+		folds = SymmetryTools.getValidFolds(stoichiometries);
+	}
+
 	public List<Point3d[]> getTraces() {
 		return caCoords;
 	}
@@ -210,7 +240,8 @@ public class QuatSymmetrySubunits {
 		if (centers.size() > 0) {
 			return;
 		}
-		calcOriginalCenters();
+		if (originalCenters.isEmpty())
+			calcOriginalCenters();
 		calcCentroid();
 		calcCenters();
 		calcMomentsOfIntertia();
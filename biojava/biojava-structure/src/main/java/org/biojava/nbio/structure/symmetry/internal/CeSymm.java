@@ -25,6 +25,7 @@ import java.util.List;
 
 import javax.vecmath.Matrix4d;
 
+import org.biojava.nbio.core.util.ExecutionContext;
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
@@ -390,8 +391,7 @@ public class CeSymm {
 			// Optimize the global alignment freely once more (final step)
 			if (params.getOptimization() && result.getSymmLevels() > 1) {
 				try {
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					MultipleAlignment optimized = optimizer.optimize();
+					MultipleAlignment optimized = optimize(result);
 					// Set the optimized MultipleAlignment and the axes
 					result.setMultipleAlignment(optimized);
 				} catch (RefinerFailedException e) {
@@ -424,9 +424,7 @@ public class CeSymm {
 			// STEP 5: symmetry alignment optimization
 			if (result.getParams().getOptimization()) {
 				try {
-					MultipleAlignment msa = result.getMultipleAlignment();
-					SymmOptimizer optimizer = new SymmOptimizer(result);
-					msa = optimizer.optimize();
+					MultipleAlignment msa = optimize(result);
 					result.setMultipleAlignment(msa);
 				} catch (RefinerFailedException e) {
 					logger.debug("Optimization failed:" + e.getMessage());
@@ -436,4 +434,15 @@ public class CeSymm {
 		return result;
 	}
 
+	/**
+	 * Optimizes the symmetry alignment of a result with the number of
+	 * starts of its parameters.
+	 */
+	private static MultipleAlignment optimize(CeSymmResult result)
+			throws StructureException, RefinerFailedException {
+		int starts = result.getParams().getOptimizationStarts();
+		return SymmOptimizer.optimize(result, starts,
+				starts > 1 ? ExecutionContext.forkJoin(starts) : null);
+	}
+
 }
@@ -26,12 +26,18 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+
+import javax.vecmath.Matrix4d;
+
+import org.biojava.nbio.core.util.ExecutionContext;
 
 import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.align.multiple.Block;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
 import org.biojava.nbio.structure.align.multiple.MultipleAlignmentEnsemble;
+import org.biojava.nbio.structure.align.multiple.mc.MonteCarloMultiStart;
 import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
 import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentTools;
 import org.biojava.nbio.structure.jama.Matrix;
@@ -52,6 +58,8 @@ import org.slf4j.LoggerFactory;
  * modification of the algorithm improves convergence and running time.
  * <p>
  * Use call method to parallelize optimizations, or use optimize method instead.
+ * To run several optimizations with different random seeds and keep the best,
+ * use {@link #optimize(CeSymmResult, int, ExecutionContext)}.
  * Because gaps are allowed in the repeats, a {@link MultipleAlignment} format
  * is returned.
  *
@@ -59,7 +67,8 @@ import org.slf4j.LoggerFactory;
  * @since 4.1.1
  *
  */
-public class SymmOptimizer {
+public class SymmOptimizer
+		implements MonteCarloMultiStart.Trajectory<MultipleAlignment> {
 
 	private static final Logger logger = LoggerFactory
 			.getLogger(SymmOptimizer.class);
@@ -80,6 +89,7 @@ public class SymmOptimizer {
 	// Alignment Information
 	private MultipleAlignment msa;
 	private SymmetryAxes axes;
+	private SymmetryAxes resultAxes;
 	private Atom[] atoms;
 	private int order;
 	private int length; // total alignment columns (block size)
@@ -90,6 +100,16 @@ public class SymmOptimizer {
 	private List<Integer> freePool; // residues not aligned
 	private double mcScore; // alignment score to optimize
 
+	// Optimization state and optimal alignment of the trajectory
+	private boolean initialized = false;
+	private List<List<Integer>> optBlock;
+	private List<Integer> optFreePool;
+	private double optScore;
+	private int conv; // Number of steps without an alignment improvement
+	private int iteration;
+	private int stepsToConverge;
+	private long initialTime;
+
 	// Variables that store the history of the optimization - slower if on
 	private static final boolean history = false;
 	private static final int saveStep = 100;
@@ -111,9 +131,29 @@ public class SymmOptimizer {
 	 * @throws StructureException
 	 */
 	public SymmOptimizer(CeSymmResult symmResult) {
+		this(symmResult, symmResult.getParams().getRndSeed(),
+				symmResult.getAxes());
+	}
 
-		this.axes = symmResult.getAxes();
-		this.rnd = new Random(symmResult.getParams().getRndSeed());
+	/**
+	 * Constructor with a random seed different from the one of the
+	 * parameters and the symmetry axes to update, to run several
+	 * optimizations of the same seed alignment.
+	 *
+	 * @param symmResult
+	 *            CeSymmResult with all the information
+	 * @param rndSeed
+	 *            the seed of the random number generator
+	 * @param axes
+	 *            the symmetry axes of the result, or a copy of them. They
+	 *            are updated during the optimization.
+	 */
+	private SymmOptimizer(CeSymmResult symmResult, int rndSeed,
+			SymmetryAxes axes) {
+
+		this.axes = axes;
+		this.resultAxes = symmResult.getAxes();
+		this.rnd = new Random(rndSeed);
 		this.Lmin = symmResult.getParams().getMinCoreLength();
 		this.dCutoff = symmResult.getParams().getDistanceCutoff();
 
@@ -134,6 +174,59 @@ public class SymmOptimizer {
 		maxIter = symmResult.getParams().getOptimizationSteps();
 		if (maxIter < 1)
 			maxIter = 100 * atoms.length;
+		stepsToConverge = Math.max(maxIter / 50, 1000);
+		C = 20 * order;
+	}
+
+	/**
+	 * Optimizes the symmetry alignment of a result with several independent
+	 * trajectories, with consecutive random seeds starting at the seed of
+	 * the parameters, and returns the best scoring alignment. The symmetry
+	 * axes of the result are updated to the ones of that alignment.
+	 * <p>
+	 * The trajectories run in parallel and the ones falling far behind the
+	 * best score are terminated early, as described in
+	 * {@link MonteCarloMultiStart}. The result only depends on the random
+	 * seed and the number of starts.
+	 *
+	 * @param symmResult
+	 *            CeSymmResult with all the information
+	 * @param starts
+	 *            the number of trajectories. With 1, this is the same as
+	 *            {@link #optimize()}.
+	 * @param context
+	 *            the context running the trajectories, or null to run them
+	 *            in this thread
+	 * @return the optimized MultipleAlignment
+	 * @throws StructureException
+	 * @throws RefinerFailedException
+	 *             if the alignment is not symmetric or too short in all the
+	 *             trajectories.
+	 */
+	public static MultipleAlignment optimize(CeSymmResult symmResult,
+			int starts, ExecutionContext context) throws StructureException,
+			RefinerFailedException {
+
+		if (starts <= 1)
+			return new SymmOptimizer(symmResult).optimize();
+
+		int seed = symmResult.getParams().getRndSeed();
+		List<SymmOptimizer> optimizers = new ArrayList<SymmOptimizer>(starts);
+		for (int i = 0; i < starts; i++) {
+			optimizers.add(new SymmOptimizer(symmResult, seed + i,
+					new SymmetryAxes(symmResult.getAxes())));
+		}
+		SymmOptimizer first = optimizers.get(0);
+		try {
+			return MonteCarloMultiStart.optimize(optimizers,
+					first.stepsToConverge, first.C, context);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RefinerFailedException)
+				throw (RefinerFailedException) e.getCause();
+			if (e.getCause() instanceof StructureException)
+				throw (StructureException) e.getCause();
+			throw new StructureException(e.getCause());
+		}
 	}
 
 	private void initialize() throws StructureException, RefinerFailedException {
@@ -152,8 +245,6 @@ public class SymmOptimizer {
 		mcScoreHistory = new ArrayList<Double>();
 		tmScoreHistory = new ArrayList<Double>();
 
-		C = 20 * order;
-
 		// Initialize alignment variables
 		block = msa.getBlock(0).getAlignRes();
 		freePool = new ArrayList<Integer>();
@@ -175,6 +266,22 @@ public class SymmOptimizer {
 		updateMultipleAlignment();
 		mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
 				dCutoff);
+
+		// Save the optimal alignment
+		optBlock = new ArrayList<List<Integer>>();
+		optFreePool = new ArrayList<Integer>();
+		optFreePool.addAll(freePool);
+		for (int k = 0; k < order; k++) {
+			List<Integer> b = new ArrayList<Integer>();
+			b.addAll(block.get(k));
+			optBlock.add(b);
+		}
+		optScore = mcScore;
+
+		conv = 0;
+		iteration = 1;
+		initialTime = System.nanoTime()/1000000;
+		initialized = true;
 	}
 
 	/**
@@ -193,122 +300,165 @@ public class SymmOptimizer {
 	public MultipleAlignment optimize() throws StructureException,
 			RefinerFailedException {
 
-		initialize();
+		while (run(Integer.MAX_VALUE))
+			;
+		return getResult();
+	}
 
-		// Save the optimal alignment
-		List<List<Integer>> optBlock = new ArrayList<List<Integer>>();
-		List<Integer> optFreePool = new ArrayList<Integer>();
-		optFreePool.addAll(freePool);
+	/**
+	 * Runs the next steps of the optimization, initializing it first if
+	 * needed.
+	 *
+	 * @param steps
+	 *            maximum number of steps to run
+	 * @return true if the optimization has not converged yet
+	 * @throws StructureException
+	 * @throws RefinerFailedException
+	 *             if the alignment is not symmetric or too short.
+	 */
+	@Override
+	public boolean run(int steps) throws StructureException,
+			RefinerFailedException {
+
+		if (!initialized)
+			initialize();
+
+		for (int s = 0; s < steps && !isConverged(); s++)
+			step();
+
+		return !isConverged();
+	}
+
+	private boolean isConverged() {
+		return iteration >= maxIter || conv >= stepsToConverge;
+	}
+
+	/**
+	 * @return the MC score of the optimal alignment of the optimization
+	 */
+	@Override
+	public double getScore() {
+		return optScore;
+	}
+
+	/**
+	 * One step of the optimization: a random move, accepted or rejected
+	 * according to the change of score.
+	 */
+	private void step() throws StructureException, RefinerFailedException {
+
+		// Save the state of the system
+		List<List<Integer>> lastBlock = new ArrayList<List<Integer>>();
+		List<Integer> lastFreePool = new ArrayList<Integer>();
+		lastFreePool.addAll(freePool);
 		for (int k = 0; k < order; k++) {
 			List<Integer> b = new ArrayList<Integer>();
 			b.addAll(block.get(k));
-			optBlock.add(b);
+			lastBlock.add(b);
 		}
-		double optScore = mcScore;
+		double lastScore = mcScore;
+		int lastRepeatCore = repeatCore;
 
-		int conv = 0; // Number of steps without an alignment improvement
-		int i = 1;
-		int stepsToConverge = Math.max(maxIter / 50, 1000);
-		long initialTime = System.nanoTime()/1000000;
-
-		while (i < maxIter && conv < stepsToConverge) {
+		boolean moved = false;
 
-			// Save the state of the system
-			List<List<Integer>> lastBlock = new ArrayList<List<Integer>>();
-			List<Integer> lastFreePool = new ArrayList<Integer>();
-			lastFreePool.addAll(freePool);
-			for (int k = 0; k < order; k++) {
-				List<Integer> b = new ArrayList<Integer>();
-				b.addAll(block.get(k));
-				lastBlock.add(b);
-			}
-			double lastScore = mcScore;
-			int lastRepeatCore = repeatCore;
-
-			boolean moved = false;
-
-			while (!moved) {
-				// Randomly select one of the steps to modify the alignment.
-				// Because of biased moves, the probabilities are not the same
-				double move = rnd.nextDouble();
-				if (move < 0.4) {
-					moved = shiftRow();
-					logger.debug("did shift");
-				} else if (move < 0.7) {
-					moved = expandBlock();
-					logger.debug("did expand");
-				} else if (move < 0.85) {
-					moved = shrinkBlock();
-					logger.debug("did shrink");
-				} else {
-					moved = insertGap();
-					logger.debug("did insert gap");
-				}
+		while (!moved) {
+			// Randomly select one of the steps to modify the alignment.
+			// Because of biased moves, the probabilities are not the same
+			double move = rnd.nextDouble();
+			if (move < 0.4) {
+				moved = shiftRow();
+				logger.debug("did shift");
+			} else if (move < 0.7) {
+				moved = expandBlock();
+				logger.debug("did expand");
+			} else if (move < 0.85) {
+				moved = shrinkBlock();
+				logger.debug("did shrink");
+			} else {
+				moved = insertGap();
+				logger.debug("did insert gap");
 			}
+		}
 
-			// Get the properties of the new alignment
-			updateMultipleAlignment();
-			mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
-					dCutoff);
-
-			// Calculate change in the optimization Score
-			double AS = mcScore - lastScore;
-			double prob = 1.0;
+		// Get the properties of the new alignment
+		updateMultipleAlignment();
+		mcScore = MultipleAlignmentScorer.getMCScore(msa, Gopen, Gextend,
+				dCutoff);
 
-			if (AS < 0) {
+		// Calculate change in the optimization Score
+		double AS = mcScore - lastScore;
+		double prob = 1.0;
 
-				// Probability of accepting bad move
-				prob = probabilityFunction(AS, i, maxIter);
-				double p = rnd.nextDouble();
+		if (AS < 0) {
 
-				// Reject the move
-				if (p > prob) {
-					block = lastBlock;
-					freePool = lastFreePool;
-					length = block.get(0).size();
-					repeatCore = lastRepeatCore;
-					mcScore = lastScore;
-					conv++; // no change in score if rejected
+			// Probability of accepting bad move
+			prob = probabilityFunction(AS, iteration, maxIter);
+			double p = rnd.nextDouble();
 
-				} else
-					conv = 0; // if accepted
+			// Reject the move
+			if (p > prob) {
+				block = lastBlock;
+				freePool = lastFreePool;
+				length = block.get(0).size();
+				repeatCore = lastRepeatCore;
+				mcScore = lastScore;
+				conv++; // no change in score if rejected
 
 			} else
-				conv = 0; // if positive change
-
-			logger.debug(i + ": --prob: " + prob + ", --score: " + AS
-					+ ", --conv: " + conv);
-
-			// Store as the optimal alignment if better
-			if (mcScore > optScore) {
-				optBlock = new ArrayList<List<Integer>>();
-				optFreePool = new ArrayList<Integer>();
-				optFreePool.addAll(freePool);
-				for (int k = 0; k < order; k++) {
-					List<Integer> b = new ArrayList<Integer>();
-					b.addAll(block.get(k));
-					optBlock.add(b);
-				}
-				optScore = mcScore;
-			}
+				conv = 0; // if accepted
 
-			if (history) {
-				if (i % saveStep == 1) {
-					// Get the correct superposition again
-					updateMultipleAlignment();
-
-					timeHistory.add(System.nanoTime()/1000000 - initialTime);
-					lengthHistory.add(length);
-					rmsdHistory.add(msa.getScore(MultipleAlignmentScorer.RMSD));
-					tmScoreHistory.add(msa
-							.getScore(MultipleAlignmentScorer.AVGTM_SCORE));
-					mcScoreHistory.add(mcScore);
-				}
+		} else
+			conv = 0; // if positive change
+
+		logger.debug(iteration + ": --prob: " + prob + ", --score: " + AS
+				+ ", --conv: " + conv);
+
+		// Store as the optimal alignment if better
+		if (mcScore > optScore) {
+			optBlock = new ArrayList<List<Integer>>();
+			optFreePool = new ArrayList<Integer>();
+			optFreePool.addAll(freePool);
+			for (int k = 0; k < order; k++) {
+				List<Integer> b = new ArrayList<Integer>();
+				b.addAll(block.get(k));
+				optBlock.add(b);
 			}
+			optScore = mcScore;
+		}
 
-			i++;
+		if (history) {
+			if (iteration % saveStep == 1) {
+				// Get the correct superposition again
+				updateMultipleAlignment();
+
+				timeHistory.add(System.nanoTime()/1000000 - initialTime);
+				lengthHistory.add(length);
+				rmsdHistory.add(msa.getScore(MultipleAlignmentScorer.RMSD));
+				tmScoreHistory.add(msa
+						.getScore(MultipleAlignmentScorer.AVGTM_SCORE));
+				mcScoreHistory.add(mcScore);
+			}
 		}
 
+		iteration++;
+	}
+
+	/**
+	 * Ends the optimization and returns the optimal alignment found, with
+	 * its superposition and MC score.
+	 *
+	 * @return the optimized MultipleAlignment
+	 * @throws StructureException
+	 * @throws RefinerFailedException
+	 *             if the alignment is not symmetric or too short.
+	 */
+	@Override
+	public MultipleAlignment getResult() throws StructureException,
+			RefinerFailedException {
+
+		if (!initialized)
+			initialize();
+
 		// Use the optimal alignment of the trajectory
 		block = optBlock;
 		freePool = optFreePool;
@@ -318,6 +468,14 @@ public class SymmOptimizer {
 		updateMultipleAlignment();
 		msa.putScore(MultipleAlignmentScorer.MC_SCORE, mcScore);
 
+		// Update the axes of the result if optimizing a copy
+		if (axes != resultAxes) {
+			for (int level = 0; level < axes.getNumLevels(); level++) {
+				resultAxes.updateAxis(level, new Matrix4d(axes
+						.getElementaryAxis(level).getOperator()));
+			}
+		}
+
 		// Save the history to the results folder of the symmetry project
 		if (history) {
 			try {
@@ -0,0 +1,121 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIdentifier;
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestStructureDBSearch {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	@Test
+	public void testSearchAndResume() throws IOException, StructureException {
+		List<StructureIdentifier> targets = new ArrayList<>();
+		targets.add(LocalStructures.getName("3cdl.pdb"));
+		targets.add(LocalStructures.getName("2pos.pdb"));
+		targets.add(LocalStructures.getName("3cfy.pdb"));
+		targets.add(LocalStructures.getName("missing.pdb"));
+
+		File checkpoint = new File(folder.getRoot(), "search.tsv");
+		StructureDBSearch search = new StructureDBSearch(LocalStructures.getName("3cfy.pdb"), targets, CeMain.algorithmName,
+				new AtomCache());
+		search.setMaxHits(2);
+		search.setPrefetch(2);
+		search.setCheckpointFile(checkpoint);
+		List<StructureDBSearch.Hit> hits = search.run(ExecutionContext.forkJoin(2));
+
+		assertEquals(3, search.getAlignedCount());
+		assertEquals(1, search.getFailedCount());
+		assertEquals(2, hits.size());
+		// the query aligned with itself is the best hit
+		assertEquals(targets.get(2).getIdentifier(), hits.get(0).getIdentifier());
+		assertEquals(1.0, hits.get(0).getTMScore(), 0.01);
+		assertTrue(hits.get(0).getTMScore() >= hits.get(1).getTMScore());
+		assertNotNull(hits.get(0).getAFPChain());
+		// every finished target is in the checkpoint
+		assertEquals(3, Files.readAllLines(checkpoint.toPath()).size());
+
+		// a second run reads the finished targets from the checkpoint, and only retries the failed one
+		StructureDBSearch resumed = new StructureDBSearch(LocalStructures.getName("3cfy.pdb"), targets, CeMain.algorithmName,
+				new AtomCache());
+		resumed.setMaxHits(2);
+		resumed.setCheckpointFile(checkpoint);
+		List<StructureDBSearch.Hit> resumedHits = resumed.run(ExecutionContext.forkJoin(2));
+
+		assertEquals(3, resumed.getResumedCount());
+		assertEquals(0, resumed.getAlignedCount());
+		assertEquals(1, resumed.getFailedCount());
+		assertEquals(hits.size(), resumedHits.size());
+		for (int i = 0; i < hits.size(); i++) {
+			assertEquals(hits.get(i).getIdentifier(), resumedHits.get(i).getIdentifier());
+			assertEquals(hits.get(i).getTMScore(), resumedHits.get(i).getTMScore(), 0);
+			assertNull(resumedHits.get(i).getAFPChain());
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnwritableCheckpoint() throws IOException, StructureException {
+		List<StructureIdentifier> targets = new ArrayList<>();
+		targets.add(LocalStructures.getName("3cdl.pdb"));
+		StructureDBSearch search = new StructureDBSearch(LocalStructures.getName("3cfy.pdb"), targets, CeMain.algorithmName,
+				new AtomCache());
+		search.setCheckpointFile(new File(folder.getRoot(), "missing/search.tsv"));
+		search.run(ExecutionContext.forkJoin(2));
+	}
+
+	@Test
+	public void testPreFilter() throws IOException, StructureException {
+		List<StructureIdentifier> targets = new ArrayList<>();
+		targets.add(LocalStructures.getName("3cdl.pdb"));
+		targets.add(LocalStructures.getName("2pos.pdb"));
+		targets.add(LocalStructures.getName("3cfy.pdb"));
+		AtomCache cache = new AtomCache();
+		StructureFragmentIndex index = new StructureFragmentIndex();
+		index.addAll(targets, cache);
+
+		StructureDBSearch search = new StructureDBSearch(LocalStructures.getName("3cfy.pdb"), targets, CeMain.algorithmName, cache);
+		search.setPreFilter(index, 1);
+		List<StructureDBSearch.Hit> hits = search.run(ExecutionContext.forkJoin(2));
+
+		assertEquals(1, search.getAlignedCount());
+		assertEquals(targets.get(2).getIdentifier(), hits.get(0).getIdentifier());
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TestStructureFragmentIndex {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	@Test
+	public void testSearch() throws IOException, StructureException {
+		AtomCache cache = new AtomCache();
+		StructureFragmentIndex index = new StructureFragmentIndex();
+		assertEquals(2, index.addAll(Arrays.asList(LocalStructures.getName("3cdl.pdb"), LocalStructures.getName("2pos.pdb")), cache));
+		// adding is incremental, indexed structures are skipped
+		assertEquals(1, index.addAll(Arrays.asList(LocalStructures.getName("3cdl.pdb"), LocalStructures.getName("3cfy.pdb"), LocalStructures.getName("missing.pdb")),
+				cache));
+		assertEquals(3, index.size());
+		assertTrue(index.contains(LocalStructures.getName("3cfy.pdb").getIdentifier()));
+
+		Atom[] query = cache.getAtoms(LocalStructures.getName("3cfy.pdb"));
+		try {
+			index.add(LocalStructures.getName("3cfy.pdb").getIdentifier(), query);
+			fail("Structures can only be added once");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+
+		List<StructureFragmentIndex.Candidate> candidates = index.search(query, 2);
+		assertEquals(2, candidates.size());
+		assertEquals(LocalStructures.getName("3cfy.pdb").getIdentifier(), candidates.get(0).getIdentifier());
+		assertEquals(1.0, candidates.get(0).getScore(), 1e-10);
+		assertTrue(candidates.get(1).getScore() < 1.0);
+
+		File file = folder.newFile("index.gz");
+		index.write(file);
+		StructureFragmentIndex read = StructureFragmentIndex.read(file);
+		assertEquals(index.size(), read.size());
+		List<StructureFragmentIndex.Candidate> readCandidates = read.search(query, 3);
+		List<StructureFragmentIndex.Candidate> expected = index.search(query, 3);
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getIdentifier(), readCandidates.get(i).getIdentifier());
+			assertEquals(expected.get(i).getScore(), readCandidates.get(i).getScore(), 0);
+		}
+	}
+
+	@Test
+	public void testShortStructure() {
+		StructureFragmentIndex index = new StructureFragmentIndex();
+		index.add("empty", new Atom[0]);
+		assertTrue(index.search(new Atom[0], 10).isEmpty());
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.ce;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.align.model.AFPChain;
+import org.biojava.nbio.structure.align.util.AtomCache;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class TestCeWorkspace {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	private static Atom[] load(String file) throws IOException, StructureException {
+		return new AtomCache().getAtoms(LocalStructures.getName(file));
+	}
+
+	private static AFPChain align(CECalculator calculator, Atom[] ca1, Atom[] ca2) throws StructureException {
+		AFPChain afpChain = calculator.extractFragments(new AFPChain(CeMain.algorithmName), ca1, ca2);
+		calculator.traceFragmentMatrix(afpChain, ca1, ca2);
+		calculator.nextStep(afpChain, ca1, ca2);
+		return afpChain;
+	}
+
+	@Test
+	public void testInterleavedCalculators() throws IOException, StructureException {
+		Atom[] ca1 = load("3cfy.pdb");
+		Atom[] ca2 = load("3cdl.pdb");
+		Atom[] ca3 = load("2pos.pdb");
+		CeParameters params = new CeParameters();
+
+		AFPChain expected12 = align(new CECalculator(params), ca1, ca2);
+		AFPChain expected13 = align(new CECalculator(params), ca1, ca3);
+
+		// the second calculator takes the buffers of the workspace from the first one, which rebuilds them
+		CECalculator first = new CECalculator(params);
+		AFPChain afpChain = first.extractFragments(new AFPChain(CeMain.algorithmName), ca1, ca2);
+		AFPChain afpChain13 = align(new CECalculator(params), ca1, ca3);
+		first.traceFragmentMatrix(afpChain, ca1, ca2);
+		first.nextStep(afpChain, ca1, ca2);
+
+		assertEquals(expected12.getAlignScore(), afpChain.getAlignScore(), 0);
+		assertEquals(expected12.getTotalRmsdOpt(), afpChain.getTotalRmsdOpt(), 0);
+		assertArrayEquals(expected12.getDisTable2().getArray(), afpChain.getDisTable2().getArray());
+		assertEquals(expected13.getAlignScore(), afpChain13.getAlignScore(), 0);
+		assertEquals(expected13.getOptLength(), afpChain13.getOptLength());
+	}
+
+	@Test
+	public void testDistanceMatrices() throws IOException, StructureException {
+		Atom[] ca1 = load("3cfy.pdb");
+		CECalculator calculator = new CECalculator(new CeParameters());
+		calculator.extractFragments(new AFPChain(CeMain.algorithmName), ca1, ca1);
+
+		double[][] dist1 = calculator.getDist1();
+		assertEquals(ca1.length, dist1.length);
+		assertEquals(0, dist1[3][3], 0);
+		assertEquals(dist1[2][5], dist1[5][2], 0);
+		// built once
+		assertSame(dist1, calculator.getDist1());
+
+		dist1[3][3] = 42;
+		calculator.setDist1(dist1);
+		assertEquals(42, calculator.getDist1()[3][3], 0);
+		assertEquals(0, calculator.getDist2()[3][3], 0);
+	}
+
+	@Test
+	public void testDistanceMatricesAfterReuse() throws IOException, StructureException {
+		Atom[] ca1 = load("3cfy.pdb");
+		Atom[] ca2 = load("3cdl.pdb");
+		CECalculator first = new CECalculator(new CeParameters());
+		first.extractFragments(new AFPChain(CeMain.algorithmName), ca1, ca2);
+		double[][] expected = first.getDist2();
+
+		// another calculator takes the workspace, the first one recomputes its matrices
+		CECalculator second = new CECalculator(new CeParameters());
+		second.extractFragments(new AFPChain(CeMain.algorithmName), ca2, ca1);
+		assertArrayEquals(expected, first.getDist2());
+		assertEquals(ca1.length, first.getDist1().length);
+
+		// and again after the workspace is released
+		CeWorkspace.release();
+		assertArrayEquals(expected, second.getDist1());
+	}
+
+	@Test
+	public void testBreakFlagListener() throws IOException, StructureException {
+		Atom[] ca1 = load("3cfy.pdb");
+		Atom[] ca2 = load("3cdl.pdb");
+		boolean[][][] kept = new boolean[1][][];
+		CECalculator calculator = new CECalculator(new CeParameters());
+		calculator.addMatrixListener(new MatrixListener() {
+			@Override
+			public double[][] matrixInOptimizer(double[][] max) {
+				return max;
+			}
+
+			@Override
+			public boolean[][] initializeBreakFlag(boolean[][] brkFlag) {
+				kept[0] = brkFlag;
+				return brkFlag;
+			}
+		});
+		align(calculator, ca1, ca2);
+		assertNotNull(kept[0]);
+		// the flags given to the listener are not the buffer of the workspace
+		assertNotSame(kept[0], CeWorkspace.get().getBreakFlags(kept[0].length, kept[0][0].length));
+	}
+
+	@Test
+	public void testSinglePrecision() throws IOException, StructureException {
+		Atom[] ca1 = load("3cfy.pdb");
+		Atom[] ca2 = load("3cdl.pdb");
+		CeParameters params = new CeParameters();
+		AFPChain expected = new CeMain().align(ca1, ca2, params);
+
+		params.setSinglePrecision(true);
+		AFPChain afpChain = new CeMain().align(ca1, ca2, params);
+
+		assertEquals(expected.getOptLength(), afpChain.getOptLength(), 2);
+		assertEquals(expected.getTotalRmsdOpt(), afpChain.getTotalRmsdOpt(), 0.1);
+		assertEquals(expected.getTMScore(), afpChain.getTMScore(), 0.01);
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.multiple.mc;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.StructureAlignmentFactory;
+import org.biojava.nbio.structure.align.ce.CeMain;
+import org.biojava.nbio.structure.align.multiple.Block;
+import org.biojava.nbio.structure.align.multiple.MultipleAlignment;
+import org.biojava.nbio.structure.align.multiple.util.MultipleAlignmentScorer;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+
+public class TestMonteCarloMultiStart {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	/**
+	 * A trajectory whose score grows linearly with the number of steps.
+	 */
+	private static class LinearTrajectory implements MonteCarloMultiStart.Trajectory<String> {
+
+		private final String name;
+		private final double slope;
+		private final int maxSteps;
+		private final boolean fail;
+		private int steps = 0;
+
+		LinearTrajectory(String name, double slope, int maxSteps, boolean fail) {
+			this.name = name;
+			this.slope = slope;
+			this.maxSteps = maxSteps;
+			this.fail = fail;
+		}
+
+		@Override
+		public boolean run(int n) throws StructureException {
+			if (fail) {
+				throw new StructureException("Trajectory " + name + " failed");
+			}
+			steps = Math.min(steps + n, maxSteps);
+			return steps < maxSteps;
+		}
+
+		@Override
+		public double getScore() {
+			return slope * steps;
+		}
+
+		@Override
+		public String getResult() {
+			return name;
+		}
+	}
+
+	@Test
+	public void testBestTrajectory() throws ExecutionException {
+		for (ExecutionContext context : new ExecutionContext[] { null, ExecutionContext.forkJoin(2) }) {
+			// the slow ones are terminated after the first round
+			List<LinearTrajectory> trajectories = Arrays.asList(
+					new LinearTrajectory("slow", 1, 1000, false),
+					new LinearTrajectory("fast", 3, 1000, false),
+					new LinearTrajectory("failed", 5, 1000, true),
+					new LinearTrajectory("slower", 0.5, 1000, false));
+			assertEquals("fast", MonteCarloMultiStart.optimize(trajectories, 100, 150, context));
+			assertEquals(100, trajectories.get(0).steps);
+			assertEquals(1000, trajectories.get(1).steps);
+			assertEquals(100, trajectories.get(3).steps);
+
+			// ties are resolved in favour of the first trajectory, and short ones are kept
+			trajectories = Arrays.asList(
+					new LinearTrajectory("short", 10, 250, false),
+					new LinearTrajectory("first", 5, 1000, false),
+					new LinearTrajectory("second", 5, 1000, false));
+			assertEquals("first", MonteCarloMultiStart.optimize(trajectories, 100, Double.POSITIVE_INFINITY, context));
+			assertEquals(250, trajectories.get(0).steps);
+		}
+	}
+
+	@Test
+	public void testAllFailed() {
+		List<LinearTrajectory> trajectories = Arrays.asList(
+				new LinearTrajectory("first", 1, 1000, true),
+				new LinearTrajectory("second", 1, 1000, true));
+		try {
+			MonteCarloMultiStart.optimize(trajectories, 100, 0, ExecutionContext.forkJoin(2));
+			fail("Expected ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof StructureException);
+			assertEquals("Trajectory first failed", e.getCause().getMessage());
+		}
+	}
+
+	private static MultipleAlignment align(List<Atom[]> atoms, int starts, int threads) throws StructureException {
+		MultipleMcMain mc = new MultipleMcMain(StructureAlignmentFactory.getAlgorithm(CeMain.algorithmName));
+		MultipleMcParameters params = (MultipleMcParameters) mc.getParameters();
+		params.setRandomSeed(7);
+		params.setConvergenceSteps(100);
+		params.setMinBlockLen(5);
+		params.setNrStarts(starts);
+		params.setNrThreads(threads);
+		return mc.align(atoms);
+	}
+
+	private static List<List<List<Integer>>> getAlignRes(MultipleAlignment msa) {
+		List<List<List<Integer>>> alignRes = new ArrayList<>();
+		for (Block b : msa.getBlocks()) {
+			alignRes.add(b.getAlignRes());
+		}
+		return alignRes;
+	}
+
+	@Test
+	public void testMultipleMcStarts() throws IOException, StructureException {
+		Structure s = LocalStructures.getStructure("4hhb.cif.gz");
+		List<Atom[]> atoms = new ArrayList<>();
+		for (String chain : new String[] { "A", "B", "C", "D" }) {
+			atoms.add(StructureTools.getRepresentativeAtomArray(s.getPolyChainByPDB(chain)));
+		}
+
+		// the result does not depend on the number of threads
+		MultipleAlignment parallel = align(atoms, 3, 3);
+		MultipleAlignment sequential = align(atoms, 3, 1);
+		assertEquals(getAlignRes(parallel), getAlignRes(sequential));
+		assertEquals(parallel.getScore(MultipleAlignmentScorer.MC_SCORE),
+				sequential.getScore(MultipleAlignmentScorer.MC_SCORE), 0);
+		assertEquals(4, parallel.size());
+		assertTrue(parallel.getCoreLength() > 100);
+	}
+}
@@ -20,6 +20,7 @@
  */
 package org.biojava.nbio.structure.align.util;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -35,27 +36,34 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
 import java.util.zip.GZIPOutputStream;
 
 import org.biojava.nbio.core.util.FileDownloadUtils;
+import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.AtomPositionMap;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.Group;
 import org.biojava.nbio.structure.PdbId;
+import org.biojava.nbio.structure.ResidueRange;
 import org.biojava.nbio.structure.ResidueRangeAndLength;
 import org.biojava.nbio.structure.Structure;
 import org.biojava.nbio.structure.StructureException;
 import org.biojava.nbio.structure.StructureIO;
 import org.biojava.nbio.structure.StructureIdentifier;
 import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.align.client.StructureName;
 import org.biojava.nbio.structure.SubstructureIdentifier;
 import org.biojava.nbio.structure.chem.ChemComp;
 import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
 import org.biojava.nbio.structure.chem.DownloadChemCompProvider;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
 import org.biojava.nbio.structure.io.CifFileReader;
+import org.biojava.nbio.structure.io.FileParsingParameters;
 import org.biojava.nbio.structure.io.LocalPDBDirectory;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.FetchBehavior;
 import org.biojava.nbio.structure.io.LocalPDBDirectory.ObsoleteBehavior;
@@ -476,4 +484,88 @@ public class AtomCacheTest {
 		}
 	}
 
+	/**
+	 * The CA atoms of whole chains are read from a projection of the mmCIF file,
+	 * which gives the same atoms as the complete entry.
+	 */
+	@Test
+	public void testGetAtomsOfChains() throws IOException, StructureException {
+		Path tmpCache = Files.createTempDirectory("BIOJAVA_TEST_CACHE");
+		try {
+			Path testCif = tmpCache.resolve(Paths.get("data", "structures", "divided", "mmCIF", "hh", "4hhb.cif.gz"));
+			Files.createDirectories(testCif.getParent());
+			FileDownloadUtils.copy(new File(AtomCacheTest.class.getResource("/4hhb.cif.gz").getPath()), testCif.toFile());
+
+			cache.setPath(tmpCache.toString());
+			cache.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+			cache.setFiletype(StructureFiletype.CIF);
+			ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+
+			Structure full = cache.getStructure("4HHB");
+			for (String name : new String[] { "4HHB.A", "4HHB.B,D" }) {
+				List<Atom> expected = new ArrayList<>();
+				for (ResidueRange range : new StructureName(name).toCanonical().getResidueRanges()) {
+					expected.addAll(Arrays.asList(StructureTools.getAtomCAArray(full.getPolyChainByPDB(range.getChainName()))));
+				}
+
+				Atom[] atoms = cache.getAtoms(name);
+				assertEquals(expected.size(), atoms.length);
+				for (int i = 0; i < atoms.length; i++) {
+					assertEquals(expected.get(i).getGroup().getResidueNumber(), atoms[i].getGroup().getResidueNumber());
+					assertArrayEquals(expected.get(i).getCoords(), atoms[i].getCoords(), 0);
+					// only the CA atoms were parsed
+					assertEquals(1, atoms[i].getGroup().size());
+				}
+			}
+
+			// a residue range needs the complete entry
+			Atom[] range = cache.getAtoms("4HHB.A:1-20");
+			assertEquals(20, range.length);
+			assertTrue(range[0].getGroup().size() > 1);
+		} finally {
+			FileDownloadUtils.deleteDirectory(tmpCache);
+		}
+	}
+
+	/**
+	 * Projected loads go through the overridable loader taking the parsing parameters, and the other loads still
+	 * through the single-argument one.
+	 */
+	@Test
+	public void testProjectedLoadHooks() throws IOException, StructureException {
+		Path tmpCache = Files.createTempDirectory("BIOJAVA_TEST_CACHE");
+		try {
+			Path testCif = tmpCache.resolve(Paths.get("data", "structures", "divided", "mmCIF", "hh", "4hhb.cif.gz"));
+			Files.createDirectories(testCif.getParent());
+			FileDownloadUtils.copy(new File(AtomCacheTest.class.getResource("/4hhb.cif.gz").getPath()), testCif.toFile());
+
+			List<String> calls = new ArrayList<>();
+			AtomCache hooked = new AtomCache(tmpCache.toString()) {
+				@Override
+				protected Structure loadStructureFromCifByPdbId(PdbId pdbId) throws IOException {
+					calls.add("default");
+					return super.loadStructureFromCifByPdbId(pdbId);
+				}
+
+				@Override
+				protected Structure loadStructureFromCifByPdbId(PdbId pdbId, FileParsingParameters params)
+						throws IOException {
+					calls.add(params == getFileParsingParams() ? "params" : "projected");
+					return super.loadStructureFromCifByPdbId(pdbId, params);
+				}
+			};
+			hooked.setFetchBehavior(FetchBehavior.LOCAL_ONLY);
+			hooked.setFiletype(StructureFiletype.CIF);
+			ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+
+			hooked.getStructure("4HHB");
+			assertEquals(Arrays.asList("default", "params"), calls);
+			calls.clear();
+			assertEquals(141, hooked.getAtoms("4HHB.A").length);
+			assertEquals(Arrays.asList("projected"), calls);
+		} finally {
+			FileDownloadUtils.deleteDirectory(tmpCache);
+		}
+	}
+
 }
@@ -0,0 +1,122 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.align.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.StructureTools;
+import org.junit.Test;
+
+/**
+ * Tests for {@link StructureCache}
+ */
+public class StructureCacheTest {
+
+	private static Structure makeStructure(int nrAtoms) {
+		Structure s = new StructureImpl();
+		Chain c = new ChainImpl();
+		c.setId("A");
+		c.setName("A");
+		s.addChain(c);
+		for (int i = 0; i < nrAtoms; i++) {
+			Group g = new AminoAcidImpl();
+			g.setPDBName("ALA");
+			Atom a = new AtomImpl();
+			a.setName("CA");
+			a.setCoords(new double[] {i, 0, 0});
+			g.addAtom(a);
+			c.addGroup(g);
+		}
+		return s;
+	}
+
+	@Test
+	public void testGetReturnsCopy() {
+		StructureCache cache = new StructureCache();
+		Structure s = makeStructure(3);
+		cache.put("1abc", s);
+
+		Structure c1 = cache.get("1abc");
+		Structure c2 = cache.get("1abc");
+		assertNotNull(c1);
+		assertNotSame(s, c1);
+		assertNotSame(c1, c2);
+		assertEquals(3, StructureTools.getNrAtoms(c1));
+
+		// modifying a returned copy does not affect the cache
+		c1.getChainByIndex(0).getAtomGroups().clear();
+		assertEquals(3, StructureTools.getNrAtoms(cache.get("1abc")));
+
+		assertNull(cache.get("2abc"));
+		assertEquals(3, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testEvictByEntries() {
+		StructureCache cache = new StructureCache(2, Long.MAX_VALUE);
+		cache.put("1", makeStructure(1));
+		cache.put("2", makeStructure(1));
+		// touch 1, so that 2 is the least recently used
+		assertNotNull(cache.get("1"));
+		cache.put("3", makeStructure(1));
+
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNotNull(cache.get("1"));
+		assertNull(cache.get("2"));
+		assertNotNull(cache.get("3"));
+	}
+
+	@Test
+	public void testEvictByBytes() {
+		long max = 10 * StructureCache.BYTES_PER_ATOM;
+		StructureCache cache = new StructureCache(100, max);
+		cache.put("1", makeStructure(4));
+		cache.put("2", makeStructure(4));
+		assertEquals(8 * StructureCache.BYTES_PER_ATOM, cache.getEstimatedBytes());
+
+		cache.put("3", makeStructure(4));
+		assertEquals(2, cache.size());
+		assertEquals(8 * StructureCache.BYTES_PER_ATOM, cache.getEstimatedBytes());
+		assertNull(cache.get("1"));
+
+		// too large to be cached at all
+		cache.put("4", makeStructure(11));
+		assertNull(cache.get("4"));
+		assertEquals(2, cache.size());
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getEstimatedBytes());
+	}
+}
@@ -35,9 +35,14 @@ import org.biojava.nbio.structure.chem.DownloadChemCompProvider;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import org.biojava.nbio.core.util.ExecutionContext;
+
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Testing of Accessible Surface Area calculations
@@ -286,4 +291,51 @@ public class TestAsaCalc {
 		assertEquals(0, asas.length);
 
 	}
+
+	@Test
+	public void testAsaCalcWithContext() {
+
+		// a random cloud of atoms, large enough to be split into several tasks
+		Random random = new Random(42);
+		Atom[] atoms = new Atom[1000];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = getAtom(20 * random.nextDouble(), 20 * random.nextDouble(), 20 * random.nextDouble());
+		}
+
+		double[] expected = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 100, 1).calculateAsas();
+
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			ExecutionContext context = new ExecutionContext(executor, 2);
+			double[] asas = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 100, 1).calculateAsas(context);
+			assertArrayEquals(expected, asas, 0.000001);
+			assertEquals(4, context.getCompletedTaskCount());
+			assertEquals(0, context.getPendingTaskCount());
+		} finally {
+			executor.shutdown();
+		}
+
+		double[] asas = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 100, 4).calculateAsas();
+		assertArrayEquals(expected, asas, 0.000001);
+	}
+
+	@Test
+	public void testSpatialHashingSameAsas() {
+
+		Random random = new Random(7);
+		Atom[] atoms = new Atom[500];
+		for (int i = 0; i < atoms.length; i++) {
+			atoms[i] = getAtom(15 * random.nextDouble(), 15 * random.nextDouble(), 15 * random.nextDouble());
+		}
+
+		AsaCalculator asaCalc = new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 1);
+		asaCalc.setUseSpatialHashingForNeighbors(false);
+		double[] expected = asaCalc.calculateAsas();
+
+		asaCalc.setUseSpatialHashingForNeighbors(true);
+		assertArrayEquals(expected, asaCalc.calculateAsas(), 0);
+		// the sphere points and scratch buffers are reused by further calculations
+		assertArrayEquals(expected, asaCalc.calculateAsas(), 0);
+		assertArrayEquals(expected, new AsaCalculator(atoms, AsaCalculator.DEFAULT_PROBE_SIZE, 200, 2).calculateAsas(), 0);
+	}
 }
@@ -0,0 +1,103 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.cluster;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.symmetry.core.Stoichiometry;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test the {@link SubunitClusterer} on local structures.
+ */
+public class TestSubunitClusterer {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	/**
+	 * The aligned residues of all the Subunits of all the clusters.
+	 */
+	private static List<String> getAlignedResidues(Stoichiometry stoichiometry) {
+		List<String> residues = new ArrayList<>();
+		for (SubunitCluster cluster : stoichiometry.getClusters()) {
+			for (Atom[] atoms : cluster.getAlignedAtomsSubunits()) {
+				StringBuilder builder = new StringBuilder(atoms[0].getGroup().getChainId());
+				for (Atom a : atoms)
+					builder.append(' ').append(a.getGroup().getResidueNumber());
+				residues.add(builder.toString());
+			}
+		}
+		return residues;
+	}
+
+	/**
+	 * The 60 identical chains of an icosahedral capsid form a single cluster.
+	 */
+	@Test
+	public void testIcosahedralCapsid() throws IOException, StructureException {
+
+		Structure s = LocalStructures.getStructure("3mk3.pdb");
+		SubunitClustererParameters params = new SubunitClustererParameters();
+		Stoichiometry stoichiometry = SubunitClusterer.cluster(s, params);
+
+		assertEquals(1, stoichiometry.getClusters().size());
+		SubunitCluster cluster = stoichiometry.getClusters().get(0);
+		assertEquals(60, cluster.size());
+		assertEquals(cluster.getSubunits().get(0).size(), cluster.length());
+		assertEquals(SubunitClustererMethod.SEQUENCE, cluster.getClustererMethod());
+		assertFalse(cluster.isPseudoStoichiometric());
+	}
+
+	/**
+	 * The clusters do not depend on the number of threads.
+	 */
+	@Test
+	public void testThreads() throws IOException, StructureException {
+
+		Structure s = LocalStructures.getStructure("2gox.pdb");
+		SubunitClustererParameters params = new SubunitClustererParameters();
+		List<Subunit> subunits = SubunitExtractor.extractSubunits(s,
+				params.getAbsoluteMinimumSequenceLength(),
+				params.getMinimumSequenceLengthFraction(),
+				params.getMinimumSequenceLength());
+
+		for (SubunitClustererMethod method : SubunitClustererMethod.values()) {
+			params.setClustererMethod(method);
+
+			Stoichiometry sequential = SubunitClusterer.cluster(subunits, params, null);
+			Stoichiometry parallel = SubunitClusterer.cluster(subunits, params, ExecutionContext.forkJoin(4));
+
+			assertEquals(sequential.toString(), parallel.toString());
+			assertEquals(getAlignedResidues(sequential), getAlignedResidues(parallel));
+		}
+	}
+}
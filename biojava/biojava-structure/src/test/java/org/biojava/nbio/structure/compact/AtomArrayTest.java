@@ -0,0 +1,177 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.compact;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+
+import org.biojava.nbio.structure.AminoAcidImpl;
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.AtomImpl;
+import org.biojava.nbio.structure.BondImpl;
+import org.biojava.nbio.structure.Calc;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.ChainImpl;
+import org.biojava.nbio.structure.Element;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.GroupType;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.StructureTools;
+import org.junit.Test;
+
+/**
+ * Tests for {@link AtomArray} and its views.
+ */
+public class AtomArrayTest {
+
+	/**
+	 * Two chains, with 2 and 1 alanines of atoms N and CA, bonded within each residue.
+	 */
+	private static Structure makeStructure() {
+		Structure s = new StructureImpl();
+		int serial = 1;
+		for (String chainId : new String[] {"A", "B"}) {
+			Chain c = new ChainImpl();
+			c.setId(chainId);
+			c.setName(chainId);
+			s.addChain(c);
+			int nres = chainId.equals("A") ? 2 : 1;
+			for (int r = 1; r <= nres; r++) {
+				Group g = new AminoAcidImpl();
+				g.setPDBName("ALA");
+				g.setResidueNumber(chainId, r, null);
+				Atom n = makeAtom("N", Element.N, serial++);
+				Atom ca = makeAtom("CA", Element.C, serial++);
+				g.addAtom(n);
+				g.addAtom(ca);
+				new BondImpl(n, ca, 1);
+				c.addGroup(g);
+			}
+		}
+		return s;
+	}
+
+	private static Atom makeAtom(String name, Element e, int serial) {
+		Atom a = new AtomImpl();
+		a.setName(name);
+		a.setElement(e);
+		a.setPDBserial(serial);
+		a.setCoords(new double[] {serial, 2 * serial, -serial});
+		return a;
+	}
+
+	@Test
+	public void testFromStructure() {
+		Structure s = makeStructure();
+		Atom[] atoms = StructureTools.getAllAtomArray(s);
+		AtomArray array = AtomArray.fromStructure(s);
+
+		assertEquals(6, array.size());
+		assertEquals(3, array.getGroupCount());
+		assertEquals(2, array.getChainCount());
+
+		for (int i = 0; i < atoms.length; i++) {
+			assertEquals(atoms[i].getName(), array.getName(i));
+			assertEquals(atoms[i].getElement(), array.getElement(i));
+			assertEquals(atoms[i].getPDBserial(), array.getPDBserial(i));
+			assertEquals(atoms[i].getX(), array.getX(i), 0);
+			assertEquals(atoms[i].getY(), array.getY(i), 0);
+			assertEquals(atoms[i].getZ(), array.getZ(i), 0);
+		}
+		// names are interned
+		assertSame(array.getName(1), array.getName(3));
+
+		assertEquals(1, array.getBondCount(0));
+		assertTrue(array.hasBond(0, 1));
+		assertFalse(array.hasBond(1, 2));
+
+		assertEquals(2, array.getGroupStart(1));
+		assertEquals(4, array.getGroupEnd(1));
+		assertEquals(1, array.getChainIndex(2));
+		assertEquals("B", array.getChainId(1));
+		assertEquals(GroupType.AMINOACID, array.getGroupType(0));
+
+		assertEquals(Calc.getCentroid(atoms).getCoordsAsPoint3d(), array.getCentroid());
+	}
+
+	@Test
+	public void testViews() {
+		AtomArray array = AtomArray.fromStructure(makeStructure());
+
+		Atom ca = array.getAtom(3);
+		assertEquals("CA", ca.getName());
+		assertEquals(array.getAtom(3), ca);
+		assertTrue(ca.hasBond(array.getAtom(2)));
+		assertEquals(1, ca.getBonds().size());
+		assertEquals(array.getAtom(2), ca.getBonds().get(0).getOther(ca));
+		assertNull(ca.getAltLoc());
+
+		// writes go through to the arrays
+		ca.setX(10);
+		assertEquals(10, array.getXCoords()[3], 0);
+
+		Group g = ca.getGroup();
+		assertEquals("ALA", g.getPDBName());
+		assertEquals(2, g.getResidueNumber().getSeqNum().intValue());
+		assertEquals(2, g.size());
+		assertEquals(ca, g.getAtom("CA"));
+		assertSame(g, array.getGroup(1));
+
+		Chain c = g.getChain();
+		assertEquals("A", c.getId());
+		assertEquals(2, c.getAtomGroups().size());
+		assertSame(c, array.getChain(0));
+
+		// the group properties are copies
+		g.setPDBName("GLY");
+		assertEquals("ALA", array.getGroupName(1));
+	}
+
+	@Test
+	public void testTransform() {
+		AtomArray array = AtomArray.fromStructure(makeStructure());
+		Point3d[] points = array.toPoint3dArray();
+
+		Matrix4d m = new Matrix4d();
+		m.rotZ(Math.PI / 3);
+		m.setTranslation(new Vector3d(1, -2, 3));
+		array.transform(m);
+
+		for (int i = 0; i < points.length; i++) {
+			m.transform(points[i]);
+			assertEquals(points[i].x, array.getX(i), 1e-10);
+			assertEquals(points[i].y, array.getY(i), 1e-10);
+			assertEquals(points[i].z, array.getZ(i), 1e-10);
+		}
+
+		double[] packed = array.getCoordsPacked();
+		assertEquals(18, packed.length);
+		assertEquals(array.getY(5), packed[16], 0);
+	}
+}
@@ -29,6 +29,13 @@ import org.junit.Test;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.vecmath.Point3d;
 
 
 import static org.junit.Assert.*;
@@ -297,4 +304,66 @@ public class TestContactCalc {
 		}
 		return distMatrix;
 	}
+
+	private static Point3d[] randomPoints(Random random, int n, double size) {
+		Point3d[] points = new Point3d[n];
+		for (int i = 0; i < n; i++) {
+			points[i] = new Point3d(random.nextDouble() * size, random.nextDouble() * size - size / 2,
+					random.nextDouble() * size);
+		}
+		return points;
+	}
+
+	private static List<String> getBruteForceContacts(Point3d[] iPoints, Point3d[] jPoints, double cutoff) {
+		List<String> contacts = new ArrayList<>();
+		for (int i = 0; i < iPoints.length; i++) {
+			for (int j = jPoints == null ? i + 1 : 0; j < (jPoints == null ? iPoints : jPoints).length; j++) {
+				double distance = iPoints[i].distance((jPoints == null ? iPoints : jPoints)[j]);
+				if (distance < cutoff) contacts.add(i + "-" + j + ":" + distance);
+			}
+		}
+		return contacts;
+	}
+
+	private static List<String> toStrings(ContactBuffer buffer) {
+		List<String> contacts = new ArrayList<>();
+		for (int k = 0; k < buffer.size(); k++) {
+			contacts.add(buffer.getI(k) + "-" + buffer.getJ(k) + ":" + buffer.getDistance(k));
+		}
+		return contacts;
+	}
+
+	@Test
+	public void testSparseGridVsBruteForce() {
+		Random random = new Random(42);
+		// a sparse shell of points and a dense cluster, so that most of the bounding box is empty
+		Point3d[] iPoints = randomPoints(random, 3000, 300);
+		Point3d[] jPoints = randomPoints(random, 1000, 30);
+		double cutoff = 5.5;
+
+		for (Point3d[] js : new Point3d[][] {null, jPoints}) {
+			Grid grid = new Grid(cutoff);
+			if (js == null) grid.addCoords(iPoints);
+			else grid.addCoords(iPoints, js);
+
+			List<String> expected = getBruteForceContacts(iPoints, js, cutoff);
+			List<String> serial = toStrings(grid.getContactBuffer());
+			assertEquals(new HashSet<>(expected), new HashSet<>(serial));
+			assertEquals(expected.size(), serial.size());
+			assertEquals(serial.size(), grid.getIndicesContacts().size());
+
+			grid.setParallel(true);
+			assertEquals(serial, toStrings(grid.getContactBuffer()));
+			AtomicInteger count = new AtomicInteger();
+			grid.forEachContact((i, j, distance) -> count.incrementAndGet());
+			assertEquals(serial.size(), count.get());
+			// a buffer is filled from this thread, in order
+			ContactBuffer buffer = new ContactBuffer();
+			grid.forEachContact(buffer);
+			assertEquals(serial, toStrings(buffer));
+
+			assertTrue(grid.hasAnyContact(new Point3d[] {new Point3d(iPoints[7].x + 1, iPoints[7].y, iPoints[7].z)}));
+			assertFalse(grid.hasAnyContact(new Point3d[] {new Point3d(1000, 1000, 1000)}));
+		}
+	}
 }
@@ -0,0 +1,169 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.geometry;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.junit.Test;
+
+import javax.vecmath.AxisAngle4d;
+import javax.vecmath.Matrix4d;
+import javax.vecmath.Point3d;
+import javax.vecmath.Vector3d;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test the batched {@link SuperPositionQCPBatch} against the superpositions of
+ * {@link SuperPositionQCP}.
+ */
+public class TestSuperPositionQCPBatch {
+
+	private static final int POINTS = 150;
+
+	private static final int CANDIDATES = 300;
+
+	/**
+	 * Returns randomly transformed, noisy copies of the reference.
+	 */
+	private static Point3d[][] getCandidates(Point3d[] reference, Random rnd) {
+		Point3d[][] candidates = new Point3d[CANDIDATES][];
+		for (int k = 0; k < CANDIDATES; k++) {
+			Matrix4d transform = new Matrix4d();
+			transform.set(new AxisAngle4d(rnd.nextDouble(), rnd.nextDouble(), rnd.nextDouble(), 2 * Math.PI * rnd.nextDouble()));
+			transform.setTranslation(new Vector3d(rnd.nextInt(100), rnd.nextInt(100), rnd.nextInt(100)));
+			double noise = 0.1 + k % 10;
+			candidates[k] = new Point3d[reference.length];
+			for (int i = 0; i < reference.length; i++) {
+				candidates[k][i] = new Point3d(reference[i].x + noise * rnd.nextGaussian(),
+						reference[i].y + noise * rnd.nextGaussian(), reference[i].z + noise * rnd.nextGaussian());
+			}
+			CalcPoint.transform(transform, candidates[k]);
+		}
+		return candidates;
+	}
+
+	private static Point3d[] getReference(Random rnd) {
+		Point3d[] reference = new Point3d[POINTS];
+		for (int i = 0; i < POINTS; i++) {
+			reference[i] = new Point3d(rnd.nextInt(100), rnd.nextInt(50), rnd.nextInt(150));
+		}
+		return reference;
+	}
+
+	private static double[] pack(Point3d[][] candidates) {
+		double[] packed = new double[3 * POINTS * candidates.length];
+		for (int k = 0; k < candidates.length; k++) {
+			System.arraycopy(CalcPoint.toPackedArray(candidates[k]), 0, packed, 3 * POINTS * k, 3 * POINTS);
+		}
+		return packed;
+	}
+
+	@Test
+	public void testSameAsQCP() {
+		Random rnd = new Random(0);
+		Point3d[] reference = getReference(rnd);
+		Point3d[][] candidates = getCandidates(reference, rnd);
+		double[] packed = pack(candidates);
+
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(reference);
+		assertEquals(POINTS, batch.getLength());
+		assertEquals(CANDIDATES, batch.getCandidateCount(packed));
+		assertTrue(batch.getCentroid().epsilonEquals(CalcPoint.centroid(reference), 1e-10));
+
+		double[] rmsds = new double[CANDIDATES];
+		Matrix4d[] transforms = batch.superposeAll(packed, rmsds, null);
+		assertArrayEquals(rmsds, batch.getRmsds(packed), 0);
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		for (int k = 0; k < CANDIDATES; k++) {
+			double rmsd = qcp.getRmsd(reference, candidates[k]);
+			Matrix4d transform = qcp.superpose(reference, candidates[k]);
+
+			assertEquals(rmsd, rmsds[k], 1e-6);
+			assertEquals(rmsd, batch.getRmsd(CalcPoint.toPackedArray(candidates[k])), 1e-6);
+			assertEquals(rmsds[k], batch.getRmsd(packed, k), 0);
+			assertTrue(transform.epsilonEquals(transforms[k], 1e-6));
+			assertTrue(transform.epsilonEquals(batch.superpose(packed, k), 1e-6));
+
+			// the transformation superposes the candidate onto the reference
+			Point3d[] moved = CalcPoint.clonePoint3dArray(candidates[k]);
+			CalcPoint.transform(transforms[k], moved);
+			assertEquals(rmsds[k], CalcPoint.rmsd(reference, moved), 1e-6);
+		}
+	}
+
+	@Test
+	public void testParallel() {
+		Random rnd = new Random(1);
+		Point3d[] reference = getReference(rnd);
+		double[] packed = pack(getCandidates(reference, rnd));
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(reference);
+
+		double[] rmsds = batch.getRmsds(packed);
+		ExecutionContext context = ExecutionContext.forkJoin(4);
+		assertArrayEquals(rmsds, batch.getRmsds(packed, context), 0);
+
+		Matrix4d[] transforms = batch.superposeAll(packed);
+		double[] parallelRmsds = new double[CANDIDATES];
+		Matrix4d[] parallelTransforms = batch.superposeAll(packed, parallelRmsds, context);
+		assertArrayEquals(rmsds, parallelRmsds, 0);
+		assertArrayEquals(transforms, parallelTransforms);
+	}
+
+	@Test
+	public void testFragments() {
+		Random rnd = new Random(2);
+		Point3d[] points = getReference(rnd);
+		double[] packed = CalcPoint.toPackedArray(points);
+		Point3d[] fragment = new Point3d[8];
+		System.arraycopy(points, 20, fragment, 0, fragment.length);
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(fragment);
+
+		SuperPositionQCP qcp = new SuperPositionQCP(false);
+		for (int start = 0; start + fragment.length <= POINTS; start++) {
+			Point3d[] candidate = new Point3d[fragment.length];
+			System.arraycopy(points, start, candidate, 0, fragment.length);
+			assertTrue(qcp.superpose(fragment, candidate).epsilonEquals(batch.superposeAt(packed, start), 1e-6));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongFragmentStart() {
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(new double[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 });
+		batch.superposeAt(new double[12], 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongCandidateLength() {
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(new double[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 });
+		batch.getRmsds(new double[12]);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongCandidateIndex() {
+		SuperPositionQCPBatch batch = new SuperPositionQCPBatch(new double[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 });
+		batch.getRmsd(new double[18], 2);
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Bond;
+import org.biojava.nbio.structure.Chain;
+import org.biojava.nbio.structure.Group;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureImpl;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.SubstructureIdentifier;
+import org.biojava.nbio.structure.align.util.StructureCache;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test that the bonds and SEQRES alignment deferred in lazy mode are the same
+ * as the ones created while parsing.
+ */
+public class TestLazyParsing {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	private static FileParsingParameters getParams(boolean lazy) {
+		FileParsingParameters params = new FileParsingParameters();
+		params.setLazy(lazy);
+		params.setCreateAtomBonds(!lazy);
+		params.setAlignSeqRes(!lazy);
+		return params;
+	}
+
+	private static Structure parseCif(FileParsingParameters params) throws IOException {
+		return CifStructureConverter.fromPath(Paths.get("src/test/resources/4hhb.cif.gz"), params);
+	}
+
+	private static Structure parsePdb(FileParsingParameters params) throws IOException {
+		PDBFileParser parser = new PDBFileParser();
+		parser.setFileParsingParameters(params);
+		try (InputStream in = Files.newInputStream(Paths.get("src/test/resources/3dl7_v32.pdb"))) {
+			return parser.parsePDBFile(in);
+		}
+	}
+
+	/**
+	 * @return the bonds of each atom, as the indices of the bonded atoms
+	 */
+	private static List<String> describeBonds(Structure s) {
+		Atom[] atoms = StructureTools.getAllAtomArray(s);
+		List<String> bonds = new ArrayList<>();
+		for (Atom atom : atoms) {
+			if (atom.getBonds() != null) {
+				bonds.add(atom.getPDBserial() + ":" + atom.getBonds().size());
+			}
+		}
+		return bonds;
+	}
+
+	/**
+	 * @return the SEQRES of each chain, with the residue numbers of the observed groups
+	 */
+	private static List<String> describeSeqRes(Structure s) {
+		List<String> seqRes = new ArrayList<>();
+		for (Chain chain : s.getChains()) {
+			StringBuilder sb = new StringBuilder(chain.getId()).append(' ').append(chain.getSeqResSequence());
+			for (Group group : chain.getSeqResGroups()) {
+				sb.append(' ').append(group.getResidueNumber());
+			}
+			seqRes.add(sb.toString());
+		}
+		return seqRes;
+	}
+
+	@Test
+	public void testCifBonds() throws IOException {
+		List<String> bonds = describeBonds(parseCif(getParams(false)));
+		assertTrue(bonds.size() > 1000);
+		assertEquals(bonds, describeBonds(parseCif(getParams(true))));
+
+		// nothing is created without the lazy mode
+		FileParsingParameters params = getParams(true);
+		params.setLazy(false);
+		assertEquals(0, describeBonds(parseCif(params)).size());
+	}
+
+	@Test
+	public void testCifSeqRes() throws IOException {
+		List<String> seqRes = describeSeqRes(parseCif(getParams(false)));
+		assertEquals(seqRes, describeSeqRes(parseCif(getParams(true))));
+	}
+
+	@Test
+	public void testPdbBonds() throws IOException {
+		// the PDB parser only defers the bonds
+		FileParsingParameters params = getParams(true);
+		params.setAlignSeqRes(true);
+		Structure eager = parsePdb(getParams(false));
+		Structure lazy = parsePdb(params);
+		assertTrue(lazy.getSSBonds().size() > 0);
+		assertEquals(describeBonds(eager), describeBonds(lazy));
+		assertEquals(eager.getSSBonds().size(), lazy.getSSBonds().size());
+	}
+
+	@Test
+	public void testClone() throws IOException {
+		Structure eager = parseCif(getParams(false));
+		Structure lazy = parseCif(getParams(true));
+		Structure clone = lazy.clone();
+		assertEquals(describeSeqRes(eager), describeSeqRes(clone));
+		assertEquals(describeBonds(eager), describeBonds(clone));
+		// the bonds of the clone are its own
+		for (Atom atom : StructureTools.getAllAtomArray(clone)) {
+			if (atom.getBonds() == null) {
+				continue;
+			}
+			for (Bond bond : atom.getBonds()) {
+				assertTrue(bond.getAtomA().getGroup().getChain().getStructure() == clone);
+				assertTrue(bond.getAtomB().getGroup().getChain().getStructure() == clone);
+			}
+		}
+		assertEquals(describeSeqRes(eager), describeSeqRes(lazy));
+		assertEquals(describeBonds(eager), describeBonds(lazy));
+	}
+
+	@Test
+	public void testStructureCache() throws IOException {
+		Structure eager = parseCif(getParams(false));
+		StructureCache cache = new StructureCache();
+		cache.put("4hhb", parseCif(getParams(true)));
+		// the copies of the cache still defer their work to their first use
+		StructureImpl cached = (StructureImpl) cache.get("4hhb");
+		assertTrue(cached.isSeqResAlignmentDeferred());
+		assertTrue(cached.isBondsDeferred());
+		assertEquals(describeSeqRes(eager), describeSeqRes(cached));
+		assertEquals(describeBonds(eager), describeBonds(cached));
+		assertFalse(cached.isSeqResAlignmentDeferred());
+		assertFalse(cached.isBondsDeferred());
+		assertEquals(describeSeqRes(eager), describeSeqRes(cache.get("4hhb")));
+	}
+
+	@Test
+	public void testReduce() throws IOException, StructureException {
+		Structure eager = new SubstructureIdentifier("4HHB.A").reduce(parseCif(getParams(false)));
+		Structure lazy = new SubstructureIdentifier("4HHB.A").reduce(parseCif(getParams(true)));
+		assertEquals(describeSeqRes(eager), describeSeqRes(lazy));
+		assertEquals(describeBonds(eager), describeBonds(lazy));
+	}
+}
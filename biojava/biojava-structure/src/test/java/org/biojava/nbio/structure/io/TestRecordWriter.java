@@ -0,0 +1,192 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import org.biojava.nbio.structure.Atom;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.contact.StructureInterface;
+import org.biojava.nbio.structure.io.cif.AbstractCifFileSupplier;
+import org.biojava.nbio.structure.io.cif.CifStructureConverter;
+import org.biojava.nbio.structure.xtal.CrystalTransform;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+import org.rcsb.cif.CifBuilder;
+import org.rcsb.cif.CifIO;
+import org.rcsb.cif.schema.StandardSchemata;
+import org.rcsb.cif.schema.mm.MmCifBlockBuilder;
+
+/**
+ * Test that the streamed PDB and mmCIF files are the same as the ones built in memory.
+ */
+public class TestRecordWriter {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	private static String format(double value, int fractionDigits, boolean fixed, int maxIntegerDigits) {
+		StringBuilder sb = new StringBuilder();
+		RecordWriter.appendDecimal(sb, value, fractionDigits, fixed, maxIntegerDigits);
+		return sb.toString();
+	}
+
+	@Test
+	public void testAppendDecimal() {
+		DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.US);
+		DecimalFormat d3 = new DecimalFormat("0.000", symbols);
+		d3.setMaximumIntegerDigits(4);
+		DecimalFormat d2 = new DecimalFormat("0.00", symbols);
+		d2.setMaximumIntegerDigits(3);
+		DecimalFormat cif = new DecimalFormat("0.######", symbols);
+
+		double[] values = { 0, -0.0, -0.0004, 0.0005, 1.0005, 2.5, -2.5, 0.125, 12345.678, 9999.9996, 1e12, -1e-9,
+				Double.NaN, Double.POSITIVE_INFINITY };
+		for (double value : values) {
+			assertEquals(d3.format(value), format(value, 3, true, 4));
+			assertEquals(d2.format(value), format(value, 2, true, 3));
+			assertEquals(cif.format(value), format(value, 6, false, Integer.MAX_VALUE));
+		}
+
+		Random random = new Random(42);
+		for (int i = 0; i < 100000; i++) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(7));
+			// coordinates and B-factors, as parsed from files
+			double parsed = Math.round(value * 1000) / 1000.0;
+			assertEquals(d3.format(value), format(value, 3, true, 4));
+			assertEquals(d2.format(parsed), format(parsed, 2, true, 3));
+			assertEquals(cif.format(value), format(value, 6, false, Integer.MAX_VALUE));
+			assertEquals(cif.format(parsed), format(parsed, 6, false, Integer.MAX_VALUE));
+		}
+	}
+
+	@Test
+	public void testStreamedFiles() throws IOException, StructureException {
+		for (String file : new String[] { "4hhb.cif.gz", "3dl7_v32.pdb", "ligandTest.cif.gz" }) {
+			Structure s = LocalStructures.getStructure(file);
+
+			String cif = new String(CifIO.writeText(CifStructureConverter.toCifFile(s)), StandardCharsets.UTF_8);
+			assertEquals(cif, CifStructureConverter.toText(s));
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			new FileConvert(s).toMMCIF(bytes);
+			assertEquals(cif, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+			String chainCif = new String(CifIO.writeText(CifStructureConverter.toCifFile(s.getChainByIndex(0))),
+					StandardCharsets.UTF_8);
+			assertEquals(chainCif, FileConvert.toMMCIF(s.getChainByIndex(0)));
+
+			String pdb = new FileConvert(s).toPDB();
+			bytes = new ByteArrayOutputStream();
+			new FileConvert(s).toPDB(bytes);
+			assertEquals(pdb, new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testGzipFile() throws IOException, StructureException {
+		Structure s = LocalStructures.getStructure("4hhb.cif.gz");
+		Path path = Files.createTempFile("biojava", ".cif.gz");
+		try {
+			new FileConvert(s).toMMCIF(path);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+				byte[] buffer = new byte[8192];
+				int n;
+				while ((n = in.read(buffer)) > 0) {
+					bytes.write(buffer, 0, n);
+				}
+			}
+			assertEquals(new FileConvert(s).toMMCIF(), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+
+			Structure read = CifStructureConverter.fromPath(path);
+			assertEquals(StructureTools.getNrAtoms(s), StructureTools.getNrAtoms(read));
+		} finally {
+			Files.delete(path);
+		}
+	}
+
+	@Test
+	public void testInterface() throws IOException, StructureException {
+		Structure s = LocalStructures.getStructure("4hhb.cif.gz");
+		Atom[] a = StructureTools.getAllAtomArray(s.getPolyChainByPDB("A"));
+		Atom[] b = StructureTools.getAllAtomArray(s.getPolyChainByPDB("B"));
+
+		StructureInterface interf = new StructureInterface(a, b, "A", "B", null,
+				new CrystalTransform(null, 0), new CrystalTransform(null, 0));
+		StringBuilder pdb = new StringBuilder();
+		for (Atom atom : a) {
+			pdb.append(FileConvert.toPDB(atom, "A"));
+		}
+		pdb.append("TER").append(System.getProperty("line.separator"));
+		for (Atom atom : b) {
+			pdb.append(FileConvert.toPDB(atom, "B"));
+		}
+		pdb.append("TER").append(System.getProperty("line.separator"));
+		pdb.append("END").append(System.getProperty("line.separator"));
+		assertEquals(pdb.toString(), interf.toPDB());
+		assertEquals(toMMCIF(interf, a, b, "A", "B", false), interf.toMMCIF());
+
+		// a symmetry related interface, whose atoms are renumbered
+		interf = new StructureInterface(a, a, "A", "A", null,
+				new CrystalTransform(null, 0), new CrystalTransform(null, 0));
+		assertEquals(toMMCIF(interf, a, a, "A", "A_0", true), interf.toMMCIF());
+	}
+
+	/**
+	 * The mmCIF file of an interface, as built with ciftools.
+	 */
+	private static String toMMCIF(StructureInterface interf, Atom[] first, Atom[] second, String id1, String id2,
+			boolean renumber) throws IOException {
+		MmCifBlockBuilder builder = CifBuilder.enterFile(StandardSchemata.MMCIF)
+				.enterBlock("BioJava_interface_" + interf.getId());
+		List<AbstractCifFileSupplier.WrappedAtom> wrappedAtoms = new ArrayList<>();
+		int atomId = 1;
+		for (Atom atom : first) {
+			wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, id1, id1, atom,
+					renumber ? atomId : atom.getPDBserial()));
+			atomId++;
+		}
+		for (Atom atom : second) {
+			wrappedAtoms.add(new AbstractCifFileSupplier.WrappedAtom(1, id2, id2, atom,
+					renumber ? atomId : atom.getPDBserial()));
+			atomId++;
+		}
+		builder.addCategory(wrappedAtoms.stream().collect(AbstractCifFileSupplier.toAtomSite()));
+		return new String(CifIO.writeText(builder.leaveBlock().leaveFile()), StandardCharsets.UTF_8);
+	}
+}
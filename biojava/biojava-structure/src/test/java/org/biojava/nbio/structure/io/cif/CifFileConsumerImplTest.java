@@ -1,9 +1,15 @@
 package org.biojava.nbio.structure.io.cif;
 
+import org.biojava.nbio.structure.Atom;
 import org.biojava.nbio.structure.Chain;
 import org.biojava.nbio.structure.EntityInfo;
 import org.biojava.nbio.structure.EntityType;
 import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureTools;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ChemCompProvider;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
 import org.biojava.nbio.structure.io.CifFileReader;
 import org.biojava.nbio.structure.io.FileParsingParameters;
 import org.biojava.nbio.structure.io.PDBFileParser;
@@ -17,7 +23,10 @@ import org.rcsb.cif.schema.mm.MmCifFile;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.ArrayList;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
@@ -220,4 +229,103 @@ public class CifFileConsumerImplTest {
         column.valueKinds().forEach(vk -> assertEquals(ValueKind.NOT_PRESENT, vk));
         column.stringData().forEach(sd -> assertTrue(sd.isEmpty()));
     }
-}
\ No newline at end of file
+
+    private static Structure parse(InputStream inputStream, FileParsingParameters params) throws IOException {
+        ChemCompProvider provider = ChemCompGroupFactory.getChemCompProvider();
+        ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+        try {
+            return CifStructureConverter.fromInputStream(inputStream, params);
+        } finally {
+            ChemCompGroupFactory.setChemCompProvider(provider);
+        }
+    }
+
+    private static Structure parse4hhb(FileParsingParameters params) throws IOException {
+        try (InputStream inputStream = new GZIPInputStream(Files.newInputStream(Paths.get("src/test/resources/4hhb.cif.gz")))) {
+            return parse(inputStream, params);
+        }
+    }
+
+    /**
+     * Test that parsing only some chains and atoms gives the same atoms as the full structure.
+     */
+    @Test
+    public void testAcceptedChainsAndAtoms() throws IOException, StructureException {
+        Structure full = parse4hhb(new FileParsingParameters());
+
+        FileParsingParameters params = new FileParsingParameters();
+        params.setAcceptedChainNames(new String[] { "A" });
+        params.setAcceptedAtomNames(new String[] { "CA" });
+        Structure s = parse4hhb(params);
+
+        for (Chain chain : s.getChains()) {
+            assertEquals("A", chain.getName());
+        }
+        Atom[] expected = StructureTools.getAtomCAArray(full.getPolyChainByPDB("A"));
+        Atom[] actual = StructureTools.getAtomCAArray(s.getPolyChainByPDB("A"));
+        assertEquals(141, actual.length);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getPDBserial(), actual[i].getPDBserial());
+            assertEquals(expected[i].getGroup().getResidueNumber(), actual[i].getGroup().getResidueNumber());
+            assertArrayEquals(expected[i].getCoordsAsPoint3d().toString(), expected[i].getCoords(), actual[i].getCoords(), 0);
+        }
+        assertEquals(full.getPolyChainByPDB("A").getEntityInfo().getDescription(),
+                s.getPolyChainByPDB("A").getEntityInfo().getDescription());
+        assertEquals(141, StructureTools.getNrAtoms(s));
+    }
+
+    /**
+     * Test that the categories that are not accepted are skipped.
+     */
+    @Test
+    public void testAcceptedCategories() throws IOException {
+        Structure full = parse4hhb(new FileParsingParameters());
+
+        FileParsingParameters params = new FileParsingParameters();
+        params.setAcceptedCategories(new String[] { "atom_site", "entity", "struct_asym" });
+        Structure s = parse4hhb(params);
+        assertEquals(StructureTools.getNrAtoms(full), StructureTools.getNrAtoms(s));
+        assertEquals(full.getEntityInfos().size(), s.getEntityInfos().size());
+        assertFalse(full.getPDBHeader().getKeywords().isEmpty());
+        assertTrue(s.getPDBHeader().getKeywords().isEmpty());
+        assertNull(s.getCrystallographicInfo().getSpaceGroup());
+
+        // without atom_site only the header is parsed
+        params.setAcceptedCategories(new String[] { "struct_keywords" });
+        s = parse4hhb(params);
+        assertEquals(0, StructureTools.getNrAtoms(s));
+        assertEquals(full.getPDBHeader().getKeywords(), s.getPDBHeader().getKeywords());
+    }
+
+    /**
+     * Test that only the accepted models are parsed, from a file with two copies of 4hhb.
+     */
+    @Test
+    public void testAcceptedModels() throws IOException {
+        Structure full = parse4hhb(new FileParsingParameters());
+        List<Chain> model = new ArrayList<>();
+        for (Chain chain : full.getChains()) {
+            Chain copy = (Chain) chain.clone();
+            for (Atom atom : StructureTools.getAllAtomArray(copy)) {
+                atom.setX(atom.getX() + 100);
+            }
+            model.add(copy);
+        }
+        full.addModel(model);
+        byte[] twoModels = CifStructureConverter.toText(full).getBytes();
+
+        FileParsingParameters params = new FileParsingParameters();
+        params.setAcceptedModels(new int[] { 2 });
+        Structure s = parse(new ByteArrayInputStream(twoModels), params);
+        assertEquals(1, s.nrModels());
+        Atom[] expected = StructureTools.getAllAtomArray(full, 1);
+        Atom[] actual = StructureTools.getAllAtomArray(s);
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i].getX(), actual[i].getX(), 1e-3);
+        }
+
+        assertEquals(2, parse(new ByteArrayInputStream(twoModels), new FileParsingParameters()).nrModels());
+    }
+}
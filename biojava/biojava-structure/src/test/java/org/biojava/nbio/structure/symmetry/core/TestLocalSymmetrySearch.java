@@ -0,0 +1,113 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.symmetry.core;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.biojava.nbio.core.util.ExecutionContext;
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.cluster.Subunit;
+import org.biojava.nbio.structure.cluster.SubunitClusterer;
+import org.biojava.nbio.structure.cluster.SubunitClustererMethod;
+import org.biojava.nbio.structure.cluster.SubunitClustererParameters;
+import org.biojava.nbio.structure.cluster.SubunitExtractor;
+import org.biojava.nbio.structure.test.util.LocalStructures;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test the parallel {@link LocalSymmetrySearch} against the sequential search
+ * of {@link QuatSymmetryDetector#calcLocalSymmetries(Stoichiometry, QuatSymmetryParameters)}.
+ */
+public class TestLocalSymmetrySearch {
+
+	@Rule
+	public LocalStructures local = new LocalStructures();
+
+	private static List<Subunit> getSubunits(String file, int n) throws IOException, StructureException {
+		Structure s = LocalStructures.getStructure(file);
+		SubunitClustererParameters cp = new SubunitClustererParameters();
+		List<Subunit> subunits = SubunitExtractor.extractSubunits(s, cp.getAbsoluteMinimumSequenceLength(),
+				cp.getMinimumSequenceLengthFraction(), cp.getMinimumSequenceLength());
+		return subunits.subList(0, Math.min(n, subunits.size()));
+	}
+
+	/**
+	 * @return the symmetry, stoichiometry and Subunit names of the results, sorted
+	 */
+	private static List<String> describe(List<QuatSymmetryResults> results) {
+		List<String> descriptions = new ArrayList<>();
+		for (QuatSymmetryResults result : results) {
+			List<String> names = new ArrayList<>();
+			for (Subunit subunit : result.getSubunits())
+				names.add(subunit.getName());
+			Collections.sort(names);
+			descriptions.add(result.getSymmetry() + " " + result.getStoichiometry() + " " + names
+					+ String.format(" %.4f", result.getScores().getRmsd()));
+		}
+		Collections.sort(descriptions);
+		return descriptions;
+	}
+
+	/**
+	 * Runs both searches on their own clustering of the Subunits, since the
+	 * searches trim the clusters.
+	 */
+	private static List<String> assertSameAsSequential(List<Subunit> subunits, QuatSymmetryParameters params) {
+		SubunitClustererParameters cp = new SubunitClustererParameters();
+		cp.setClustererMethod(SubunitClustererMethod.SEQUENCE);
+		List<String> sequential = describe(QuatSymmetryDetector.calcLocalSymmetries(
+				SubunitClusterer.cluster(subunits, cp), params));
+		List<String> parallel = describe(QuatSymmetryDetector.calcLocalSymmetries(
+				SubunitClusterer.cluster(subunits, cp), params, ExecutionContext.forkJoin(4)));
+		assertEquals(sequential, parallel);
+		return parallel;
+	}
+
+	@Test
+	public void testHemoglobin() throws IOException, StructureException {
+		List<String> symmetries = assertSameAsSequential(getSubunits("4hhb.cif.gz", 4), new QuatSymmetryParameters());
+		assertEquals(1, symmetries.size());
+		assertEquals("C2 A2B2 [A, B, C, D]", symmetries.get(0).substring(0, 20));
+	}
+
+	@Test
+	public void testCapsidFragment() throws IOException, StructureException {
+		// two pentamers and three more subunits of the icosahedral capsid
+		List<Subunit> subunits = getSubunits("3mk3.pdb", 13);
+		List<String> symmetries = assertSameAsSequential(subunits, new QuatSymmetryParameters());
+		assertEquals(2, symmetries.size());
+		assertEquals(Arrays.asList("C5 A5 [A, B, C, D, E]", "C5 A5 [F, G, H, I, J]"),
+				Arrays.asList(symmetries.get(0).substring(0, 21), symmetries.get(1).substring(0, 21)));
+
+		// the same subsets are considered within the limit of combinations
+		QuatSymmetryParameters params = new QuatSymmetryParameters();
+		params.setMaximumLocalCombinations(20);
+		assertSameAsSequential(subunits, params);
+	}
+}
@@ -324,4 +324,30 @@ public class TestSymmetryAxes {
 		axisNum++;
 	}
 
+	@Test
+	public void testCopy() {
+		SymmetryAxes axes = new SymmetryAxes();
+		Matrix4d r90 = new Matrix4d();
+		r90.set(new AxisAngle4d(0, 0, 1, -Math.PI/2));
+		axes.addAxis(r90, 4, SymmetryType.CLOSED);
+		Matrix4d r180 = new Matrix4d();
+		r180.set(new AxisAngle4d(1, 0, 0, Math.PI));
+		axes.addAxis(r180, 2, SymmetryType.OPEN);
+
+		SymmetryAxes copy = new SymmetryAxes(axes);
+		assertEquals(axes.getNumLevels(), copy.getNumLevels());
+		assertEquals(axes.getElementaryAxes(), copy.getElementaryAxes());
+		for (int i = 0; i < axes.getNumRepeats(); i++) {
+			assertEquals(axes.getRepeatTransform(i), copy.getRepeatTransform(i));
+		}
+		assertEquals(SymmetryType.OPEN, copy.getElementaryAxis(1).getSymmType());
+
+		// updating the copy does not modify the original
+		Matrix4d identity = new Matrix4d();
+		identity.setIdentity();
+		copy.updateAxis(0, identity);
+		assertEquals(r90, axes.getElementaryAxis(0).getOperator());
+		assertEquals(identity, copy.getElementaryAxis(0).getOperator());
+	}
+
 }
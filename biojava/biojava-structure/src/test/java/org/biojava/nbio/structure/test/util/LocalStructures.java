@@ -0,0 +1,77 @@
+/*
+ *                    BioJava development code
+ *
+ * This code may be freely distributed and modified under the
+ * terms of the GNU Lesser General Public Licence.  This should
+ * be distributed with the code.  If you do not have a copy,
+ * see:
+ *
+ *      http://www.gnu.org/copyleft/lesser.html
+ *
+ * Copyright for this code is held jointly by the individual
+ * authors.  These should be listed in @author doc comments.
+ *
+ * For more information on the BioJava project and its aims,
+ * or to join the biojava-l mailing list, visit the home page
+ * at:
+ *
+ *      http://www.biojava.org/
+ *
+ */
+package org.biojava.nbio.structure.test.util;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.biojava.nbio.structure.Structure;
+import org.biojava.nbio.structure.StructureException;
+import org.biojava.nbio.structure.StructureIO;
+import org.biojava.nbio.structure.align.client.StructureName;
+import org.biojava.nbio.structure.chem.ChemCompGroupFactory;
+import org.biojava.nbio.structure.chem.ChemCompProvider;
+import org.biojava.nbio.structure.chem.ReducedChemCompProvider;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Rule for tests reading structures from the files of the test resources,
+ * without downloading chemical components: a {@link ReducedChemCompProvider}
+ * is used during each test and the previous provider restored afterwards.
+ *
+ * <pre>
+ *    &#64;Rule
+ *    public LocalStructures local = new LocalStructures();
+ * </pre>
+ */
+public class LocalStructures extends ExternalResource {
+
+	private static final String RESOURCES = "src/test/resources/";
+
+	private ChemCompProvider provider;
+
+	@Override
+	protected void before() {
+		provider = ChemCompGroupFactory.getChemCompProvider();
+		ChemCompGroupFactory.setChemCompProvider(new ReducedChemCompProvider());
+	}
+
+	@Override
+	protected void after() {
+		ChemCompGroupFactory.setChemCompProvider(provider);
+	}
+
+	/**
+	 * @param file the name of a file of the test resources
+	 * @return the name of the structure of the file
+	 */
+	public static StructureName getName(String file) {
+		return new StructureName("FILE:" + new File(RESOURCES + file).getAbsolutePath());
+	}
+
+	/**
+	 * @param file the name of a file of the test resources
+	 * @return the structure of the file
+	 */
+	public static Structure getStructure(String file) throws IOException, StructureException {
+		return StructureIO.getStructure(getName(file).getIdentifier());
+	}
+}